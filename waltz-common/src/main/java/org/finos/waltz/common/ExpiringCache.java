@@ -0,0 +1,304 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * A small, thread-safe, read-through cache with a time-to-live and a maximum number of entries.
+ * When full the least recently used entry is evicted.
+ *
+ * Values are loaded outside of the cache lock so a slow loader does not block readers of other keys.
+ * If a key (or the whole cache) is invalidated while its value is being loaded the loaded value is
+ * returned to the caller but not retained, preventing stale values being cached.  Loads of other keys
+ * are unaffected.  Null values are never cached.
+ *
+ * @param <K>  key type
+ * @param <V>  value type, should be immutable
+ */
+public class ExpiringCache<K, V> {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // guarded by 'this'
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<K, PendingLoad> pendingLoads = new HashMap<>();
+
+
+    private ExpiringCache(Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        checkNotNull(ttl, "ttl cannot be null");
+        checkTrue(maxEntries > 0, "maxEntries must be positive");
+        checkNotNull(nanoClock, "nanoClock cannot be null");
+
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean full = size() > ExpiringCache.this.maxEntries;
+                if (full) {
+                    evictions.increment();
+                }
+                return full;
+            }
+        };
+    }
+
+
+    public static <K, V> ExpiringCache<K, V> mkCache(Duration ttl, int maxEntries) {
+        return new ExpiringCache<>(ttl, maxEntries, System::nanoTime);
+    }
+
+
+    /**
+     * Variant of {@link #mkCache(Duration, int)} which allows the clock to be supplied, intended for testing.
+     */
+    public static <K, V> ExpiringCache<K, V> mkCache(Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        return new ExpiringCache<>(ttl, maxEntries, nanoClock);
+    }
+
+
+    /**
+     * Returns the cached value for the key, or loads (and caches) it if absent or expired.
+     *
+     * @param key  key to lookup
+     * @param loader  function to load the value if not cached
+     * @return  the value, may be null if the loader returns null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = nanoClock.getAsLong();
+        PendingLoad pending;
+
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+            }
+            pending = startLoad(key);
+        }
+
+        misses.increment();
+        V value = null;
+        try {
+            value = loader.apply(key);
+        } finally {
+            synchronized (this) {
+                finishLoad(key, pending);
+                if (value != null && ! pending.invalidated) {
+                    entries.put(key, new Entry<>(value, now));
+                }
+            }
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Bulk variant of {@link #get(Object, Function)}, all keys which are absent or expired are
+     * passed to the loader in a single call.  Keys which the loader does not return a (non-null)
+     * value for are omitted from the result and are not cached.
+     *
+     * @param keys  keys to lookup
+     * @param loader  function to load the values for the keys which are not cached
+     * @return  map of key to value
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<Set<K>, Map<K, V>> loader) {
+        long now = nanoClock.getAsLong();
+
+        Map<K, V> result = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        Map<K, PendingLoad> pending = new HashMap<>();
+
+        synchronized (this) {
+            for (K key : keys) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null && now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    result.put(key, entry.value);
+                } else {
+                    if (entry != null) {
+                        entries.remove(key);
+                    }
+                    if (missing.add(key)) {
+                        pending.put(key, startLoad(key));
+                    }
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.add(missing.size());
+        Map<K, V> loaded = null;
+        try {
+            loaded = loader.apply(missing);
+        } finally {
+            synchronized (this) {
+                pending.forEach(this::finishLoad);
+                if (loaded != null) {
+                    loaded.forEach((k, v) -> {
+                        if (v != null && missing.contains(k)) {
+                            result.put(k, v);
+                            if (! pending.get(k).invalidated) {
+                                entries.put(k, new Entry<>(v, now));
+                            }
+                        }
+                    });
+                }
+            }
+        }
+
+        return result;
+    }
+
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        PendingLoad pending = pendingLoads.remove(key);
+        if (pending != null) {
+            pending.invalidated = true;
+        }
+    }
+
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        pendingLoads.values().forEach(p -> p.invalidated = true);
+        pendingLoads.clear();
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+
+    public Duration ttl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+
+    /**
+     * @return ratio of hits to lookups, or 0 if there have been no lookups
+     */
+    public double hitRatio() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0
+                ? 0
+                : (double) hitCount / total;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ExpiringCache{" +
+                "size=" + size() +
+                ", maxEntries=" + maxEntries +
+                ", hits=" + hitCount() +
+                ", misses=" + missCount() +
+                ", evictions=" + evictionCount() +
+                '}';
+    }
+
+
+    // -- helpers, callers must hold the lock
+
+    private PendingLoad startLoad(K key) {
+        PendingLoad pending = pendingLoads.computeIfAbsent(key, k -> new PendingLoad());
+        pending.loaders++;
+        return pending;
+    }
+
+
+    private void finishLoad(K key, PendingLoad pending) {
+        pending.loaders--;
+        if (pending.loaders == 0 && pendingLoads.get(key) == pending) {
+            pendingLoads.remove(key);
+        }
+    }
+
+
+    /**
+     * Tracks the in-flight loads of a single key so an invalidation of that key
+     * only discards those loads.  Replaced (not reset) on invalidation.
+     */
+    private static class PendingLoad {
+        private int loaders = 0;
+        private boolean invalidated = false;
+    }
+
+
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * A lock-free histogram of non-negative long values (e.g. durations in nanos or sizes in bytes).
+ *
+ * Values are counted in buckets whose bounds grow exponentially (four buckets per doubling)
+ * between the given lowest and highest bounds, so percentiles are estimated to within ~19%
+ * regardless of magnitude.  Values above the highest bound are counted in an overflow bucket.
+ *
+ * Resetting is not atomic with respect to concurrent recording, which is acceptable for metrics.
+ */
+public class ExponentialHistogram {
+
+    private static final double GROWTH_FACTOR = Math.pow(2, 0.25);
+
+    private final long[] upperBounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+
+    public ExponentialHistogram(long lowest, long highest) {
+        checkTrue(lowest > 0, "lowest bound must be positive");
+        checkTrue(highest > lowest, "highest bound must be greater than the lowest");
+
+        List<Long> bounds = new ArrayList<>();
+        long bound = lowest;
+        while (bound < highest) {
+            bounds.add(bound);
+            bound = Math.max(bound + 1, (long) Math.ceil(bound * GROWTH_FACTOR));
+        }
+        bounds.add(highest);
+
+        this.upperBounds = bounds.stream().mapToLong(b -> b).toArray();
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int idx = Arrays.binarySearch(upperBounds, v);
+        buckets[idx >= 0 ? idx : -(idx + 1)].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+
+    /**
+     * Estimates the value at the given quantile as the upper bound of the bucket containing it,
+     * capped at the maximum recorded value.
+     *
+     * @param quantile  between 0 and 1, e.g. 0.95
+     * @return estimated value, or 0 if nothing has been recorded
+     */
+    public long percentile(double quantile) {
+        checkTrue(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+
+        long[] counts = Arrays.stream(buckets).mapToLong(LongAdder::sum).toArray();
+        long total = Arrays.stream(counts).sum();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        long maxValue = max();
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < upperBounds.length
+                        ? Math.min(upperBounds[i], maxValue)
+                        : maxValue;
+            }
+        }
+        return maxValue;
+    }
+
+
+    public long count() {
+        return count.sum();
+    }
+
+
+    public long sum() {
+        return sum.sum();
+    }
+
+
+    public long max() {
+        return max.get();
+    }
+
+
+    public double mean() {
+        long n = count();
+        return n == 0
+                ? 0
+                : (double) sum() / n;
+    }
+
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+}
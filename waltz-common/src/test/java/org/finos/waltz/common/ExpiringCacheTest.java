@@ -0,0 +1,157 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExpiringCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final AtomicInteger loads = new AtomicInteger(0);
+
+
+    @Test
+    public void valuesAreCachedUntilTheyExpire() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofNanos(100), 10, clock::get);
+
+        assertEquals("a!", cache.get("a", this::load));
+        assertEquals("a!", cache.get("a", this::load));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        clock.set(100);
+        assertEquals("a!", cache.get("a", this::load));
+        assertEquals(2, loads.get(), "expired entry should have been reloaded");
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 2, clock::get);
+
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("a", this::load);
+        cache.get("c", this::load);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+
+        cache.get("a", this::load);
+        assertEquals(3, loads.get(), "'a' was recently used so should not have been evicted");
+        cache.get("b", this::load);
+        assertEquals(4, loads.get(), "'b' should have been evicted");
+    }
+
+
+    @Test
+    public void invalidationForcesReload() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 10, clock::get);
+
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.invalidate("a");
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        assertEquals(3, loads.get());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void valuesLoadedDuringInvalidationAreNotRetained() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 10, clock::get);
+
+        cache.get("a", k -> {
+            cache.invalidateAll();
+            return load(k);
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void invalidatingAKeyOnlyDiscardsLoadsOfThatKey() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 10, clock::get);
+
+        cache.get("a", k -> {
+            cache.invalidate("b");
+            return load(k);
+        });
+        assertEquals(1, cache.size(), "load of 'a' should be retained");
+
+        cache.get("b", k -> {
+            cache.invalidate("b");
+            return load(k);
+        });
+        assertEquals(1, cache.size(), "load of 'b' should be discarded");
+
+        cache.getAll(asList("c", "d"), keys -> {
+            cache.invalidate("c");
+            Map<String, String> loaded = new HashMap<>();
+            keys.forEach(k -> loaded.put(k, load(k)));
+            return loaded;
+        });
+        assertEquals(2, cache.size(), "only 'd' should have been added");
+
+        cache.get("c", this::load);
+        assertEquals(3, cache.size(), "later loads of an invalidated key are retained");
+    }
+
+
+    @Test
+    public void nullsAreNotCached() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 10, clock::get);
+
+        assertNull(cache.get("a", k -> null));
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void missingValuesAreBulkLoaded() {
+        ExpiringCache<String, String> cache = ExpiringCache.mkCache(Duration.ofHours(1), 10, clock::get);
+        cache.get("a", this::load);
+
+        AtomicInteger bulkLoads = new AtomicInteger(0);
+        Map<String, String> result = cache.getAll(
+                asList("a", "b", "c"),
+                keys -> {
+                    bulkLoads.incrementAndGet();
+                    assertEquals(asSet("b", "c"), keys, "only missing keys should be loaded");
+                    Map<String, String> loaded = new HashMap<>();
+                    loaded.put("b", load("b"));
+                    return loaded;
+                });
+
+        assertEquals(1, bulkLoads.get());
+        assertEquals("a!", result.get("a"));
+        assertEquals("b!", result.get("b"));
+        assertFalse(result.containsKey("c"), "keys without values are omitted");
+        assertEquals(2, cache.size());
+
+        cache.getAll(asList("a", "b"), keys -> {
+            throw new IllegalStateException("everything should be cached");
+        });
+    }
+
+
+    private String load(String key) {
+        loads.incrementAndGet();
+        return key + "!";
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExponentialHistogramTest {
+
+    @Test
+    public void percentilesAreEstimatedWithinBucketPrecision() {
+        ExponentialHistogram histogram = new ExponentialHistogram(1, 1_000_000);
+        LongStream.rangeClosed(1, 1000).forEach(histogram::record);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500_500, histogram.sum());
+        assertWithin(500, histogram.percentile(0.5), 0.2);
+        assertWithin(950, histogram.percentile(0.95), 0.2);
+        assertWithin(990, histogram.percentile(0.99), 0.2);
+        assertEquals(1000, histogram.percentile(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+    }
+
+
+    @Test
+    public void valuesAboveTheHighestBoundAreCapturedByTheMax() {
+        ExponentialHistogram histogram = new ExponentialHistogram(1, 100);
+        histogram.record(5_000);
+        assertEquals(5_000, histogram.percentile(0.99));
+    }
+
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        assertTrue(
+                Math.abs(actual - expected) <= expected * tolerance,
+                String.format("expected %d to be within %.0f%% of %d", actual, tolerance * 100, expected));
+    }
+}
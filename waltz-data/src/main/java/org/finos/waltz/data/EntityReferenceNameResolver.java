@@ -18,36 +18,53 @@
 
 package org.finos.waltz.data;
 
-import org.finos.waltz.common.ListUtilities;
+import org.finos.waltz.common.ExpiringCache;
+import org.finos.waltz.model.CommonTableFields;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.jooq.DSLContext;
 import org.jooq.Field;
-import org.jooq.Record2;
-import org.jooq.SelectSelectStep;
-import org.jooq.Table;
-import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.maybeFirst;
-import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
 import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 /**
  * Service which takes a list of entity references and returns a list
  * enriched with entity names.
+ *
+ * Names are cached per entity kind, misses are loaded with one query per kind
+ * (using <code>IN</code> lists of at most {@link #LOAD_BATCH_SIZE} ids).  Cached names
+ * expire after {@link #CACHE_TTL} and may be invalidated sooner, e.g. on rename.
  */
 @Repository
 public class EntityReferenceNameResolver {
 
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MAX_CACHED_NAMES_PER_KIND = 50_000;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+
     private final DSLContext dsl;
+    private final Map<EntityKind, ExpiringCache<Long, String>> namesByKind = new ConcurrentHashMap<>();
 
     @Autowired
     public EntityReferenceNameResolver(DSLContext dsl) {
@@ -58,42 +75,81 @@ public class EntityReferenceNameResolver {
         return maybeFirst(resolve(newArrayList(ref)));
     }
 
+
+    /**
+     * Returns a reference, with the name populated, for each distinct (kind, id) pair in the
+     * given list.  References are returned in the order they were given. If an entity cannot
+     * be found, or its kind has no name, the returned reference has an empty name.
+     */
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
-        Field<Long> idField = DSL.field("tref_id", Long.class);
-        Field<String> kindField = DSL.field("tref_kind", String.class);
-
-        Field<String> nameField = InlineSelectFieldFactory.mkNameField(
-                idField,
-                kindField);
-
-        List<SelectSelectStep<Record2<String, Long>>> parts = map(
-                refs,
-                r -> DSL.select(
-                        DSL.val(r.kind().name()).as(kindField),
-                        DSL.val(r.id()).as(idField)));
-
-
-        if (parts.size() > 0) {
-            SelectSelectStep<Record2<String, Long>> firstPart = parts.get(0);
-            if (parts.size() > 1) {
-                List<SelectSelectStep<Record2<String, Long>>> tail = ListUtilities.drop(parts, 1);
-                tail.forEach(firstPart::union);
-            }
-
-            Table<Record2<String, Long>> tempRefs = firstPart.asTable("temp_refs");
-            return dsl
-                    .select(idField, kindField, nameField)
-                    .from(tempRefs)
-                    .fetch(r -> mkRef(
-                            EntityKind.valueOf(r.get(kindField)),
-                            r.get(idField),
-                            r.get(nameField)));
-        } else {
-            return Collections.emptyList();
+
+        Set<Tuple2<EntityKind, Long>> distinctRefs = new LinkedHashSet<>();
+        Map<EntityKind, Set<Long>> idsByKind = new EnumMap<>(EntityKind.class);
+        refs.forEach(r -> {
+            distinctRefs.add(tuple(r.kind(), r.id()));
+            idsByKind
+                    .computeIfAbsent(r.kind(), k -> new HashSet<>())
+                    .add(r.id());
+        });
+
+        Map<EntityKind, Map<Long, String>> namesByKindAndId = new EnumMap<>(EntityKind.class);
+        idsByKind.forEach((kind, ids) -> namesByKindAndId.put(kind, resolveNames(kind, ids)));
+
+        return distinctRefs
+                .stream()
+                .map(t -> mkRef(t.v1, t.v2, namesByKindAndId.get(t.v1).get(t.v2)))
+                .collect(toList());
+    }
+
+
+    /**
+     * Removes the cached name for the given entity, the next resolution will re-read it from the database.
+     */
+    public void invalidate(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        Optional
+                .ofNullable(namesByKind.get(ref.kind()))
+                .ifPresent(cache -> cache.invalidate(ref.id()));
+    }
+
+
+    public void invalidateAll() {
+        namesByKind.values().forEach(ExpiringCache::invalidateAll);
+    }
+
+
+    // -- helpers
+
+    private Map<Long, String> resolveNames(EntityKind kind, Set<Long> ids) {
+        if (! InlineSelectFieldFactory.DEFAULT_NAME_ENTITIES.contains(kind)) {
+            return Collections.emptyMap();
         }
 
+        return namesByKind
+                .computeIfAbsent(kind, k -> ExpiringCache.mkCache(CACHE_TTL, MAX_CACHED_NAMES_PER_KIND))
+                .getAll(ids, missing -> loadNames(kind, missing));
+    }
+
+
+    private Map<Long, String> loadNames(EntityKind kind, Set<Long> ids) {
+        CommonTableFields<?> ctf = JooqUtilities.determineCommonTableFields(kind);
+        Field<String> nameField = Optional
+                .ofNullable(ctf.nameField())
+                .orElse(CommonTableFields.NA_FIELD_VAL);
+
+        Map<Long, String> names = new HashMap<>();
+        ids.stream()
+                .collect(batchProcessingCollector(LOAD_BATCH_SIZE, batch -> {
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                    dsl.select(ctf.idField(), nameField)
+                            .from(ctf.table())
+                            .where(ctf.idField().in(batch))
+                            .forEach(r -> names.put(r.get(ctf.idField()), r.get(nameField)));
+                }));
+        return names;
     }
 
 }
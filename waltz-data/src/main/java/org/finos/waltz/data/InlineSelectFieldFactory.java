@@ -70,7 +70,7 @@ public class InlineSelectFieldFactory {
             EntityKind.SERVER,
             EntityKind.SOFTWARE);
 
-    private static final Set<EntityKind> DEFAULT_NAME_ENTITIES = SetUtilities.asSet(
+    static final Set<EntityKind> DEFAULT_NAME_ENTITIES = SetUtilities.asSet(
             EntityKind.ACTOR,
             EntityKind.ALLOCATION_SCHEME,
             EntityKind.APPLICATION,
@@ -18,6 +18,7 @@
 
 package org.finos.waltz.data.attestation;
 
+import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.Criticality;
 import org.finos.waltz.model.EntityKind;
@@ -67,10 +68,13 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.counting;
@@ -78,6 +82,7 @@ import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.*;
@@ -139,15 +144,79 @@ public class AttestationInstanceDao {
     public long create(AttestationInstance attestationInstance) {
         checkNotNull(attestationInstance, "attestationInstance cannot be null");
 
-        AttestationInstanceRecord record = dsl.newRecord(ATTESTATION_INSTANCE);
+        AttestationInstanceRecord record = mkRecord(dsl, attestationInstance);
+        record.store();
+
+        return record.getId();
+    }
+
+
+    /**
+     * Batch inserts instances for a single run using the supplied transaction.
+     * As a run has at most one instance per parent entity the generated ids are
+     * returned keyed by parent entity.
+     *
+     * @param tx  transaction to insert with
+     * @param runId  the run all the instances belong to
+     * @param instances  instances to create
+     * @return map of parent entity to new instance id
+     */
+    public Map<EntityReference, Long> createAll(DSLContext tx,
+                                                long runId,
+                                                Collection<AttestationInstance> instances) {
+        checkNotNull(tx, "tx cannot be null");
+        checkNotNull(instances, "instances cannot be null");
+        checkTrue(
+                instances.stream().allMatch(i -> i.attestationRunId() == runId),
+                "all instances must belong to run: " + runId);
+
+        if (instances.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<AttestationInstanceRecord> records = instances
+                .stream()
+                .map(i -> mkRecord(tx, i))
+                .collect(Collectors.toList());
+
+        tx.batchInsert(records).execute();
+
+        Set<Long> parentIds = SetUtilities.map(instances, i -> i.parentEntity().id());
+
+        return tx
+                .select(ATTESTATION_INSTANCE.ID,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID)
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId))
+                .and(ATTESTATION_INSTANCE.PARENT_ENTITY_ID.in(parentIds))
+                .fetchMap(
+                        r -> mkRef(EntityKind.valueOf(r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND)), r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_ID)),
+                        r -> r.get(ATTESTATION_INSTANCE.ID));
+    }
+
+
+    /**
+     * Returns the parent entities which already have an instance in the given run,
+     * used to resume an interrupted issuance.
+     */
+    public Set<EntityReference> findParentEntitiesForRun(long runId) {
+        return dsl
+                .select(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID)
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId))
+                .fetchSet(r -> mkRef(EntityKind.valueOf(r.value1()), r.value2()));
+    }
+
+
+    private static AttestationInstanceRecord mkRecord(DSLContext dslContext, AttestationInstance attestationInstance) {
+        AttestationInstanceRecord record = dslContext.newRecord(ATTESTATION_INSTANCE);
         record.setAttestationRunId(attestationInstance.attestationRunId());
         record.setParentEntityKind(attestationInstance.parentEntity().kind().name());
         record.setParentEntityId(attestationInstance.parentEntity().id());
         record.setAttestedEntityKind(attestationInstance.attestedEntityKind().name());
-
-        record.store();
-
-        return record.getId();
+        return record;
     }
 
 
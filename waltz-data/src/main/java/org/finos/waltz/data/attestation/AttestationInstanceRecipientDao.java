@@ -23,7 +23,10 @@ import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
 import static org.finos.waltz.schema.tables.AttestationInstanceRecipient.ATTESTATION_INSTANCE_RECIPIENT;
@@ -52,6 +55,32 @@ public class AttestationInstanceRecipientDao {
     }
 
 
+    /**
+     * Batch inserts recipients using the supplied transaction.
+     *
+     * @param tx  transaction to insert with
+     * @param userIdsByInstanceId  recipient user ids, keyed by the instance they are to attest
+     * @return number of recipients inserted
+     */
+    public int createAll(DSLContext tx, Map<Long, ? extends Collection<String>> userIdsByInstanceId) {
+        List<AttestationInstanceRecipientRecord> records = userIdsByInstanceId
+                .entrySet()
+                .stream()
+                .flatMap(e -> e.getValue()
+                        .stream()
+                        .map(userId -> {
+                            AttestationInstanceRecipientRecord record = tx.newRecord(ATTESTATION_INSTANCE_RECIPIENT);
+                            record.setAttestationInstanceId(e.getKey());
+                            record.setUserId(userId);
+                            return record;
+                        }))
+                .collect(Collectors.toList());
+
+        tx.batchInsert(records).execute();
+        return records.size();
+    }
+
+
     public List<String> findRecipientsByRunId(Long id) {
 
         return dsl
@@ -263,6 +263,19 @@ public class AttestationRunDao {
 
 
     public Set<AttestationRun> findPendingRuns() {
+        return findRunsWithStatus(AttestationStatus.PENDING);
+    }
+
+
+    /**
+     * Runs which started issuing but did not complete, typically due to an error or restart.
+     */
+    public Set<AttestationRun> findIssuingRuns() {
+        return findRunsWithStatus(AttestationStatus.ISSUING);
+    }
+
+
+    private Set<AttestationRun> findRunsWithStatus(AttestationStatus status) {
 
         Map<Long, List<Long>> involvementsByGroupId = InvolvementGroupDao.findAllInvolvementsByGroupId(dsl);
 
@@ -271,7 +284,7 @@ public class AttestationRunDao {
                 .select(ENTITY_NAME_FIELD)
                 .select(ATTESTED_ENTITY_NAME_FIELD)
                 .from(ATTESTATION_RUN)
-                .where(ATTESTATION_RUN.STATUS.eq(AttestationStatus.PENDING.name()))
+                .where(ATTESTATION_RUN.STATUS.eq(status.name()))
                 .fetchSet(r -> mkAttestationRun(r, involvementsByGroupId));
     }
 
@@ -45,33 +45,60 @@ import org.jooq.SelectConditionStep;
 import org.jooq.SelectOrderByStep;
 import org.jooq.Table;
 import org.jooq.TableField;
+import org.jooq.Record5;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
+import static org.finos.waltz.common.StringUtilities.isEmpty;
 import static org.finos.waltz.common.StringUtilities.limit;
 import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.tables.Actor.ACTOR;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
+import static org.finos.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 import static org.finos.waltz.schema.tables.DataType.DATA_TYPE;
 import static org.finos.waltz.schema.tables.DataTypeUsage.DATA_TYPE_USAGE;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 import static org.jooq.impl.DSL.*;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class DataTypeUsageDao {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataTypeUsageDao.class);
+
+    /**
+     * Number of entities recalculated per transaction by the incremental recalculation,
+     * kept well below the bind parameter limits of the supported databases
+     */
+    private static final int RECALC_CHUNK_SIZE = 1000;
+
+    private static final Set<UsageKind> CALCULATED_USAGE_KINDS = EnumSet.of(
+            UsageKind.CONSUMER,
+            UsageKind.ORIGINATOR,
+            UsageKind.DISTRIBUTOR);
+
     private final org.finos.waltz.schema.tables.DataType dt = DATA_TYPE.as("dt");
     private final org.finos.waltz.schema.tables.DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
     private final org.finos.waltz.schema.tables.LogicalFlow lf = LOGICAL_FLOW.as("lf");
@@ -323,6 +350,196 @@ public class DataTypeUsageDao {
     }
 
 
+    /**
+     * Incremental alternative to {@link #recalculateForIdSelector(EntityKind, Select)}.
+     *
+     * The ids are processed in chunks of {@link #RECALC_CHUNK_SIZE}, each in its own transaction.
+     * For each chunk the required calculated usages are derived, in memory, from the active flows
+     * and compared with the existing usages.  Only rows which differ are inserted, deleted or
+     * have their selection state updated, so locks are held briefly and on few rows.
+     *
+     * @param kind  kind of entity (APPLICATION or ACTOR) being recalculated
+     * @param idSelector  selector for the entity ids to recalculate
+     * @return  number of usage rows changed
+     */
+    public int recalculateIncrementallyForIdSelector(EntityKind kind, Select<Record1<Long>> idSelector) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(idSelector, "idSelector cannot be null");
+
+        List<Long> ids = dsl.fetch(idSelector).map(Record1::value1);
+
+        AtomicInteger changeCount = new AtomicInteger(0);
+        int entityCount = ids
+                .stream()
+                .collect(batchProcessingCollector(
+                        RECALC_CHUNK_SIZE,
+                        chunk -> changeCount.addAndGet(recalculateChunk(kind, chunk))));
+
+        LOG.debug("Recalculated data type usages for {} {} entities, {} rows changed", entityCount, kind, changeCount.get());
+        return changeCount.get();
+    }
+
+
+    /**
+     * Finds the applications and actors at either end of logical flows which have been updated
+     * (including removal), or have had data types added or removed, since the given time.
+     * Used to drive recalculation of usages for recently changed entities only.
+     *
+     * Removing a data type deletes the decorator row without touching the flow, so data type
+     * changes are found via the change log rather than the decorators' last updated times.
+     */
+    public Set<EntityReference> findEntitiesWithFlowChangesSince(Timestamp since) {
+        checkNotNull(since, "since cannot be null");
+
+        Condition flowChanged = LOGICAL_FLOW.LAST_UPDATED_AT.ge(since)
+                .or(LOGICAL_FLOW.ID.in(DSL
+                        .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID)
+                        .from(LOGICAL_FLOW_DECORATOR)
+                        .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                        .and(LOGICAL_FLOW_DECORATOR.LAST_UPDATED_AT.ge(since))))
+                .or(LOGICAL_FLOW.ID.in(DSL
+                        .select(CHANGE_LOG.PARENT_ID)
+                        .from(CHANGE_LOG)
+                        .where(CHANGE_LOG.PARENT_KIND.eq(EntityKind.LOGICAL_DATA_FLOW.name()))
+                        .and(CHANGE_LOG.CHILD_KIND.eq(EntityKind.DATA_TYPE.name()))
+                        .and(CHANGE_LOG.CREATED_AT.ge(since))));
+
+        Set<EntityReference> refs = new HashSet<>();
+        dsl.select(LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .where(flowChanged)
+                .forEach(r -> {
+                    refs.add(mkRef(EntityKind.valueOf(r.value1()), r.value2()));
+                    refs.add(mkRef(EntityKind.valueOf(r.value3()), r.value4()));
+                });
+        return refs;
+    }
+
+
+    private int recalculateChunk(EntityKind kind, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            Set<Long> idSet = new HashSet<>(ids);
+
+            // (entityId, dataTypeId) for every active, decorated flow involving the entities
+            Set<Tuple2<Long, Long>> activeDataTypes = new HashSet<>();
+            // (entityId, dataTypeId, usageKind) which should be present and selected
+            Set<Tuple3<Long, Long, UsageKind>> required = new HashSet<>();
+
+            fetchActiveFlowDataTypes(tx, kind, ids).forEach(r -> {
+                Long dataTypeId = r.value5();
+                boolean isSource = kind.name().equals(r.value1()) && idSet.contains(r.value2());
+                boolean isTarget = kind.name().equals(r.value3()) && idSet.contains(r.value4());
+                boolean isSelfFlow = r.value1().equals(r.value3()) && r.value2().equals(r.value4());
+                if (isSource) {
+                    activeDataTypes.add(tuple(r.value2(), dataTypeId));
+                    required.add(tuple(r.value2(), dataTypeId, UsageKind.DISTRIBUTOR));
+                }
+                if (isTarget && ! isSelfFlow) {
+                    activeDataTypes.add(tuple(r.value4(), dataTypeId));
+                    required.add(tuple(r.value4(), dataTypeId, UsageKind.CONSUMER));
+                }
+            });
+
+            Set<Tuple3<Long, Long, UsageKind>> originators = required
+                    .stream()
+                    .filter(t -> t.v3 == UsageKind.DISTRIBUTOR)
+                    .filter(t -> ! required.contains(tuple(t.v1, t.v2, UsageKind.CONSUMER)))
+                    .map(t -> tuple(t.v1, t.v2, UsageKind.ORIGINATOR))
+                    .collect(Collectors.toSet());
+            required.addAll(originators);
+
+            List<DataTypeUsageRecord> deletes = new ArrayList<>();
+            List<DataTypeUsageRecord> updates = new ArrayList<>();
+            Set<Tuple3<Long, Long, UsageKind>> existing = new HashSet<>();
+
+            tx.selectFrom(DATA_TYPE_USAGE)
+                    .where(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
+                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(ids))
+                    .forEach(r -> {
+                        UsageKind usageKind = UsageKind.valueOf(r.getUsageKind());
+                        Tuple3<Long, Long, UsageKind> key = tuple(r.getEntityId(), r.getDataTypeId(), usageKind);
+                        existing.add(key);
+
+                        if (! activeDataTypes.contains(key.limit2())) {
+                            // data type no longer flows to/from the entity
+                            deletes.add(r);
+                        } else if (CALCULATED_USAGE_KINDS.contains(usageKind)) {
+                            boolean isRequired = required.contains(key);
+                            if (! isRequired && isEmpty(r.getDescription())) {
+                                deletes.add(r);
+                            } else if (isRequired != r.getIsSelected()) {
+                                // commented usages are retained, but deselected when no longer required
+                                r.setIsSelected(isRequired);
+                                updates.add(r);
+                            }
+                        }
+                    });
+
+            Set<DataTypeUsageRecord> inserts = required
+                    .stream()
+                    .filter(t -> ! existing.contains(t))
+                    .map(t -> mkCalculatedUsageRecord(kind, t))
+                    .collect(Collectors.toSet());
+
+            tx.batchDelete(deletes).execute();
+            tx.batchUpdate(updates).execute();
+            tx.batchInsert(inserts).execute();
+
+            return deletes.size() + updates.size() + inserts.size();
+        });
+    }
+
+
+    private Result<Record5<String, Long, String, Long, Long>> fetchActiveFlowDataTypes(DSLContext tx,
+                                                                                         EntityKind kind,
+                                                                                         Collection<Long> ids) {
+        Condition involvesEntities = LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(kind.name())
+                    .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(ids))
+                .or(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(kind.name())
+                    .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(ids)));
+
+        return tx
+                .selectDistinct(
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW)
+                .innerJoin(LOGICAL_FLOW_DECORATOR)
+                .on(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(LOGICAL_FLOW.ID)
+                        .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name())))
+                .innerJoin(DATA_TYPE)
+                .on(DATA_TYPE.ID.eq(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))
+                .where(involvesEntities)
+                .and(LOGICAL_FLOW.IS_REMOVED.isFalse())
+                .and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name()))
+                .fetch();
+    }
+
+
+    private DataTypeUsageRecord mkCalculatedUsageRecord(EntityKind kind,
+                                                        Tuple3<Long, Long, UsageKind> usage) {
+        DataTypeUsageRecord record = dsl.newRecord(DATA_TYPE_USAGE);
+        record.setEntityKind(kind.name());
+        record.setEntityId(usage.v1);
+        record.setDataTypeId(usage.v2);
+        record.setUsageKind(usage.v3.name());
+        record.setDescription("");
+        record.setProvenance("waltz");
+        record.setIsSelected(true);
+        return record;
+    }
+
+
     private List<DataTypeUsageRecord> findAllNonActiveDataTypeUsages(DSLContext tx,
                                                                      EntityKind kind,
                                                                      Select<Record1<Long>> idSelector) {
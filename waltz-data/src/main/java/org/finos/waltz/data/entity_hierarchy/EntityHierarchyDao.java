@@ -28,6 +28,7 @@ import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import org.finos.waltz.model.tally.Tally;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.RecordMapper;
 import org.jooq.impl.DSL;
@@ -37,8 +38,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.finos.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -122,6 +131,107 @@ public class EntityHierarchyDao {
     }
 
 
+    /**
+     * Updates an entity hierarchy so that it matches the given set of hierarchy items,
+     * writing only the rows which differ.  Unlike `replaceHierarchy`, unchanged rows
+     * are left untouched which keeps the transaction (and any locks) small when only
+     * a few entities have moved.
+     *
+     * The scope filter restricts which existing rows are considered.  Existing rows
+     * in scope which are not in the given items are deleted, therefore the items
+     * must contain every row for the entities covered by the scope.
+     *
+     * @param kind  the entity kind of the hierarchy to update
+     * @param hierarchyItems  the desired items for the entities in scope
+     * @param scopeFilter  restricts the existing rows to compare against
+     * @return number of hierarchy records inserted, updated or deleted
+     */
+    public int mergeHierarchy(EntityKind kind,
+                              Collection<EntityHierarchyItem> hierarchyItems,
+                              Condition scopeFilter) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
+
+        Map<Tuple2<Long, Long>, EntityHierarchyRecord> desired = hierarchyItems
+                .stream()
+                .map(ITEM_TO_RECORD_MAPPER)
+                .collect(Collectors.toMap(
+                        r -> tuple(r.getId(), r.getAncestorId()),
+                        r -> r,
+                        (r1, r2) -> r1));
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            Map<Tuple2<Long, Long>, EntityHierarchyRecord> existing = new HashMap<>();
+            Set<Tuple2<Long, Long>> duplicated = new HashSet<>();
+
+            txDsl.selectFrom(ENTITY_HIERARCHY)
+                    .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                    .and(scopeFilter)
+                    .forEach(r -> {
+                        Tuple2<Long, Long> key = tuple(r.getId(), r.getAncestorId());
+                        if (existing.put(key, r) != null) {
+                            duplicated.add(key);
+                        }
+                    });
+
+            List<EntityHierarchyRecord> toInsert = new ArrayList<>();
+            List<Query> toUpdate = new ArrayList<>();
+            List<Query> toDelete = new ArrayList<>();
+
+            // duplicated rows are removed and, if still required, re-inserted
+            duplicated.forEach(key -> {
+                existing.remove(key);
+                toDelete.add(txDsl
+                        .deleteFrom(ENTITY_HIERARCHY)
+                        .where(mkKeyCondition(kind, key)));
+            });
+
+            desired.forEach((key, record) -> {
+                EntityHierarchyRecord current = existing.get(key);
+                if (current == null) {
+                    toInsert.add(record);
+                } else if (! Objects.equals(current.getLevel(), record.getLevel())
+                        || ! Objects.equals(current.getDescendantLevel(), record.getDescendantLevel())) {
+                    toUpdate.add(txDsl
+                            .update(ENTITY_HIERARCHY)
+                            .set(ENTITY_HIERARCHY.LEVEL, record.getLevel())
+                            .set(ENTITY_HIERARCHY.DESCENDANT_LEVEL, record.getDescendantLevel())
+                            .where(mkKeyCondition(kind, key)));
+                }
+            });
+
+            existing.keySet()
+                    .stream()
+                    .filter(key -> ! desired.containsKey(key))
+                    .forEach(key -> toDelete.add(txDsl
+                            .deleteFrom(ENTITY_HIERARCHY)
+                            .where(mkKeyCondition(kind, key))));
+
+            LOG.info(
+                    "Merging hierarchy items for kind: {}, compared {} existing records, inserting: {}, updating: {}, deleting: {}",
+                    kind,
+                    existing.size(),
+                    toInsert.size(),
+                    toUpdate.size(),
+                    toDelete.size());
+
+            if (! toDelete.isEmpty()) {
+                txDsl.batch(toDelete).execute();
+            }
+            if (! toUpdate.isEmpty()) {
+                txDsl.batch(toUpdate).execute();
+            }
+            if (! toInsert.isEmpty()) {
+                txDsl.batchInsert(toInsert).execute();
+            }
+
+            return toInsert.size() + toUpdate.size() + toDelete.size();
+        });
+    }
+
+
     public List<Tally<String>> tallyByKind() {
         return JooqUtilities.calculateStringTallies(dsl, eh, eh.KIND, DSL.trueCondition());
     }
@@ -154,4 +264,13 @@ public class EntityHierarchyDao {
                 .where(eh.KIND.eq(kind.name()))
                 .fetch(TO_DOMAIN_MAPPER);
     }
+
+
+    private static Condition mkKeyCondition(EntityKind kind, Tuple2<Long, Long> key) {
+        return ENTITY_HIERARCHY.KIND.eq(kind.name())
+                .and(ENTITY_HIERARCHY.ID.eq(key.v1))
+                .and(key.v2 == null
+                        ? ENTITY_HIERARCHY.ANCESTOR_ID.isNull()
+                        : ENTITY_HIERARCHY.ANCESTOR_ID.eq(key.v2));
+    }
 }
@@ -0,0 +1,268 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchIndexEntry;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchIndexEntry;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.*;
+
+/**
+ * Loads the searchable attributes (names, codes and aliases) of entities, along with
+ * the rest of their reference details, for the in-memory search index.
+ */
+@Repository
+public class EntitySearchIndexDao {
+
+    public static final Set<EntityKind> SUPPORTED_KINDS = Collections.unmodifiableSet(asSet(
+            EntityKind.ACTOR,
+            EntityKind.APPLICATION,
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.LEGAL_ENTITY,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT,
+            EntityKind.PERSON));
+
+    private static final Field<String> ACTIVE = DSL.inline(EntityLifecycleStatus.ACTIVE.name());
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntitySearchIndexDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public List<EntitySearchIndexEntry> findAll(EntityKind kind) {
+        return fetchEntries(kind, Optional.empty());
+    }
+
+
+    /**
+     * Returns entries for the given ids, ids which no longer exist are omitted.
+     */
+    public List<EntitySearchIndexEntry> findByIds(EntityKind kind, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return fetchEntries(kind, Optional.of(ids));
+    }
+
+
+    /**
+     * Entities of the given kinds which have change log entries created on or after the given time.
+     */
+    public Set<EntityReference> findChangedEntitiesSince(Timestamp since, Set<EntityKind> kinds) {
+        return dsl
+                .selectDistinct(CHANGE_LOG.PARENT_KIND, CHANGE_LOG.PARENT_ID)
+                .from(CHANGE_LOG)
+                .where(CHANGE_LOG.CREATED_AT.ge(since))
+                .and(CHANGE_LOG.PARENT_KIND.in(kinds))
+                .fetchSet(r -> mkRef(
+                        EntityKind.valueOf(r.get(CHANGE_LOG.PARENT_KIND)),
+                        r.get(CHANGE_LOG.PARENT_ID)));
+    }
+
+
+    // -- helpers
+
+    private List<EntitySearchIndexEntry> fetchEntries(EntityKind kind,
+                                                      Optional<Collection<Long>> ids) {
+        switch (kind) {
+            case ACTOR:
+                return fetchEntries(
+                        kind,
+                        ACTOR,
+                        new ReferenceFields(ACTOR.ID, ACTOR.NAME, ACTOR.DESCRIPTION, null, ACTIVE),
+                        ids,
+                        ACTOR.EXTERNAL_ID);
+            case APPLICATION:
+                return fetchEntries(
+                        kind,
+                        APPLICATION,
+                        new ReferenceFields(APPLICATION.ID, APPLICATION.NAME, APPLICATION.DESCRIPTION, APPLICATION.ASSET_CODE, APPLICATION.ENTITY_LIFECYCLE_STATUS),
+                        ids,
+                        APPLICATION.ASSET_CODE);
+            case CHANGE_INITIATIVE:
+                return fetchEntries(
+                        kind,
+                        CHANGE_INITIATIVE,
+                        new ReferenceFields(CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.NAME, CHANGE_INITIATIVE.DESCRIPTION, CHANGE_INITIATIVE.EXTERNAL_ID, ACTIVE),
+                        ids,
+                        CHANGE_INITIATIVE.EXTERNAL_ID);
+            case DATA_TYPE:
+                return fetchEntries(
+                        kind,
+                        DATA_TYPE,
+                        new ReferenceFields(DATA_TYPE.ID, DATA_TYPE.NAME, DATA_TYPE.DESCRIPTION, DATA_TYPE.CODE, ACTIVE),
+                        ids,
+                        DATA_TYPE.CODE);
+            case LEGAL_ENTITY:
+                return fetchEntries(
+                        kind,
+                        LEGAL_ENTITY,
+                        new ReferenceFields(LEGAL_ENTITY.ID, LEGAL_ENTITY.NAME, LEGAL_ENTITY.DESCRIPTION, LEGAL_ENTITY.EXTERNAL_ID, LEGAL_ENTITY.ENTITY_LIFECYCLE_STATUS),
+                        ids,
+                        LEGAL_ENTITY.EXTERNAL_ID);
+            case MEASURABLE:
+                return fetchEntries(
+                        kind,
+                        MEASURABLE,
+                        new ReferenceFields(MEASURABLE.ID, MEASURABLE.NAME, MEASURABLE.DESCRIPTION, MEASURABLE.EXTERNAL_ID, MEASURABLE.ENTITY_LIFECYCLE_STATUS),
+                        ids,
+                        MEASURABLE.EXTERNAL_ID);
+            case ORG_UNIT:
+                return fetchEntries(
+                        kind,
+                        ORGANISATIONAL_UNIT,
+                        new ReferenceFields(ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.NAME, ORGANISATIONAL_UNIT.DESCRIPTION, ORGANISATIONAL_UNIT.EXTERNAL_ID, ACTIVE),
+                        ids,
+                        ORGANISATIONAL_UNIT.EXTERNAL_ID);
+            case PERSON:
+                Field<String> personLifecycle = DSL
+                        .when(PERSON.IS_REMOVED.isTrue(), DSL.inline(EntityLifecycleStatus.REMOVED.name()))
+                        .otherwise(ACTIVE);
+                return fetchEntries(
+                        kind,
+                        PERSON,
+                        new ReferenceFields(PERSON.ID, PERSON.DISPLAY_NAME, null, null, personLifecycle),
+                        ids,
+                        PERSON.EMAIL);
+            default:
+                throw new UnsupportedOperationException("Cannot index entities of kind: " + kind);
+        }
+    }
+
+
+    @SafeVarargs
+    private final List<EntitySearchIndexEntry> fetchEntries(EntityKind kind,
+                                                            Table<? extends Record> table,
+                                                            ReferenceFields refFields,
+                                                            Optional<Collection<Long>> ids,
+                                                            Field<String>... identifierFields) {
+        Map<Long, Set<String>> aliasesById = dsl
+                .select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                .from(ENTITY_ALIAS)
+                .where(ENTITY_ALIAS.KIND.eq(kind.name()))
+                .and(ids.map(ENTITY_ALIAS.ID::in).orElse(DSL.trueCondition()))
+                .fetchGroups(ENTITY_ALIAS.ID)
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        e -> e.getValue().stream().map(r -> r.get(ENTITY_ALIAS.ALIAS)).collect(toSet())));
+
+        return dsl
+                .select(refFields.fields())
+                .select(identifierFields)
+                .from(table)
+                .where(ids.map(refFields.id::in).orElse(DSL.trueCondition()))
+                .fetch(r -> ImmutableEntitySearchIndexEntry
+                        .builder()
+                        .entityReference(refFields.toReference(kind, r))
+                        .identifiers(Stream
+                                .of(identifierFields)
+                                .map(r::get)
+                                .filter(v -> v != null && !v.isEmpty())
+                                .collect(toList()))
+                        .aliases(aliasesById.getOrDefault(r.get(refFields.id), Collections.emptySet()))
+                        .build());
+    }
+
+
+    /**
+     * The columns used to build the {@link EntityReference} of an entry.  These mirror the
+     * <code>entityReference()</code> of the corresponding domain object so search results
+     * from the index look the same as those from the database.  The description and external
+     * id are optional (<code>null</code>) for kinds which do not include them in their references.
+     */
+    private static class ReferenceFields {
+
+        private final Field<Long> id;
+        private final Field<String> name;
+        private final Field<String> description;
+        private final Field<String> externalId;
+        private final Field<String> lifecycle;
+
+
+        private ReferenceFields(Field<Long> id,
+                                Field<String> name,
+                                Field<String> description,
+                                Field<String> externalId,
+                                Field<String> lifecycle) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.externalId = externalId;
+            this.lifecycle = lifecycle.as("lifecycle_status");
+        }
+
+
+        private List<Field<?>> fields() {
+            return Stream
+                    .of(id, name, description, externalId, lifecycle)
+                    .filter(Objects::nonNull)
+                    .collect(toList());
+        }
+
+
+        private EntityReference toReference(EntityKind kind, Record r) {
+            return ImmutableEntityReference
+                    .builder()
+                    .kind(kind)
+                    .id(r.get(id))
+                    .name(r.get(name))
+                    .description(description == null ? null : r.get(description))
+                    .externalId(Optional.ofNullable(externalId).map(r::get))
+                    .entityLifecycleStatus(EntityLifecycleStatus.valueOf(r.get(lifecycle)))
+                    .build();
+        }
+    }
+
+}
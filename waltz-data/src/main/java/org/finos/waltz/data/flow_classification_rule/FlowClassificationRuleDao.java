@@ -19,11 +19,17 @@
 package org.finos.waltz.data.flow_classification_rule;
 
 import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.DecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.MariaDecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.PostgresDecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.SqlServerDecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.StagedDecoratorRatingUpdater;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.FlowDirection;
 import org.finos.waltz.model.ImmutableEntityReference;
 import org.finos.waltz.model.Severity;
+import org.finos.waltz.model.datatype.FlowDataTypeRatingUpdate;
 import org.finos.waltz.model.flow_classification_rule.DiscouragedSource;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRule;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleCreateCommand;
@@ -48,6 +54,7 @@ import org.jooq.Record2;
 import org.jooq.Record3;
 import org.jooq.Record9;
 import org.jooq.RecordMapper;
+import org.jooq.SQLDialect;
 import org.jooq.Result;
 import org.jooq.Select;
 import org.jooq.SelectConditionStep;
@@ -71,10 +78,14 @@ import java.util.stream.IntStream;
 import static java.util.stream.Collectors.collectingAndThen;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.data.JooqUtilities.isMariaDB;
+import static org.finos.waltz.data.JooqUtilities.isPostgres;
+import static org.finos.waltz.data.JooqUtilities.isSQLServer;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.common.MapUtilities.groupBy;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
@@ -119,7 +130,13 @@ public class FlowClassificationRuleDao {
     private static final Condition supplierNotRemoved = SUPPLIER_APP.IS_REMOVED.isFalse();
     private static final Condition consumerNotRemoved = CONSUMER_APP.IS_REMOVED.isFalse();
 
+    /**
+     * Rating updates at or above this size are applied via a staging table, if supported by the database
+     */
+    public static final int BULK_RATING_UPDATE_THRESHOLD = 1000;
+
     private final DSLContext dsl;
+    private final StagedDecoratorRatingUpdater stagedRatingUpdater;
 
     private static final RecordMapper<Record, FlowClassificationRule> TO_DOMAIN_MAPPER = r -> {
         FlowClassificationRuleRecord record = r.into(FlowClassificationRuleRecord.class);
@@ -181,6 +198,11 @@ public class FlowClassificationRuleDao {
     public FlowClassificationRuleDao(DSLContext dsl) {
         checkNotNull(dsl, "dsl must not be null");
         this.dsl = dsl;
+
+        DecoratorRatingStageApplier stageApplier = determineStageApplier(dsl.dialect());
+        this.stagedRatingUpdater = stageApplier == null
+                ? null
+                : new StagedDecoratorRatingUpdater(dsl, stageApplier);
     }
 
 
@@ -645,4 +667,51 @@ public class FlowClassificationRuleDao {
     public int updateDecoratorsWithClassifications(Set<UpdateConditionStep<LogicalFlowDecoratorRecord>> updateStmts) {
         return IntStream.of(dsl.batch(updateStmts).execute()).sum();
     }
+
+
+    /**
+     * Writes the ratings (and governing rules) to the logical flow decorators.
+     *
+     * Small sets of updates are issued as a batch of individual updates.  Larger sets (see
+     * {@link #BULK_RATING_UPDATE_THRESHOLD}) are staged and applied with a set based update,
+     * unless the database does not have a {@link DecoratorRatingStageApplier}.
+     *
+     * @param updates  ratings to write, at most one per decorator
+     * @return  number of decorators updated
+     */
+    public int updateDecoratorRatings(Collection<FlowDataTypeRatingUpdate> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+
+        if (stagedRatingUpdater != null && updates.size() >= BULK_RATING_UPDATE_THRESHOLD) {
+            return stagedRatingUpdater.update(updates);
+        }
+
+        return updateDecoratorsWithClassifications(map(updates, u -> DSL
+                .update(LOGICAL_FLOW_DECORATOR)
+                .set(LOGICAL_FLOW_DECORATOR.RATING, u.sourceOutboundRating().value())
+                .set(LOGICAL_FLOW_DECORATOR.TARGET_INBOUND_RATING, u.targetInboundRating().value())
+                .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, u.outboundRuleId())
+                .set(LOGICAL_FLOW_DECORATOR.INBOUND_FLOW_CLASSIFICATION_RULE_ID, u.inboundRuleId())
+                .where(LOGICAL_FLOW_DECORATOR.ID.eq(u.lfdId()))));
+    }
+
+
+    private static DecoratorRatingStageApplier determineStageApplier(SQLDialect dialect) {
+
+        if (isPostgres(dialect)) {
+            return new PostgresDecoratorRatingStageApplier();
+        }
+
+        if (isMariaDB(dialect)) {
+            return new MariaDecoratorRatingStageApplier();
+        }
+
+        if (isSQLServer(dialect)) {
+            return new SqlServerDecoratorRatingStageApplier();
+        }
+
+        return null;
+    }
 }
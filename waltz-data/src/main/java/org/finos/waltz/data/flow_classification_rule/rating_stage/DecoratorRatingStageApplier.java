@@ -0,0 +1,37 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.flow_classification_rule.rating_stage;
+
+import org.jooq.DSLContext;
+
+/**
+ * Applies the rows staged in <code>logical_flow_decorator_rating_stage</code> for a batch
+ * to <code>logical_flow_decorator</code> using a single set based statement.  The syntax
+ * for updating one table from another varies by database, hence the vendor specific
+ * implementations.
+ */
+public interface DecoratorRatingStageApplier {
+
+    /**
+     * @param tx  dsl to execute against, should be the same transaction the rows were staged in
+     * @param batchId  identifies the staged rows to apply
+     * @return  number of decorators updated
+     */
+    int applyStagedRatings(DSLContext tx, String batchId);
+}
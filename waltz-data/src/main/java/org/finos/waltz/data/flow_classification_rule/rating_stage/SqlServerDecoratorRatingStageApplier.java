@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.flow_classification_rule.rating_stage;
+
+import org.finos.waltz.data.DatabaseVendorSpecific;
+import org.finos.waltz.schema.tables.LogicalFlowDecoratorRatingStage;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR_RATING_STAGE;
+import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+
+
+/**
+ * <code>MERGE ... WHEN MATCHED THEN UPDATE</code>, the batch is filtered in a derived
+ * table rather than the <code>ON</code> clause as recommended for <code>MERGE</code>.
+ */
+public class SqlServerDecoratorRatingStageApplier implements DecoratorRatingStageApplier, DatabaseVendorSpecific {
+
+    private static final LogicalFlowDecoratorRatingStage stage = LOGICAL_FLOW_DECORATOR_RATING_STAGE;
+
+
+    @Override
+    public int applyStagedRatings(DSLContext tx, String batchId) {
+        Table<?> batch = tx
+                .select(stage.LFD_ID,
+                        stage.RATING,
+                        stage.TARGET_INBOUND_RATING,
+                        stage.FLOW_CLASSIFICATION_RULE_ID,
+                        stage.INBOUND_FLOW_CLASSIFICATION_RULE_ID)
+                .from(stage)
+                .where(stage.BATCH_ID.eq(batchId))
+                .asTable("batch");
+
+        return tx
+                .mergeInto(LOGICAL_FLOW_DECORATOR)
+                .using(batch)
+                .on(batch.field(stage.LFD_ID).eq(LOGICAL_FLOW_DECORATOR.ID))
+                .whenMatchedThenUpdate()
+                .set(LOGICAL_FLOW_DECORATOR.RATING, batch.field(stage.RATING))
+                .set(LOGICAL_FLOW_DECORATOR.TARGET_INBOUND_RATING, batch.field(stage.TARGET_INBOUND_RATING))
+                .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, batch.field(stage.FLOW_CLASSIFICATION_RULE_ID))
+                .set(LOGICAL_FLOW_DECORATOR.INBOUND_FLOW_CLASSIFICATION_RULE_ID, batch.field(stage.INBOUND_FLOW_CLASSIFICATION_RULE_ID))
+                .execute();
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.flow_classification_rule.rating_stage;
+
+import org.finos.waltz.model.datatype.FlowDataTypeRatingUpdate;
+import org.finos.waltz.schema.tables.LogicalFlowDecoratorRatingStage;
+import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRatingStageRecord;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR_RATING_STAGE;
+
+/**
+ * Set based alternative to issuing an <code>UPDATE</code> per decorator.
+ *
+ * Updates are processed in chunks, each in its own transaction: the chunk is staged
+ * (via a batched insert) into <code>logical_flow_decorator_rating_stage</code>, applied
+ * with one vendor specific statement (see {@link DecoratorRatingStageApplier}) and the
+ * staged rows removed.  A failure therefore rolls back the current chunk, including its
+ * staged rows, leaving earlier chunks applied.
+ */
+public class StagedDecoratorRatingUpdater {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StagedDecoratorRatingUpdater.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private static final LogicalFlowDecoratorRatingStage stage = LOGICAL_FLOW_DECORATOR_RATING_STAGE;
+
+    private final DSLContext dsl;
+    private final DecoratorRatingStageApplier applier;
+    private final int chunkSize;
+
+
+    public StagedDecoratorRatingUpdater(DSLContext dsl, DecoratorRatingStageApplier applier) {
+        this(dsl, applier, DEFAULT_CHUNK_SIZE);
+    }
+
+
+    public StagedDecoratorRatingUpdater(DSLContext dsl, DecoratorRatingStageApplier applier, int chunkSize) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(applier, "applier cannot be null");
+        checkTrue(chunkSize > 0, "chunkSize must be positive");
+        this.dsl = dsl;
+        this.applier = applier;
+        this.chunkSize = chunkSize;
+    }
+
+
+    /**
+     * @param updates  ratings to write, at most one per decorator
+     * @return  number of decorators updated
+     */
+    public int update(Collection<FlowDataTypeRatingUpdate> updates) {
+        String batchId = UUID.randomUUID().toString();
+        List<FlowDataTypeRatingUpdate> pending = new ArrayList<>(updates);
+        int updated = 0;
+
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<FlowDataTypeRatingUpdate> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            updated += dsl.transactionResult(ctx -> applyChunk(ctx.dsl(), batchId, chunk));
+        }
+
+        LOG.debug("Applied {} staged decorator ratings in batch: {}, updated: {}", pending.size(), batchId, updated);
+        return updated;
+    }
+
+
+    private int applyChunk(DSLContext tx,
+                           String batchId,
+                           List<FlowDataTypeRatingUpdate> chunk) {
+        List<LogicalFlowDecoratorRatingStageRecord> records = chunk
+                .stream()
+                .map(u -> mkRecord(batchId, u))
+                .collect(Collectors.toList());
+
+        tx.batchInsert(records).execute();
+        int updated = applier.applyStagedRatings(tx, batchId);
+        tx.deleteFrom(stage)
+                .where(stage.BATCH_ID.eq(batchId))
+                .execute();
+
+        return updated;
+    }
+
+
+    private static LogicalFlowDecoratorRatingStageRecord mkRecord(String batchId,
+                                                                  FlowDataTypeRatingUpdate update) {
+        LogicalFlowDecoratorRatingStageRecord r = new LogicalFlowDecoratorRatingStageRecord();
+        r.setBatchId(batchId);
+        r.setLfdId(update.lfdId());
+        r.setRating(update.sourceOutboundRating().value());
+        r.setTargetInboundRating(update.targetInboundRating().value());
+        r.setFlowClassificationRuleId(update.outboundRuleId());
+        r.setInboundFlowClassificationRuleId(update.inboundRuleId());
+        // ensures all records are inserted with the same statement, including null rule ids
+        r.changed(true);
+        return r;
+    }
+
+}
@@ -112,6 +112,20 @@ public class MeasurableDao implements FindEntityReferencesByIdSelector {
     }
 
 
+    /**
+     * A cheap marker which changes whenever measurables are added, removed, activated/deactivated
+     * or updated (relies on <code>last_updated_at</code> being maintained).  Used to answer
+     * conditional requests for {@link #findAll()} without loading the measurables.
+     */
+    public String calcVersion() {
+        Field<Integer> activeCount = DSL.count().filterWhere(MEASURABLE.ENTITY_LIFECYCLE_STATUS.eq(EntityLifecycleStatus.ACTIVE.name()));
+        return dsl
+                .select(DSL.count(), activeCount, DSL.max(MEASURABLE.LAST_UPDATED_AT))
+                .from(MEASURABLE)
+                .fetchOne(r -> String.format("%d/%d/%s", r.value1(), r.value2(), r.value3()));
+    }
+
+
     @Override
     public List<EntityReference> findByIdSelectorAsEntityReference(Select<Record1<Long>> selector) {
         checkNotNull(selector, "selector cannot be null");
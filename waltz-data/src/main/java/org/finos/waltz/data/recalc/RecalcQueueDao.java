@@ -0,0 +1,255 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.recalc;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.recalc.ImmutableRecalcRequest;
+import org.finos.waltz.model.recalc.RecalcRequest;
+import org.finos.waltz.model.recalc.RecalcTask;
+import org.finos.waltz.schema.tables.records.RecalcQueueRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.RecordMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.StringUtilities.limit;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.tables.RecalcQueue.RECALC_QUEUE;
+
+/**
+ * Persistent queue of derived data recalculations (see {@link RecalcTask}).
+ *
+ * Requests are never updated in place to mark them as done, instead once a task has been
+ * run for an entity all queued requests for that task/entity up to the highest id seen when
+ * the batch was read are deleted.  This merges duplicate requests without losing requests
+ * made whilst the batch was being processed.
+ *
+ * As every node runs the queue worker, requests are claimed (via a conditional update of
+ * <code>claim_id</code>) before being processed so each one is only picked up by a single
+ * node.  A claim which is not resolved, e.g. because the node died, expires and the request
+ * becomes available again.
+ */
+@Repository
+public class RecalcQueueDao {
+
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    public static final RecordMapper<Record, RecalcRequest> TO_DOMAIN_MAPPER = r -> {
+        RecalcQueueRecord record = r.into(RECALC_QUEUE);
+        return ImmutableRecalcRequest.builder()
+                .id(record.getId())
+                .task(RecalcTask.valueOf(record.getTask()))
+                .entityReference(mkRef(
+                        EntityKind.valueOf(record.getEntityKind()),
+                        record.getEntityId()))
+                .requestedBy(record.getRequestedBy())
+                .requestedAt(record.getRequestedAt().toLocalDateTime())
+                .attempts(record.getAttempts())
+                .lastError(Optional.ofNullable(record.getLastError()))
+                .build();
+    };
+
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public RecalcQueueDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public int enqueue(Collection<RecalcRequest> requests) {
+        checkNotNull(requests, "requests cannot be null");
+
+        return dsl
+                .batchInsert(requests
+                        .stream()
+                        .map(this::mkRecord)
+                        .toArray(RecalcQueueRecord[]::new))
+                .execute()
+                .length;
+    }
+
+
+    /**
+     * Claims ready requests for the given claim id, a request is ready if it is not
+     * claimed (or its claim has expired) and has not exhausted its attempts.
+     *
+     * The claim is made by a conditional update so, if several nodes race for the same
+     * requests, each request is only claimed by one of them.
+     *
+     * @param claimId  unique id for this claim, used to resolve the claimed requests
+     * @param requestedBefore  only requests made before this time are claimed
+     * @param claimExpiredBefore  claims made before this time are treated as abandoned
+     * @param maxAttempts  requests which have failed this many times are excluded
+     * @param limit  maximum number of requests to claim
+     * @return the claimed requests, oldest first
+     */
+    public List<RecalcRequest> claimReady(String claimId,
+                                          LocalDateTime requestedBefore,
+                                          LocalDateTime claimExpiredBefore,
+                                          int maxAttempts,
+                                          int limit) {
+        checkNotNull(claimId, "claimId cannot be null");
+        checkNotNull(requestedBefore, "requestedBefore cannot be null");
+        checkNotNull(claimExpiredBefore, "claimExpiredBefore cannot be null");
+
+        Condition isReady = RECALC_QUEUE.REQUESTED_AT.le(Timestamp.valueOf(requestedBefore))
+                .and(RECALC_QUEUE.ATTEMPTS.lt(maxAttempts))
+                .and(RECALC_QUEUE.CLAIM_ID.isNull()
+                        .or(RECALC_QUEUE.CLAIMED_AT.lt(Timestamp.valueOf(claimExpiredBefore))));
+
+        List<Long> candidateIds = dsl
+                .select(RECALC_QUEUE.ID)
+                .from(RECALC_QUEUE)
+                .where(isReady)
+                .orderBy(RECALC_QUEUE.ID)
+                .limit(limit)
+                .fetch(RECALC_QUEUE.ID);
+
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // re-checking readiness means candidates claimed by another node in the meantime are skipped
+        dsl.update(RECALC_QUEUE)
+                .set(RECALC_QUEUE.CLAIM_ID, claimId)
+                .set(RECALC_QUEUE.CLAIMED_AT, Timestamp.valueOf(nowUtc()))
+                .where(RECALC_QUEUE.ID.in(candidateIds))
+                .and(isReady)
+                .execute();
+
+        return dsl
+                .select(RECALC_QUEUE.fields())
+                .from(RECALC_QUEUE)
+                .where(RECALC_QUEUE.CLAIM_ID.eq(claimId))
+                .orderBy(RECALC_QUEUE.ID)
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
+    public List<RecalcRequest> findForEntity(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+
+        return dsl
+                .select(RECALC_QUEUE.fields())
+                .from(RECALC_QUEUE)
+                .where(RECALC_QUEUE.ENTITY_KIND.eq(ref.kind().name()))
+                .and(RECALC_QUEUE.ENTITY_ID.eq(ref.id()))
+                .orderBy(RECALC_QUEUE.ID)
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
+    public int countPending(int maxAttempts) {
+        return dsl.fetchCount(
+                RECALC_QUEUE,
+                RECALC_QUEUE.ATTEMPTS.lt(maxAttempts));
+    }
+
+
+    /**
+     * Removes all requests for the task and entities up to, and including, the given id
+     * which are either unclaimed or held by the given claim.  Requests claimed by other
+     * nodes are left for them to resolve.
+     *
+     * @return number of requests removed
+     */
+    public int deleteCompleted(String claimId,
+                               RecalcTask task,
+                               EntityKind kind,
+                               Collection<Long> entityIds,
+                               long maxId) {
+        checkNotNull(claimId, "claimId cannot be null");
+
+        return dsl
+                .deleteFrom(RECALC_QUEUE)
+                .where(mkCondition(task, kind, entityIds, maxId))
+                .and(RECALC_QUEUE.CLAIM_ID.isNull()
+                        .or(RECALC_QUEUE.CLAIM_ID.eq(claimId)))
+                .execute();
+    }
+
+
+    /**
+     * Increments the attempt count of the requests held by the given claim for the task
+     * and entities, and releases them so they may be retried.
+     *
+     * @return number of requests updated
+     */
+    public int recordFailure(String claimId,
+                             RecalcTask task,
+                             EntityKind kind,
+                             Collection<Long> entityIds,
+                             String error) {
+        checkNotNull(claimId, "claimId cannot be null");
+
+        return dsl
+                .update(RECALC_QUEUE)
+                .set(RECALC_QUEUE.ATTEMPTS, RECALC_QUEUE.ATTEMPTS.plus(1))
+                .set(RECALC_QUEUE.LAST_ERROR, limit(error, MAX_ERROR_LENGTH))
+                .setNull(RECALC_QUEUE.CLAIM_ID)
+                .setNull(RECALC_QUEUE.CLAIMED_AT)
+                .where(RECALC_QUEUE.CLAIM_ID.eq(claimId))
+                .and(RECALC_QUEUE.TASK.eq(task.name()))
+                .and(RECALC_QUEUE.ENTITY_KIND.eq(kind.name()))
+                .and(RECALC_QUEUE.ENTITY_ID.in(entityIds))
+                .execute();
+    }
+
+
+    // -- helpers
+
+    private RecalcQueueRecord mkRecord(RecalcRequest request) {
+        RecalcQueueRecord record = dsl.newRecord(RECALC_QUEUE);
+        record.setTask(request.task().name());
+        record.setEntityKind(request.entityReference().kind().name());
+        record.setEntityId(request.entityReference().id());
+        record.setRequestedBy(request.requestedBy());
+        record.setRequestedAt(Timestamp.valueOf(request.requestedAt()));
+        record.setAttempts(request.attempts());
+        return record;
+    }
+
+
+    private static Condition mkCondition(RecalcTask task,
+                                         EntityKind kind,
+                                         Collection<Long> entityIds,
+                                         long maxId) {
+        return RECALC_QUEUE.TASK.eq(task.name())
+                .and(RECALC_QUEUE.ENTITY_KIND.eq(kind.name()))
+                .and(RECALC_QUEUE.ENTITY_ID.in(entityIds))
+                .and(RECALC_QUEUE.ID.le(maxId));
+    }
+
+}
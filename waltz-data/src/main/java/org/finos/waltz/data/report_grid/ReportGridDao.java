@@ -27,6 +27,7 @@ import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.common.hierarchy.Forest;
 import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.data.DBExecutorPoolInterface;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.Cardinality;
@@ -98,12 +99,17 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
@@ -119,6 +125,7 @@ import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
@@ -193,6 +200,7 @@ public class ReportGridDao {
     private static final Logger LOG = LoggerFactory.getLogger(ReportGridDao.class);
 
     private final DSLContext dsl;
+    private final DBExecutorPoolInterface dbExecutorPool;
 
     private final org.finos.waltz.schema.tables.Measurable m = MEASURABLE.as("m");
     private final org.finos.waltz.schema.tables.MeasurableRating mr = MEASURABLE_RATING.as("mr");
@@ -258,8 +266,11 @@ public class ReportGridDao {
 
 
     @Autowired
-    public ReportGridDao(DSLContext dsl) {
+    public ReportGridDao(DSLContext dsl, DBExecutorPoolInterface dbExecutorPool) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         this.dsl = dsl;
+        this.dbExecutorPool = dbExecutorPool;
     }
 
 
@@ -883,37 +894,103 @@ public class ReportGridDao {
                     .map(d -> tuple(d, fieldReferencesById.get(d.entityFieldReference().id().get())))
                     .collect(groupingBy(t -> t.v2.entityKind(), toSet()));
 
-            
-            return union(
-                    fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION)),
-                    fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND)),
-                    fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND)),
-                    fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND)),
-                    fetchSummaryMeasurableData(
-                            genericSelector,
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet()),
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet())),
-                    fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE)),
-                    fetchPrimaryMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.PRIMARY)),
-                    fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION)),
-                    fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE)),
-                    fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP)),
-                    fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION)),
-                    fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE)),
-                    fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE)),
-                    fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE)),
-                    fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE)),
-                    fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION)),
-                    fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT)),
-                    fetchPrimaryMeasurableFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.MEASURABLE)),
-                    fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG)),
-                    fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS)),
-                    fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY)),
-                    fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC)));
+
+            // only dispatch the column families actually present in the grid definition
+            Map<String, Supplier<Set<ReportGridCell>>> fetchersByFamily = new LinkedHashMap<>();
+
+            Collection<ReportGridFixedColumnDefinition> pickHighestMeasurableCols = measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet());
+            Collection<ReportGridFixedColumnDefinition> pickLowestMeasurableCols = measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet());
+
+            registerFetcher(fetchersByFamily, "assessment", colsByKind.get(EntityKind.ASSESSMENT_DEFINITION), cols -> fetchAssessmentData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "involvement", colsByKind.get(EntityKind.INVOLVEMENT_KIND), cols -> fetchInvolvementData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "cost", colsByKind.get(EntityKind.COST_KIND), cols -> fetchCostData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "complexity", colsByKind.get(EntityKind.COMPLEXITY_KIND), cols -> fetchComplexityData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "summaryMeasurable", union(pickHighestMeasurableCols, pickLowestMeasurableCols), cols -> fetchSummaryMeasurableData(genericSelector, pickHighestMeasurableCols, pickLowestMeasurableCols));
+            registerFetcher(fetchersByFamily, "exactMeasurable", measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE), cols -> fetchExactMeasurableData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "primaryMeasurable", measurableColumnsByRollupKind.get(AdditionalColumnOptions.PRIMARY), cols -> fetchPrimaryMeasurableData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "surveyQuestion", colsByKind.get(EntityKind.SURVEY_QUESTION), cols -> fetchSurveyQuestionResponseData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "surveyTemplate", colsByKind.get(EntityKind.SURVEY_TEMPLATE), cols -> fetchSurveyTemplateResponseData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "appGroup", colsByKind.get(EntityKind.APP_GROUP), cols -> fetchAppGroupData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "applicationFieldRef", fieldRefColsByKind.get(EntityKind.APPLICATION), cols -> fetchApplicationFieldReferenceData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "exactDataType", dataTypeColumnsByIsExact.get(Boolean.TRUE), cols -> fetchExactDataTypeData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "summaryDataType", dataTypeColumnsByIsExact.get(Boolean.FALSE), cols -> fetchSummaryDataTypeData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "surveyFieldRef", fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE), cols -> fetchSurveyFieldReferenceData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "changeInitiativeFieldRef", fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE), cols -> fetchChangeInitiativeFieldReferenceData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "attestation", colsByKind.get(EntityKind.ATTESTATION), cols -> fetchAttestationData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "orgUnitFieldRef", fieldRefColsByKind.get(EntityKind.ORG_UNIT), cols -> fetchOrgUnitFieldReferenceData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "measurableFieldRef", fieldRefColsByKind.get(EntityKind.MEASURABLE), cols -> fetchPrimaryMeasurableFieldReferenceData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "tag", colsByKind.get(EntityKind.TAG), cols -> fetchTagData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "alias", colsByKind.get(EntityKind.ENTITY_ALIAS), cols -> fetchAliasData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "measurableHierarchy", colsByKind.get(EntityKind.MEASURABLE_CATEGORY), cols -> fetchMeasurableHierarchyData(genericSelector, cols));
+            registerFetcher(fetchersByFamily, "entityStatistic", colsByKind.get(EntityKind.ENTITY_STATISTIC), cols -> fetchEntityStatisticData(genericSelector, cols));
+
+            return fetchInParallel(fetchersByFamily);
+        }
+    }
+
+
+    private static <C extends Collection<?>> void registerFetcher(Map<String, Supplier<Set<ReportGridCell>>> fetchersByFamily,
+                                                                  String family,
+                                                                  C cols,
+                                                                  Function<C, Set<ReportGridCell>> fetcher) {
+        if (cols != null && ! cols.isEmpty()) {
+            fetchersByFamily.put(family, () -> fetcher.apply(cols));
         }
     }
 
 
+    /**
+     * Submits each column family fetch to the db executor pool and unions the results.
+     * If any family fails the remaining fetches are cancelled and the failure is rethrown.
+     *
+     * @param fetchersByFamily  cell fetchers keyed by column family name (used for timing/logging)
+     * @return  union of all cells produced by the fetchers
+     */
+    private Set<ReportGridCell> fetchInParallel(Map<String, Supplier<Set<ReportGridCell>>> fetchersByFamily) {
+        if (fetchersByFamily.size() == 1) {
+            // no point paying for the hand-off
+            Map.Entry<String, Supplier<Set<ReportGridCell>>> onlyFetcher = CollectionUtilities.first(fetchersByFamily.entrySet());
+            return timeFetch(onlyFetcher.getKey(), onlyFetcher.getValue());
+        }
+
+        Map<String, Future<Set<ReportGridCell>>> futuresByFamily = new LinkedHashMap<>();
+        fetchersByFamily.forEach((family, fetcher) -> futuresByFamily.put(
+                family,
+                dbExecutorPool.submit(() -> timeFetch(family, fetcher))));
+
+        Set<ReportGridCell> result = new HashSet<>();
+        String currentFamily = null;
+        try {
+            for (Map.Entry<String, Future<Set<ReportGridCell>>> entry : futuresByFamily.entrySet()) {
+                currentFamily = entry.getKey();
+                result.addAll(entry.getValue().get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuresByFamily.values().forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted whilst fetching report grid cell data", e);
+        } catch (ExecutionException e) {
+            futuresByFamily.values().forEach(f -> f.cancel(true));
+            LOG.warn("Failed to fetch report grid cell data for column family: {}, cancelled remaining fetches", currentFamily);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new IllegalStateException(format("Failed to fetch report grid cell data for column family: %s", currentFamily), e.getCause());
+            }
+        }
+    }
+
+
+    private static Set<ReportGridCell> timeFetch(String family,
+                                                 Supplier<Set<ReportGridCell>> fetcher) {
+        long st = System.currentTimeMillis();
+        Set<ReportGridCell> cells = fetcher.get();
+        LOG.debug("Fetched {} report grid cells for column family: {} in {}ms", cells.size(), family, System.currentTimeMillis() - st);
+        return cells;
+    }
+
+
     private Set<ReportGridCell> fetchSurveyTemplateResponseData(GenericSelector genericSelector,
                                                                 Collection<ReportGridFixedColumnDefinition> cols) {
         if (isEmpty(cols)) {
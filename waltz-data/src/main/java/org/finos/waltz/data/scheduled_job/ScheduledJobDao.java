@@ -26,8 +26,11 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.util.Set;
 
+import static org.finos.waltz.common.StringUtilities.limit;
+import static org.finos.waltz.schema.tables.ScheduledJobLog.SCHEDULED_JOB_LOG;
 import static org.finos.waltz.schema.tables.Settings.SETTINGS;
 import static org.finos.waltz.common.Checks.checkNotNull;
 
@@ -83,4 +86,30 @@ public class ScheduledJobDao {
                                 .and(SETTINGS.VALUE.eq(JobLifecycleStatus.RUNNING.name()))));
     }
 
+
+    /**
+     * Records the outcome of a single execution of a job.
+     *
+     * @param jobKey  the job which was executed
+     * @param status  final status of the job (typically COMPLETED or ERRORED)
+     * @param startedAt  when the job was started
+     * @param durationMillis  how long the job took
+     * @param message  optional message, e.g. the error which caused the job to fail
+     * @return number of rows inserted
+     */
+    public int recordJobRun(JobKey jobKey,
+                            JobLifecycleStatus status,
+                            Timestamp startedAt,
+                            long durationMillis,
+                            String message) {
+        return dsl
+                .insertInto(SCHEDULED_JOB_LOG)
+                .set(SCHEDULED_JOB_LOG.JOB_KEY, jobKey.name())
+                .set(SCHEDULED_JOB_LOG.STATUS, status.name())
+                .set(SCHEDULED_JOB_LOG.STARTED_AT, startedAt)
+                .set(SCHEDULED_JOB_LOG.DURATION_MILLIS, durationMillis)
+                .set(SCHEDULED_JOB_LOG.MESSAGE, limit(message, 4000))
+                .execute();
+    }
+
 }
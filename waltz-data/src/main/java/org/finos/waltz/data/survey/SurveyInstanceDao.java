@@ -22,6 +22,7 @@ import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.ReleaseLifecycleStatus;
 import org.finos.waltz.model.Severity;
@@ -269,7 +270,55 @@ public class SurveyInstanceDao {
     public long create(SurveyInstanceCreateCommand command) {
         checkNotNull(command, "command cannot be null");
 
-        SurveyInstanceRecord record = dsl.newRecord(si);
+        SurveyInstanceRecord record = mkRecord(dsl, command);
+        record.store();
+        return record.getId();
+    }
+
+
+    /**
+     * Batch inserts new survey instances using the given transaction.
+     * Generated ids are not returned, use {@link #findIdsByEntityForSurveyRun(DSLContext, long)}
+     * to retrieve them once all instances for a run have been inserted.
+     */
+    public int[] createAll(DSLContext tx, Collection<SurveyInstanceCreateCommand> commands) {
+        checkNotNull(tx, "tx cannot be null");
+        checkNotNull(commands, "commands cannot be null");
+
+        List<SurveyInstanceRecord> records = commands
+                .stream()
+                .map(cmd -> mkRecord(tx, cmd))
+                .collect(Collectors.toList());
+
+        return tx
+                .batchInsert(records)
+                .execute();
+    }
+
+
+    /**
+     * Returns the ids of the current (i.e. not previous version) instances in a survey run,
+     * grouped by the entity they were issued against.
+     */
+    public Map<EntityReference, List<Long>> findIdsByEntityForSurveyRun(DSLContext tx, long surveyRunId) {
+        checkNotNull(tx, "tx cannot be null");
+
+        return tx
+                .select(si.ID, si.ENTITY_KIND, si.ENTITY_ID)
+                .from(si)
+                .where(si.SURVEY_RUN_ID.eq(surveyRunId))
+                .and(si.ORIGINAL_INSTANCE_ID.isNull())
+                .orderBy(si.ID)
+                .fetch()
+                .stream()
+                .collect(Collectors.groupingBy(
+                        r -> mkRef(EntityKind.valueOf(r.get(si.ENTITY_KIND)), r.get(si.ENTITY_ID)),
+                        Collectors.mapping(r -> r.get(si.ID), Collectors.toList())));
+    }
+
+
+    private static SurveyInstanceRecord mkRecord(DSLContext dslContext, SurveyInstanceCreateCommand command) {
+        SurveyInstanceRecord record = dslContext.newRecord(si);
         record.setSurveyRunId(command.surveyRunId());
         record.setEntityKind(command.entityReference().kind().name());
         record.setEntityId(command.entityReference().id());
@@ -279,9 +328,7 @@ public class SurveyInstanceDao {
         record.setOwningRole(command.owningRole());
         record.setName(command.name());
         record.setIssuedOn(toSqlDate(command.issuedOn()));
-
-        record.store();
-        return record.getId();
+        return record;
     }
 
 
@@ -319,8 +366,10 @@ public class SurveyInstanceDao {
     }
 
 
-    public int deleteForSurveyRun(long surveyRunId) {
-        return dsl.delete(si)
+    public int deleteForSurveyRun(Optional<DSLContext> tx, long surveyRunId) {
+        return tx
+                .orElse(dsl)
+                .delete(si)
                 .where(si.SURVEY_RUN_ID.eq(surveyRunId))
                 .execute();
     }
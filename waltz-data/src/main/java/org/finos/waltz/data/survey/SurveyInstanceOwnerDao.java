@@ -38,7 +38,9 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.schema.Tables.PERSON;
@@ -106,6 +108,30 @@ public class SurveyInstanceOwnerDao {
     }
 
 
+    /**
+     * Batch inserts the given owners using the supplied transaction.
+     * Callers are responsible for ensuring the commands are distinct.
+     */
+    public int[] createAll(DSLContext tx, Collection<SurveyInstanceOwnerCreateCommand> commands) {
+        checkNotNull(tx, "tx cannot be null");
+        checkNotNull(commands, "commands cannot be null");
+
+        List<SurveyInstanceOwnerRecord> records = commands
+                .stream()
+                .map(cmd -> {
+                    SurveyInstanceOwnerRecord record = tx.newRecord(SURVEY_INSTANCE_OWNER);
+                    record.setSurveyInstanceId(cmd.surveyInstanceId());
+                    record.setPersonId(cmd.personId());
+                    return record;
+                })
+                .collect(Collectors.toList());
+
+        return tx
+                .batchInsert(records)
+                .execute();
+    }
+
+
     public boolean delete(long surveyInstanceId,
                           long personId) {
 
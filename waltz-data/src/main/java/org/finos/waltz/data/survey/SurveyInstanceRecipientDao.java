@@ -38,7 +38,10 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.schema.Tables.PERSON;
@@ -98,6 +101,30 @@ public class SurveyInstanceRecipientDao {
     }
 
 
+    /**
+     * Batch inserts the given recipients using the supplied transaction.
+     * Callers are responsible for ensuring the commands are distinct.
+     */
+    public int[] createAll(DSLContext tx, Collection<SurveyInstanceRecipientCreateCommand> commands) {
+        checkNotNull(tx, "tx cannot be null");
+        checkNotNull(commands, "commands cannot be null");
+
+        List<SurveyInstanceRecipientRecord> records = commands
+                .stream()
+                .map(cmd -> {
+                    SurveyInstanceRecipientRecord record = tx.newRecord(SURVEY_INSTANCE_RECIPIENT);
+                    record.setSurveyInstanceId(cmd.surveyInstanceId());
+                    record.setPersonId(cmd.personId());
+                    return record;
+                })
+                .collect(Collectors.toList());
+
+        return tx
+                .batchInsert(records)
+                .execute();
+    }
+
+
     public boolean deleteByInstanceAndPerson(long surveyInstanceId, long personId) {
         return dsl
                 .deleteFrom(SURVEY_INSTANCE_RECIPIENT)
@@ -107,12 +134,14 @@ public class SurveyInstanceRecipientDao {
     }
 
 
-    public int deleteForSurveyRun(long surveyRunId) {
-        Select<Record1<Long>> surveyInstanceIdSelector = dsl.select(SURVEY_INSTANCE.ID)
+    public int deleteForSurveyRun(Optional<DSLContext> tx, long surveyRunId) {
+        Select<Record1<Long>> surveyInstanceIdSelector = DSL.select(SURVEY_INSTANCE.ID)
                 .from(SURVEY_INSTANCE)
                 .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId));
 
-        return dsl.delete(SURVEY_INSTANCE_RECIPIENT)
+        return tx
+                .orElse(dsl)
+                .delete(SURVEY_INSTANCE_RECIPIENT)
                 .where(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID.in(surveyInstanceIdSelector))
                 .execute();
     }
@@ -0,0 +1,92 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.EntityReferenceNameResolver;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class EntityReferenceNameResolverTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private EntityReferenceNameResolver resolver;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void namesAreResolvedInInputOrderWithoutDuplicates() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+
+        List<EntityReference> resolved = resolver.resolve(asList(
+                mkRef(EntityKind.APPLICATION, b.id()),
+                mkRef(EntityKind.ORG_UNIT, ouIds.a),
+                mkRef(EntityKind.APPLICATION, a.id()),
+                mkRef(EntityKind.APPLICATION, b.id()),
+                mkRef(EntityKind.APPLICATION, -1L)));
+
+        assertEquals(
+                asList(
+                        mkRef(EntityKind.APPLICATION, b.id(), b.name().get()),
+                        mkRef(EntityKind.ORG_UNIT, ouIds.a, "aName"),
+                        mkRef(EntityKind.APPLICATION, a.id(), a.name().get()),
+                        mkRef(EntityKind.APPLICATION, -1L)),
+                resolved);
+    }
+
+
+    @Test
+    public void namesAreCachedUntilInvalidated() {
+        EntityReference app = appHelper.createNewApp(mkName("namesAreCachedUntilInvalidated"), ouIds.a);
+        assertEquals(app.name(), resolver.resolve(app).flatMap(EntityReference::name));
+
+        String newName = mkName("renamed");
+        dsl
+                .update(APPLICATION)
+                .set(APPLICATION.NAME, newName)
+                .where(APPLICATION.ID.eq(app.id()))
+                .execute();
+
+        assertEquals(app.name(), resolver.resolve(app).flatMap(EntityReference::name), "cached name should be used");
+
+        resolver.invalidate(app);
+        assertEquals(Optional.of(newName), resolver.resolve(app).flatMap(EntityReference::name));
+    }
+
+}
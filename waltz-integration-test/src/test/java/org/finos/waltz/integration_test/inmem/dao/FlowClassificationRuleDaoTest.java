@@ -0,0 +1,159 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.DecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.SqlServerDecoratorRatingStageApplier;
+import org.finos.waltz.data.flow_classification_rule.rating_stage.StagedDecoratorRatingUpdater;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.datatype.FlowDataTypeRatingUpdate;
+import org.finos.waltz.model.datatype.ImmutableFlowDataTypeRatingUpdate;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR_RATING_STAGE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FlowClassificationRuleDaoTest extends BaseInMemoryIntegrationTest {
+
+    private static final AuthoritativenessRatingValue PRIMARY = AuthoritativenessRatingValue.of("PRIMARY");
+    private static final AuthoritativenessRatingValue SECONDARY = AuthoritativenessRatingValue.of("SECONDARY");
+
+    @Autowired
+    private FlowClassificationRuleDao dao;
+
+    @Autowired
+    private LogicalFlowHelper lfHelper;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void decoratorRatingsCanBeUpdated() {
+        List<Long> lfdIds = mkDecorators("decoratorRatingsCanBeUpdated", 2);
+
+        assertEquals(0, dao.updateDecoratorRatings(emptySet()));
+        assertEquals(1, dao.updateDecoratorRatings(asSet(mkUpdate(lfdIds.get(0), PRIMARY))));
+
+        assertRating(lfdIds.get(0), PRIMARY);
+        assertUnrated(lfdIds.get(1));
+    }
+
+
+    @Test
+    public void stagedRatingsAreAppliedInChunks() {
+        // postgres' UPDATE ... FROM is not supported by h2
+        DecoratorRatingStageApplier mergeApplier = new SqlServerDecoratorRatingStageApplier();
+        StagedDecoratorRatingUpdater updater = new StagedDecoratorRatingUpdater(dsl, mergeApplier, 2);
+
+        List<Long> lfdIds = mkDecorators("stagedRatingsAreAppliedInChunks", 6);
+        Set<FlowDataTypeRatingUpdate> updates = lfdIds
+                .subList(0, 5)
+                .stream()
+                .map(id -> mkUpdate(id, id % 2 == 0 ? PRIMARY : SECONDARY))
+                .collect(Collectors.toSet());
+
+        assertEquals(5, updater.update(updates));
+
+        lfdIds.subList(0, 5).forEach(id -> assertRating(id, id % 2 == 0 ? PRIMARY : SECONDARY));
+        assertUnrated(lfdIds.get(5));
+        assertEquals(0, dsl.fetchCount(LOGICAL_FLOW_DECORATOR_RATING_STAGE), "staged rows should be removed once applied");
+    }
+
+
+    // -- helpers
+
+    private List<Long> mkDecorators(String stem, int count) {
+        EntityReference source = appHelper.createNewApp(mkName(stem, "source"), ouIds.a);
+        EntityReference target = appHelper.createNewApp(mkName(stem, "target"), ouIds.b);
+        LogicalFlow flow = lfHelper.createLogicalFlow(source, target);
+
+        Set<Long> dtIds = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            dtIds.add(dataTypeHelper.createDataType(mkName(stem, "dt" + i)));
+        }
+        lfHelper.createLogicalFlowDecorators(flow.entityReference(), dtIds);
+
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(flow.entityReference().id()))
+                .orderBy(LOGICAL_FLOW_DECORATOR.ID)
+                .fetch(LOGICAL_FLOW_DECORATOR.ID);
+    }
+
+
+    private static FlowDataTypeRatingUpdate mkUpdate(long lfdId, AuthoritativenessRatingValue rating) {
+        return ImmutableFlowDataTypeRatingUpdate
+                .builder()
+                .lfdId(lfdId)
+                .sourceOutboundRating(rating)
+                .targetInboundRating(rating)
+                .build();
+    }
+
+
+    private void assertRating(long lfdId, AuthoritativenessRatingValue expectedRating) {
+        LogicalFlowDecoratorRecord r = fetchDecorator(lfdId);
+        assertEquals(expectedRating.value(), r.getRating());
+        assertEquals(expectedRating.value(), r.getTargetInboundRating());
+        assertNull(r.getFlowClassificationRuleId());
+    }
+
+
+    private void assertUnrated(long lfdId) {
+        LogicalFlowDecoratorRecord r = fetchDecorator(lfdId);
+        assertEquals(AuthoritativenessRatingValue.NO_OPINION.value(), r.getRating());
+        assertEquals(AuthoritativenessRatingValue.NO_OPINION.value(), r.getTargetInboundRating());
+    }
+
+
+    private LogicalFlowDecoratorRecord fetchDecorator(long lfdId) {
+        return dsl
+                .selectFrom(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.ID.eq(lfdId))
+                .fetchOne();
+    }
+}
@@ -20,6 +20,7 @@ package org.finos.waltz.integration_test.inmem.service;
 
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.common.OptionalUtilities;
+import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -27,6 +28,7 @@ import org.finos.waltz.model.IdCommandResponse;
 import org.finos.waltz.model.attestation.*;
 import org.finos.waltz.service.attestation.AttestationInstanceService;
 import org.finos.waltz.service.attestation.AttestationRunService;
+import org.finos.waltz.test_common.helpers.AppGroupHelper;
 import org.finos.waltz.test_common.helpers.AppHelper;
 import org.finos.waltz.test_common.helpers.InvolvementHelper;
 import org.finos.waltz.test_common.helpers.PersonHelper;
@@ -44,6 +46,8 @@ import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
+import static org.finos.waltz.schema.tables.AttestationInstanceRecipient.ATTESTATION_INSTANCE_RECIPIENT;
+import static org.finos.waltz.schema.tables.AttestationRun.ATTESTATION_RUN;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkUserId;
 import static org.junit.jupiter.api.Assertions.*;
@@ -65,6 +69,9 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     @Autowired
     private AppHelper appHelper;
 
+    @Autowired
+    private AppGroupHelper groupHelper;
+
     @Autowired
     private DSLContext dsl;
 
@@ -234,4 +241,64 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    public void interruptedIssuanceIsResumed() throws InsufficientPrivelegeException {
+        String stem = "interruptedIssuanceIsResumed";
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "a"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "b"), ouIds.a);
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA, appB));
+
+        long invId = involvementHelper.mkInvolvementKind(mkName(stem));
+        Long pId = personHelper.createPerson(mkName(stem, "user"));
+        involvementHelper.createInvolvement(pId, invId, appA);
+        involvementHelper.createInvolvement(pId, invId, appB);
+
+        AttestationRunCreateCommand cmd = ImmutableAttestationRunCreateCommand.builder()
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .targetEntityKind(EntityKind.APPLICATION)
+                .attestedEntityKind(EntityKind.LOGICAL_DATA_FLOW)
+                .selectionOptions(mkOpts(mkRef(EntityKind.APP_GROUP, grpId)))
+                .addInvolvementKindIds(invId)
+                .name(stem)
+                .description(stem)
+                .build();
+
+        Long runId = arSvc.create(mkUserId(stem), cmd).id().get();
+        AttestationInstance instanceA = findInstanceForApp(runId, appA);
+        AttestationInstance instanceB = findInstanceForApp(runId, appB);
+
+        // simulate issuance being interrupted after app A's instance was created
+        dsl.deleteFrom(ATTESTATION_INSTANCE_RECIPIENT)
+                .where(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID.eq(instanceB.id().get()))
+                .execute();
+        dsl.deleteFrom(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ID.eq(instanceB.id().get()))
+                .execute();
+        dsl.update(ATTESTATION_RUN)
+                .set(ATTESTATION_RUN.STATUS, AttestationStatus.ISSUING.name())
+                .where(ATTESTATION_RUN.ID.eq(runId))
+                .execute();
+
+        assertTrue(arSvc.issueInstancesForPendingRuns() >= 1);
+
+        assertEquals(AttestationStatus.ISSUED, arSvc.getById(runId).status());
+        assertEquals(2, aiSvc.findByRunId(runId).size());
+        assertEquals(instanceA.id(), findInstanceForApp(runId, appA).id(), "existing instance should be retained");
+        assertNotNull(findInstanceForApp(runId, appB), "missing instance should have been issued");
+        assertEquals(2, dsl.fetchCount(
+                ATTESTATION_INSTANCE_RECIPIENT
+                        .innerJoin(ATTESTATION_INSTANCE)
+                        .on(ATTESTATION_INSTANCE.ID.eq(ATTESTATION_INSTANCE_RECIPIENT.ATTESTATION_INSTANCE_ID)),
+                ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId)));
+    }
+
+
+    private AttestationInstance findInstanceForApp(Long runId, EntityReference app) {
+        return aiSvc
+                .findByRunId(runId)
+                .stream()
+                .filter(i -> i.parentEntity().id() == app.id())
+                .findFirst()
+                .orElse(null);
+    }
+}
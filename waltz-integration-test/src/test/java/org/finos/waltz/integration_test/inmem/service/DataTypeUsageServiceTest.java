@@ -0,0 +1,147 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.data.data_type_usage.DataTypeUsageDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.data_type_usage.DataTypeUsage;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.usage_info.UsageKind;
+import org.finos.waltz.service.data_type.DataTypeDecoratorService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.jooq.impl.DSL.select;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataTypeUsageServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DataTypeUsageService svc;
+
+    @Autowired
+    private DataTypeUsageDao dao;
+
+    @Autowired
+    private DataTypeDecoratorService dataTypeDecoratorService;
+
+    @Autowired
+    private LogicalFlowHelper lfHelper;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+
+    @Test
+    public void usagesAreRecalculatedIncrementally() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.b);
+        Long dtId = dataTypeHelper.createDataType(mkName("usagesAreRecalculatedIncrementally"));
+
+        LogicalFlow ab = lfHelper.createLogicalFlow(a, b);
+        lfHelper.createLogicalFlowDecorators(ab.entityReference(), asSet(dtId));
+
+        svc.recalculateForApplications(asSet(a, b));
+        assertEquals(asSet(UsageKind.DISTRIBUTOR, UsageKind.ORIGINATOR), selectedUsageKinds(a));
+        assertEquals(asSet(UsageKind.CONSUMER), selectedUsageKinds(b));
+
+        assertEquals(
+                0,
+                dao.recalculateIncrementallyForIdSelector(
+                        EntityKind.APPLICATION,
+                        select(APPLICATION.ID).from(APPLICATION).where(APPLICATION.ID.in(a.id(), b.id(), c.id()))),
+                "recalculating unchanged usages should write nothing");
+
+        LocalDateTime since = nowUtc();
+        LogicalFlow bc = lfHelper.createLogicalFlow(b, c);
+        lfHelper.createLogicalFlowDecorators(bc.entityReference(), asSet(dtId));
+        lfHelper.removeFlow(ab.entityReference().id());
+
+        assertEquals(3, svc.recalculateForChangesSince(since), "a, b and c are all affected by the flow changes");
+
+        assertTrue(selectedUsageKinds(a).isEmpty(), "a no longer has any flows");
+        assertEquals(asSet(UsageKind.DISTRIBUTOR, UsageKind.ORIGINATOR), selectedUsageKinds(b));
+        assertEquals(asSet(UsageKind.CONSUMER), selectedUsageKinds(c));
+    }
+
+
+    @Test
+    public void removedDataTypesAreDroppedFromUsagesOfRecentlyChangedEntities() {
+        String username = mkName("removedDataTypesAreDropped");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        Long keptDtId = dataTypeHelper.createDataType(mkName("removedDataTypesAreDroppedKept"));
+        Long removedDtId = dataTypeHelper.createDataType(mkName("removedDataTypesAreDroppedRemoved"));
+
+        LogicalFlow ab = lfHelper.createLogicalFlow(a, b);
+        lfHelper.createLogicalFlowDecorators(ab.entityReference(), asSet(keptDtId, removedDtId));
+
+        svc.recalculateForApplications(asSet(a, b));
+        assertEquals(asSet(keptDtId, removedDtId), usedDataTypeIds(a));
+        assertEquals(asSet(keptDtId, removedDtId), usedDataTypeIds(b));
+
+        LocalDateTime since = nowUtc();
+        dataTypeDecoratorService.removeDataTypeDecorator(username, ab.entityReference(), asSet(removedDtId));
+
+        assertEquals(2, svc.recalculateForChangesSince(since), "a and b are affected by the data type removal");
+
+        assertEquals(asSet(keptDtId), usedDataTypeIds(a));
+        assertEquals(asSet(keptDtId), usedDataTypeIds(b));
+    }
+
+
+    // -- helpers
+
+    private Set<Long> usedDataTypeIds(EntityReference ref) {
+        return svc
+                .findForEntity(ref)
+                .stream()
+                .filter(u -> u.usage().isSelected())
+                .map(DataTypeUsage::dataTypeId)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<UsageKind> selectedUsageKinds(EntityReference ref) {
+        return svc
+                .findForEntity(ref)
+                .stream()
+                .filter(u -> u.usage().isSelected())
+                .map(u -> u.usage().kind())
+                .collect(Collectors.toSet());
+    }
+}
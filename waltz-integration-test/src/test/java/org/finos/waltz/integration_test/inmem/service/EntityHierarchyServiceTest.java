@@ -0,0 +1,152 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.finos.waltz.test_common.helpers.MeasurableHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.schema.Tables.ENTITY_HIERARCHY;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityHierarchyServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private EntityHierarchyService svc;
+
+    @Autowired
+    private MeasurableHelper measurableHelper;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    /**
+     * root
+     *  -- a
+     *  --- a1
+     *  -- b
+     */
+    private static class Tree {
+        long categoryId;
+        long root;
+        long a;
+        long a1;
+        long b;
+    }
+
+
+    @Test
+    public void rebuildingAnUnchangedHierarchyWritesNothing() {
+        mkTree("unchanged");
+        svc.buildFor(EntityKind.MEASURABLE);
+
+        assertEquals(0, svc.buildFor(EntityKind.MEASURABLE));
+    }
+
+
+    @Test
+    public void subtreeRebuildAfterMoveMatchesFullRebuild() {
+        Tree tree = mkTree("move");
+        svc.buildFor(EntityKind.MEASURABLE);
+
+        setParent(tree.a, tree.b);
+        int changeCount = svc.buildForMeasurableSubtree(tree.categoryId, tree.a);
+        assertTrue(changeCount > 0, "expected the moved subtree to be updated");
+
+        Set<EntityHierarchyItem> afterSubtreeRebuild = fetchHierarchy();
+        assertTrue(afterSubtreeRebuild.stream().anyMatch(i -> i.id().get() == tree.a1 && i.parentId().get() == tree.b));
+
+        assertEquals(0, svc.buildFor(EntityKind.MEASURABLE), "full rebuild should find nothing left to change");
+        assertEquals(afterSubtreeRebuild, fetchHierarchy());
+    }
+
+
+    @Test
+    public void subtreeRebuildIncludesNewAndRemovedMeasurables() {
+        Tree tree = mkTree("addRemove");
+        svc.buildFor(EntityKind.MEASURABLE);
+
+        long b1 = measurableHelper.createMeasurable(mkName("b1"), tree.categoryId);
+        setParent(b1, tree.b);
+        svc.buildForMeasurableSubtree(tree.categoryId, tree.b);
+
+        assertEquals(3, countHierarchyRows(b1), "b1 should have rows for itself, b and root");
+
+        dsl.deleteFrom(MEASURABLE).where(MEASURABLE.ID.eq(tree.a1)).execute();
+        dsl.deleteFrom(MEASURABLE).where(MEASURABLE.ID.eq(tree.a)).execute();
+        svc.buildForMeasurableSubtree(tree.categoryId, tree.a);
+
+        assertEquals(0, countHierarchyRows(tree.a));
+        assertEquals(0, countHierarchyRows(tree.a1));
+        assertEquals(0, svc.buildFor(EntityKind.MEASURABLE), "full rebuild should find nothing left to change");
+    }
+
+
+    // -- helpers
+
+    private Tree mkTree(String stem) {
+        Tree tree = new Tree();
+        tree.categoryId = measurableHelper.createMeasurableCategory(mkName(stem));
+        tree.root = measurableHelper.createMeasurable(mkName(stem + "_root"), tree.categoryId);
+        tree.a = measurableHelper.createMeasurable(mkName(stem + "_a"), tree.categoryId);
+        tree.a1 = measurableHelper.createMeasurable(mkName(stem + "_a1"), tree.categoryId);
+        tree.b = measurableHelper.createMeasurable(mkName(stem + "_b"), tree.categoryId);
+        setParent(tree.a, tree.root);
+        setParent(tree.a1, tree.a);
+        setParent(tree.b, tree.root);
+        return tree;
+    }
+
+
+    private void setParent(long id, long parentId) {
+        dsl.update(MEASURABLE)
+                .set(MEASURABLE.PARENT_ID, parentId)
+                .where(MEASURABLE.ID.eq(id))
+                .execute();
+    }
+
+
+    private int countHierarchyRows(long id) {
+        return dsl.fetchCount(
+                ENTITY_HIERARCHY,
+                ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name())
+                        .and(ENTITY_HIERARCHY.ID.eq(id)));
+    }
+
+
+    private Set<EntityHierarchyItem> fetchHierarchy() {
+        return svc
+                .fetchHierarchyForKind(EntityKind.MEASURABLE)
+                .hierarchyItems()
+                .stream()
+                .collect(Collectors.toSet());
+    }
+}
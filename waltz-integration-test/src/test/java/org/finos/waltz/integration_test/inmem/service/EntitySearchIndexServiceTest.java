@@ -0,0 +1,146 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.common.DateTimeUtilities;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.Severity;
+import org.finos.waltz.model.application.ImmutableApplication;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.settings.ImmutableSetting;
+import org.finos.waltz.model.settings.ImmutableUpdateSettingsCommand;
+import org.finos.waltz.model.settings.NamedSettings;
+import org.finos.waltz.service.application.ApplicationService;
+import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.entity_search.EntitySearchIndexService;
+import org.finos.waltz.service.settings.SettingsService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.model.entity_search.EntitySearchOptions.mkForEntity;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class EntitySearchIndexServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private EntitySearchIndexService svc;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private ApplicationService applicationService;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+
+    @Test
+    public void indexIsBuiltAndKeptFreshFromTheChangeLog() {
+        String name = mkName("indexIsBuiltAndKeptFreshFromTheChangeLog");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+
+        setIndexEnabled(true);
+        try {
+            svc.rebuild();
+
+            List<EntityReference> found = searchIndex(name);
+            assertEquals(1, found.size());
+            assertEquals(app.id(), found.get(0).id());
+
+            String newName = mkName("renamed");
+            applicationService.update(ImmutableApplication
+                    .copyOf(applicationService.getById(app.id()))
+                    .withName(newName));
+            changeLogService.write(ImmutableChangeLog.builder()
+                    .parentReference(app)
+                    .message("renamed")
+                    .operation(Operation.UPDATE)
+                    .severity(Severity.INFORMATION)
+                    .userId("test")
+                    .createdAt(DateTimeUtilities.nowUtc())
+                    .build());
+
+            svc.refresh();
+
+            List<EntityReference> foundByNewName = searchIndex(newName);
+            assertEquals(1, foundByNewName.size(), "app should be found by its new name");
+            assertEquals(Optional.of(newName), foundByNewName.get(0).name());
+
+            assertEquals(
+                    searchIndex(name),
+                    foundByNewName,
+                    "app should still be found via its (unchanged) asset code");
+        } finally {
+            setIndexEnabled(false);
+        }
+    }
+
+
+    @Test
+    public void indexIsNotUsedWhenDisabled() {
+        String name = mkName("indexIsNotUsedWhenDisabled");
+        appHelper.createNewApp(name, ouIds.a);
+
+        setIndexEnabled(false);
+        svc.rebuild();
+
+        assertFalse(svc.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, name)).isPresent());
+    }
+
+
+    // -- helpers
+
+    private List<EntityReference> searchIndex(String query) {
+        return svc
+                .search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, query))
+                .orElseThrow(() -> new AssertionError("search index should be enabled and built"));
+    }
+
+
+    private void setIndexEnabled(boolean enabled) {
+        String value = String.valueOf(enabled);
+        if (settingsService.getByName(NamedSettings.entitySearchIndexEnabled) == null) {
+            settingsService.create(ImmutableSetting
+                    .builder()
+                    .name(NamedSettings.entitySearchIndexEnabled)
+                    .value(value)
+                    .build());
+        } else {
+            settingsService.update(ImmutableUpdateSettingsCommand
+                    .builder()
+                    .name(NamedSettings.entitySearchIndexEnabled)
+                    .value(value)
+                    .build());
+        }
+    }
+
+}
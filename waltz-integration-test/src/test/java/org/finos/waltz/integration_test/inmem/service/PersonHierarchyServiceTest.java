@@ -0,0 +1,106 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.service.person_hierarchy.PersonHierarchyService;
+import org.finos.waltz.test_common.helpers.PersonHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.finos.waltz.schema.Tables.PERSON;
+import static org.finos.waltz.schema.Tables.PERSON_HIERARCHY;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PersonHierarchyServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private PersonHierarchyService svc;
+
+    @Autowired
+    private PersonHelper personHelper;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void hierarchyIsUpdatedIncrementally() {
+        String boss = employeeId(personHelper.createPerson(mkName("boss")));
+        String mgrA = employeeId(personHelper.createPerson(mkName("mgrA")));
+        String mgrB = employeeId(personHelper.createPerson(mkName("mgrB")));
+        Long workerId = personHelper.createPerson(mkName("worker"));
+        String worker = employeeId(workerId);
+
+        setManager(mgrA, boss);
+        setManager(mgrB, boss);
+        setManager(worker, mgrA);
+
+        svc.build();
+        assertEquals(0, svc.build(), "rebuilding an unchanged hierarchy should write nothing");
+        assertEquals(2, countManagersOf(worker));
+        assertEquals(2, levelOf(mgrA, worker));
+
+        setManager(worker, mgrB);
+        assertEquals(2, svc.build(), "expected one deletion and one insertion");
+        assertEquals(2, levelOf(mgrB, worker));
+        assertEquals(0, levelOf(mgrA, worker));
+
+        personHelper.updateIsRemoved(workerId, true);
+        svc.build();
+        assertEquals(0, countManagersOf(worker));
+    }
+
+
+    // -- helpers
+
+    private String employeeId(Long personId) {
+        return dsl
+                .select(PERSON.EMPLOYEE_ID)
+                .from(PERSON)
+                .where(PERSON.ID.eq(personId))
+                .fetchOne(PERSON.EMPLOYEE_ID);
+    }
+
+
+    private void setManager(String employeeId, String managerId) {
+        dsl.update(PERSON)
+                .set(PERSON.MANAGER_EMPLOYEE_ID, managerId)
+                .where(PERSON.EMPLOYEE_ID.eq(employeeId))
+                .execute();
+    }
+
+
+    private int countManagersOf(String employeeId) {
+        return dsl.fetchCount(PERSON_HIERARCHY, PERSON_HIERARCHY.EMPLOYEE_ID.eq(employeeId));
+    }
+
+
+    private int levelOf(String managerId, String employeeId) {
+        return dsl
+                .select(PERSON_HIERARCHY.LEVEL)
+                .from(PERSON_HIERARCHY)
+                .where(PERSON_HIERARCHY.MANAGER_ID.eq(managerId))
+                .and(PERSON_HIERARCHY.EMPLOYEE_ID.eq(employeeId))
+                .fetchOptional(PERSON_HIERARCHY.LEVEL)
+                .orElse(0);
+    }
+}
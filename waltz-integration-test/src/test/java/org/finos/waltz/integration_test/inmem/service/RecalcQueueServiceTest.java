@@ -0,0 +1,233 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.data.recalc.RecalcQueueDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.recalc.RecalcRequest;
+import org.finos.waltz.model.recalc.RecalcStatus;
+import org.finos.waltz.model.recalc.RecalcTask;
+import org.finos.waltz.model.usage_info.UsageKind;
+import org.finos.waltz.service.data_type.DataTypeDecoratorService;
+import org.finos.waltz.service.recalc.RecalcQueueService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.finos.waltz.test_common.helpers.PhysicalFlowHelper;
+import org.finos.waltz.test_common.helpers.PhysicalSpecHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecalcQueueServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private RecalcQueueService recalcQueueService;
+
+    @Autowired
+    private RecalcQueueDao recalcQueueDao;
+
+    @Autowired
+    private DataTypeDecoratorService dtdSvc;
+
+    @Autowired
+    private DataTypeUsageService dataTypeUsageService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private LogicalFlowHelper lfHelper;
+
+    @Autowired
+    private PhysicalSpecHelper psHelper;
+
+    @Autowired
+    private PhysicalFlowHelper pfHelper;
+
+
+    @Test
+    public void decoratorEditsAreRecalculatedInTheBackground() {
+        String username = mkName("decoratorEditsAreRecalculatedInTheBackground");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        LogicalFlow flow = lfHelper.createLogicalFlow(a, b);
+        Long dtId = dataTypeHelper.createDataType(mkName("decoratorEditsAreRecalculatedInTheBackground"));
+
+        dtdSvc.updateDecorators(username, flow.entityReference(), asSet(dtId), emptySet());
+
+        RecalcStatus pending = recalcQueueService.getStatus(flow.entityReference());
+        assertTrue(pending.pending());
+        assertEquals(asSet(RecalcTask.FLOW_RATINGS, RecalcTask.DATA_TYPE_USAGE), pending.pendingTasks());
+        assertTrue(selectedUsageKinds(a).isEmpty(), "usages are not calculated within the edit");
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+
+        assertFalse(recalcQueueService.getStatus(flow.entityReference()).pending());
+        assertEquals(asSet(UsageKind.DISTRIBUTOR, UsageKind.ORIGINATOR), selectedUsageKinds(a));
+        assertEquals(asSet(UsageKind.CONSUMER), selectedUsageKinds(b));
+    }
+
+
+    @Test
+    public void repeatedRequestsAreMerged() {
+        String username = mkName("repeatedRequestsAreMerged");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        LogicalFlow flow = lfHelper.createLogicalFlow(a, b);
+        Long dtId = dataTypeHelper.createDataType(mkName("repeatedRequestsAreMerged"));
+        Long dtId2 = dataTypeHelper.createDataType(mkName("repeatedRequestsAreMerged2"));
+
+        dtdSvc.updateDecorators(username, flow.entityReference(), asSet(dtId), emptySet());
+        dtdSvc.updateDecorators(username, flow.entityReference(), asSet(dtId2), asSet(dtId));
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+
+        assertFalse(recalcQueueService.getStatus(flow.entityReference()).pending());
+        assertTrue(recalcQueueDao.findForEntity(flow.entityReference()).isEmpty(), "all duplicates should have been removed");
+    }
+
+
+    @Test
+    public void requestsMadeAfterTheCutOffAreLeftQueued() {
+        String username = mkName("requestsMadeAfterTheCutOffAreLeftQueued");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        LogicalFlow flow = lfHelper.createLogicalFlow(a, b);
+        Long dtId = dataTypeHelper.createDataType(mkName("requestsMadeAfterTheCutOffAreLeftQueued"));
+
+        dtdSvc.updateDecorators(username, flow.entityReference(), asSet(dtId), emptySet());
+        recalcQueueService.processQueue(nowUtc().minusMinutes(1));
+
+        assertTrue(recalcQueueService.getStatus(flow.entityReference()).pending());
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+        assertFalse(recalcQueueService.getStatus(flow.entityReference()).pending());
+    }
+
+
+    @Test
+    public void requestsClaimedByAnotherNodeAreNotProcessedUntilTheClaimExpires() {
+        String username = mkName("requestsClaimedByAnotherNode");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        LogicalFlow flow = lfHelper.createLogicalFlow(a, b);
+        Long dtId = dataTypeHelper.createDataType(mkName("requestsClaimedByAnotherNode"));
+
+        dtdSvc.updateDecorators(username, flow.entityReference(), asSet(dtId), emptySet());
+
+        List<RecalcRequest> claimed = forFlow(flow, claim("other-node", nowUtc().minusMinutes(1)));
+        assertEquals(2, claimed.size(), "should have claimed the ratings and usage requests");
+        assertTrue(forFlow(flow, claim("another-node", nowUtc().minusMinutes(1))).isEmpty(), "claimed requests cannot be claimed again");
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+        assertTrue(recalcQueueService.getStatus(flow.entityReference()).pending(), "claim is held by another node");
+
+        List<RecalcRequest> reclaimed = forFlow(flow, claim("recovering-node", nowUtc().plusMinutes(1)));
+        assertEquals(map(claimed, RecalcRequest::id), map(reclaimed, RecalcRequest::id), "expired claims can be taken over");
+
+        reclaimed.forEach(r -> recalcQueueDao.deleteCompleted(
+                "recovering-node",
+                r.task(),
+                r.entityReference().kind(),
+                asSet(r.entityReference().id()),
+                r.id().orElse(0L)));
+        assertFalse(recalcQueueService.getStatus(flow.entityReference()).pending());
+    }
+
+
+    @Test
+    public void specificationDataTypesArePropagatedInTheBackground() {
+        String username = mkName("specificationDataTypesArePropagatedInTheBackground");
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a1);
+        LogicalFlow flow = lfHelper.createLogicalFlow(a, b);
+        Long specId = psHelper.createPhysicalSpec(a, username);
+        pfHelper.createPhysicalFlow(flow.entityReference().id(), specId, username);
+        Long dtId = dataTypeHelper.createDataType(mkName("specificationDataTypesArePropagatedInTheBackground"));
+        EntityReference specRef = mkRef(EntityKind.PHYSICAL_SPECIFICATION, specId);
+
+        dtdSvc.updateDecorators(username, specRef, asSet(dtId), emptySet());
+        assertEquals(asSet(RecalcTask.SPEC_DATA_TYPE_PROPAGATION), recalcQueueService.getStatus(specRef).pendingTasks());
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+
+        assertFalse(recalcQueueService.getStatus(specRef).pending());
+        assertEquals(
+                asSet(dtId),
+                map(lfHelper.fetchDecoratorsForFlow(flow.entityReference().id()), DataTypeDecorator::dataTypeId));
+        assertEquals(
+                asSet(RecalcTask.FLOW_RATINGS, RecalcTask.DATA_TYPE_USAGE),
+                recalcQueueService.getStatus(flow.entityReference()).pendingTasks(),
+                "flows given new data types should have their ratings and usages recalculated");
+
+        recalcQueueService.processQueue(nowUtc().plusMinutes(1));
+
+        assertFalse(recalcQueueService.getStatus(flow.entityReference()).pending());
+        assertEquals(asSet(UsageKind.CONSUMER), selectedUsageKinds(b));
+    }
+
+
+    // -- helpers
+
+    private List<RecalcRequest> claim(String claimId, LocalDateTime claimExpiredBefore) {
+        return recalcQueueDao.claimReady(claimId, nowUtc().plusMinutes(1), claimExpiredBefore, 3, 1000);
+    }
+
+
+    private static List<RecalcRequest> forFlow(LogicalFlow flow, List<RecalcRequest> requests) {
+        return requests
+                .stream()
+                .filter(r -> r.entityReference().kind() == EntityKind.LOGICAL_DATA_FLOW)
+                .filter(r -> r.entityReference().id() == flow.entityReference().id())
+                .collect(Collectors.toList());
+    }
+
+
+    private Set<UsageKind> selectedUsageKinds(EntityReference ref) {
+        return dataTypeUsageService
+                .findForEntity(ref)
+                .stream()
+                .filter(u -> u.usage().isSelected())
+                .map(u -> u.usage().kind())
+                .collect(Collectors.toSet());
+    }
+}
@@ -142,6 +142,66 @@ public class SurveyRunServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void individualSurveysAreReissuedAtomically() throws InsufficientPrivelegeException {
+        String stem = "srt_individualSurveysAreReissuedAtomically";
+
+        String admin = mkName(stem, "admin");
+        personHelper.createPerson(admin);
+        Long u1Id = personHelper.createPerson(mkName(stem, "user1"));
+        Long u2Id = personHelper.createPerson(mkName(stem, "user2"));
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        long invKind = involvementHelper.mkInvolvementKind(mkName(stem, "invKind"));
+        involvementHelper.createInvolvement(u1Id, invKind, appA);
+        involvementHelper.createInvolvement(u2Id, invKind, appA);
+
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA));
+        long tId = templateHelper.createTemplate(admin, mkName(stem, "template"));
+        templateHelper.updateStatus(admin, tId, ReleaseLifecycleStatus.ACTIVE);
+
+        SurveyRunCreateCommand cmd = ImmutableSurveyRunCreateCommand.builder()
+                .issuanceKind(SurveyIssuanceKind.INDIVIDUAL)
+                .name("test")
+                .description("run desc")
+                .selectionOptions(IdSelectionOptions.mkOpts(EntityReference.mkRef(EntityKind.APP_GROUP, grpId)))
+                .surveyTemplateId(tId)
+                .addInvolvementKindIds(invKind)
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .approvalDueDate(DateTimeUtilities.today().plusMonths(1))
+                .contactEmail("someone@somewhere.com")
+                .build();
+
+        Long surveyRunId = runService
+                .createSurveyRun(admin, cmd)
+                .id()
+                .orElseThrow(() -> new AssertionFailedError("Failed to create run"));
+
+        ImmutableInstancesAndRecipientsCreateCommand createCmd = ImmutableInstancesAndRecipientsCreateCommand.builder()
+                .surveyRunId(surveyRunId)
+                .dueDate(toLocalDate(nowUtcTimestamp()))
+                .approvalDueDate(toLocalDate(nowUtcTimestamp()))
+                .excludedRecipients(emptySet())
+                .build();
+
+        runService.createSurveyInstancesAndRecipients(createCmd);
+        runService.createSurveyInstancesAndRecipients(createCmd);
+
+        Set<SurveyInstance> instances = instanceService.findForSurveyRun(surveyRunId);
+        assertEquals(2, instances.size(), "reissuing should replace, not add to, the instances for the run");
+
+        Set<SurveyInstance> u1Instances = instanceService.findForRecipient(u1Id);
+        Set<SurveyInstance> u2Instances = instanceService.findForRecipient(u2Id);
+        assertEquals(1, u1Instances.size(), "user 1 should be the recipient of one instance");
+        assertEquals(1, u2Instances.size(), "user 2 should be the recipient of one instance");
+        assertNotEquals(u1Instances, u2Instances, "each recipient should have their own instance");
+
+        instances.forEach(i -> assertNotNull(
+                instanceService.checkPersonIsOwnerOrAdmin(admin, i.id().get()),
+                "admin is owner of every instance"));
+    }
+
+
     private Set<String> recipsToUserIds(List<Person> aRecips) {
         return map(aRecips, Person::userId);
     }
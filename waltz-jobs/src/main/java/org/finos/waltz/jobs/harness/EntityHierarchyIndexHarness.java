@@ -0,0 +1,154 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.harness;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Micro benchmark comparing the indexed {@link EntityHierarchy} lookups with the previous
+ * implementation (which filtered all hierarchy items on each call).  Uses a synthetic
+ * closure so no database is required.
+ */
+public class EntityHierarchyIndexHarness {
+
+    private static final int NODE_COUNT = 60_000;
+    private static final int BRANCHING_FACTOR = 6;
+    private static final int LOOKUPS = 200;
+    private static final int ITERATIONS = 5;
+
+
+    public static void main(String[] args) {
+        List<EntityHierarchyItem> items = mkClosure(NODE_COUNT, BRANCHING_FACTOR);
+        System.out.printf("Hierarchy of %d nodes, %d closure items%n", NODE_COUNT, items.size());
+
+        EntityHierarchy hierarchy = ImmutableEntityHierarchy.builder()
+                .hierarchyItems(items)
+                .build();
+
+        long[] ids = new Random(42).longs(LOOKUPS, 1, NODE_COUNT + 1).toArray();
+
+        HarnessUtilities.time("build index", () -> hierarchy.findAncestors(1));
+
+        double legacyAncestors = averageMicros(() -> {
+            for (long id : ids) {
+                legacyFindAncestors(items, id);
+            }
+            return null;
+        });
+
+        double indexedAncestors = averageMicros(() -> {
+            for (long id : ids) {
+                hierarchy.findAncestors(id);
+            }
+            return null;
+        });
+
+        double legacyChildren = averageMicros(() -> {
+            for (long id : ids) {
+                legacyFindChildren(items, id).contains(id);
+            }
+            return null;
+        });
+
+        double indexedChildren = averageMicros(() -> {
+            for (long id : ids) {
+                hierarchy.findChildren(id).contains(id);
+            }
+            return null;
+        });
+
+        System.out.printf(
+                "%d x findAncestors: legacy = %.0fus, indexed = %.1fus%n",
+                LOOKUPS,
+                legacyAncestors,
+                indexedAncestors);
+
+        System.out.printf(
+                "%d x findChildren + contains: legacy = %.0fus, indexed = %.1fus%n",
+                LOOKUPS,
+                legacyChildren,
+                indexedChildren);
+    }
+
+
+    /**
+     * Builds the closure of a tree where node n's parent is (n - 2) / branching + 1,
+     * including self references (as the entity_hierarchy table does).
+     */
+    private static List<EntityHierarchyItem> mkClosure(int nodeCount, int branching) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
+        for (long id = 1; id <= nodeCount; id++) {
+            int level = 0;
+            for (long ancestor = id; ancestor >= 1; ancestor = ancestor == 1 ? 0 : (ancestor - 2) / branching + 1) {
+                items.add(ImmutableEntityHierarchyItem.builder()
+                        .id(id)
+                        .parentId(ancestor)
+                        .kind(EntityKind.DATA_TYPE)
+                        .ancestorLevel(level)
+                        .descendantLevel(level)
+                        .build());
+                level++;
+            }
+        }
+        return items;
+    }
+
+
+    private static Set<Long> legacyFindChildren(List<EntityHierarchyItem> items, long parentId) {
+        return items
+                .stream()
+                .filter(t -> t.id().isPresent() && t.parentId().isPresent() && t.parentId().get() == parentId)
+                .map(t -> t.id().get())
+                .collect(Collectors.toSet());
+    }
+
+
+    private static Set<Long> legacyFindAncestors(List<EntityHierarchyItem> items, long childId) {
+        return items
+                .stream()
+                .filter(t -> t.id().isPresent() && t.parentId().isPresent() && t.id().get() == childId)
+                .map(t -> t.parentId().get())
+                .collect(Collectors.toSet());
+    }
+
+
+    private static double averageMicros(Supplier<?> fn) {
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            fn.get();
+        }
+
+        long st = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            fn.get();
+        }
+        return (System.nanoTime() - st) / 1000.0 / ITERATIONS;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.harness;
+
+import org.finos.waltz.data.entity_search.EntitySearchIndexDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import org.finos.waltz.model.settings.ImmutableSetting;
+import org.finos.waltz.model.settings.ImmutableUpdateSettingsCommand;
+import org.finos.waltz.model.settings.NamedSettings;
+import org.finos.waltz.service.DIConfiguration;
+import org.finos.waltz.service.entity_search.EntitySearchIndexService;
+import org.finos.waltz.service.entity_search.EntitySearchService;
+import org.finos.waltz.service.settings.SettingsService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.finos.waltz.jobs.harness.HarnessUtilities.time;
+
+/**
+ * Compares the latency of the database search path with the in-memory search index
+ * for the kinds covered by the index.  The
+ * <code>feature.entity-search.in-memory-index.enabled</code> setting is switched off
+ * whilst timing the database path and on whilst timing the index, it is left off
+ * when the harness completes.
+ */
+public class EntitySearchIndexHarness {
+
+    private static final int ITERATIONS = 50;
+
+    private static final String[] QUERIES = {
+            "cat",
+            "admin",
+            "test",
+            "enhance",
+            "ceo",
+            "equities"
+    };
+
+
+    public static void main(String[] args) {
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+        EntitySearchService searchService = ctx.getBean(EntitySearchService.class);
+        EntitySearchIndexService indexService = ctx.getBean(EntitySearchIndexService.class);
+        SettingsService settingsService = ctx.getBean(SettingsService.class);
+
+        List<EntitySearchOptions> optionsByQuery = Stream
+                .of(QUERIES)
+                .map(query -> ImmutableEntitySearchOptions.builder()
+                        .entityKinds(new ArrayList<>(EntitySearchIndexDao.SUPPORTED_KINDS))
+                        .searchQuery(query)
+                        .userId("admin")
+                        .build())
+                .collect(Collectors.toList());
+
+        setIndexEnabled(settingsService, false);
+
+        Map<String, String> dbResults = new LinkedHashMap<>();
+        for (EntitySearchOptions options : optionsByQuery) {
+            int dbCount = searchService.search(options).size();
+            double dbMicros = averageMicros(() -> searchService.search(options));
+            dbResults.put(options.searchQuery(), String.format("db = %.0fus (%d results)", dbMicros, dbCount));
+        }
+
+        setIndexEnabled(settingsService, true);
+        try {
+            time("build index", () -> {
+                indexService.rebuild();
+                return null;
+            });
+
+            for (EntitySearchOptions options : optionsByQuery) {
+                int indexCount = options
+                        .entityKinds()
+                        .stream()
+                        .mapToInt(k -> searchIndex(indexService, k, options).size())
+                        .sum();
+
+                double indexMicros = averageMicros(() -> {
+                    for (EntityKind kind : options.entityKinds()) {
+                        searchIndex(indexService, kind, options);
+                    }
+                    return null;
+                });
+
+                System.out.printf(
+                        "'%s': %s, index = %.1fus (%d results)%n",
+                        options.searchQuery(),
+                        dbResults.get(options.searchQuery()),
+                        indexMicros,
+                        indexCount);
+            }
+        } finally {
+            setIndexEnabled(settingsService, false);
+        }
+    }
+
+
+    private static List<EntityReference> searchIndex(EntitySearchIndexService indexService,
+                                                     EntityKind kind,
+                                                     EntitySearchOptions options) {
+        return indexService
+                .search(kind, options)
+                .orElseThrow(() -> new IllegalStateException("Search index is not enabled or not built"));
+    }
+
+
+    private static void setIndexEnabled(SettingsService settingsService, boolean enabled) {
+        String value = String.valueOf(enabled);
+        if (settingsService.getByName(NamedSettings.entitySearchIndexEnabled) == null) {
+            settingsService.create(ImmutableSetting
+                    .builder()
+                    .name(NamedSettings.entitySearchIndexEnabled)
+                    .value(value)
+                    .build());
+        } else {
+            settingsService.update(ImmutableUpdateSettingsCommand
+                    .builder()
+                    .name(NamedSettings.entitySearchIndexEnabled)
+                    .value(value)
+                    .build());
+        }
+    }
+
+
+    private static double averageMicros(Supplier<?> fn) {
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            fn.get();
+        }
+
+        long st = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            fn.get();
+        }
+        return (System.nanoTime() - st) / 1000.0 / ITERATIONS;
+    }
+}
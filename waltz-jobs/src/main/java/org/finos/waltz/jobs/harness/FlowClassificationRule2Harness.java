@@ -37,7 +37,10 @@ import org.finos.waltz.schema.tables.LogicalFlow;
 import org.finos.waltz.schema.tables.LogicalFlowDecorator;
 import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
 import org.finos.waltz.service.DIConfiguration;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleMatcher;
 import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleService;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleUtilities;
 import org.immutables.value.Value;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
@@ -53,6 +56,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -98,14 +102,63 @@ public class FlowClassificationRule2Harness {
         FlowClassificationRuleService svc = ctx.getBean(FlowClassificationRuleService.class);
         FlowClassificationRuleDao dao = ctx.getBean(FlowClassificationRuleDao.class);
         LogicalFlowDecoratorDao decoratorDao = ctx.getBean(LogicalFlowDecoratorDao.class);
+        EntityHierarchyService hierarchyService = ctx.getBean(EntityHierarchyService.class);
 
 //        time("doIt", () -> doIt(dsl, dao, decoratorDao));
-        FunctionUtilities.time("fast recalc", () -> svc.fastRecalculateAllFlowRatings());
+//        FunctionUtilities.time("fast recalc", () -> svc.fastRecalculateAllFlowRatings());
+        compareMatchers(dao, decoratorDao, hierarchyService);
 
 //        System.exit(-1);
     }
 
 
+    /**
+     * Runs the original (rules x population) algorithm and the indexed matcher over the
+     * full decorator population, reporting timings and any decorators where they disagree.
+     */
+    private static void compareMatchers(FlowClassificationRuleDao dao,
+                                        LogicalFlowDecoratorDao decoratorDao,
+                                        EntityHierarchyService hierarchyService) {
+
+        Set<org.finos.waltz.model.datatype.FlowDataType> population = time(
+                "fetch population",
+                () -> decoratorDao.fetchFlowDataTypePopulation(DSL.trueCondition()));
+        org.finos.waltz.model.entity_hierarchy.EntityHierarchy ouHierarchy = hierarchyService.fetchHierarchyForKind(EntityKind.ORG_UNIT);
+        org.finos.waltz.model.entity_hierarchy.EntityHierarchy dtHierarchy = hierarchyService.fetchHierarchyForKind(EntityKind.DATA_TYPE);
+
+        for (FlowDirection direction : new FlowDirection[]{FlowDirection.OUTBOUND, FlowDirection.INBOUND}) {
+            List<FlowClassificationRuleVantagePoint> vantagePoints = dao.findFlowClassificationRuleVantagePoints(direction);
+
+            Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> original = time(
+                    "original: " + direction,
+                    () -> FlowClassificationRuleUtilities.applyVantagePoints(direction, vantagePoints, population, ouHierarchy, dtHierarchy));
+
+            Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> indexed = time(
+                    "indexed: " + direction,
+                    () -> FlowClassificationRuleMatcher
+                            .mkMatcher(direction, vantagePoints, ouHierarchy, dtHierarchy)
+                            .apply(population));
+
+            // rule ids may legitimately differ where several rules tie, the original iterates over a hash set
+            long outcomeDifferences = population
+                    .stream()
+                    .filter(p -> !Objects.equals(
+                            Optional.ofNullable(original.get(p.lfdId())).map(Tuple2::v2),
+                            Optional.ofNullable(indexed.get(p.lfdId())).map(Tuple2::v2)))
+                    .count();
+
+            LOG.info(
+                    "{}: {} vantage points, {} decorators, original matched: {}, indexed matched: {}, outcome differences: {}",
+                    direction,
+                    vantagePoints.size(),
+                    population.size(),
+                    original.size(),
+                    indexed.size(),
+                    outcomeDifferences);
+        }
+    }
+
+
     private static void doIt(DSLContext dsl,
                              FlowClassificationRuleDao dao,
                              LogicalFlowDecoratorDao decoratorDao) {
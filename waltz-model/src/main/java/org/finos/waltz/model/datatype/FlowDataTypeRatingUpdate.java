@@ -0,0 +1,19 @@
+package org.finos.waltz.model.datatype;
+
+import org.finos.waltz.model.Nullable;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.immutables.value.Value;
+
+/**
+ * The ratings (and governing flow classification rules) to be written to a
+ * single logical flow decorator, see {@link FlowDataType}.
+ */
+@Value.Immutable
+public interface FlowDataTypeRatingUpdate {
+
+    long lfdId();
+    AuthoritativenessRatingValue sourceOutboundRating();
+    AuthoritativenessRatingValue targetInboundRating();
+    @Nullable Long outboundRuleId();
+    @Nullable Long inboundRuleId();
+}
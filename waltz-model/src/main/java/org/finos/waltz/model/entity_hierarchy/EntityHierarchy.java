@@ -4,26 +4,91 @@ import org.immutables.value.Value;
 
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.LongConsumer;
 
+/**
+ * A hierarchy expressed as its closure (i.e. one item per (entity, ancestor) pair, as stored
+ * in the <code>entity_hierarchy</code> table).
+ *
+ * Lookups are served from a primitive index (see {@link EntityHierarchyIndex}) which is built
+ * once, on first use, so repeated lookups against large hierarchies are cheap.
+ */
 @Value.Immutable
 public abstract class EntityHierarchy {
 
+    // item object, plus boxed ids and optionals
+    private static final long ESTIMATED_ITEM_BYTES = 96;
+
     public abstract List<EntityHierarchyItem> hierarchyItems();
 
+
+    @Value.Lazy
+    EntityHierarchyIndex index() {
+        return EntityHierarchyIndex.build(hierarchyItems());
+    }
+
+
+    /**
+     * @param parentId  id of the node
+     * @return all descendants of the node, unmodifiable
+     */
     public Set<Long> findChildren(long parentId) {
-        return hierarchyItems()
-                .stream()
-                .filter(t -> t.id().isPresent() && t.parentId().isPresent() && t.parentId().get() == parentId)
-                .map(t -> t.id().get())
-                .collect(Collectors.toSet());
+        return new SortedLongArraySet(index().descendantsOf(parentId));
     }
 
+
+    /**
+     * @param childId  id of the node
+     * @return all ancestors of the node, unmodifiable
+     */
     public Set<Long> findAncestors(long childId) {
-        return hierarchyItems()
-                .stream()
-                .filter(t -> t.id().isPresent() && t.parentId().isPresent() && t.id().get() == childId)
-                .map(t -> t.parentId().get())
-                .collect(Collectors.toSet());
+        return new SortedLongArraySet(index().ancestorsOf(childId));
+    }
+
+
+    /**
+     * Primitive variant of {@link #findAncestors(long)}.
+     *
+     * @param childId  id of the node
+     * @return sorted ids of all ancestors of the node
+     */
+    public long[] findAncestorIds(long childId) {
+        return index().ancestorsOf(childId).clone();
+    }
+
+
+    /**
+     * Non-copying variant of {@link #findAncestorIds(long)}, intended for hot loops
+     * where allocating an array per lookup would be wasteful.
+     *
+     * @param childId  id of the node
+     * @param action  invoked with the id of each ancestor of the node, in ascending order
+     */
+    public void forEachAncestorId(long childId, LongConsumer action) {
+        for (long ancestorId : index().ancestorsOf(childId)) {
+            action.accept(ancestorId);
+        }
+    }
+
+
+    /**
+     * Primitive variant of {@link #findChildren(long)}.
+     *
+     * @param parentId  id of the node
+     * @return sorted ids of all descendants of the node
+     */
+    public long[] findDescendantIds(long parentId) {
+        return index().descendantsOf(parentId).clone();
+    }
+
+
+    /**
+     * Rough estimate of the heap used by this hierarchy, including its index,
+     * intended for monitoring caches of hierarchies.
+     *
+     * @return approximate size in bytes
+     */
+    public long estimatedSizeInBytes() {
+        return hierarchyItems().size() * ESTIMATED_ITEM_BYTES + index().estimatedSizeInBytes();
     }
 }
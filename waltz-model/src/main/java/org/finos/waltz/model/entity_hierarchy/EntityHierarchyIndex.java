@@ -0,0 +1,220 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_hierarchy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive index over the (closure) items of an {@link EntityHierarchy}.
+ *
+ * Node ids are interned to dense int positions via an open addressing hash table, and the
+ * ancestors / descendants of each node are held as sorted, distinct <code>long[]</code>s.
+ * Looking up a node's ancestors or descendants is therefore constant time and membership
+ * checks are a binary search over the (typically short) array.
+ *
+ * Instances are immutable, the returned arrays are shared and must not be modified.
+ */
+final class EntityHierarchyIndex {
+
+    private static final long[] NONE = new long[0];
+    private static final int EMPTY_SLOT = -1;
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private final long[] slotKeys;
+    private final int[] slotPositions;
+    private final int mask;
+
+    private final long[][] ancestorsByPosition;
+    private final long[][] descendantsByPosition;
+
+
+    private EntityHierarchyIndex(long[] nodeIds,
+                                 long[][] ancestorsByPosition,
+                                 long[][] descendantsByPosition) {
+        int capacity = Integer.highestOneBit(Math.max(2, nodeIds.length * 2 - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slotKeys = new long[capacity];
+        this.slotPositions = new int[capacity];
+        Arrays.fill(slotPositions, EMPTY_SLOT);
+
+        for (int pos = 0; pos < nodeIds.length; pos++) {
+            int slot = slotFor(nodeIds[pos]);
+            while (slotPositions[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = nodeIds[pos];
+            slotPositions[slot] = pos;
+        }
+
+        this.ancestorsByPosition = ancestorsByPosition;
+        this.descendantsByPosition = descendantsByPosition;
+    }
+
+
+    static EntityHierarchyIndex build(List<EntityHierarchyItem> items) {
+        long[] ids = new long[items.size()];
+        long[] parentIds = new long[items.size()];
+        int count = 0;
+
+        for (EntityHierarchyItem item : items) {
+            if (item.id().isPresent() && item.parentId().isPresent()) {
+                ids[count] = item.id().get();
+                parentIds[count] = item.parentId().get();
+                count++;
+            }
+        }
+
+        long[] nodeIds = new long[count * 2];
+        System.arraycopy(ids, 0, nodeIds, 0, count);
+        System.arraycopy(parentIds, 0, nodeIds, count, count);
+        nodeIds = Arrays.stream(nodeIds).sorted().distinct().toArray();
+
+        int[] ancestorCounts = new int[nodeIds.length];
+        int[] descendantCounts = new int[nodeIds.length];
+        int[] idPositions = new int[count];
+        int[] parentPositions = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            idPositions[i] = Arrays.binarySearch(nodeIds, ids[i]);
+            parentPositions[i] = Arrays.binarySearch(nodeIds, parentIds[i]);
+            ancestorCounts[idPositions[i]]++;
+            descendantCounts[parentPositions[i]]++;
+        }
+
+        long[][] ancestors = allocate(ancestorCounts);
+        long[][] descendants = allocate(descendantCounts);
+        int[] ancestorFill = new int[nodeIds.length];
+        int[] descendantFill = new int[nodeIds.length];
+
+        for (int i = 0; i < count; i++) {
+            int idPos = idPositions[i];
+            int parentPos = parentPositions[i];
+            ancestors[idPos][ancestorFill[idPos]++] = parentIds[i];
+            descendants[parentPos][descendantFill[parentPos]++] = ids[i];
+        }
+
+        sortAndDedupe(ancestors);
+        sortAndDedupe(descendants);
+
+        return new EntityHierarchyIndex(nodeIds, ancestors, descendants);
+    }
+
+
+    /**
+     * @return sorted ids of all ancestors of the node (including itself if the hierarchy
+     * contains self references), empty if the node is not in the hierarchy
+     */
+    long[] ancestorsOf(long id) {
+        int pos = positionOf(id);
+        return pos == EMPTY_SLOT
+                ? NONE
+                : ancestorsByPosition[pos];
+    }
+
+
+    /**
+     * @return sorted ids of all descendants of the node (including itself if the hierarchy
+     * contains self references), empty if the node is not in the hierarchy
+     */
+    long[] descendantsOf(long id) {
+        int pos = positionOf(id);
+        return pos == EMPTY_SLOT
+                ? NONE
+                : descendantsByPosition[pos];
+    }
+
+
+    int nodeCount() {
+        return ancestorsByPosition.length;
+    }
+
+
+    /**
+     * @return approximate heap usage of the index (assuming compressed oops)
+     */
+    long estimatedSizeInBytes() {
+        long size = ARRAY_HEADER_BYTES * 2 + slotKeys.length * 8L + slotPositions.length * 4L;
+        size += estimatedSizeInBytes(ancestorsByPosition);
+        size += estimatedSizeInBytes(descendantsByPosition);
+        return size;
+    }
+
+
+    // -- helpers
+
+    private int positionOf(long id) {
+        int slot = slotFor(id);
+        while (slotPositions[slot] != EMPTY_SLOT) {
+            if (slotKeys[slot] == id) {
+                return slotPositions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY_SLOT;
+    }
+
+
+    private int slotFor(long id) {
+        // spread the bits as ids are often sequential
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+
+    private static long estimatedSizeInBytes(long[][] arrays) {
+        long size = ARRAY_HEADER_BYTES + arrays.length * 4L;
+        for (long[] arr : arrays) {
+            if (arr != NONE) {
+                size += ARRAY_HEADER_BYTES + arr.length * 8L;
+            }
+        }
+        return size;
+    }
+
+
+    private static long[][] allocate(int[] counts) {
+        long[][] result = new long[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = counts[i] == 0 ? NONE : new long[counts[i]];
+        }
+        return result;
+    }
+
+
+    private static void sortAndDedupe(long[][] arrays) {
+        for (int i = 0; i < arrays.length; i++) {
+            long[] arr = arrays[i];
+            if (arr.length < 2) {
+                continue;
+            }
+            Arrays.sort(arr);
+            int distinct = 1;
+            for (int j = 1; j < arr.length; j++) {
+                if (arr[j] != arr[distinct - 1]) {
+                    arr[distinct++] = arr[j];
+                }
+            }
+            if (distinct != arr.length) {
+                arrays[i] = Arrays.copyOf(arr, distinct);
+            }
+        }
+    }
+
+}
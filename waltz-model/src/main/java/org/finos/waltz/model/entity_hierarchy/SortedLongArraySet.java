@@ -0,0 +1,72 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_hierarchy;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable set view over a sorted, distinct <code>long[]</code>, avoiding the cost
+ * of copying (and boxing) the ids into a <code>HashSet</code> on every lookup.
+ */
+final class SortedLongArraySet extends AbstractSet<Long> {
+
+    private final long[] values;
+
+
+    SortedLongArraySet(long[] values) {
+        this.values = values;
+    }
+
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && Arrays.binarySearch(values, (Long) o) >= 0;
+    }
+
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int idx = 0;
+
+            @Override
+            public boolean hasNext() {
+                return idx < values.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return values[idx++];
+            }
+        };
+    }
+
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+}
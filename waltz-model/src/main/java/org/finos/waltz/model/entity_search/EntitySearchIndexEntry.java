@@ -0,0 +1,57 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_search;
+
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * The searchable attributes of an entity, as held in the in-memory search index.
+ */
+@Value.Immutable
+public abstract class EntitySearchIndexEntry {
+
+    /**
+     * Reference to the entity, as returned in search results.  The name is always populated
+     * and is the primary search field.
+     */
+    public abstract EntityReference entityReference();
+
+
+    /**
+     * Codes (asset codes, external ids, emails etc.) which are matched by prefix.
+     */
+    public abstract Set<String> identifiers();
+
+
+    /**
+     * Alternative names which are matched in the same way as the entity name.
+     */
+    public abstract Set<String> aliases();
+
+
+    @Value.Derived
+    public EntityLifecycleStatus lifecycleStatus() {
+        return entityReference().entityLifecycleStatus();
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.recalc;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.IdProvider;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * An entry in the recalculation queue, requesting that a task is
+ * (re)run for an entity.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableRecalcRequest.class)
+@JsonDeserialize(as = ImmutableRecalcRequest.class)
+public abstract class RecalcRequest implements IdProvider {
+
+    public abstract RecalcTask task();
+    public abstract EntityReference entityReference();
+    public abstract String requestedBy();
+    public abstract LocalDateTime requestedAt();
+
+    @Value.Default
+    public int attempts() {
+        return 0;
+    }
+
+    public abstract Optional<String> lastError();
+}
@@ -0,0 +1,54 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.recalc;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * Summary of the outstanding recalculations for an entity, intended to be
+ * polled by clients after an edit until <code>pending</code> is false.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableRecalcStatus.class)
+@JsonDeserialize(as = ImmutableRecalcStatus.class)
+public abstract class RecalcStatus {
+
+    public abstract EntityReference entityReference();
+
+    /**
+     * Tasks which are waiting to be (re)tried
+     */
+    public abstract Set<RecalcTask> pendingTasks();
+
+    /**
+     * Tasks which have repeatedly failed and will not be retried
+     */
+    public abstract Set<RecalcTask> failedTasks();
+
+
+    @Value.Derived
+    public boolean pending() {
+        return ! pendingTasks().isEmpty();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.recalc;
+
+/**
+ * Derived data which may need recalculating after an entity (typically a
+ * logical flow or physical specification) has been edited.
+ *
+ * Declared in the order the tasks are run within a batch.  Propagating specification
+ * data types may add data types to logical flows, in which case the propagation task
+ * queues {@link #FLOW_RATINGS} and {@link #DATA_TYPE_USAGE} for the affected flows.
+ */
+public enum RecalcTask {
+
+    /** copying the data types of a physical specification to its logical flows */
+    SPEC_DATA_TYPE_PROPAGATION,
+
+    /** flow classification ratings for the decorators of a logical flow */
+    FLOW_RATINGS,
+
+    /** data type usages of the source and target applications of a logical flow */
+    DATA_TYPE_USAGE
+}
@@ -0,0 +1,563 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.report_grid;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Columnar, read-only store of report grid cells.
+ *
+ * Cells are held in parallel primitive arrays, sorted by (subject, column), rather than as
+ * individual {@link ReportGridCell} objects.  Values (text, numbers, options, ratings etc.)
+ * are interned into per-store tables and referenced by index, so repeated values, such as
+ * the default 'Provided' option, are only held once.
+ *
+ * Cells are addressed by their position in the store (<code>0 .. size()-1</code>),
+ * positions can be found via {@link #findCell(long, long)}, {@link #cellsForSubject(long)}
+ * or {@link #cellsForColumn(long)}.
+ */
+public final class ReportGridCellStore {
+
+    private static final int NONE = -1;
+
+    private static final ReportGridCellStore EMPTY = new Builder().build();
+
+    // sorted distinct ids, cells refer to these by index
+    private final long[] subjectIds;
+    private final long[] columnIds;
+
+    // subject with index i occupies positions rowStarts[i] .. rowStarts[i+1]-1
+    private final int[] rowStarts;
+
+    // column with index i has its cells (in subject order) at positionsByColumn[columnStarts[i] .. columnStarts[i+1]-1]
+    private final int[] columnStarts;
+    private final int[] positionsByColumn;
+
+    // per cell
+    private final int[] subjectIdxs;
+    private final int[] columnIdxs;
+    private final int[] numberRefs;
+    private final int[] textRefs;
+    private final int[] errorRefs;
+    private final int[] dateTimeRefs;
+    private final int[] commentRefs;
+
+    // cell at position p has ratings ratingRefs[ratingStarts[p] .. ratingStarts[p+1]-1], options likewise
+    private final int[] ratingStarts;
+    private final int[] ratingRefs;
+    private final int[] optionStarts;
+    private final int[] optionRefs;
+
+    // interned values
+    private final BigDecimal[] numbers;
+    private final String[] strings;
+    private final LocalDateTime[] dateTimes;
+    private final long[] ratingIds;
+    private final CellOption[] options;
+
+    // lazily computed, benign race as the store is immutable
+    private int hash;
+
+
+    private ReportGridCellStore(Builder builder) {
+        int size = builder.size;
+
+        this.subjectIds = LongStream.of(Arrays.copyOf(builder.subjectIds, size)).sorted().distinct().toArray();
+        this.columnIds = LongStream.of(Arrays.copyOf(builder.columnIds, size)).sorted().distinct().toArray();
+
+        int[] srcSubjectIdxs = new int[size];
+        int[] srcColumnIdxs = new int[size];
+        for (int src = 0; src < size; src++) {
+            srcSubjectIdxs[src] = Arrays.binarySearch(subjectIds, builder.subjectIds[src]);
+            srcColumnIdxs[src] = Arrays.binarySearch(columnIds, builder.columnIds[src]);
+        }
+
+        // two stable counting sorts (column, then subject) give (subject, column) order without boxing
+        int[] byIdentity = IntStream.range(0, size).toArray();
+        int[] byColumn = countingSort(byIdentity, srcColumnIdxs, columnIds.length);
+        int[] order = countingSort(byColumn, srcSubjectIdxs, subjectIds.length);
+
+        this.subjectIdxs = new int[size];
+        this.columnIdxs = new int[size];
+        this.numberRefs = new int[size];
+        this.textRefs = new int[size];
+        this.errorRefs = new int[size];
+        this.dateTimeRefs = new int[size];
+        this.commentRefs = new int[size];
+        this.ratingStarts = new int[size + 1];
+        this.optionStarts = new int[size + 1];
+
+        int[] ratingRefs = new int[builder.ratingRefs.size];
+        int[] optionRefs = new int[builder.optionRefs.size];
+        int ratingOffset = 0;
+        int optionOffset = 0;
+
+        for (int pos = 0; pos < size; pos++) {
+            int src = order[pos];
+            subjectIdxs[pos] = srcSubjectIdxs[src];
+            columnIdxs[pos] = srcColumnIdxs[src];
+            numberRefs[pos] = builder.numberRefs.get(src);
+            textRefs[pos] = builder.textRefs.get(src);
+            errorRefs[pos] = builder.errorRefs.get(src);
+            dateTimeRefs[pos] = builder.dateTimeRefs.get(src);
+            commentRefs[pos] = builder.commentRefs.get(src);
+
+            ratingStarts[pos] = ratingOffset;
+            for (int r = builder.ratingStarts.get(src); r < builder.ratingStarts.get(src + 1); r++) {
+                ratingRefs[ratingOffset++] = builder.ratingRefs.get(r);
+            }
+
+            optionStarts[pos] = optionOffset;
+            for (int o = builder.optionStarts.get(src); o < builder.optionStarts.get(src + 1); o++) {
+                optionRefs[optionOffset++] = builder.optionRefs.get(o);
+            }
+        }
+        ratingStarts[size] = ratingOffset;
+        optionStarts[size] = optionOffset;
+
+        this.ratingRefs = ratingRefs;
+        this.optionRefs = optionRefs;
+
+        this.rowStarts = new int[subjectIds.length + 1];
+        for (int pos = 0, subjectIdx = 0; subjectIdx <= subjectIds.length; subjectIdx++) {
+            while (pos < size && subjectIdxs[pos] < subjectIdx) {
+                pos++;
+            }
+            rowStarts[subjectIdx] = pos;
+        }
+
+        this.positionsByColumn = countingSort(IntStream.range(0, size).toArray(), columnIdxs, columnIds.length);
+        this.columnStarts = new int[columnIds.length + 1];
+        for (int pos = 0; pos < size; pos++) {
+            columnStarts[columnIdxs[pos] + 1]++;
+        }
+        for (int columnIdx = 0; columnIdx < columnIds.length; columnIdx++) {
+            columnStarts[columnIdx + 1] += columnStarts[columnIdx];
+        }
+
+        this.numbers = builder.numbers.values.toArray(new BigDecimal[0]);
+        this.strings = builder.strings.values.toArray(new String[0]);
+        this.dateTimes = builder.dateTimes.values.toArray(new LocalDateTime[0]);
+        this.ratingIds = builder.ratingIds.values.stream().mapToLong(Long::longValue).toArray();
+        this.options = builder.options.values.toArray(new CellOption[0]);
+    }
+
+
+    public static ReportGridCellStore empty() {
+        return EMPTY;
+    }
+
+
+    public static ReportGridCellStore of(Collection<ReportGridCell> cells) {
+        checkNotNull(cells, "cells cannot be null");
+        return new Builder()
+                .addAll(cells)
+                .build();
+    }
+
+
+    /**
+     * Creates a new store containing the cells from this store plus the given cells.
+     * No de-duplication is performed, callers should not add cells for (subject, column)
+     * pairs already present.
+     *
+     * @param additionalCells  cells to add, typically calculated cells
+     * @return  a new store
+     */
+    public ReportGridCellStore withCells(Collection<ReportGridCell> additionalCells) {
+        checkNotNull(additionalCells, "additionalCells cannot be null");
+        if (additionalCells.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder();
+        for (int pos = 0; pos < size(); pos++) {
+            builder.add(this, pos);
+        }
+        return builder
+                .addAll(additionalCells)
+                .build();
+    }
+
+
+    // --- navigation ---
+
+    public int size() {
+        return subjectIdxs.length;
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    /**
+     * @return distinct ids of all subjects which have at least one cell, in ascending order
+     */
+    public LongStream subjectIds() {
+        return LongStream.of(subjectIds);
+    }
+
+
+    /**
+     * @return distinct ids of all columns which have at least one cell, in ascending order
+     */
+    public LongStream columnIds() {
+        return LongStream.of(columnIds);
+    }
+
+
+    /**
+     * @param subjectId  subject (row) identifier
+     * @return positions of all cells for the subject, ordered by column id
+     */
+    public IntStream cellsForSubject(long subjectId) {
+        int subjectIdx = Arrays.binarySearch(subjectIds, subjectId);
+        return subjectIdx < 0
+                ? IntStream.empty()
+                : IntStream.range(rowStarts[subjectIdx], rowStarts[subjectIdx + 1]);
+    }
+
+
+    /**
+     * @param columnId  column definition identifier
+     * @return positions of all cells for the column, ordered by subject id
+     */
+    public IntStream cellsForColumn(long columnId) {
+        int columnIdx = Arrays.binarySearch(columnIds, columnId);
+        return columnIdx < 0
+                ? IntStream.empty()
+                : IntStream
+                    .range(columnStarts[columnIdx], columnStarts[columnIdx + 1])
+                    .map(i -> positionsByColumn[i]);
+    }
+
+
+    /**
+     * @param subjectId  subject (row) identifier
+     * @param columnId  column definition identifier
+     * @return position of the cell, or -1 if there is no cell for the pair
+     */
+    public int findCell(long subjectId, long columnId) {
+        int subjectIdx = Arrays.binarySearch(subjectIds, subjectId);
+        int columnIdx = Arrays.binarySearch(columnIds, columnId);
+        if (subjectIdx < 0 || columnIdx < 0) {
+            return NONE;
+        }
+        int pos = Arrays.binarySearch(columnIdxs, rowStarts[subjectIdx], rowStarts[subjectIdx + 1], columnIdx);
+        return pos < 0
+                ? NONE
+                : pos;
+    }
+
+
+    // --- cell accessors, by position ---
+
+    public long subjectId(int pos) {
+        return subjectIds[subjectIdxs[pos]];
+    }
+
+
+    public long columnDefinitionId(int pos) {
+        return columnIds[columnIdxs[pos]];
+    }
+
+
+    public BigDecimal numberValue(int pos) {
+        return lookup(numbers, numberRefs[pos]);
+    }
+
+
+    public String textValue(int pos) {
+        return lookup(strings, textRefs[pos]);
+    }
+
+
+    public String errorValue(int pos) {
+        return lookup(strings, errorRefs[pos]);
+    }
+
+
+    public LocalDateTime dateTimeValue(int pos) {
+        return lookup(dateTimes, dateTimeRefs[pos]);
+    }
+
+
+    public String comment(int pos) {
+        return lookup(strings, commentRefs[pos]);
+    }
+
+
+    public boolean hasRatings(int pos) {
+        return ratingStarts[pos + 1] > ratingStarts[pos];
+    }
+
+
+    public LongStream ratingIds(int pos) {
+        return IntStream
+                .range(ratingStarts[pos], ratingStarts[pos + 1])
+                .mapToLong(r -> ratingIds[ratingRefs[r]]);
+    }
+
+
+    public Set<Long> ratingIdValues(int pos) {
+        Set<Long> result = new HashSet<>();
+        ratingIds(pos).forEach(result::add);
+        return result;
+    }
+
+
+    public Set<CellOption> options(int pos) {
+        Set<CellOption> result = new HashSet<>();
+        for (int o = optionStarts[pos]; o < optionStarts[pos + 1]; o++) {
+            result.add(options[optionRefs[o]]);
+        }
+        return result;
+    }
+
+
+    /**
+     * Materialises the cell at the given position.
+     */
+    public ReportGridCell toCell(int pos) {
+        return ImmutableReportGridCell
+                .builder()
+                .subjectId(subjectId(pos))
+                .columnDefinitionId(columnDefinitionId(pos))
+                .numberValue(numberValue(pos))
+                .textValue(textValue(pos))
+                .errorValue(errorValue(pos))
+                .dateTimeValue(dateTimeValue(pos))
+                .comment(comment(pos))
+                .ratingIdValues(ratingIdValues(pos))
+                .options(options(pos))
+                .build();
+    }
+
+
+    /**
+     * Materialises all cells, ordered by subject id then column id.
+     * Intended for serialization, prefer the positional accessors elsewhere.
+     */
+    public List<ReportGridCell> toCells() {
+        List<ReportGridCell> cells = new ArrayList<>(size());
+        for (int pos = 0; pos < size(); pos++) {
+            cells.add(toCell(pos));
+        }
+        return cells;
+    }
+
+
+    /**
+     * Stores are equal if they hold the same cells, regardless of insertion order.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (! (o instanceof ReportGridCellStore)) {
+            return false;
+        }
+        ReportGridCellStore that = (ReportGridCellStore) o;
+        return size() == that.size()
+                && Arrays.equals(subjectIds, that.subjectIds)
+                && Arrays.equals(columnIds, that.columnIds)
+                && new HashSet<>(toCells()).equals(new HashSet<>(that.toCells()));
+    }
+
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = new HashSet<>(toCells()).hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ReportGridCellStore{" +
+                "size=" + size() +
+                ", subjects=" + subjectIds.length +
+                ", columns=" + columnIds.length +
+                '}';
+    }
+
+
+    private static int[] countingSort(int[] items, int[] keys, int numKeys) {
+        int[] starts = new int[numKeys + 1];
+        for (int item : items) {
+            starts[keys[item] + 1]++;
+        }
+        for (int k = 0; k < numKeys; k++) {
+            starts[k + 1] += starts[k];
+        }
+        int[] sorted = new int[items.length];
+        for (int item : items) {
+            sorted[starts[keys[item]]++] = item;
+        }
+        return sorted;
+    }
+
+
+    private static <T> T lookup(T[] table, int ref) {
+        return ref == NONE
+                ? null
+                : table[ref];
+    }
+
+
+    // --- building ---
+
+    private static class Builder {
+
+        private int size = 0;
+        private long[] subjectIds = new long[16];
+        private long[] columnIds = new long[16];
+        private final IntList numberRefs = new IntList();
+        private final IntList textRefs = new IntList();
+        private final IntList errorRefs = new IntList();
+        private final IntList dateTimeRefs = new IntList();
+        private final IntList commentRefs = new IntList();
+        private final IntList ratingStarts = new IntList(0);
+        private final IntList ratingRefs = new IntList();
+        private final IntList optionStarts = new IntList(0);
+        private final IntList optionRefs = new IntList();
+
+        private final Interner<BigDecimal> numbers = new Interner<>();
+        private final Interner<String> strings = new Interner<>();
+        private final Interner<LocalDateTime> dateTimes = new Interner<>();
+        private final Interner<Long> ratingIds = new Interner<>();
+        private final Interner<CellOption> options = new Interner<>();
+
+
+        Builder addAll(Collection<ReportGridCell> cells) {
+            cells.forEach(this::add);
+            return this;
+        }
+
+
+        void add(ReportGridCell cell) {
+            addKey(cell.subjectId(), cell.columnDefinitionId());
+            numberRefs.add(numbers.intern(cell.numberValue()));
+            textRefs.add(strings.intern(cell.textValue()));
+            errorRefs.add(strings.intern(cell.errorValue()));
+            dateTimeRefs.add(dateTimes.intern(cell.dateTimeValue()));
+            commentRefs.add(strings.intern(cell.comment()));
+            cell.ratingIdValues().forEach(r -> ratingRefs.add(ratingIds.intern(r)));
+            ratingStarts.add(ratingRefs.size);
+            cell.options().forEach(o -> optionRefs.add(options.intern(o)));
+            optionStarts.add(optionRefs.size);
+        }
+
+
+        void add(ReportGridCellStore store, int pos) {
+            addKey(store.subjectId(pos), store.columnDefinitionId(pos));
+            numberRefs.add(numbers.intern(store.numberValue(pos)));
+            textRefs.add(strings.intern(store.textValue(pos)));
+            errorRefs.add(strings.intern(store.errorValue(pos)));
+            dateTimeRefs.add(dateTimes.intern(store.dateTimeValue(pos)));
+            commentRefs.add(strings.intern(store.comment(pos)));
+            store.ratingIds(pos).forEach(r -> ratingRefs.add(ratingIds.intern(r)));
+            ratingStarts.add(ratingRefs.size);
+            for (int o = store.optionStarts[pos]; o < store.optionStarts[pos + 1]; o++) {
+                optionRefs.add(options.intern(store.options[store.optionRefs[o]]));
+            }
+            optionStarts.add(optionRefs.size);
+        }
+
+
+        private void addKey(long subjectId, long columnId) {
+            if (size == subjectIds.length) {
+                subjectIds = Arrays.copyOf(subjectIds, size * 2);
+                columnIds = Arrays.copyOf(columnIds, size * 2);
+            }
+            subjectIds[size] = subjectId;
+            columnIds[size] = columnId;
+            size++;
+        }
+
+
+        ReportGridCellStore build() {
+            return new ReportGridCellStore(this);
+        }
+    }
+
+
+    /**
+     * Assigns each distinct (non-null) value an index, nulls are given {@link #NONE}.
+     */
+    private static class Interner<T> {
+
+        private final Map<T, Integer> indexByValue = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int intern(T value) {
+            if (value == null) {
+                return NONE;
+            }
+            return indexByValue.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+
+
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size = 0;
+
+        IntList(int... initial) {
+            for (int v : initial) {
+                add(v);
+            }
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int idx) {
+            return values[idx];
+        }
+    }
+
+}
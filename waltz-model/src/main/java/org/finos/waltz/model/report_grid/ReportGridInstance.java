@@ -1,19 +1,51 @@
 package org.finos.waltz.model.report_grid;
 
-import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.immutables.value.Value;
 
+import java.util.List;
 import java.util.Set;
 
+import static org.finos.waltz.common.ListUtilities.ensureNotNull;
+
 @Value.Immutable
 @JsonSerialize(as = ImmutableReportGridInstance.class)
-@JsonDeserialize(as = ImmutableReportGridInstance.class)
 public abstract class ReportGridInstance {
     public abstract Set<ReportSubject> subjects();  // rows
 
     public abstract Set<RatingSchemeItem> ratingSchemeItems();  // color scheme
 
-    public abstract Set<ReportGridCell> cellData();  // raw cell data
-}
\ No newline at end of file
+    @JsonIgnore
+    public abstract ReportGridCellStore cellStore();  // raw cell data, columnar
+
+
+    /**
+     * Materialised view of the cell store, retained for the wire format.
+     * Server side code should prefer {@link #cellStore()}.
+     */
+    @JsonProperty("cellData")
+    public List<ReportGridCell> cellData() {
+        return cellStore().toCells();
+    }
+
+
+    /**
+     * Rebuilds an instance from its wire format, the <code>cellData</code>
+     * array is loaded into a new cell store.
+     */
+    @JsonCreator
+    public static ReportGridInstance fromJson(@JsonProperty("subjects") Set<ReportSubject> subjects,
+                                              @JsonProperty("ratingSchemeItems") Set<RatingSchemeItem> ratingSchemeItems,
+                                              @JsonProperty("cellData") List<ReportGridCell> cellData) {
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(ensureNotNull(subjects))
+                .ratingSchemeItems(ensureNotNull(ratingSchemeItems))
+                .cellStore(ReportGridCellStore.of(ensureNotNull(cellData)))
+                .build();
+    }
+}
@@ -26,6 +26,7 @@ public interface NamedSettings {
     String authenticationFilter = "server.authentication.filter";
     String headerBasedAuthenticationFilterParam = "server.authentication.filter.headerbased.param";
     String externalAuthenticationEndpointUrl = "server.authentication.external.endpoint.url";
+    String entitySearchIndexEnabled = "feature.entity-search.in-memory-index.enabled";
     static String mkScheduledJobParamSetting(JobKey jobKey) {
         return format("job.%s.params", jobKey.name());
     }
@@ -0,0 +1,131 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_hierarchy;
+
+import org.finos.waltz.model.EntityKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityHierarchyTest {
+
+    /*
+     *     1
+     *    / \
+     *   2   3
+     *   |
+     *   4
+     */
+    private static final EntityHierarchy hierarchy = ImmutableEntityHierarchy.builder()
+            .hierarchyItems(asList(
+                    mkItem(1L, 1L),
+                    mkItem(2L, 2L),
+                    mkItem(2L, 1L),
+                    mkItem(3L, 3L),
+                    mkItem(3L, 1L),
+                    mkItem(4L, 4L),
+                    mkItem(4L, 2L),
+                    mkItem(4L, 1L),
+                    mkItem(4L, 1L),  // duplicate
+                    mkItemWithoutIds()))
+            .build();
+
+
+    @Test
+    public void ancestorsIncludeSelf() {
+        assertEquals(asSet(1L), hierarchy.findAncestors(1L));
+        assertEquals(asSet(1L, 2L), hierarchy.findAncestors(2L));
+        assertEquals(asSet(1L, 2L, 4L), hierarchy.findAncestors(4L));
+        assertArrayEquals(new long[]{1L, 2L, 4L}, hierarchy.findAncestorIds(4L));
+
+        List<Long> visited = new ArrayList<>();
+        hierarchy.forEachAncestorId(4L, visited::add);
+        assertEquals(asList(1L, 2L, 4L), visited);
+    }
+
+
+    @Test
+    public void descendantsIncludeSelf() {
+        assertEquals(asSet(1L, 2L, 3L, 4L), hierarchy.findChildren(1L));
+        assertEquals(asSet(2L, 4L), hierarchy.findChildren(2L));
+        assertEquals(asSet(3L), hierarchy.findChildren(3L));
+        assertArrayEquals(new long[]{2L, 4L}, hierarchy.findDescendantIds(2L));
+    }
+
+
+    @Test
+    public void unknownNodesHaveNoAncestorsOrDescendants() {
+        assertTrue(hierarchy.findAncestors(99L).isEmpty());
+        assertTrue(hierarchy.findChildren(99L).isEmpty());
+        assertEquals(0, hierarchy.findAncestorIds(99L).length);
+    }
+
+
+    @Test
+    public void resultsAreMembershipCheckable() {
+        Set<Long> descendants = hierarchy.findChildren(1L);
+        assertTrue(descendants.contains(4L));
+        assertFalse(descendants.contains(5L));
+        assertFalse(descendants.contains("4"));
+    }
+
+
+    @Test
+    public void returnedArraysAreCopies() {
+        hierarchy.findAncestorIds(4L)[0] = 99L;
+        assertEquals(asSet(1L, 2L, 4L), hierarchy.findAncestors(4L));
+    }
+
+
+    @Test
+    public void emptyHierarchyIsSupported() {
+        EntityHierarchy empty = ImmutableEntityHierarchy.builder().build();
+        assertTrue(empty.findAncestors(1L).isEmpty());
+        assertTrue(empty.findChildren(1L).isEmpty());
+    }
+
+
+    private static EntityHierarchyItem mkItem(long id, long parentId) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(parentId)
+                .kind(EntityKind.DATA_TYPE)
+                .ancestorLevel(1)
+                .descendantLevel(1)
+                .build();
+    }
+
+
+    private static EntityHierarchyItem mkItemWithoutIds() {
+        return ImmutableEntityHierarchyItem.builder()
+                .kind(EntityKind.DATA_TYPE)
+                .ancestorLevel(1)
+                .descendantLevel(1)
+                .build();
+    }
+}
@@ -0,0 +1,166 @@
+package org.finos.waltz.model.report_grid;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportGridCellStoreTest {
+
+    private static final ReportGridCell textCell = ImmutableReportGridCell.builder()
+            .subjectId(20L)
+            .columnDefinitionId(2L)
+            .textValue("hello")
+            .comment("a comment")
+            .build();
+
+    private static final ReportGridCell ratingCell = ImmutableReportGridCell.builder()
+            .subjectId(10L)
+            .columnDefinitionId(1L)
+            .ratingIdValues(asSet(5L, 6L))
+            .options(asSet(CellOption.mkCellOption("R", "Red"), CellOption.mkCellOption("G", "Green")))
+            .build();
+
+    private static final ReportGridCell numberCell = ImmutableReportGridCell.builder()
+            .subjectId(20L)
+            .columnDefinitionId(1L)
+            .numberValue(BigDecimal.TEN)
+            .dateTimeValue(LocalDateTime.of(2020, 1, 2, 3, 4))
+            .build();
+
+    private static final ReportGridCell errorCell = ImmutableReportGridCell.builder()
+            .subjectId(10L)
+            .columnDefinitionId(3L)
+            .errorValue("oops")
+            .build();
+
+
+    @Test
+    public void cellsSurviveRoundTrip() {
+        Set<ReportGridCell> cells = asSet(textCell, ratingCell, numberCell, errorCell);
+        ReportGridCellStore store = ReportGridCellStore.of(cells);
+
+        assertEquals(4, store.size());
+        assertEquals(cells, new HashSet<>(store.toCells()));
+        assertEquals("a comment", store.toCell(store.findCell(20L, 2L)).comment());
+    }
+
+
+    @Test
+    public void cellsCanBeFoundBySubjectAndColumn() {
+        ReportGridCellStore store = ReportGridCellStore.of(asSet(textCell, ratingCell, numberCell, errorCell));
+
+        assertEquals(textCell, store.toCell(store.findCell(20L, 2L)));
+        assertEquals(-1, store.findCell(20L, 3L));
+        assertEquals(-1, store.findCell(99L, 1L));
+
+        assertEquals(
+                asSet(1L, 3L),
+                store.cellsForSubject(10L).mapToObj(store::columnDefinitionId).collect(Collectors.toSet()));
+
+        assertEquals(
+                asSet(10L, 20L),
+                store.cellsForColumn(1L).mapToObj(store::subjectId).collect(Collectors.toSet()));
+
+        assertEquals(0, store.cellsForColumn(99L).count());
+    }
+
+
+    @Test
+    public void ratingsAndOptionsAreInterned() {
+        ReportGridCellStore store = ReportGridCellStore.of(asSet(ratingCell));
+
+        int pos = store.findCell(10L, 1L);
+        assertTrue(store.hasRatings(pos));
+        assertEquals(asSet(5L, 6L), store.ratingIdValues(pos));
+        assertEquals(asSet("R", "G"), store.options(pos).stream().map(CellOption::code).collect(Collectors.toSet()));
+    }
+
+
+    @Test
+    public void withCellsAddsToExistingStore() {
+        ReportGridCellStore store = ReportGridCellStore
+                .of(asSet(textCell, ratingCell))
+                .withCells(asSet(numberCell, errorCell));
+
+        assertEquals(
+                asSet(textCell, ratingCell, numberCell, errorCell),
+                new HashSet<>(store.toCells()));
+        assertFalse(ReportGridCellStore.empty().withCells(asSet(textCell)).isEmpty());
+    }
+
+
+    @Test
+    public void instanceIsSerializedWithCellDataArray() {
+        ReportGridInstance instance = ImmutableReportGridInstance.builder()
+                .cellStore(ReportGridCellStore.of(asSet(textCell, numberCell)))
+                .build();
+
+        JsonNode json = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .valueToTree(instance);
+
+        assertFalse(json.has("cellStore"));
+        assertTrue(json.get("cellData").isArray());
+        assertEquals(2, json.get("cellData").size());
+        assertTrue(json.get("cellData").get(0).has("columnDefinitionId"));
+        assertTrue(json.get("cellData").get(0).has("options"));
+    }
+
+
+    @Test
+    public void instanceCanBeRebuiltFromItsJson() throws Exception {
+        ReportGridInstance instance = ImmutableReportGridInstance.builder()
+                .cellStore(ReportGridCellStore.of(asSet(textCell, ratingCell, numberCell, errorCell)))
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        String json = mapper.writeValueAsString(instance);
+
+        assertEquals(instance, mapper.readValue(json, ReportGridInstance.class));
+    }
+
+
+    @Test
+    public void instancesWithDifferentCellsAreNotEqual() {
+        ReportGridInstance a = ImmutableReportGridInstance.builder()
+                .cellStore(ReportGridCellStore.of(asSet(textCell, ratingCell)))
+                .build();
+        ReportGridInstance b = ImmutableReportGridInstance.builder()
+                .cellStore(ReportGridCellStore.of(asSet(textCell, errorCell)))
+                .build();
+        ReportGridInstance c = ImmutableReportGridInstance.builder()
+                .cellStore(ReportGridCellStore.of(asSet(ratingCell)).withCells(asSet(textCell)))
+                .build();
+
+        assertNotEquals(a, b);
+        assertEquals(a, c);
+        assertEquals(a.hashCode(), c.hashCode());
+    }
+
+
+    @Test
+    public void cellsForColumnAreOrderedBySubject() {
+        ReportGridCellStore store = ReportGridCellStore.of(asSet(textCell, ratingCell, numberCell, errorCell));
+
+        assertArrayEquals(
+                new long[]{10L, 20L},
+                store.cellsForColumn(1L).mapToLong(store::subjectId).toArray());
+        assertArrayEquals(
+                new long[]{10L},
+                store.cellsForColumn(3L).mapToLong(store::subjectId).toArray());
+    }
+}
@@ -74,12 +74,31 @@ export function mkDataTypeDecoratorStore() {
                  `api/data-type-decorator/save/entity/${ref.kind}/${ref.id}`,
                  command);
 
+    // derived data (e.g. ratings) is recalculated in the background after a save
+    const getRecalcStatus = (ref) => remote
+        .execute("GET",
+                 `api/data-type-decorator/entity/${ref.kind}/${ref.id}/recalc-status`)
+        .then(r => r.data);
+
+    // polls the recalc status (as returned by `save`) until it is no longer pending, or we give up
+    const awaitRecalc = (ref, status, pollIntervalMillis = 1000, maxPolls = 60) => {
+        const poll = (currentStatus, pollsRemaining) => (!currentStatus.pending || pollsRemaining <= 0)
+            ? Promise.resolve(currentStatus)
+            : new Promise(resolve => setTimeout(resolve, pollIntervalMillis))
+                .then(() => getRecalcStatus(ref))
+                .then(nextStatus => poll(nextStatus, pollsRemaining - 1));
+
+        return poll(status, maxPolls);
+    };
+
     return {
         findByFlowIds,
         findDatatypeUsageCharacteristics,
         findBySelector,
         findDataTypeRatingCharacteristics,
         getViewForParentRef,
+        getRecalcStatus,
+        awaitRecalc,
         save
     };
 }
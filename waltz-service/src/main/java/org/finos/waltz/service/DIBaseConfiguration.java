@@ -37,6 +37,7 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 
 import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
@@ -74,6 +75,9 @@ public class DIBaseConfiguration {
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
+    @Value("${database.performance.query.slow.threshold.millis:-1}")
+    private long databasePerformanceQuerySlowThresholdMillis;
+
     @Bean
     public DataSource dataSource() {
 
@@ -94,9 +98,23 @@ public class DIBaseConfiguration {
     }
 
 
+    /**
+     * The slow query threshold may be given in milliseconds, otherwise the (older)
+     * threshold in seconds is used.
+     */
+    @Bean
+    public QueryStatsListener queryStatsListener() {
+        long thresholdMillis = databasePerformanceQuerySlowThresholdMillis >= 0
+                ? databasePerformanceQuerySlowThresholdMillis
+                : TimeUnit.SECONDS.toMillis(databasePerformanceQuerySlowThreshold);
+        return new QueryStatsListener(thresholdMillis);
+    }
+
+
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource,
+                          QueryStatsListener queryStatsListener) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -120,7 +138,7 @@ public class DIBaseConfiguration {
                 .set(dslSettings)
                 .set(
                     //new SlowDatabaseConnectionSimulator(2000),
-                    new SlowQueryListener(databasePerformanceQuerySlowThreshold),
+                    queryStatsListener,
                     new SpringExceptionTranslationExecuteListener(new SQLStateSQLExceptionTranslator()));
 
         return DSL.using(configuration);
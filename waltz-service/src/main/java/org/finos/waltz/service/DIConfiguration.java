@@ -24,8 +24,13 @@ import org.finos.waltz.model.authentication.ImmutableOAuthConfiguration;
 import org.finos.waltz.model.authentication.OAuthConfiguration;
 import org.finos.waltz.model.settings.ImmutableSetting;
 import org.finos.waltz.model.settings.Setting;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyCache;
+import org.finos.waltz.service.jmx.EntityHierarchyCacheMaintenance;
 import org.finos.waltz.service.jmx.PersonMaintenance;
+import org.finos.waltz.service.jmx.QueryStatsMaintenance;
+import org.finos.waltz.service.jmx.UserRoleCacheMaintenance;
 import org.finos.waltz.service.person_hierarchy.PersonHierarchyService;
+import org.finos.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -140,6 +145,27 @@ public class DIConfiguration implements SchedulingConfigurer {
     }
 
 
+    @Bean
+    @Autowired
+    public UserRoleCacheMaintenance userRoleCacheMaintenance(UserRoleService userRoleService) {
+        return new UserRoleCacheMaintenance(userRoleService);
+    }
+
+
+    @Bean
+    @Autowired
+    public QueryStatsMaintenance queryStatsMaintenance(QueryStatsListener queryStatsListener) {
+        return new QueryStatsMaintenance(queryStatsListener);
+    }
+
+
+    @Bean
+    @Autowired
+    public EntityHierarchyCacheMaintenance entityHierarchyCacheMaintenance(EntityHierarchyCache entityHierarchyCache) {
+        return new EntityHierarchyCacheMaintenance(entityHierarchyCache);
+    }
+
+
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+import org.finos.waltz.common.ExponentialHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Execution statistics for a single SQL fingerprint (see {@link SqlFingerprint}).
+ */
+public class QueryStats {
+
+    private static final long LOWEST_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long HIGHEST_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final String fingerprint;
+    private final ExponentialHistogram durations = new ExponentialHistogram(LOWEST_NANOS, HIGHEST_NANOS);
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+
+    QueryStats(String fingerprint) {
+        checkNotNull(fingerprint, "fingerprint cannot be null");
+        this.fingerprint = fingerprint;
+    }
+
+
+    void record(long nanos, long rowCount, boolean failed) {
+        durations.record(nanos);
+        rows.add(rowCount);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+
+    public long executionCount() {
+        return durations.count();
+    }
+
+
+    public long errorCount() {
+        return errors.sum();
+    }
+
+
+    /**
+     * @return rows fetched by queries plus rows affected by updates
+     */
+    public long rowCount() {
+        return rows.sum();
+    }
+
+
+    public long totalNanos() {
+        return durations.sum();
+    }
+
+
+    public long maxNanos() {
+        return durations.max();
+    }
+
+
+    public long percentileNanos(double quantile) {
+        return durations.percentile(quantile);
+    }
+
+
+    void reset() {
+        durations.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+                "count=%d, errors=%d, rows=%d, total=%.1fms, max=%.1fms, p50=%.1fms, p95=%.1fms, p99=%.1fms: %s",
+                executionCount(),
+                errorCount(),
+                rowCount(),
+                toMillis(totalNanos()),
+                toMillis(maxNanos()),
+                toMillis(percentileNanos(0.5)),
+                toMillis(percentileNanos(0.95)),
+                toMillis(percentileNanos(0.99)),
+                fingerprint);
+    }
+
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
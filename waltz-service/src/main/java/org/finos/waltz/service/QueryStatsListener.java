@@ -0,0 +1,208 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.Query;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Aggregates execution statistics (count, errors, rows, total/max time and percentiles) per
+ * SQL fingerprint and logs queries slower than a threshold to the performance log.
+ *
+ * A single instance is shared by all threads using the jOOQ configuration so all per-execution
+ * state is held in the {@link ExecuteContext}.  Timings cover the whole execution lifecycle,
+ * including fetching results, so lazily fetched queries are measured until their cursor is closed.
+ */
+public class QueryStatsListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    private static final String START_KEY = QueryStatsListener.class.getName() + ".start";
+    private static final String ROWS_KEY = QueryStatsListener.class.getName() + ".rows";
+
+    // bounds memory if many distinct statements are issued (e.g. ad-hoc or dynamically built sql)
+    private static final int MAX_FINGERPRINTS = 5_000;
+    private static final String OVERFLOW_FINGERPRINT = "[other]";
+
+    private final long slowQueryThresholdNanos;
+    private final ConcurrentMap<String, QueryStats> statsByFingerprint = new ConcurrentHashMap<>();
+
+
+    public static class SQLPerformanceWarning
+            extends Exception {
+
+        public SQLPerformanceWarning(String message) {
+            super(message);
+        }
+    }
+
+
+    public QueryStatsListener(long slowQueryThresholdMillis) {
+        checkTrue(slowQueryThresholdMillis >= 0, "slowQueryThresholdMillis cannot be negative");
+        LOG.info("Initialising with {}ms slow query threshold", slowQueryThresholdMillis);
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(START_KEY, System.nanoTime());
+    }
+
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        long[] rows = (long[]) ctx.data(ROWS_KEY);
+        if (rows == null) {
+            ctx.data(ROWS_KEY, new long[]{1});
+        } else {
+            rows[0]++;
+        }
+    }
+
+
+    @Override
+    public void exception(ExecuteContext ctx) {
+        record(ctx, true);
+    }
+
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        record(ctx, false);
+    }
+
+
+    /**
+     * @param limit  maximum number of fingerprints to return
+     * @param comparator  ordering, e.g. <code>Comparator.comparingLong(QueryStats::totalNanos).reversed()</code>
+     * @return the first <code>limit</code> fingerprints according to the comparator
+     */
+    public List<QueryStats> findTop(int limit, Comparator<QueryStats> comparator) {
+        return statsByFingerprint
+                .values()
+                .stream()
+                .filter(s -> s.executionCount() > 0)
+                .sorted(comparator)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+
+    public int fingerprintCount() {
+        return statsByFingerprint.size();
+    }
+
+
+    public long slowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+
+    public void reset() {
+        statsByFingerprint.clear();
+    }
+
+
+    // -- helpers
+
+    private void record(ExecuteContext ctx, boolean failed) {
+        // removing the start time ensures an execution is only recorded once, even if
+        // both exception() and end() are called for it
+        Object start = ctx.data().remove(START_KEY);
+        if (!(start instanceof Long)) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - (Long) start;
+        String sql = determineSql(ctx);
+
+        // rows fetched by queries, otherwise rows affected by updates
+        long[] fetched = (long[]) ctx.data().remove(ROWS_KEY);
+        long rows = fetched == null
+                ? Math.max(0, ctx.rows())
+                : fetched[0];
+
+        findOrCreateStats(SqlFingerprint.of(sql)).record(elapsed, rows, failed);
+
+        if (elapsed > slowQueryThresholdNanos) {
+            LOG.info(
+                    String.format("Slow SQL executed in %dms", TimeUnit.NANOSECONDS.toMillis(elapsed)),
+                    new SQLPerformanceWarning(renderForLog(ctx, sql)));
+        }
+    }
+
+
+    private QueryStats findOrCreateStats(String fingerprint) {
+        QueryStats existing = statsByFingerprint.get(fingerprint);
+        if (existing != null) {
+            return existing;
+        }
+
+        String key = statsByFingerprint.size() < MAX_FINGERPRINTS
+                ? fingerprint
+                : OVERFLOW_FINGERPRINT;
+
+        return statsByFingerprint.computeIfAbsent(key, QueryStats::new);
+    }
+
+
+    private static String determineSql(ExecuteContext ctx) {
+        if (ctx.sql() != null) {
+            return ctx.sql();
+        }
+        String[] batchSql = ctx.batchSQL();
+        return batchSql.length > 0 && batchSql[0] != null
+                ? batchSql[0]
+                : "";
+    }
+
+
+    private static String renderForLog(ExecuteContext ctx, String sql) {
+        Query query = ctx.query();
+        if (query == null) {
+            return sql;
+        }
+
+        DSLContext context = DSL.using(
+                ctx.dialect(),
+                // ... and the flag for pretty-printing
+                new Settings().withRenderFormatted(true));
+
+        return context.renderInlined(query);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+import java.util.regex.Pattern;
+
+import static org.finos.waltz.common.StringUtilities.isEmpty;
+
+/**
+ * Normalises SQL statements into fingerprints so executions of the same query shape
+ * (differing only in literal values, bind counts or formatting) can be aggregated.
+ *
+ * <ul>
+ *     <li>comments are removed</li>
+ *     <li>string and numeric literals are replaced with <code>?</code></li>
+ *     <li><code>in</code> lists are collapsed to <code>in (?+)</code></li>
+ *     <li>repeated <code>values</code> rows are collapsed to the first row</li>
+ *     <li>whitespace is collapsed</li>
+ * </ul>
+ */
+public class SqlFingerprint {
+
+    private static final Pattern BLOCK_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern LINE_COMMENT = Pattern.compile("--[^\\n]*");
+    private static final Pattern STRING_LITERAL = Pattern.compile("N?'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.\"])-?\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin \\( ?\\?(?: ?, ?\\?)* ?\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\( ?\\?(?: ?, ?\\?)* ?\\))(?: ?, ?\\( ?\\?(?: ?, ?\\?)* ?\\))+");
+
+
+    public static String of(String sql) {
+        if (isEmpty(sql)) {
+            return "";
+        }
+
+        String fingerprint = BLOCK_COMMENT.matcher(sql).replaceAll(" ");
+        fingerprint = LINE_COMMENT.matcher(fingerprint).replaceAll(" ");
+        fingerprint = STRING_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = NUMERIC_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+        fingerprint = IN_LIST.matcher(fingerprint).replaceAll("in (?+)");
+        fingerprint = REPEATED_ROWS.matcher(fingerprint).replaceAll("$1, ...");
+        return fingerprint;
+    }
+
+}
@@ -48,8 +48,11 @@ import org.finos.waltz.model.involvement_group.InvolvementGroup;
 import org.finos.waltz.model.involvement_group.InvolvementGroupCreateCommand;
 import org.finos.waltz.model.person.Person;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
+import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -59,45 +62,60 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.asList;
-import static org.finos.waltz.common.ListUtilities.isEmpty;
+import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.union;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.model.attestation.AttestationStatus.ISSUED;
 import static org.finos.waltz.model.attestation.AttestationStatus.ISSUING;
-import static org.finos.waltz.model.utils.IdUtilities.toIds;
 
 @Service
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
+    /**
+     * Number of instances issued per transaction
+     */
+    private static final int ISSUANCE_CHUNK_SIZE = 500;
+
     private final AttestationInstanceDao attestationInstanceDao;
     private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final InvolvementDao involvementDao;
     private final InvolvementGroupService involvementGroupService;
+    private final DSLContext dsl;
 
     @Autowired
     public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
                                  AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
-                                 InvolvementDao involvementDao, InvolvementGroupService involvementGroupService) {
+                                 InvolvementDao involvementDao,
+                                 InvolvementGroupService involvementGroupService,
+                                 DSLContext dsl) {
         checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
         checkNotNull(involvementGroupService, "involvementGroupService cannot be null");
+        checkNotNull(dsl, "dsl cannot be null");
 
         this.attestationInstanceDao = attestationInstanceDao;
         this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
         this.involvementDao = involvementDao;
         this.involvementGroupService = involvementGroupService;
+        this.dsl = dsl;
     }
 
 
@@ -172,7 +190,7 @@ public class AttestationRunService {
                 userId);
 
         // store
-        createAttestationInstancesAndRecipients(instanceRecipients);
+        createAttestationInstancesAndRecipients(runId, instanceRecipients);
 
         return ImmutableIdCommandResponse.builder()
                 .id(runId)
@@ -244,26 +262,59 @@ public class AttestationRunService {
     }
 
 
-    private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
+    /**
+     * Creates the instances and recipients for a run in chunks of {@link #ISSUANCE_CHUNK_SIZE} instances,
+     * each chunk is batch inserted within its own transaction.
+     *
+     * Instances are committed with their recipients, so if issuance is interrupted it can be resumed
+     * by calling this again: entities which already have an instance in the run are skipped.
+     */
+    private void createAttestationInstancesAndRecipients(long runId,
+                                                         List<AttestationInstanceRecipient> instanceRecipients) {
 
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
+        Map<AttestationInstance, List<String>> userIdsByInstance = instanceRecipients
                 .stream()
                 .collect(groupingBy(
                         AttestationInstanceRecipient::attestationInstance,
-                        toList()
-                ));
+                        mapping(AttestationInstanceRecipient::userId, toList())));
 
+        Set<EntityReference> alreadyIssued = attestationInstanceDao.findParentEntitiesForRun(runId);
+        if (!alreadyIssued.isEmpty()) {
+            LOG.info("Attestation run {}: resuming issuance, {} instances already exist", runId, alreadyIssued.size());
+        }
 
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
+        List<AttestationInstance> instancesToIssue = userIdsByInstance
+                .keySet()
+                .stream()
+                .filter(i -> !alreadyIssued.contains(i.parentEntity()))
+                .collect(toList());
 
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
-                }
-        );
+        AtomicInteger issuedCount = new AtomicInteger(0);
+        instancesToIssue
+                .stream()
+                .collect(batchProcessingCollector(
+                        ISSUANCE_CHUNK_SIZE,
+                        chunk -> {
+                            if (chunk.isEmpty()) {
+                                return;
+                            }
+
+                            dsl.transaction(ctx -> {
+                                DSLContext tx = ctx.dsl();
+                                Map<EntityReference, Long> instanceIdsByParent = attestationInstanceDao.createAll(tx, runId, chunk);
+                                Map<Long, List<String>> userIdsByInstanceId = indexBy(
+                                        chunk,
+                                        i -> instanceIdsByParent.get(i.parentEntity()),
+                                        userIdsByInstance::get);
+                                attestationInstanceRecipientDao.createAll(tx, userIdsByInstanceId);
+                            });
+
+                            LOG.info(
+                                    "Attestation run {}: issued {}/{} instances",
+                                    runId,
+                                    issuedCount.addAndGet(chunk.size()),
+                                    instancesToIssue.size());
+                        }));
     }
 
 
@@ -293,27 +344,35 @@ public class AttestationRunService {
     }
 
 
+    /**
+     * Issues instances for all pending runs, and resumes any runs whose issuance was interrupted.
+     * Each run is marked as issued once all of its instances have been created.
+     *
+     * @return number of runs issued
+     */
     public int issueInstancesForPendingRuns() {
 
-        Set<AttestationRun> pendingRuns = attestationRunDao.findPendingRuns();
+        Set<AttestationRun> runsToIssue = union(
+                attestationRunDao.findIssuingRuns(),
+                attestationRunDao.findPendingRuns());
 
-        List<AttestationInstanceRecipient> instanceRecipients = pendingRuns
-                .stream()
-                .flatMap(run -> generateAttestationInstanceRecipients(
-                            run.id().get(),
-                            run.attestedEntityKind(),
-                            "admin")
-                        .stream())
-                .collect(toList());
+        int issuedRunCount = 0;
+        for (AttestationRun run : runsToIssue) {
+            Long runId = run.id().get();
+            Set<Long> runIds = asSet(runId);
+            attestationRunDao.updateStatusForRunIds(runIds, ISSUING);
+
+            List<AttestationInstanceRecipient> instanceRecipients = generateAttestationInstanceRecipients(
+                    runId,
+                    run.attestedEntityKind(),
+                    "admin");
 
-        Set<Long> runsBeingIssued = toIds(pendingRuns);
-        attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUING);
+            createAttestationInstancesAndRecipients(runId, instanceRecipients);
 
-        if (!isEmpty(instanceRecipients)) {
-            createAttestationInstancesAndRecipients(instanceRecipients);
+            issuedRunCount += attestationRunDao.updateStatusForRunIds(runIds, ISSUED);
         }
 
-        return attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUED);
+        return issuedRunCount;
     }
 
 
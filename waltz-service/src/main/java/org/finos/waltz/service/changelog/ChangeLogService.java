@@ -152,18 +152,46 @@ public class ChangeLogService {
     }
 
 
+    /**
+     * Writes the change log entry.  As the change may have renamed the parent entity
+     * its cached name (see {@link EntityReferenceNameResolver}) is invalidated once written.
+     */
     public int write(ChangeLog changeLog) {
-        return changeLogDao.write(Optional.empty(), changeLog);
+        try {
+            return changeLogDao.write(Optional.empty(), changeLog);
+        } finally {
+            nameResolver.invalidate(changeLog.parentReference());
+        }
     }
 
 
+    /**
+     * Writes the change log entry, using the transaction if given.  When written within a
+     * transaction the parent's cached name is <em>not</em> invalidated, as a concurrent read
+     * could reload the old name before the transaction commits.  Callers should invoke
+     * {@link #invalidateCachedName(EntityReference)} once the transaction has committed.
+     */
     public int write(Optional<DSLContext> tx, ChangeLog changeLog) {
-        return changeLogDao.write(tx, changeLog);
+        return tx.isPresent()
+                ? changeLogDao.write(tx, changeLog)
+                : write(changeLog);
     }
 
 
     public int[] write(Collection<ChangeLog> changeLogs) {
-        return changeLogDao.write(changeLogs);
+        try {
+            return changeLogDao.write(changeLogs);
+        } finally {
+            changeLogs.forEach(cl -> nameResolver.invalidate(cl.parentReference()));
+        }
+    }
+
+
+    /**
+     * Invalidates the cached name of the entity, see {@link #write(Optional, ChangeLog)}.
+     */
+    public void invalidateCachedName(EntityReference ref) {
+        nameResolver.invalidate(ref);
     }
 
 
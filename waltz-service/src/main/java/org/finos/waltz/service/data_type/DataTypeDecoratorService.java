@@ -46,6 +46,7 @@ import org.finos.waltz.model.logical_flow.ImmutableDataTypeDecoratorView;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.model.recalc.RecalcTask;
 import org.finos.waltz.service.assessment_definition.AssessmentDefinitionService;
 import org.finos.waltz.service.assessment_rating.AssessmentRatingService;
 import org.finos.waltz.service.changelog.ChangeLogService;
@@ -54,9 +55,8 @@ import org.finos.waltz.service.data_flow_decorator.LogicalFlowDecoratorService;
 import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleService;
 import org.finos.waltz.service.flow_classification_rule.FlowClassificationService;
 import org.finos.waltz.service.logical_flow.LogicalFlowService;
-import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
 import org.finos.waltz.service.rating_scheme.RatingSchemeService;
-import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.finos.waltz.service.recalc.RecalcQueueService;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.impl.DSL;
@@ -77,7 +77,7 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.CollectionUtilities.notEmpty;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
-import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.filter;
 import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.EntityKind.APPLICATION;
@@ -96,16 +96,15 @@ public class DataTypeDecoratorService {
     private final LogicalFlowDao logicalFlowDao;
     private final LogicalFlowService logicalFlowService;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
-    private final DataTypeUsageService dataTypeUsageService;
     private final DataTypeService dataTypeService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
     private final PhysicalSpecificationDao physicalSpecificationDao;
-    private final PhysicalSpecificationService physicalSpecificationService;
     private final AssessmentRatingService assessmentRatingService;
     private final FlowClassificationService flowClassificationService;
 
     private final FlowClassificationRuleService flowClassificationRuleService;
+    private final RecalcQueueService recalcQueueService;
 
     @Autowired
     public DataTypeDecoratorService(ChangeLogService changeLogService,
@@ -114,15 +113,14 @@ public class DataTypeDecoratorService {
                                     LogicalFlowDao logicalFlowDao,
                                     LogicalFlowService logicalFlowService,
                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
-                                    DataTypeUsageService dataTypeUsageService,
                                     DataTypeService dataTypeService,
                                     PhysicalSpecificationDao physicalSpecificationDao,
-                                    PhysicalSpecificationService physicalSpecificationService,
                                     AssessmentRatingService assessmentRatingService,
                                     AssessmentDefinitionService assessmentDefinitionService,
                                     RatingSchemeService ratingSchemeService,
                                     FlowClassificationService flowClassificationService,
-                                    FlowClassificationRuleService flowClassificationRuleService) {
+                                    FlowClassificationRuleService flowClassificationRuleService,
+                                    RecalcQueueService recalcQueueService) {
 
         checkNotNull(assessmentDefinitionService, "assessmentDefinitionService cannot be null");
         checkNotNull(assessmentRatingService, "assessmentRatingService cannot be null");
@@ -130,21 +128,20 @@ public class DataTypeDecoratorService {
         checkNotNull(flowClassificationService, "flowClassificationService cannot be null");
         checkNotNull(flowClassificationRuleService, "flowClassificationRuleService cannot be null");
         checkNotNull(logicalFlowDecoratorService, "logicalFlowDecoratorService cannot be null");
-        checkNotNull(physicalSpecificationService, "physicalSpecificationService cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
+        checkNotNull(recalcQueueService, "recalcQueueService cannot be null");
 
         this.assessmentRatingService = assessmentRatingService;
         this.changeLogService = changeLogService;
         this.dataTypeDecoratorDaoSelectorFactory = dataTypeDecoratorDaoSelectorFactory;
         this.dataTypeService = dataTypeService;
-        this.dataTypeUsageService = dataTypeUsageService;
         this.flowClassificationService = flowClassificationService;
         this.flowClassificationRuleService = flowClassificationRuleService;
         this.logicalFlowDao = logicalFlowDao;
         this.logicalFlowService = logicalFlowService;
         this.physicalSpecificationDao = physicalSpecificationDao;
-        this.physicalSpecificationService = physicalSpecificationService;
         this.ratingsCalculator = ratingsCalculator;
+        this.recalcQueueService = recalcQueueService;
     }
 
 
@@ -220,14 +217,13 @@ public class DataTypeDecoratorService {
         audit(format("Added data types: %s", dataTypeIds.toString()),
                 entityReference, userName);
 
-        if (entityReference.kind().equals(LOGICAL_DATA_FLOW)) {
-            int rulesUpdated = FunctionUtilities.time("recalc ratings",  () -> flowClassificationRuleService.recalculateFlowRatingsForSelector(mkOpts(entityReference)));
+        // derived data is recalculated in the background, see RecalcQueueService
+        if (LOGICAL_DATA_FLOW.equals(entityReference.kind())) {
+            recalcQueueService.enqueue(entityReference, userName, asSet(RecalcTask.FLOW_RATINGS, RecalcTask.DATA_TYPE_USAGE));
         }
 
-        FunctionUtilities.time("recalc usage",  ()->recalculateDataTypeUsageForApplications(entityReference));
-
         if (PHYSICAL_SPECIFICATION.equals(entityReference.kind())) {
-            physicalSpecificationService.propagateDataTypesToLogicalFlows(userName, entityReference.id());
+            recalcQueueService.enqueue(entityReference, userName, asSet(RecalcTask.SPEC_DATA_TYPE_PROPAGATION));
         }
 
         return result;
@@ -245,20 +241,14 @@ public class DataTypeDecoratorService {
         audit(format("Removed data types: %s", dataTypeIds.toString()),
                 entityReference, userName);
 
-        recalculateDataTypeUsageForApplications(entityReference);
+        if (LOGICAL_DATA_FLOW.equals(entityReference.kind())) {
+            recalcQueueService.enqueue(entityReference, userName, asSet(RecalcTask.DATA_TYPE_USAGE));
+        }
 
         return result;
     }
 
 
-    private void recalculateDataTypeUsageForApplications(EntityReference associatedEntityReference) {
-        if(LOGICAL_DATA_FLOW.equals(associatedEntityReference.kind())) {
-            LogicalFlow flow = logicalFlowDao.getByFlowId(associatedEntityReference.id());
-            dataTypeUsageService.recalculateForApplications(newArrayList(flow.source(), flow.target()));
-        }
-    }
-
-
     private Collection<DataTypeDecorator> mkDecorators(String userName,
                                                        EntityReference entityReference,
                                                        Set<Long> dataTypeIds) {
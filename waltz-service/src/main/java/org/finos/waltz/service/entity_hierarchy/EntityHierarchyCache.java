@@ -0,0 +1,272 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_hierarchy;
+
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Process wide cache of entity hierarchies (the contents of the <code>entity_hierarchy</code>
+ * table), held as one immutable snapshot per entity kind.
+ *
+ * Each kind has a version which is incremented whenever its hierarchy is rebuilt (see
+ * {@link #onHierarchyRebuilt(EntityKind)}).  Snapshots record the version they were loaded at
+ * and are only served whilst that version is current.  Rebuilds load the replacement snapshot
+ * before swapping it in, so readers are never blocked and never see a partially loaded hierarchy.
+ *
+ * As the hierarchy may also be rebuilt by other Waltz processes, snapshots are reloaded once
+ * they are older than {@link #MAX_SNAPSHOT_AGE}.
+ */
+@Service
+public class EntityHierarchyCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyCache.class);
+
+    static final Duration MAX_SNAPSHOT_AGE = Duration.ofMinutes(15);
+
+    private final EntityHierarchyDao entityHierarchyDao;
+    private final LongSupplier millisClock;
+
+    private final Map<EntityKind, Snapshot> snapshotsByKind = new ConcurrentHashMap<>();
+    private final Map<EntityKind, AtomicLong> versionsByKind = new ConcurrentHashMap<>();
+    private final Map<EntityKind, Object> loadLocksByKind = new ConcurrentHashMap<>();
+
+
+    @Autowired
+    public EntityHierarchyCache(EntityHierarchyDao entityHierarchyDao) {
+        this(entityHierarchyDao, System::currentTimeMillis);
+    }
+
+
+    EntityHierarchyCache(EntityHierarchyDao entityHierarchyDao, LongSupplier millisClock) {
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(millisClock, "millisClock cannot be null");
+
+        this.entityHierarchyDao = entityHierarchyDao;
+        this.millisClock = millisClock;
+    }
+
+
+    /**
+     * Returns the current hierarchy for the given kind, loading it if it has not
+     * been loaded, has been rebuilt or has expired.
+     *
+     * @param kind  kind of hierarchy (e.g. ORG_UNIT, DATA_TYPE)
+     * @return the hierarchy, shared and immutable
+     */
+    public EntityHierarchy get(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        Snapshot snapshot = snapshotsByKind.get(kind);
+        if (isCurrent(snapshot)) {
+            return snapshot.hierarchy();
+        }
+
+        synchronized (loadLockFor(kind)) {
+            // another thread may have loaded the snapshot whilst we were waiting
+            Snapshot latest = snapshotsByKind.get(kind);
+            return isCurrent(latest)
+                    ? latest.hierarchy()
+                    : load(kind).hierarchy();
+        }
+    }
+
+
+    /**
+     * Should be called after the hierarchy for a kind has been rebuilt.  Moves the kind
+     * to a new version and, if the kind is cached, swaps in a freshly loaded snapshot.
+     *
+     * @param kind  kind of hierarchy which has been rebuilt
+     */
+    public void onHierarchyRebuilt(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        versionFor(kind).incrementAndGet();
+
+        if (snapshotsByKind.containsKey(kind)) {
+            synchronized (loadLockFor(kind)) {
+                load(kind);
+            }
+        }
+    }
+
+
+    /**
+     * Discards all snapshots, they will be reloaded on next use.
+     */
+    public void invalidateAll() {
+        versionsByKind.values().forEach(AtomicLong::incrementAndGet);
+        snapshotsByKind.clear();
+    }
+
+
+    /**
+     * @return details of the cached snapshots, ordered by kind
+     */
+    public List<Snapshot> findSnapshots() {
+        List<Snapshot> snapshots = new ArrayList<>(snapshotsByKind.values());
+        snapshots.sort(Comparator.comparing(Snapshot::kind));
+        return snapshots;
+    }
+
+
+    /**
+     * @return approximate heap used by all cached snapshots
+     */
+    public long estimatedSizeInBytes() {
+        return snapshotsByKind
+                .values()
+                .stream()
+                .mapToLong(Snapshot::estimatedSizeInBytes)
+                .sum();
+    }
+
+
+    /**
+     * @return time since the snapshot was loaded
+     */
+    public Duration ageOf(Snapshot snapshot) {
+        checkNotNull(snapshot, "snapshot cannot be null");
+        return Duration.ofMillis(millisClock.getAsLong() - snapshot.loadedAtMillis());
+    }
+
+
+    // -- helpers
+
+    private Snapshot load(EntityKind kind) {
+        long version = versionFor(kind).get();
+        long start = millisClock.getAsLong();
+
+        EntityHierarchy hierarchy = ImmutableEntityHierarchy
+                .builder()
+                .hierarchyItems(entityHierarchyDao.fetchHierarchyForKind(kind))
+                .build();
+
+        // builds the index now, rather than on the first (possibly latency sensitive) lookup
+        long sizeInBytes = hierarchy.estimatedSizeInBytes();
+
+        Snapshot snapshot = new Snapshot(
+                kind,
+                version,
+                hierarchy,
+                millisClock.getAsLong(),
+                sizeInBytes);
+
+        snapshotsByKind.put(kind, snapshot);
+
+        LOG.info("Loaded {} hierarchy snapshot (version: {}, items: {}, ~{}KB) in {}ms",
+                kind,
+                version,
+                hierarchy.hierarchyItems().size(),
+                sizeInBytes / 1024,
+                snapshot.loadedAtMillis() - start);
+
+        return snapshot;
+    }
+
+
+    private boolean isCurrent(Snapshot snapshot) {
+        return snapshot != null
+                && snapshot.version() == versionFor(snapshot.kind()).get()
+                && millisClock.getAsLong() - snapshot.loadedAtMillis() < MAX_SNAPSHOT_AGE.toMillis();
+    }
+
+
+    private AtomicLong versionFor(EntityKind kind) {
+        return versionsByKind.computeIfAbsent(kind, k -> new AtomicLong());
+    }
+
+
+    private Object loadLockFor(EntityKind kind) {
+        return loadLocksByKind.computeIfAbsent(kind, k -> new Object());
+    }
+
+
+    /**
+     * An immutable, versioned, copy of the hierarchy for a single kind.
+     */
+    public static class Snapshot {
+
+        private final EntityKind kind;
+        private final long version;
+        private final EntityHierarchy hierarchy;
+        private final long loadedAtMillis;
+        private final long estimatedSizeInBytes;
+
+        private Snapshot(EntityKind kind,
+                         long version,
+                         EntityHierarchy hierarchy,
+                         long loadedAtMillis,
+                         long estimatedSizeInBytes) {
+            this.kind = kind;
+            this.version = version;
+            this.hierarchy = hierarchy;
+            this.loadedAtMillis = loadedAtMillis;
+            this.estimatedSizeInBytes = estimatedSizeInBytes;
+        }
+
+        public EntityKind kind() {
+            return kind;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public EntityHierarchy hierarchy() {
+            return hierarchy;
+        }
+
+        public long loadedAtMillis() {
+            return loadedAtMillis;
+        }
+
+        public long estimatedSizeInBytes() {
+            return estimatedSizeInBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: version=%d, items=%d, size=%dKB",
+                    kind,
+                    version,
+                    hierarchy.hierarchyItems().size(),
+                    estimatedSizeInBytes / 1024);
+        }
+    }
+
+}
@@ -19,6 +19,7 @@
 package org.finos.waltz.service.entity_hierarchy;
 
 import org.finos.waltz.common.ListUtilities;
+import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.common.hierarchy.Forest;
 import org.finos.waltz.common.hierarchy.HierarchyUtilities;
@@ -35,7 +36,6 @@ import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
 import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
-import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchy;
 import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import org.finos.waltz.model.tally.ImmutableTally;
 import org.finos.waltz.model.tally.Tally;
@@ -52,11 +52,17 @@ import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,10 +75,13 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final int MAX_ADDED_IDS_FOR_SUBTREE_BUILD = 1000;
+
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
     private final EntityHierarchyDao entityHierarchyDao;
+    private final EntityHierarchyCache entityHierarchyCache;
     private final EntityRootsSelectorFactory entityRootsSelectorFactory = new EntityRootsSelectorFactory();
     private final EntityStatisticDao entityStatisticDao;
     private final MeasurableDao measurableDao;
@@ -85,6 +94,7 @@ public class EntityHierarchyService {
                                   ChangeInitiativeDao changeInitiativeDao,
                                   DataTypeDao dataTypeDao,
                                   EntityHierarchyDao entityHierarchyDao,
+                                  EntityHierarchyCache entityHierarchyCache,
                                   EntityStatisticDao entityStatisticDao,
                                   MeasurableDao measurableDao,
                                   OrganisationalUnitDao organisationalUnitDao,
@@ -95,6 +105,7 @@ public class EntityHierarchyService {
         checkNotNull(changeInitiativeDao, "changeInitiativeDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(entityHierarchyCache, "entityHierarchyCache cannot be null");
         checkNotNull(entityStatisticDao, "entityStatisticDao cannot be null");
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
@@ -105,6 +116,7 @@ public class EntityHierarchyService {
         this.changeInitiativeDao = changeInitiativeDao;
         this.dataTypeDao = dataTypeDao;
         this.entityHierarchyDao = entityHierarchyDao;
+        this.entityHierarchyCache = entityHierarchyCache;
         this.entityStatisticDao = entityStatisticDao;
         this.measurableDao = measurableDao;
         this.organisationalUnitDao = organisationalUnitDao;
@@ -157,8 +169,7 @@ public class EntityHierarchyService {
 
     public int buildFor(EntityKind kind) {
         if (kind == PERSON) {
-            int[] rc = personHierarchyService.build();
-            return rc.length;
+            return personHierarchyService.build();
         } else {
             Table<?> table = determineTableToRebuild(kind);
             return buildFor(table, kind, DSL.trueCondition(), DSL.trueCondition());
@@ -176,14 +187,79 @@ public class EntityHierarchyService {
     }
 
 
+    /**
+     * Rebuilds the hierarchy entries for a measurable and all of its descendants,
+     * intended to be called after a taxonomy change which affects the position of
+     * a single subtree (e.g. adding, moving or removing a measurable).
+     *
+     * Both the current descendants and those recorded in the existing hierarchy
+     * are rebuilt, so entries for measurables removed from the subtree are
+     * cleaned up.  Entries outside the subtree are not touched.
+     *
+     * @param categoryId  category containing the measurable
+     * @param measurableId  root of the subtree to rebuild
+     * @return number of hierarchy records inserted, updated or deleted
+     */
+    public int buildForMeasurableSubtree(long categoryId, long measurableId) {
+        Forest<Long, Long> forest = HierarchyUtilities.toForest(fetchFlatNodes(
+                MEASURABLE,
+                MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId)));
+
+        Select<Record1<Long>> previousSubtreeSelector = select(ENTITY_HIERARCHY.ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name()))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(measurableId));
+
+        Set<Long> previousSubtreeIds = new HashSet<>(dsl.fetch(previousSubtreeSelector).getValues(ENTITY_HIERARCHY.ID));
+
+        Set<Long> currentSubtreeIds = Optional
+                .ofNullable(forest.getAllNodes().get(measurableId))
+                .map(EntityHierarchyService::collectSubtreeIds)
+                .orElse(Collections.emptySet());
+
+        // entities newly added to the subtree, typically just a newly created measurable
+        Set<Long> addedIds = SetUtilities.minus(currentSubtreeIds, previousSubtreeIds);
+
+        if (addedIds.size() > MAX_ADDED_IDS_FOR_SUBTREE_BUILD) {
+            // existing hierarchy is likely stale, fall back to the whole category
+            return buildForMeasurableByCategory(categoryId);
+        }
+
+        Set<Long> affectedIds = SetUtilities.union(currentSubtreeIds, previousSubtreeIds);
+
+        List<EntityHierarchyItem> hierarchyItems = convertForestToHierarchyItems(
+                EntityKind.MEASURABLE,
+                forest,
+                affectedIds::contains);
+
+        Condition scopeFilter = addedIds.isEmpty()
+                ? ENTITY_HIERARCHY.ID.in(previousSubtreeSelector)
+                : ENTITY_HIERARCHY.ID.in(previousSubtreeSelector).or(ENTITY_HIERARCHY.ID.in(addedIds));
+
+        int changes = entityHierarchyDao.mergeHierarchy(
+                EntityKind.MEASURABLE,
+                hierarchyItems,
+                scopeFilter);
+
+        entityHierarchyCache.onHierarchyRebuilt(EntityKind.MEASURABLE);
+        return changes;
+    }
+
+
     private int buildFor(Table<?> table,
                          EntityKind kind,
                          Condition selectFilter,
-                         Condition deleteFilter) {
+                         Condition scopeFilter) {
         Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
-        List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
+        List<EntityHierarchyItem> hierarchyItems = convertForestToHierarchyItems(
+                kind,
+                HierarchyUtilities.toForest(flatNodes),
+                id -> true);
 
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        int changes = entityHierarchyDao.mergeHierarchy(kind, hierarchyItems, scopeFilter);
+
+        entityHierarchyCache.onHierarchyRebuilt(kind);
+        return changes;
     }
 
 
@@ -206,19 +282,34 @@ public class EntityHierarchyService {
     }
 
 
-    private List<EntityHierarchyItem> convertFlatNodesToHierarchyItems(EntityKind kind,
-                                                                       Collection<FlatNode<Long, Long>> flatNodes) {
-        Forest<Long, Long> forest = HierarchyUtilities.toForest(flatNodes);
+    private List<EntityHierarchyItem> convertForestToHierarchyItems(EntityKind kind,
+                                                                    Forest<Long, Long> forest,
+                                                                    Predicate<Long> idFilter) {
         Map<Long, Integer> idToLevel = HierarchyUtilities.assignDepths(forest);
 
         return forest.getAllNodes()
                 .values()
                 .stream()
+                .filter(node -> idFilter.test(node.getId()))
                 .flatMap(streamItemsForNode(kind, idToLevel))
                 .collect(Collectors.toList());
     }
 
 
+    private static Set<Long> collectSubtreeIds(Node<Long, Long> root) {
+        Set<Long> ids = new HashSet<>();
+        Deque<Node<Long, Long>> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+        while (! toVisit.isEmpty()) {
+            Node<Long, Long> node = toVisit.pop();
+            if (ids.add(node.getId())) {
+                node.getChildren().forEach(toVisit::push);
+            }
+        }
+        return ids;
+    }
+
+
     private Function<Node<Long, Long>, Stream<? extends EntityHierarchyItem>> streamItemsForNode(EntityKind kind,
                                                                                                  Map<Long, Integer> idToLevel) {
         return node -> Stream
@@ -277,11 +368,12 @@ public class EntityHierarchyService {
         }
     }
 
+    /**
+     * @param kind  kind of hierarchy
+     * @return the hierarchy for the kind, served from the shared {@link EntityHierarchyCache}
+     */
     public EntityHierarchy fetchHierarchyForKind(EntityKind kind) {
-        return ImmutableEntityHierarchy
-                .builder()
-                .hierarchyItems(entityHierarchyDao.fetchHierarchyForKind(kind))
-                .build();
+        return entityHierarchyCache.get(kind);
     }
 
 }
@@ -0,0 +1,392 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.data.SearchUtilities;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchIndexEntry;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Immutable, in-memory search index over entity names, identifiers and aliases.
+ *
+ * Each entity kind is indexed separately.  Names and aliases are broken into trigrams,
+ * identifiers are additionally indexed by their one and two character prefixes.  A query
+ * intersects the postings of each term's trigrams to find candidates which are then checked
+ * using the same rules as the database searches:
+ * <ul>
+ *     <li>all terms appear in the name, or</li>
+ *     <li>all terms appear in one of the aliases, or</li>
+ *     <li>any term is a prefix of one of the identifiers</li>
+ * </ul>
+ * Identifier matches are ranked first, followed by name matches (ordered by the position of the
+ * first term) and finally alias matches.
+ *
+ * Updates produce a new index, sharing the unchanged kinds with the original, so readers never
+ * need to synchronise.
+ */
+public class EntitySearchIndex {
+
+    private static final int GRAM_SIZE = 3;
+    private static final String PREFIX_MARKER = "^";
+
+    private static final int MATCH_IDENTIFIER = 0;
+    private static final int MATCH_NAME = 1;
+    private static final int MATCH_ALIAS = 2;
+    private static final int NO_MATCH = -1;
+
+    private final Map<EntityKind, KindIndex> indexesByKind;
+
+
+    private EntitySearchIndex(Map<EntityKind, KindIndex> indexesByKind) {
+        this.indexesByKind = indexesByKind;
+    }
+
+
+    public static EntitySearchIndex build(Collection<EntitySearchIndexEntry> entries) {
+        checkNotNull(entries, "entries cannot be null");
+
+        Map<EntityKind, KindIndex> indexesByKind = new EnumMap<>(EntityKind.class);
+        entries.stream()
+                .collect(groupingBy(e -> e.entityReference().kind()))
+                .forEach((kind, kindEntries) -> indexesByKind.put(kind, new KindIndex(kindEntries)));
+
+        return new EntitySearchIndex(indexesByKind);
+    }
+
+
+    /**
+     * Creates a new index where the entries for the given entities are replaced.  Entities listed in
+     * <code>refs</code> without a corresponding replacement entry are removed from the index.
+     *
+     * @param refs  entities which have changed (or have been deleted)
+     * @param replacements  current entries for those entities which still exist
+     * @return  a new index, this index is unchanged
+     */
+    public EntitySearchIndex withReplacements(Set<EntityReference> refs,
+                                              Collection<EntitySearchIndexEntry> replacements) {
+        checkNotNull(refs, "refs cannot be null");
+        checkNotNull(replacements, "replacements cannot be null");
+
+        Map<EntityKind, KindIndex> updated = new EnumMap<>(EntityKind.class);
+        updated.putAll(indexesByKind);
+
+        Map<EntityKind, List<EntitySearchIndexEntry>> replacementsByKind = replacements
+                .stream()
+                .collect(groupingBy(e -> e.entityReference().kind()));
+
+        refs.stream()
+                .collect(groupingBy(EntityReference::kind, Collectors.mapping(EntityReference::id, Collectors.toSet())))
+                .forEach((kind, ids) -> {
+                    List<EntitySearchIndexEntry> kindEntries = new ArrayList<>();
+                    KindIndex existing = indexesByKind.get(kind);
+                    if (existing != null) {
+                        Arrays.stream(existing.entries)
+                                .filter(e -> !ids.contains(e.entityReference().id()))
+                                .forEach(kindEntries::add);
+                    }
+                    kindEntries.addAll(replacementsByKind.getOrDefault(kind, Collections.emptyList()));
+                    updated.put(kind, new KindIndex(kindEntries));
+                });
+
+        return new EntitySearchIndex(updated);
+    }
+
+
+    public boolean contains(EntityKind kind) {
+        return indexesByKind.containsKey(kind);
+    }
+
+
+    public int size() {
+        return indexesByKind
+                .values()
+                .stream()
+                .mapToInt(idx -> idx.entries.length)
+                .sum();
+    }
+
+
+    /**
+     * Searches the entries of the given kind, results are ranked and limited as per the options.
+     */
+    public List<EntityReference> search(EntityKind kind, EntitySearchOptions options) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        List<String> terms = SearchUtilities
+                .mkTerms(options.searchQuery())
+                .stream()
+                .map(String::toLowerCase)
+                .collect(toList());
+
+        KindIndex kindIndex = indexesByKind.get(kind);
+
+        if (terms.isEmpty() || kindIndex == null) {
+            return Collections.emptyList();
+        }
+
+        return kindIndex.search(terms, options);
+    }
+
+
+    private static class KindIndex {
+
+        private final EntitySearchIndexEntry[] entries;
+        private final String[] names;
+        private final String[][] aliases;
+        private final String[][] identifiers;
+        private final Map<String, int[]> postings;
+
+
+        private KindIndex(List<EntitySearchIndexEntry> kindEntries) {
+            int size = kindEntries.size();
+            entries = kindEntries.toArray(new EntitySearchIndexEntry[0]);
+            names = new String[size];
+            aliases = new String[size][];
+            identifiers = new String[size][];
+
+            Map<String, PostingList> postingLists = new HashMap<>();
+
+            for (int i = 0; i < size; i++) {
+                EntitySearchIndexEntry entry = entries[i];
+                names[i] = lower(entry.entityReference().name().orElse(""));
+                aliases[i] = lowerAll(entry.aliases());
+                identifiers[i] = lowerAll(entry.identifiers());
+
+                addGrams(postingLists, names[i], i);
+                for (String alias : aliases[i]) {
+                    addGrams(postingLists, alias, i);
+                }
+                for (String identifier : identifiers[i]) {
+                    addGrams(postingLists, identifier, i);
+                    for (int len = 1; len < GRAM_SIZE && len <= identifier.length(); len++) {
+                        add(postingLists, PREFIX_MARKER + identifier.substring(0, len), i);
+                    }
+                }
+            }
+
+            postings = new HashMap<>(postingLists.size());
+            postingLists.forEach((gram, list) -> postings.put(gram, list.toArray()));
+        }
+
+
+        private List<EntityReference> search(List<String> terms, EntitySearchOptions options) {
+            Comparator<Integer> byName = SearchUtilities.mkRelevancyComparator(i -> names[i], terms.get(0));
+
+            List<int[]> matches = new ArrayList<>();
+            for (int candidate : findCandidates(terms)) {
+                if (!options.entityLifecycleStatuses().contains(entries[candidate].lifecycleStatus())) {
+                    continue;
+                }
+                int matchKind = determineMatch(candidate, terms);
+                if (matchKind != NO_MATCH) {
+                    matches.add(new int[]{matchKind, candidate});
+                }
+            }
+
+            return matches
+                    .stream()
+                    .sorted(Comparator
+                            .<int[]>comparingInt(m -> m[0])
+                            .thenComparing(m -> m[1], byName))
+                    .limit(options.limit())
+                    .map(m -> entries[m[1]].entityReference())
+                    .collect(toList());
+        }
+
+
+        /**
+         * Candidates are a superset of the matching entries.  If no term is long enough to give a trigram
+         * we cannot narrow down name matches so every entry is a candidate.
+         */
+        private int[] findCandidates(List<String> terms) {
+            boolean hasLongTerm = terms.stream().anyMatch(t -> t.length() >= GRAM_SIZE);
+            if (!hasLongTerm) {
+                int[] all = new int[entries.length];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+
+            int[] candidates = new int[0];
+            for (String term : terms) {
+                int[] termCandidates = term.length() >= GRAM_SIZE
+                        ? findEntriesContaining(term)
+                        : postings.getOrDefault(PREFIX_MARKER + term, new int[0]);
+                candidates = union(candidates, termCandidates);
+            }
+            return candidates;
+        }
+
+
+        private int[] findEntriesContaining(String term) {
+            int[] result = null;
+            for (int i = 0; i <= term.length() - GRAM_SIZE; i++) {
+                int[] posting = postings.get(term.substring(i, i + GRAM_SIZE));
+                if (posting == null) {
+                    return new int[0];
+                }
+                result = result == null
+                        ? posting
+                        : intersect(result, posting);
+            }
+            return result;
+        }
+
+
+        private int determineMatch(int idx, List<String> terms) {
+            for (String identifier : identifiers[idx]) {
+                for (String term : terms) {
+                    if (identifier.startsWith(term)) {
+                        return MATCH_IDENTIFIER;
+                    }
+                }
+            }
+
+            if (containsAll(names[idx], terms)) {
+                return MATCH_NAME;
+            }
+
+            for (String alias : aliases[idx]) {
+                if (containsAll(alias, terms)) {
+                    return MATCH_ALIAS;
+                }
+            }
+
+            return NO_MATCH;
+        }
+    }
+
+
+    // -- helpers
+
+    private static boolean containsAll(String str, List<String> terms) {
+        for (String term : terms) {
+            if (!str.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static void addGrams(Map<String, PostingList> postingLists, String str, int idx) {
+        for (int i = 0; i <= str.length() - GRAM_SIZE; i++) {
+            add(postingLists, str.substring(i, i + GRAM_SIZE), idx);
+        }
+    }
+
+
+    private static void add(Map<String, PostingList> postingLists, String gram, int idx) {
+        postingLists
+                .computeIfAbsent(gram, k -> new PostingList())
+                .add(idx);
+    }
+
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[k++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+
+    private static String lower(String str) {
+        return str.toLowerCase();
+    }
+
+
+    private static String[] lowerAll(Collection<String> strs) {
+        return strs
+                .stream()
+                .map(EntitySearchIndex::lower)
+                .toArray(String[]::new);
+    }
+
+
+    /**
+     * Growable, sorted, duplicate free list of entry positions.  Positions are added in ascending order.
+     */
+    private static class PostingList {
+
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void add(int idx) {
+            if (size > 0 && values[size - 1] == idx) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = idx;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.data.entity_search.EntitySearchIndexDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchIndexEntry;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.settings.NamedSettings;
+import org.finos.waltz.service.settings.SettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+
+/**
+ * Maintains an optional in-memory {@link EntitySearchIndex}, enabled via the
+ * <code>feature.entity-search.in-memory-index.enabled</code> setting.
+ *
+ * The index is built shortly after startup and then kept fresh by periodically reloading
+ * the entities mentioned in recent change log entries.  As not every change (e.g. bulk
+ * loads) is recorded in the change log the index is also fully rebuilt every hour.
+ * Until the index has been built searches fall back to the database.
+ */
+@Service
+public class EntitySearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexService.class);
+
+    private static final long REFRESH_INTERVAL_MILLIS = 60_000;
+    private static final long INITIAL_DELAY_MILLIS = 5_000;
+    private static final Duration FULL_REBUILD_INTERVAL = Duration.ofHours(1);
+
+    // changes are reloaded from slightly before the previous load to allow for clock differences between nodes
+    private static final long CHANGE_OVERLAP_MILLIS = REFRESH_INTERVAL_MILLIS;
+
+    private final EntitySearchIndexDao entitySearchIndexDao;
+    private final SettingsService settingsService;
+
+    private volatile EntitySearchIndex index = null;
+
+    // guarded by 'this'
+    private Timestamp lastLoadStartedAt = null;
+    private Timestamp lastFullBuildStartedAt = null;
+
+
+    @Autowired
+    public EntitySearchIndexService(EntitySearchIndexDao entitySearchIndexDao,
+                                    SettingsService settingsService) {
+        checkNotNull(entitySearchIndexDao, "entitySearchIndexDao cannot be null");
+        checkNotNull(settingsService, "settingsService cannot be null");
+        this.entitySearchIndexDao = entitySearchIndexDao;
+        this.settingsService = settingsService;
+    }
+
+
+    /**
+     * Searches the index, if it is enabled, built and covers the given kind.  The index is
+     * only read once so a concurrent refresh (or disabling) cannot fail the search.
+     *
+     * @return the matches, or empty if the index cannot be used and the caller should fall back to the database
+     */
+    public Optional<List<EntityReference>> search(EntityKind kind, EntitySearchOptions options) {
+        EntitySearchIndex current = index;
+        return current != null && EntitySearchIndexDao.SUPPORTED_KINDS.contains(kind) && isEnabled()
+                ? Optional.of(current.search(kind, options))
+                : Optional.empty();
+    }
+
+
+    @Scheduled(fixedDelay = REFRESH_INTERVAL_MILLIS, initialDelay = INITIAL_DELAY_MILLIS)
+    public void scheduledRefresh() {
+        if (!isEnabled()) {
+            index = null;
+            return;
+        }
+
+        try {
+            refresh();
+        } catch (Exception e) {
+            LOG.warn("Failed to refresh entity search index, will continue using previous index: {}", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Applies recent changes to the index, building it from scratch if it does not exist or is due a full rebuild.
+     */
+    public synchronized void refresh() {
+        Timestamp now = nowUtcTimestamp();
+        boolean rebuildDue = index == null
+                || lastFullBuildStartedAt == null
+                || now.getTime() - lastFullBuildStartedAt.getTime() >= FULL_REBUILD_INTERVAL.toMillis();
+
+        if (rebuildDue) {
+            rebuild();
+        } else {
+            applyChangesSince(new Timestamp(lastLoadStartedAt.getTime() - CHANGE_OVERLAP_MILLIS));
+            lastLoadStartedAt = now;
+        }
+    }
+
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Timestamp startedAt = nowUtcTimestamp();
+
+        List<EntitySearchIndexEntry> entries = new ArrayList<>();
+        EntitySearchIndexDao.SUPPORTED_KINDS.forEach(kind -> entries.addAll(entitySearchIndexDao.findAll(kind)));
+
+        index = EntitySearchIndex.build(entries);
+        lastLoadStartedAt = startedAt;
+        lastFullBuildStartedAt = startedAt;
+
+        LOG.info("Built entity search index with {} entries in {}ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+
+    private void applyChangesSince(Timestamp since) {
+        Set<EntityReference> changed = entitySearchIndexDao.findChangedEntitiesSince(
+                since,
+                EntitySearchIndexDao.SUPPORTED_KINDS);
+
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Map<EntityKind, Set<Long>> idsByKind = changed
+                .stream()
+                .collect(Collectors.groupingBy(
+                        EntityReference::kind,
+                        Collectors.mapping(EntityReference::id, Collectors.toSet())));
+
+        List<EntitySearchIndexEntry> replacements = new ArrayList<>();
+        idsByKind.forEach((kind, ids) -> replacements.addAll(entitySearchIndexDao.findByIds(kind, ids)));
+
+        index = index.withReplacements(changed, replacements);
+
+        LOG.debug("Reloaded {} changed entities into the entity search index", changed.size());
+    }
+
+
+    private boolean isEnabled() {
+        return settingsService
+                .getValue(NamedSettings.entitySearchIndexEnabled)
+                .map(Boolean::valueOf)
+                .orElse(false);
+    }
+
+}
@@ -49,7 +49,9 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import static java.util.stream.Collectors.toList;
@@ -78,6 +80,7 @@ public class EntitySearchService {
     private final LegalEntityService legalEntityService;
     private final DatabaseInformationService databaseInformationService;
     private final LicenceService licenceService;
+    private final EntitySearchIndexService entitySearchIndexService;
 
 
     @Autowired
@@ -99,7 +102,8 @@ public class EntitySearchService {
                                FlowDiagramService flowDiagramService,
                                LegalEntityService legalEntityService,
                                DatabaseInformationService databaseInformationService,
-                               LicenceService licenceService) {
+                               LicenceService licenceService,
+                               EntitySearchIndexService entitySearchIndexService) {
 
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
@@ -120,6 +124,7 @@ public class EntitySearchService {
         checkNotNull(legalEntityService, "legalEntityService cannot be null");
         checkNotNull(databaseInformationService, "databaseInformationService cannot be null");
         checkNotNull(licenceService, "licenceService cannot be null");
+        checkNotNull(entitySearchIndexService, "entitySearchIndexService cannot be null");
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
@@ -140,6 +145,7 @@ public class EntitySearchService {
         this.legalEntityService = legalEntityService;
         this.databaseInformationService = databaseInformationService;
         this.licenceService = licenceService;
+        this.entitySearchIndexService = entitySearchIndexService;
     }
 
 
@@ -151,20 +157,39 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        List<Future<List<EntityReference>>> futures = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .map(ek -> submitSearch(ek, options))
                 .collect(toList());
 
         return futures
                 .stream()
                 .flatMap(f -> supplier(f::get).get().stream())
-                .map(WaltzEntity::entityReference)
                 .collect(toList());
     }
 
 
+    /**
+     * Kinds covered by the in-memory index (if enabled) are searched immediately, others are
+     * searched in the database via the executor pool.
+     */
+    private Future<List<EntityReference>> submitSearch(EntityKind entityKind,
+                                                       EntitySearchOptions options) {
+        Optional<List<EntityReference>> indexed = entitySearchIndexService.search(entityKind, options);
+        if (indexed.isPresent()) {
+            return CompletableFuture.completedFuture(indexed.get());
+        }
+
+        Callable<Collection<? extends WaltzEntity>> callable = mkCallable(entityKind, options);
+        return dbExecutorPool.submit(() -> callable
+                .call()
+                .stream()
+                .map(WaltzEntity::entityReference)
+                .collect(toList()));
+    }
+
+
     private Callable<Collection<? extends WaltzEntity>> mkCallable(EntityKind entityKind,
                                                                    EntitySearchOptions options) {
         switch (entityKind) {
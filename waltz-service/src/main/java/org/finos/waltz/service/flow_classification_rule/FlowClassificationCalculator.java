@@ -23,12 +23,12 @@ import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
 import org.finos.waltz.data.data_type.DataTypeDao;
 import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
-import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.IdSelectionOptions;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyCache;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.slf4j.Logger;
@@ -39,7 +39,6 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -54,23 +53,23 @@ public class FlowClassificationCalculator {
 
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final DataTypeDao dataTypeDao;
-    private final EntityHierarchyDao entityHierarchyDao;
+    private final EntityHierarchyCache entityHierarchyCache;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
 
 
     @Autowired
     public FlowClassificationCalculator(DataTypeDao dataTypeDao,
-                                        EntityHierarchyDao entityHierarchyDao,
+                                        EntityHierarchyCache entityHierarchyCache,
                                         LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
+        checkNotNull(entityHierarchyCache, "entityHierarchyCache cannot be null");
         checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
 
         this.dataTypeDao = dataTypeDao;
-        this.entityHierarchyDao = entityHierarchyDao;
+        this.entityHierarchyCache = entityHierarchyCache;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
         this.ratingsCalculator = ratingsCalculator;
     }
@@ -96,11 +95,9 @@ public class FlowClassificationCalculator {
 
         IdSelectionOptions selectorOptions = mkOpts(vantageRef);
         Select<Record1<Long>> appSelector = appIdSelectorFactory.apply(selectorOptions);
-        Set<Long> dataTypeDescendents = entityHierarchyDao
-                .findDesendents(dataType.entityReference())
-                .stream()
-                .map(d -> d.id().get())
-                .collect(Collectors.toSet());
+        Set<Long> dataTypeDescendents = entityHierarchyCache
+                .get(EntityKind.DATA_TYPE)
+                .findChildren(dataType.id().get());
 
         Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
                 .findByEntityIdSelector(appSelector, Optional.of(EntityKind.APPLICATION))
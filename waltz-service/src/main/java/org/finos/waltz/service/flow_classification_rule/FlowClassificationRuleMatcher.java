@@ -0,0 +1,191 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.FlowDirection;
+import org.finos.waltz.model.datatype.FlowDataType;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleUtilities.MatchOutcome;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Indexed alternative to {@link FlowClassificationRuleUtilities#applyVantagePoints}.
+ *
+ * Rules are indexed by data type, then scope (org unit id or point-to-point entity), then subject.
+ * Each decorator is resolved by walking the (indexed, see {@link EntityHierarchy}) ancestor chains of its data type and
+ * scope org unit, so the cost is proportional to the population rather than rules &times; population.
+ *
+ * Where several rules apply the earliest in the supplied list wins, the dao returns vantage points
+ * ordered most specific first.  As with the original algorithm a positive match always overrides
+ * a negative one.
+ */
+public class FlowClassificationRuleMatcher {
+
+    private final FlowDirection direction;
+    private final List<FlowClassificationRuleVantagePoint> rules;
+    private final EntityHierarchy ouHierarchy;
+    private final EntityHierarchy dtHierarchy;
+
+    // dtId -> ouId -> bucket
+    private final Map<Long, Map<Long, RuleBucket>> orgUnitRulesByDataType = new HashMap<>();
+
+    // dtId -> vantage point entity -> bucket
+    private final Map<Long, Map<EntityReference, RuleBucket>> pointToPointRulesByDataType = new HashMap<>();
+
+
+    private FlowClassificationRuleMatcher(FlowDirection direction,
+                                          List<FlowClassificationRuleVantagePoint> ruleVantagePoints,
+                                          EntityHierarchy ouHierarchy,
+                                          EntityHierarchy dtHierarchy) {
+        this.direction = direction;
+        this.rules = new ArrayList<>(ruleVantagePoints);
+        this.ouHierarchy = ouHierarchy;
+        this.dtHierarchy = dtHierarchy;
+
+        for (int idx = 0; idx < rules.size(); idx++) {
+            FlowClassificationRuleVantagePoint rvp = rules.get(idx);
+            EntityReference vantagePoint = rvp.vantagePoint();
+            RuleBucket bucket = vantagePoint.kind() == EntityKind.ORG_UNIT
+                    ? orgUnitRulesByDataType
+                        .computeIfAbsent(rvp.dataType().id(), k -> new HashMap<>())
+                        .computeIfAbsent(vantagePoint.id(), k -> new RuleBucket())
+                    : pointToPointRulesByDataType
+                        .computeIfAbsent(rvp.dataType().id(), k -> new HashMap<>())
+                        .computeIfAbsent(vantagePoint, k -> new RuleBucket());
+            bucket.add(rvp.subjectReference(), idx);
+        }
+    }
+
+
+    public static FlowClassificationRuleMatcher mkMatcher(FlowDirection direction,
+                                                          List<FlowClassificationRuleVantagePoint> ruleVantagePoints,
+                                                          EntityHierarchy ouHierarchy,
+                                                          EntityHierarchy dtHierarchy) {
+        checkNotNull(direction, "direction cannot be null");
+        checkNotNull(ruleVantagePoints, "ruleVantagePoints cannot be null");
+        checkNotNull(ouHierarchy, "ouHierarchy cannot be null");
+        checkNotNull(dtHierarchy, "dtHierarchy cannot be null");
+
+        return new FlowClassificationRuleMatcher(direction, ruleVantagePoints, ouHierarchy, dtHierarchy);
+    }
+
+
+    /**
+     * Determines the governing rule (and match outcome) for each decorator in the population.
+     * Decorators with no applicable rule are omitted from the result.
+     *
+     * @param population  flow data type decorators to classify
+     * @return  map of logical flow decorator id to (rule id, outcome)
+     */
+    public Map<Long, Tuple2<Long, MatchOutcome>> apply(Collection<FlowDataType> population) {
+        Map<Long, Tuple2<Long, MatchOutcome>> lfdIdToRuleAndOutcomeMap = new HashMap<>();
+
+        population.forEach(p -> {
+            Tuple2<Long, MatchOutcome> ruleAndOutcome = match(p);
+            if (ruleAndOutcome != null) {
+                lfdIdToRuleAndOutcomeMap.put(p.lfdId(), ruleAndOutcome);
+            }
+        });
+
+        return lfdIdToRuleAndOutcomeMap;
+    }
+
+
+    /**
+     * @param p  flow data type decorator to classify
+     * @return  the (rule id, outcome) for the decorator, or null if no rule applies
+     */
+    public Tuple2<Long, MatchOutcome> match(FlowDataType p) {
+        boolean isInbound = direction == FlowDirection.INBOUND;
+        EntityReference subject = isInbound ? p.target() : p.source();
+        EntityReference scopeEntity = isInbound ? p.source() : p.target();
+        Long scopeOuId = isInbound ? p.sourceOuId() : p.targetOuId();
+
+        Candidates candidates = new Candidates();
+
+        // hierarchies are walked in place, this runs once per decorator so avoid copying ancestor arrays
+        dtHierarchy.forEachAncestorId(p.dtId(), dtId -> {
+            Map<Long, RuleBucket> orgUnitRules = orgUnitRulesByDataType.get(dtId);
+            if (orgUnitRules != null && scopeOuId != null) {
+                ouHierarchy.forEachAncestorId(
+                        scopeOuId,
+                        ouId -> candidates.consider(orgUnitRules.get(ouId), subject));
+            }
+
+            Map<EntityReference, RuleBucket> pointToPointRules = pointToPointRulesByDataType.get(dtId);
+            if (pointToPointRules != null) {
+                candidates.consider(pointToPointRules.get(scopeEntity), subject);
+            }
+        });
+
+        if (candidates.bestPositive != Integer.MAX_VALUE) {
+            return tuple(rules.get(candidates.bestPositive).ruleId(), MatchOutcome.POSITIVE_MATCH);
+        } else if (candidates.bestNegative != Integer.MAX_VALUE) {
+            return tuple(rules.get(candidates.bestNegative).ruleId(), MatchOutcome.NEGATIVE_MATCH);
+        } else {
+            return null;
+        }
+    }
+
+
+    /**
+     * All rules sharing a (data type, scope) pair.  Only the lowest (i.e. most specific)
+     * rule index is kept for the pair as a whole and for each subject.
+     */
+    private static class RuleBucket {
+        private int firstIdx = Integer.MAX_VALUE;
+        private final Map<EntityReference, Integer> firstIdxBySubject = new HashMap<>();
+
+        void add(EntityReference subject, int idx) {
+            firstIdx = Math.min(firstIdx, idx);
+            firstIdxBySubject.merge(subject, idx, Math::min);
+        }
+    }
+
+
+    private static class Candidates {
+        private int bestPositive = Integer.MAX_VALUE;
+        private int bestNegative = Integer.MAX_VALUE;
+
+        void consider(RuleBucket bucket, EntityReference subject) {
+            if (bucket == null) {
+                return;
+            }
+            Integer positiveIdx = bucket.firstIdxBySubject.get(subject);
+            if (positiveIdx != null) {
+                bestPositive = Math.min(bestPositive, positiveIdx);
+            }
+            bestNegative = Math.min(bestNegative, bucket.firstIdx);
+        }
+    }
+
+}
@@ -43,24 +43,21 @@ import org.finos.waltz.model.changelog.ChangeLog;
 import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.FlowDataType;
-import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.datatype.FlowDataTypeRatingUpdate;
+import org.finos.waltz.model.datatype.ImmutableFlowDataTypeRatingUpdate;
 import org.finos.waltz.model.flow_classification.FlowClassification;
 import org.finos.waltz.model.flow_classification_rule.DiscouragedSource;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRule;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleCreateCommand;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleUpdateCommand;
-import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.logical_flow.FlowClassificationRulesView;
 import org.finos.waltz.model.logical_flow.ImmutableFlowClassificationRulesView;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.finos.waltz.schema.Tables;
-import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
 import org.finos.waltz.service.changelog.ChangeLogService;
-import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
 import org.jooq.Condition;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.UpdateConditionStep;
 import org.jooq.impl.DSL;
 import org.jooq.lambda.tuple.Tuple2;
 import org.jooq.lambda.tuple.Tuple5;
@@ -80,7 +77,6 @@ import java.util.stream.Collectors;
 import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.FunctionUtilities.time;
-import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.DiffResult.mkDiff;
 import static org.finos.waltz.model.EntityKind.ACTOR;
@@ -88,8 +84,8 @@ import static org.finos.waltz.model.EntityKind.ORG_UNIT;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.rating._AuthoritativenessRatingValue.DISCOURAGED;
 import static org.finos.waltz.model.rating._AuthoritativenessRatingValue.NO_OPINION;
+import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
-import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleUtilities.applyVantagePoints;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
@@ -102,10 +98,10 @@ public class FlowClassificationRuleService {
     private final ApplicationDao applicationDao;
     private final ChangeLogService changeLogService;
     private final DataTypeDao dataTypeDao;
-    private final EntityHierarchyService entityHierarchyService;
     private final FlowClassificationCalculator ratingCalculator;
     private final FlowClassificationDao flowClassificationDao;
     private final FlowClassificationRuleDao flowClassificationRuleDao;
+    private final FlowClassificationRuleSnapshotCache ruleSnapshotCache;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final OrganisationalUnitDao organisationalUnitDao;
 
@@ -124,8 +120,8 @@ public class FlowClassificationRuleService {
                                          ActorDao actorDao,
                                          FlowClassificationCalculator ratingCalculator,
                                          ChangeLogService changeLogService,
-                                         EntityHierarchyService entityHierarchyService,
-                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                         FlowClassificationRuleSnapshotCache ruleSnapshotCache) {
         checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao must not be null");
         checkNotNull(flowClassificationDao, "flowClassificationDao must not be null");
         checkNotNull(actorDao, "actorDao must not be null");
@@ -135,18 +131,18 @@ public class FlowClassificationRuleService {
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
-        checkNotNull(entityHierarchyService, "entityHierarchyService cannot be null");
+        checkNotNull(ruleSnapshotCache, "ruleSnapshotCache cannot be null");
 
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.changeLogService = changeLogService;
         this.dataTypeDao = dataTypeDao;
-        this.entityHierarchyService = entityHierarchyService;
         this.flowClassificationRuleDao = flowClassificationRuleDao;
         this.flowClassificationDao = flowClassificationDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
         this.organisationalUnitDao = organisationalUnitDao;
         this.ratingCalculator = ratingCalculator;
+        this.ruleSnapshotCache = ruleSnapshotCache;
     }
 
 
@@ -172,6 +168,7 @@ public class FlowClassificationRuleService {
 
     public int update(FlowClassificationRuleUpdateCommand command, String username) {
         int updateCount = flowClassificationRuleDao.update(command);
+        ruleSnapshotCache.invalidate();
         long ruleId = command
                 .id()
                 .orElseThrow(() -> new IllegalArgumentException("cannot update an flow classification rule without an id"));
@@ -184,6 +181,7 @@ public class FlowClassificationRuleService {
 
     public long insert(FlowClassificationRuleCreateCommand command, String username) {
         long classificationRuleId = flowClassificationRuleDao.insert(command, username);
+        ruleSnapshotCache.invalidate();
 
         if (command.parentReference().kind() == ORG_UNIT) {
             ratingCalculator.update(command.dataTypeId(), command.parentReference());
@@ -207,6 +205,7 @@ public class FlowClassificationRuleService {
         logRemoval(id, username);
 
         int deletedCount = flowClassificationRuleDao.remove(id);
+        ruleSnapshotCache.invalidate();
 
         //set any point-to-point overrides as no opinion first then recalculate for all rules
         LOG.debug("Updating point-point ratings");
@@ -232,46 +231,35 @@ public class FlowClassificationRuleService {
         return FunctionUtilities.time("do recalculate",  ()-> recalculateRatingsForPopulation(population));
     }
 
+    public int recalculateFlowRatingsForFlowIds(Collection<Long> flowIds) {
+        Select<Record1<Long>> flowSelector = DSL
+                .select(LOGICAL_FLOW.ID)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.ID.in(flowIds));
+        Set<FlowDataType> population = logicalFlowDecoratorDao.fetchFlowDataTypePopulationForFlowSelector(flowSelector);
+        return recalculateRatingsForPopulation(population);
+    }
+
     public int fastRecalculateAllFlowRatings() {
         LOG.debug("Loading decorator population points");
         Set<FlowDataType> population = logicalFlowDecoratorDao.fetchFlowDataTypePopulation(DSL.trueCondition());
 
+        // a full recalculation also picks up rule changes made outside this service (e.g. by another process)
+        ruleSnapshotCache.invalidate();
         return recalculateRatingsForPopulation(population);
     }
 
     private int recalculateRatingsForPopulation(Set<FlowDataType> population) {
 
-        LOG.debug("Loading rule vantage points");
-        List<FlowClassificationRuleVantagePoint> inboundRuleVantagePoints = flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(FlowDirection.INBOUND);
-        List<FlowClassificationRuleVantagePoint> outboundRuleVantagePoints = flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(FlowDirection.OUTBOUND);
-
-        Map<Long, String> inboundRatingCodeByRuleId = indexBy(inboundRuleVantagePoints, FlowClassificationRuleVantagePoint::ruleId, FlowClassificationRuleVantagePoint::classificationCode);
-        Map<Long, String> outboundRatingCodeByRuleId = indexBy(outboundRuleVantagePoints, FlowClassificationRuleVantagePoint::ruleId, FlowClassificationRuleVantagePoint::classificationCode);
-
+        FlowClassificationRuleSnapshot rules = ruleSnapshotCache.get();
 
-        LOG.debug(
-                "Loaded: {} inbound and {} outbound vantage point rules, and a population of: {} flows with datatypes",
-                inboundRuleVantagePoints.size(),
-                outboundRuleVantagePoints.size(),
-                population.size());
-
-        LOG.debug("Loading hierarchies");
-        EntityHierarchy ouHierarchy = entityHierarchyService.fetchHierarchyForKind(ORG_UNIT);
-        EntityHierarchy dtHierarchy = entityHierarchyService.fetchHierarchyForKind(EntityKind.DATA_TYPE);
-
-        LOG.debug("Applying rules to population");
-        Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> lfdIdToOutboundRuleIdMap = time("inbound vps", () -> applyVantagePoints(
-                FlowDirection.OUTBOUND,
-                outboundRuleVantagePoints,
-                population,
-                ouHierarchy,
-                dtHierarchy));
-        Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> lfdIdToInboundRuleIdMap = time("outbound vps", () -> applyVantagePoints(
-                FlowDirection.INBOUND,
-                inboundRuleVantagePoints,
-                population,
-                ouHierarchy,
-                dtHierarchy));
+        LOG.debug("Applying rules: {} to a population of: {} flows with datatypes", rules, population.size());
+        Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> lfdIdToOutboundRuleIdMap = time("outbound vps", () -> rules
+                .matcher(FlowDirection.OUTBOUND)
+                .apply(population));
+        Map<Long, Tuple2<Long, FlowClassificationRuleUtilities.MatchOutcome>> lfdIdToInboundRuleIdMap = time("inbound vps", () -> rules
+                .matcher(FlowDirection.INBOUND)
+                .apply(population));
 
         LOG.debug("Calculating diff");
         Set<Tuple5<Long, AuthoritativenessRatingValue, AuthoritativenessRatingValue, Long, Long>> existingDecoratorRatingInfo = map(
@@ -280,8 +268,8 @@ public class FlowClassificationRuleService {
 
         Set<Tuple5<Long, AuthoritativenessRatingValue, AuthoritativenessRatingValue, Long, Long>> requiredDecoratorRatingInfo = mkRequiredDecoratorRatingInfo(
                 population,
-                outboundRatingCodeByRuleId,
-                inboundRatingCodeByRuleId,
+                rules.ratingCodeByRuleId(FlowDirection.OUTBOUND),
+                rules.ratingCodeByRuleId(FlowDirection.INBOUND),
                 lfdIdToOutboundRuleIdMap,
                 lfdIdToInboundRuleIdMap);
 
@@ -299,17 +287,18 @@ public class FlowClassificationRuleService {
                 });
 
         LOG.debug("Preparing to update {} logical flow decorators with new rating classifications", decoratorRatingDiff.differingIntersection().size());
-        Set<UpdateConditionStep<LogicalFlowDecoratorRecord>> updateStmts = map(
+        Set<FlowDataTypeRatingUpdate> ratingUpdates = map(
                 decoratorRatingDiff.differingIntersection(),
-                d -> DSL
-                        .update(LOGICAL_FLOW_DECORATOR)
-                        .set(LOGICAL_FLOW_DECORATOR.RATING, d.v2.value())
-                        .set(LOGICAL_FLOW_DECORATOR.TARGET_INBOUND_RATING, d.v3.value())
-                        .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, d.v4)
-                        .set(LOGICAL_FLOW_DECORATOR.INBOUND_FLOW_CLASSIFICATION_RULE_ID, d.v5)
-                        .where(LOGICAL_FLOW_DECORATOR.ID.eq(d.v1)));
-
-        int updatedRecords = flowClassificationRuleDao.updateDecoratorsWithClassifications(updateStmts);
+                d -> ImmutableFlowDataTypeRatingUpdate
+                        .builder()
+                        .lfdId(d.v1)
+                        .sourceOutboundRating(d.v2)
+                        .targetInboundRating(d.v3)
+                        .outboundRuleId(d.v4)
+                        .inboundRuleId(d.v5)
+                        .build());
+
+        int updatedRecords = flowClassificationRuleDao.updateDecoratorRatings(ratingUpdates);
         LOG.debug("Updated {} logical flow decorators with a classification", updatedRecords);
 
         return updatedRecords;
@@ -354,6 +343,9 @@ public class FlowClassificationRuleService {
 
     public Integer cleanupOrphans(String userId) {
         Set<EntityReference> entityReferences = flowClassificationRuleDao.cleanupOrphans();
+        if (!entityReferences.isEmpty()) {
+            ruleSnapshotCache.invalidate();
+        }
 
         entityReferences
                 .forEach(ref -> {
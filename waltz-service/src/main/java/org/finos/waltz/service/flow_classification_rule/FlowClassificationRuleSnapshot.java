@@ -0,0 +1,135 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.FlowDirection;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.MapUtilities.indexBy;
+
+/**
+ * Immutable view of the flow classification rules, indexed ready for matching against
+ * a population of flow decorators.
+ *
+ * Holds, for each direction, a {@link FlowClassificationRuleMatcher} and the rating code of
+ * every rule.  The org unit and data type hierarchies the matchers resolve against are retained
+ * so callers can tell whether the snapshot is still consistent with the current hierarchies.
+ */
+public class FlowClassificationRuleSnapshot {
+
+    private final long version;
+    private final long builtAtMillis;
+    private final EntityHierarchy ouHierarchy;
+    private final EntityHierarchy dtHierarchy;
+
+    private final FlowClassificationRuleMatcher inboundMatcher;
+    private final FlowClassificationRuleMatcher outboundMatcher;
+    private final Map<Long, String> inboundRatingCodeByRuleId;
+    private final Map<Long, String> outboundRatingCodeByRuleId;
+
+
+    private FlowClassificationRuleSnapshot(long version,
+                                           long builtAtMillis,
+                                           List<FlowClassificationRuleVantagePoint> inboundRuleVantagePoints,
+                                           List<FlowClassificationRuleVantagePoint> outboundRuleVantagePoints,
+                                           EntityHierarchy ouHierarchy,
+                                           EntityHierarchy dtHierarchy) {
+        this.version = version;
+        this.builtAtMillis = builtAtMillis;
+        this.ouHierarchy = ouHierarchy;
+        this.dtHierarchy = dtHierarchy;
+
+        this.inboundMatcher = FlowClassificationRuleMatcher.mkMatcher(FlowDirection.INBOUND, inboundRuleVantagePoints, ouHierarchy, dtHierarchy);
+        this.outboundMatcher = FlowClassificationRuleMatcher.mkMatcher(FlowDirection.OUTBOUND, outboundRuleVantagePoints, ouHierarchy, dtHierarchy);
+        this.inboundRatingCodeByRuleId = unmodifiableMap(indexBy(inboundRuleVantagePoints, FlowClassificationRuleVantagePoint::ruleId, FlowClassificationRuleVantagePoint::classificationCode));
+        this.outboundRatingCodeByRuleId = unmodifiableMap(indexBy(outboundRuleVantagePoints, FlowClassificationRuleVantagePoint::ruleId, FlowClassificationRuleVantagePoint::classificationCode));
+    }
+
+
+    public static FlowClassificationRuleSnapshot mkSnapshot(long version,
+                                                            long builtAtMillis,
+                                                            List<FlowClassificationRuleVantagePoint> inboundRuleVantagePoints,
+                                                            List<FlowClassificationRuleVantagePoint> outboundRuleVantagePoints,
+                                                            EntityHierarchy ouHierarchy,
+                                                            EntityHierarchy dtHierarchy) {
+        checkNotNull(inboundRuleVantagePoints, "inboundRuleVantagePoints cannot be null");
+        checkNotNull(outboundRuleVantagePoints, "outboundRuleVantagePoints cannot be null");
+        checkNotNull(ouHierarchy, "ouHierarchy cannot be null");
+        checkNotNull(dtHierarchy, "dtHierarchy cannot be null");
+
+        return new FlowClassificationRuleSnapshot(
+                version,
+                builtAtMillis,
+                inboundRuleVantagePoints,
+                outboundRuleVantagePoints,
+                ouHierarchy,
+                dtHierarchy);
+    }
+
+
+    public FlowClassificationRuleMatcher matcher(FlowDirection direction) {
+        return direction == FlowDirection.INBOUND
+                ? inboundMatcher
+                : outboundMatcher;
+    }
+
+
+    /**
+     * @return map of rule id to the classification code assigned by the rule
+     */
+    public Map<Long, String> ratingCodeByRuleId(FlowDirection direction) {
+        return direction == FlowDirection.INBOUND
+                ? inboundRatingCodeByRuleId
+                : outboundRatingCodeByRuleId;
+    }
+
+
+    /**
+     * @return true if the snapshot was built against exactly these hierarchy instances
+     */
+    public boolean isBuiltFrom(EntityHierarchy ouHierarchy, EntityHierarchy dtHierarchy) {
+        return this.ouHierarchy == ouHierarchy && this.dtHierarchy == dtHierarchy;
+    }
+
+
+    public long version() {
+        return version;
+    }
+
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FlowClassificationRuleSnapshot{version=%d, inboundRules=%d, outboundRules=%d}",
+                version,
+                inboundRatingCodeByRuleId.size(),
+                outboundRatingCodeByRuleId.size());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.FlowDirection;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Holds the current {@link FlowClassificationRuleSnapshot}, so recalculating the ratings of a
+ * small population (e.g. a single flow) does not reload every rule and hierarchy.
+ *
+ * The snapshot is rebuilt lazily when:
+ * <ul>
+ *     <li>the rules have changed, signalled via {@link #invalidate()}</li>
+ *     <li>the org unit or data type hierarchy has been rebuilt, detected by the
+ *     {@link EntityHierarchyCache} returning a different hierarchy instance</li>
+ *     <li>it is older than {@link #MAX_SNAPSHOT_AGE}, as rules may be changed by other Waltz processes</li>
+ * </ul>
+ */
+@Service
+public class FlowClassificationRuleSnapshotCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlowClassificationRuleSnapshotCache.class);
+
+    static final Duration MAX_SNAPSHOT_AGE = Duration.ofMinutes(15);
+
+    private final FlowClassificationRuleDao flowClassificationRuleDao;
+    private final EntityHierarchyCache entityHierarchyCache;
+    private final LongSupplier millisClock;
+
+    private final AtomicLong version = new AtomicLong();
+    private final Object buildLock = new Object();
+    private volatile FlowClassificationRuleSnapshot snapshot;
+
+
+    @Autowired
+    public FlowClassificationRuleSnapshotCache(FlowClassificationRuleDao flowClassificationRuleDao,
+                                               EntityHierarchyCache entityHierarchyCache) {
+        this(flowClassificationRuleDao, entityHierarchyCache, System::currentTimeMillis);
+    }
+
+
+    FlowClassificationRuleSnapshotCache(FlowClassificationRuleDao flowClassificationRuleDao,
+                                        EntityHierarchyCache entityHierarchyCache,
+                                        LongSupplier millisClock) {
+        checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao cannot be null");
+        checkNotNull(entityHierarchyCache, "entityHierarchyCache cannot be null");
+        checkNotNull(millisClock, "millisClock cannot be null");
+
+        this.flowClassificationRuleDao = flowClassificationRuleDao;
+        this.entityHierarchyCache = entityHierarchyCache;
+        this.millisClock = millisClock;
+    }
+
+
+    /**
+     * @return the current rule snapshot, building it if necessary
+     */
+    public FlowClassificationRuleSnapshot get() {
+        EntityHierarchy ouHierarchy = entityHierarchyCache.get(EntityKind.ORG_UNIT);
+        EntityHierarchy dtHierarchy = entityHierarchyCache.get(EntityKind.DATA_TYPE);
+
+        FlowClassificationRuleSnapshot current = snapshot;
+        if (isCurrent(current, ouHierarchy, dtHierarchy)) {
+            return current;
+        }
+
+        synchronized (buildLock) {
+            // another thread may have built the snapshot whilst we were waiting
+            FlowClassificationRuleSnapshot latest = snapshot;
+            return isCurrent(latest, ouHierarchy, dtHierarchy)
+                    ? latest
+                    : build(ouHierarchy, dtHierarchy);
+        }
+    }
+
+
+    /**
+     * Should be called whenever flow classification rules are added, changed or removed.
+     * The snapshot is discarded and will be rebuilt on next use.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+
+    // -- helpers
+
+    private FlowClassificationRuleSnapshot build(EntityHierarchy ouHierarchy,
+                                                 EntityHierarchy dtHierarchy) {
+        long versionAtBuild = version.get();
+        long start = millisClock.getAsLong();
+
+        List<FlowClassificationRuleVantagePoint> inboundRuleVantagePoints = flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(FlowDirection.INBOUND);
+        List<FlowClassificationRuleVantagePoint> outboundRuleVantagePoints = flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(FlowDirection.OUTBOUND);
+
+        FlowClassificationRuleSnapshot built = FlowClassificationRuleSnapshot.mkSnapshot(
+                versionAtBuild,
+                millisClock.getAsLong(),
+                inboundRuleVantagePoints,
+                outboundRuleVantagePoints,
+                ouHierarchy,
+                dtHierarchy);
+
+        // if the rules changed whilst building, the snapshot may be stale so is used once but not retained
+        if (versionAtBuild == version.get()) {
+            snapshot = built;
+        }
+
+        LOG.info("Built {} in {}ms", built, built.builtAtMillis() - start);
+
+        return built;
+    }
+
+
+    private boolean isCurrent(FlowClassificationRuleSnapshot candidate,
+                              EntityHierarchy ouHierarchy,
+                              EntityHierarchy dtHierarchy) {
+        return candidate != null
+                && candidate.version() == version.get()
+                && candidate.isBuiltFrom(ouHierarchy, dtHierarchy)
+                && millisClock.getAsLong() - candidate.builtAtMillis() < MAX_SNAPSHOT_AGE.toMillis();
+    }
+
+}
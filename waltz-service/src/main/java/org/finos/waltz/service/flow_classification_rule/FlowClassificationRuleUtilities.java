@@ -36,11 +36,15 @@ public class FlowClassificationRuleUtilities {
             .thenComparing(subjectIdComparator);
 
 
-    protected static Map<Long, Tuple2<Long, MatchOutcome>> applyVantagePoints(FlowDirection direction,
-                                                                              List<FlowClassificationRuleVantagePoint> ruleVantagePoints,
-                                                                              Set<FlowDataType> population,
-                                                                              EntityHierarchy ouHierarchy,
-                                                                              EntityHierarchy dtHierarchy) {
+    /**
+     * Original (rules &times; population) matching algorithm, retained as a reference
+     * implementation for {@link FlowClassificationRuleMatcher}.
+     */
+    public static Map<Long, Tuple2<Long, MatchOutcome>> applyVantagePoints(FlowDirection direction,
+                                                                           List<FlowClassificationRuleVantagePoint> ruleVantagePoints,
+                                                                           Set<FlowDataType> population,
+                                                                           EntityHierarchy ouHierarchy,
+                                                                           EntityHierarchy dtHierarchy) {
 
         Function4<FlowClassificationRuleVantagePoint, Set<Long>, Set<Long>, FlowDataType, MatchOutcome> matcher = determineMatcherFn(direction);
 
@@ -82,7 +86,7 @@ public class FlowClassificationRuleUtilities {
         return lfdIdToRuleAndOutcomeMap;
     }
 
-    enum MatchOutcome {
+    public enum MatchOutcome {
         NOT_APPLICABLE,
         NEGATIVE_MATCH,
         POSITIVE_MATCH
@@ -0,0 +1,84 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.jmx;
+
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+@ManagedResource(description = "Snapshot details and maintenance functions for the entity hierarchy cache")
+public class EntityHierarchyCacheMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyCacheMaintenance.class);
+
+    private final EntityHierarchyCache entityHierarchyCache;
+
+    @Autowired
+    public EntityHierarchyCacheMaintenance(EntityHierarchyCache entityHierarchyCache) {
+        checkNotNull(entityHierarchyCache, "entityHierarchyCache cannot be null");
+        this.entityHierarchyCache = entityHierarchyCache;
+    }
+
+
+    @ManagedOperation(description = "Discard all cached hierarchies, they will be reloaded on next use")
+    public void clear() {
+        LOG.warn("Clearing entity hierarchy cache (via jmx)");
+        entityHierarchyCache.invalidateAll();
+    }
+
+
+    @ManagedAttribute(description = "Cached hierarchy snapshots with their version, size and age")
+    public String[] getSnapshots() {
+        return entityHierarchyCache
+                .findSnapshots()
+                .stream()
+                .map(s -> s + ", age=" + entityHierarchyCache.ageOf(s).getSeconds() + "s")
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute(description = "Number of cached hierarchy snapshots")
+    public int getSnapshotCount() {
+        return entityHierarchyCache.findSnapshots().size();
+    }
+
+
+    @ManagedAttribute(description = "Approximate heap used by all cached hierarchies, in bytes")
+    public long getEstimatedSizeInBytes() {
+        return entityHierarchyCache.estimatedSizeInBytes();
+    }
+
+
+    @ManagedAttribute(description = "Age of the oldest cached snapshot, in seconds")
+    public long getOldestSnapshotAgeSeconds() {
+        return entityHierarchyCache
+                .findSnapshots()
+                .stream()
+                .mapToLong(s -> entityHierarchyCache.ageOf(s).getSeconds())
+                .max()
+                .orElse(0);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.jmx;
+
+import org.finos.waltz.service.QueryStats;
+import org.finos.waltz.service.QueryStatsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Comparator;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+@ManagedResource(description = "Execution statistics for SQL statements, aggregated by fingerprint")
+public class QueryStatsMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryStatsMaintenance.class);
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryStatsListener queryStatsListener;
+
+    @Autowired
+    public QueryStatsMaintenance(QueryStatsListener queryStatsListener) {
+        checkNotNull(queryStatsListener, "queryStatsListener cannot be null");
+        this.queryStatsListener = queryStatsListener;
+    }
+
+
+    @ManagedOperation(description = "Clear all query statistics")
+    public void reset() {
+        LOG.warn("Resetting query statistics (via jmx)");
+        queryStatsListener.reset();
+    }
+
+
+    @ManagedOperation(description = "Top queries ordered by the given measure")
+    @ManagedOperationParameter(name = "orderBy", description = "One of: total, max, count, p99, rows, errors")
+    @ManagedOperationParameter(name = "limit", description = "Maximum number of queries to return")
+    public String[] findTop(String orderBy, int limit) {
+        return describe(limit, mkComparator(orderBy));
+    }
+
+
+    @ManagedAttribute(description = "Queries with the highest total execution time")
+    public String[] getTopByTotalTime() {
+        return describe(DEFAULT_LIMIT, mkComparator("total"));
+    }
+
+
+    @ManagedAttribute(description = "Queries with the highest single execution time")
+    public String[] getTopByMaxTime() {
+        return describe(DEFAULT_LIMIT, mkComparator("max"));
+    }
+
+
+    @ManagedAttribute(description = "Most frequently executed queries")
+    public String[] getTopByCount() {
+        return describe(DEFAULT_LIMIT, mkComparator("count"));
+    }
+
+
+    @ManagedAttribute(description = "Number of distinct query fingerprints")
+    public int getFingerprintCount() {
+        return queryStatsListener.fingerprintCount();
+    }
+
+
+    @ManagedAttribute(description = "Queries slower than this are logged to the performance log")
+    public long getSlowQueryThresholdMillis() {
+        return queryStatsListener.slowQueryThresholdMillis();
+    }
+
+
+    private String[] describe(int limit, Comparator<QueryStats> comparator) {
+        return queryStatsListener
+                .findTop(limit, comparator)
+                .stream()
+                .map(QueryStats::toString)
+                .toArray(String[]::new);
+    }
+
+
+    private static Comparator<QueryStats> mkComparator(String orderBy) {
+        switch (orderBy == null ? "" : orderBy.toLowerCase()) {
+            case "max":
+                return Comparator.comparingLong(QueryStats::maxNanos).reversed();
+            case "count":
+                return Comparator.comparingLong(QueryStats::executionCount).reversed();
+            case "p99":
+                return Comparator.comparingLong((QueryStats s) -> s.percentileNanos(0.99)).reversed();
+            case "rows":
+                return Comparator.comparingLong(QueryStats::rowCount).reversed();
+            case "errors":
+                return Comparator.comparingLong(QueryStats::errorCount).reversed();
+            default:
+                return Comparator.comparingLong(QueryStats::totalNanos).reversed();
+        }
+    }
+
+}
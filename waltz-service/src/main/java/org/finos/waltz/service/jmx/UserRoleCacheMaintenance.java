@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.jmx;
+
+import org.finos.waltz.common.ExpiringCache;
+import org.finos.waltz.service.user.UserRoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Set;
+
+@ManagedResource(description = "Statistics and maintenance functions for the Waltz user role cache")
+public class UserRoleCacheMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserRoleCacheMaintenance.class);
+
+    private final UserRoleService userRoleService;
+
+    @Autowired
+    public UserRoleCacheMaintenance(UserRoleService userRoleService) {
+        this.userRoleService = userRoleService;
+    }
+
+
+    @ManagedOperation(description = "Clear all cached user roles")
+    public void clear() {
+        LOG.warn("Clearing user role cache (via jmx)");
+        userRoleService.invalidateAllCachedRoles();
+    }
+
+
+    @ManagedAttribute(description = "Number of role lookups served from the cache")
+    public long getHitCount() {
+        return cache().hitCount();
+    }
+
+
+    @ManagedAttribute(description = "Number of role lookups which required a database query")
+    public long getMissCount() {
+        return cache().missCount();
+    }
+
+
+    @ManagedAttribute(description = "Number of entries evicted as the cache was full")
+    public long getEvictionCount() {
+        return cache().evictionCount();
+    }
+
+
+    @ManagedAttribute
+    public double getHitRatio() {
+        return cache().hitRatio();
+    }
+
+
+    @ManagedAttribute
+    public int getSize() {
+        return cache().size();
+    }
+
+
+    @ManagedAttribute
+    public int getMaxEntries() {
+        return cache().maxEntries();
+    }
+
+
+    @ManagedAttribute
+    public long getTtlSeconds() {
+        return cache().ttl().getSeconds();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "UserRoleCache";
+    }
+
+
+    private ExpiringCache<String, Set<String>> cache() {
+        return userRoleService.getRoleCache();
+    }
+
+}
@@ -77,6 +77,14 @@ public class MeasurableService {
     }
 
 
+    /**
+     * @return a marker which changes whenever the result of {@link #findAll()} may have changed
+     */
+    public String calcVersion() {
+        return measurableDao.calcVersion();
+    }
+
+
     public List<Measurable> findByMeasurableIdSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
         Select<Record1<Long>> selector = measurableIdSelectorFactory.apply(options);
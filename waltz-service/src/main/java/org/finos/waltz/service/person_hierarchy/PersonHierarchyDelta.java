@@ -0,0 +1,257 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.person_hierarchy;
+
+import org.finos.waltz.schema.tables.records.PersonHierarchyRecord;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Computes the difference between the desired person hierarchy (derived from
+ * employee/manager pairs) and the rows currently in the `person_hierarchy` table.
+ *
+ * The desired hierarchy is never materialised as records.  People are interned to
+ * int indexes, with their manager and depth held in int arrays.  Each desired row
+ * (a person and one of their ancestors) is given a slot in a bitset which is marked
+ * as existing rows are compared.  Unmarked slots are the rows which need inserting.
+ * Slots seen more than once are also marked in a second bitset, their rows are deleted
+ * (removing every copy) and re-inserted.
+ *
+ * Levels follow the existing convention, the level of a row is the depth of the
+ * manager in the hierarchy with roots at level 1.
+ *
+ * Usage: create with the employee/manager pairs, call `compareExisting` for each row in
+ * the table and then read `getDeletions`, `getUpdates` and `streamInsertions`.
+ */
+class PersonHierarchyDelta {
+
+    private static final int NO_MANAGER = -1;
+    private static final int NOT_CALCULATED = 0;
+    private static final int IN_PROGRESS = -1;
+    private static final int IN_CYCLE = -2;
+
+    private final List<String> employeeIds = new ArrayList<>();
+    private final Map<String, Integer> indexByEmployeeId = new HashMap<>();
+    private final int[] managers;
+    private final int[] depths;
+    private final int[] offsets;
+    private final BitSet existing;
+    private final BitSet duplicated;
+    private final int cyclicCount;
+
+    private final List<PersonHierarchyRecord> deletions = new ArrayList<>();
+    private final List<PersonHierarchyRecord> updates = new ArrayList<>();
+
+
+    /**
+     * @param managerByEmployeeId  map of employee id to manager employee id (or null if they have no manager)
+     */
+    PersonHierarchyDelta(Map<String, String> managerByEmployeeId) {
+        managerByEmployeeId.keySet().forEach(this::intern);
+
+        int size = employeeIds.size();
+        managers = new int[size];
+        for (int i = 0; i < size; i++) {
+            String managerId = managerByEmployeeId.get(employeeIds.get(i));
+            Integer managerIdx = managerId == null
+                    ? null
+                    : indexByEmployeeId.get(managerId);
+            // unknown managers and self-management are treated as roots
+            managers[i] = managerIdx == null || managerIdx == i
+                    ? NO_MANAGER
+                    : managerIdx;
+        }
+
+        depths = calculateDepths(managers);
+
+        offsets = new int[size];
+        int rowCount = 0;
+        int cycles = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = rowCount;
+            if (depths[i] == IN_CYCLE) {
+                cycles++;
+            } else {
+                rowCount += depths[i] - 1;
+            }
+        }
+
+        existing = new BitSet(rowCount);
+        duplicated = new BitSet(rowCount);
+        cyclicCount = cycles;
+    }
+
+
+    /**
+     * Compares a row from the current table against the desired hierarchy,
+     * recording a deletion or update if required.
+     */
+    void compareExisting(String managerId, String employeeId, int level) {
+        Integer employeeIdx = indexByEmployeeId.get(employeeId);
+        Integer managerIdx = indexByEmployeeId.get(managerId);
+
+        if (employeeIdx == null || managerIdx == null || ! isAncestor(managerIdx, employeeIdx)) {
+            deletions.add(mkRecord(managerId, employeeId, level));
+            return;
+        }
+
+        int slot = offsets[employeeIdx] + depths[managerIdx] - 1;
+        if (duplicated.get(slot)) {
+            // further copy of a duplicate, the deletion already queued removes it
+            return;
+        }
+
+        if (existing.get(slot)) {
+            // duplicate row, remove all copies and re-insert it.  Any update queued for the
+            // first copy is harmless as deletions are applied first
+            deletions.add(mkRecord(managerId, employeeId, level));
+            duplicated.set(slot);
+        } else {
+            existing.set(slot);
+            if (level != depths[managerIdx]) {
+                updates.add(mkRecord(managerId, employeeId, depths[managerIdx]));
+            }
+        }
+    }
+
+
+    /**
+     * @return rows to remove, only the manager and employee ids are significant
+     */
+    List<PersonHierarchyRecord> getDeletions() {
+        return deletions;
+    }
+
+
+    /**
+     * @return rows whose level should be updated
+     */
+    List<PersonHierarchyRecord> getUpdates() {
+        return updates;
+    }
+
+
+    /**
+     * @return desired rows which were not found when comparing against the existing rows,
+     * or which were duplicated (and so are being deleted)
+     */
+    Stream<PersonHierarchyRecord> streamInsertions() {
+        return IntStream
+                .range(0, employeeIds.size())
+                .filter(i -> depths[i] > 1)
+                .boxed()
+                .flatMap(this::streamMissingRowsFor);
+    }
+
+
+    /**
+     * @return number of people excluded from the hierarchy as their management chain contains a cycle
+     */
+    int getCyclicCount() {
+        return cyclicCount;
+    }
+
+
+    // -- helpers ----
+
+    private Stream<PersonHierarchyRecord> streamMissingRowsFor(int employeeIdx) {
+        List<PersonHierarchyRecord> missing = new ArrayList<>();
+        for (int m = managers[employeeIdx]; m != NO_MANAGER; m = managers[m]) {
+            int slot = offsets[employeeIdx] + depths[m] - 1;
+            if (! existing.get(slot) || duplicated.get(slot)) {
+                missing.add(mkRecord(employeeIds.get(m), employeeIds.get(employeeIdx), depths[m]));
+            }
+        }
+        return missing.stream();
+    }
+
+
+    private boolean isAncestor(int managerIdx, int employeeIdx) {
+        int managerDepth = depths[managerIdx];
+        int employeeDepth = depths[employeeIdx];
+
+        if (managerDepth < 1 || employeeDepth <= managerDepth) {
+            return false;
+        }
+
+        int current = employeeIdx;
+        for (int steps = employeeDepth - managerDepth; steps > 0; steps--) {
+            current = managers[current];
+        }
+        return current == managerIdx;
+    }
+
+
+    private void intern(String employeeId) {
+        indexByEmployeeId.computeIfAbsent(employeeId, id -> {
+            employeeIds.add(id);
+            return employeeIds.size() - 1;
+        });
+    }
+
+
+    /**
+     * Calculates the depth of each person (roots are at depth 1).  People within, or
+     * beneath, a management cycle are given a depth of IN_CYCLE.
+     */
+    private static int[] calculateDepths(int[] managers) {
+        int[] depths = new int[managers.length];
+        int[] path = new int[managers.length];
+
+        for (int i = 0; i < managers.length; i++) {
+            int pathLength = 0;
+            int current = i;
+            while (current != NO_MANAGER && depths[current] == NOT_CALCULATED) {
+                depths[current] = IN_PROGRESS;
+                path[pathLength++] = current;
+                current = managers[current];
+            }
+
+            int depth;
+            if (current == NO_MANAGER) {
+                depth = 0;
+            } else if (depths[current] == IN_PROGRESS || depths[current] == IN_CYCLE) {
+                depth = IN_CYCLE;
+            } else {
+                depth = depths[current];
+            }
+
+            while (pathLength > 0) {
+                int idx = path[--pathLength];
+                depths[idx] = depth == IN_CYCLE
+                        ? IN_CYCLE
+                        : ++depth;
+            }
+        }
+
+        return depths;
+    }
+
+
+    private static PersonHierarchyRecord mkRecord(String managerId, String employeeId, int level) {
+        return new PersonHierarchyRecord(managerId, employeeId, level);
+    }
+
+}
@@ -19,14 +19,10 @@
 package org.finos.waltz.service.person_hierarchy;
 
 import org.finos.waltz.schema.tables.records.PersonHierarchyRecord;
-import org.finos.waltz.common.ListUtilities;
-import org.finos.waltz.common.hierarchy.FlatNode;
-import org.finos.waltz.common.hierarchy.Forest;
-import org.finos.waltz.common.hierarchy.HierarchyUtilities;
-import org.finos.waltz.common.hierarchy.Node;
-import org.finos.waltz.data.person.PersonDao;
-import org.finos.waltz.model.person.Person;
+import org.jooq.BatchBindStep;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record1;
 import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
@@ -35,73 +31,141 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Function;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
+import static org.finos.waltz.schema.tables.Person.PERSON;
 import static org.finos.waltz.schema.tables.PersonHierarchy.PERSON_HIERARCHY;
-import static java.util.stream.Collectors.toList;
 
 @Service
 public class PersonHierarchyService {
 
     private static final Logger LOG = LoggerFactory.getLogger(PersonHierarchyService.class);
 
-    private final PersonDao personDao;
+    private static final int BATCH_SIZE = 5000;
+    private static final int FETCH_SIZE = 10_000;
+
     private final DSLContext dsl;
 
 
     @Autowired
-    public PersonHierarchyService(PersonDao personDao, DSLContext dsl) {
-        this.personDao = personDao;
+    public PersonHierarchyService(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
         this.dsl = dsl;
     }
 
 
-    public int[] build() {
-        LOG.warn("Building person hierarchy");
-        List<Person> all = personDao.all();
+    /**
+     * Brings the person_hierarchy table in line with the current management
+     * structure.  Only rows which have changed are written, in batches of
+     * BATCH_SIZE statements, each in its own short transaction.
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    public synchronized int build() {
+        LOG.info("Building person hierarchy");
+        long start = System.currentTimeMillis();
+
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(loadManagerByEmployeeId());
+
+        try (Cursor<PersonHierarchyRecord> existing = dsl
+                .selectFrom(PERSON_HIERARCHY)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+            existing.forEach(r -> delta.compareExisting(r.getManagerId(), r.getEmployeeId(), r.getLevel()));
+        }
 
-        Forest<Person, String> forest = toForest(all);
+        if (delta.getCyclicCount() > 0) {
+            LOG.warn("Excluded {} people from the person hierarchy as their management chain contains a cycle", delta.getCyclicCount());
+        }
 
-        List<PersonHierarchyRecord> records = toHierarchyRecords(forest);
+        int deleted = delta
+                .getDeletions()
+                .stream()
+                .collect(batchProcessingCollector(BATCH_SIZE, this::deleteBatch));
 
-        return dsl.transactionResult(configuration -> {
-            DSLContext txDsl = DSL.using(configuration);
-            txDsl.deleteFrom(PERSON_HIERARCHY).execute();
-            return txDsl.batchStore(records).execute();
-        });
+        int updated = delta
+                .getUpdates()
+                .stream()
+                .collect(batchProcessingCollector(BATCH_SIZE, this::updateBatch));
+
+        int inserted = delta
+                .streamInsertions()
+                .collect(batchProcessingCollector(BATCH_SIZE, this::insertBatch));
+
+        LOG.info(
+                "Built person hierarchy in {}ms, deleted: {}, updated: {}, inserted: {}",
+                System.currentTimeMillis() - start,
+                deleted,
+                updated,
+                inserted);
+
+        return deleted + updated + inserted;
     }
 
 
-    private List<PersonHierarchyRecord> toHierarchyRecords(Forest<Person, String> forest) {
-        List<PersonHierarchyRecord> records = new LinkedList<>();
+    private Map<String, String> loadManagerByEmployeeId() {
+        Map<String, String> managerByEmployeeId = new HashMap<>();
+        dsl.select(PERSON.EMPLOYEE_ID, PERSON.MANAGER_EMPLOYEE_ID)
+                .from(PERSON)
+                .where(PERSON.IS_REMOVED.eq(false))
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()
+                .forEach(r -> managerByEmployeeId.putIfAbsent(r.value1(), r.value2()));
+        return managerByEmployeeId;
+    }
 
-        for (Node<Person, String> node : forest.getAllNodes().values()) {
-            List<Person> ancestors =
-                    ListUtilities.reverse(
-                            HierarchyUtilities.parents(node)
-                                    .stream()
-                                    .map(Node::getData)
-                                    .collect(Collectors.toList()));
 
-            for (int i = 0; i < ancestors.size(); i++) {
-                String ancestorId = ancestors.get(i).employeeId();
-                String selfId = node.getData().employeeId();
-                PersonHierarchyRecord record = new PersonHierarchyRecord(ancestorId, selfId, i + 1);
-                records.add(record);
-            }
-        }
-        return records;
+    private void deleteBatch(List<PersonHierarchyRecord> batch) {
+        executeBatch(
+                batch,
+                txDsl -> txDsl
+                        .deleteFrom(PERSON_HIERARCHY)
+                        .where(PERSON_HIERARCHY.MANAGER_ID.eq(DSL.param("managerId", String.class)))
+                        .and(PERSON_HIERARCHY.EMPLOYEE_ID.eq(DSL.param("employeeId", String.class))),
+                r -> new Object[] {r.getManagerId(), r.getEmployeeId()});
     }
 
 
-    private Forest<Person, String> toForest(List<Person> all) {
-        List<FlatNode<Person, String>> allFlatNodes = all.stream()
-                .map(p -> new FlatNode<>(p.employeeId(), p.managerEmployeeId(), p))
-                .collect(toList());
+    private void updateBatch(List<PersonHierarchyRecord> batch) {
+        executeBatch(
+                batch,
+                txDsl -> txDsl
+                        .update(PERSON_HIERARCHY)
+                        .set(PERSON_HIERARCHY.LEVEL, DSL.param("level", Integer.class))
+                        .where(PERSON_HIERARCHY.MANAGER_ID.eq(DSL.param("managerId", String.class)))
+                        .and(PERSON_HIERARCHY.EMPLOYEE_ID.eq(DSL.param("employeeId", String.class))),
+                r -> new Object[] {r.getLevel(), r.getManagerId(), r.getEmployeeId()});
+    }
+
+
+    private void insertBatch(List<PersonHierarchyRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        dsl.transaction(configuration -> DSL
+                .using(configuration)
+                .batchInsert(batch)
+                .execute());
+    }
 
-        return HierarchyUtilities.toForest(allFlatNodes);
+
+    private void executeBatch(List<PersonHierarchyRecord> batch,
+                              Function<DSLContext, Query> queryFactory,
+                              Function<PersonHierarchyRecord, Object[]> bindValues) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        dsl.transaction(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+            BatchBindStep step = txDsl.batch(queryFactory.apply(txDsl));
+            batch.forEach(r -> step.bind(bindValues.apply(r)));
+            step.execute();
+        });
     }
 
 
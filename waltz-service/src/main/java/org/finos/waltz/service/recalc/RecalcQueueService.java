@@ -0,0 +1,296 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.recalc;
+
+import org.finos.waltz.data.logical_flow.LogicalFlowDao;
+import org.finos.waltz.data.physical_flow.PhysicalFlowDao;
+import org.finos.waltz.data.recalc.RecalcQueueDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.recalc.ImmutableRecalcRequest;
+import org.finos.waltz.model.recalc.ImmutableRecalcStatus;
+import org.finos.waltz.model.recalc.RecalcRequest;
+import org.finos.waltz.model.recalc.RecalcStatus;
+import org.finos.waltz.model.recalc.RecalcTask;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleService;
+import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Recalculates derived data (flow ratings, data type usages etc.) in the background
+ * following edits, rather than within the user's request.
+ *
+ * Edits {@link #enqueue(EntityReference, String, Set)} the affected tasks to a persistent
+ * queue (so pending work survives a restart).  The {@link RecalcQueueWorker} picks up requests once
+ * they are older than {@link #COALESCE_WINDOW} and processes them in batches; repeated
+ * requests for the same task and entity within the window are merged into a single run.
+ *
+ * The worker runs on every node, each batch is claimed before it is processed so a request
+ * is only run once.  Claims older than {@link #CLAIM_TIMEOUT} are assumed to belong to a
+ * node which died mid-batch and are picked up again.
+ *
+ * Clients may poll {@link #getStatus(EntityReference)} to find out when the derived data
+ * for an entity is up to date.
+ */
+@Service
+public class RecalcQueueService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecalcQueueService.class);
+
+    static final Duration COALESCE_WINDOW = Duration.ofSeconds(2);
+    static final int MAX_ATTEMPTS = 3;
+    static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(15);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final RecalcQueueDao recalcQueueDao;
+    private final FlowClassificationRuleService flowClassificationRuleService;
+    private final DataTypeUsageService dataTypeUsageService;
+    private final PhysicalSpecificationService physicalSpecificationService;
+    private final LogicalFlowDao logicalFlowDao;
+    private final PhysicalFlowDao physicalFlowDao;
+
+
+    @Autowired
+    public RecalcQueueService(RecalcQueueDao recalcQueueDao,
+                              FlowClassificationRuleService flowClassificationRuleService,
+                              DataTypeUsageService dataTypeUsageService,
+                              PhysicalSpecificationService physicalSpecificationService,
+                              LogicalFlowDao logicalFlowDao,
+                              PhysicalFlowDao physicalFlowDao) {
+        checkNotNull(recalcQueueDao, "recalcQueueDao cannot be null");
+        checkNotNull(flowClassificationRuleService, "flowClassificationRuleService cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(physicalSpecificationService, "physicalSpecificationService cannot be null");
+        checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
+        checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
+
+        this.recalcQueueDao = recalcQueueDao;
+        this.flowClassificationRuleService = flowClassificationRuleService;
+        this.dataTypeUsageService = dataTypeUsageService;
+        this.physicalSpecificationService = physicalSpecificationService;
+        this.logicalFlowDao = logicalFlowDao;
+        this.physicalFlowDao = physicalFlowDao;
+    }
+
+
+    /**
+     * Queues the given tasks for the entity.
+     *
+     * @return the status of the entity, which will be pending
+     */
+    public RecalcStatus enqueue(EntityReference ref,
+                                String userName,
+                                Set<RecalcTask> tasks) {
+        checkNotNull(ref, "ref cannot be null");
+        checkNotNull(userName, "userName cannot be null");
+        checkNotNull(tasks, "tasks cannot be null");
+
+        LocalDateTime now = nowUtc();
+        Set<RecalcRequest> requests = map(
+                tasks,
+                task -> ImmutableRecalcRequest.builder()
+                        .task(task)
+                        .entityReference(ref)
+                        .requestedBy(userName)
+                        .requestedAt(now)
+                        .build());
+
+        recalcQueueDao.enqueue(requests);
+        return getStatus(ref);
+    }
+
+
+    public RecalcStatus getStatus(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+
+        List<RecalcRequest> requests = recalcQueueDao.findForEntity(ref);
+
+        return ImmutableRecalcStatus.builder()
+                .entityReference(ref)
+                .pendingTasks(requests
+                        .stream()
+                        .filter(r -> r.attempts() < MAX_ATTEMPTS)
+                        .map(RecalcRequest::task)
+                        .collect(Collectors.toSet()))
+                .failedTasks(requests
+                        .stream()
+                        .filter(r -> r.attempts() >= MAX_ATTEMPTS)
+                        .map(RecalcRequest::task)
+                        .collect(Collectors.toSet()))
+                .build();
+    }
+
+
+    public int countPending() {
+        return recalcQueueDao.countPending(MAX_ATTEMPTS);
+    }
+
+
+    /**
+     * Processes queued requests made before the given time, in batches.  Normally invoked
+     * by the {@link RecalcQueueWorker}, tests may call it directly.
+     *
+     * @param requestedBefore  requests made after this time are left for a subsequent run
+     * @return number of requests processed (including duplicates merged into a single run)
+     */
+    public int processQueue(LocalDateTime requestedBefore) {
+        int processed = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            String claimId = UUID.randomUUID().toString();
+            List<RecalcRequest> batch = recalcQueueDao.claimReady(
+                    claimId,
+                    requestedBefore,
+                    nowUtc().minus(CLAIM_TIMEOUT),
+                    MAX_ATTEMPTS,
+                    BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            processBatch(claimId, batch);
+            processed += batch.size();
+            if (batch.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+        return processed;
+    }
+
+
+    // -- helpers
+
+    private void processBatch(String claimId, List<RecalcRequest> batch) {
+        long start = System.currentTimeMillis();
+
+        long maxId = batch
+                .stream()
+                .mapToLong(r -> r.id().orElse(0L))
+                .max()
+                .orElse(0L);
+
+        // group by task, in the order the tasks should be run, merging duplicates
+        Map<Tuple2<RecalcTask, EntityKind>, Map<Long, RecalcRequest>> byTaskAndKind = new LinkedHashMap<>();
+        for (RecalcTask task : RecalcTask.values()) {
+            batch.stream()
+                    .filter(r -> r.task() == task)
+                    .forEach(r -> byTaskAndKind
+                            .computeIfAbsent(tuple(r.task(), r.entityReference().kind()), k -> new LinkedHashMap<>())
+                            .put(r.entityReference().id(), r));
+        }
+
+        byTaskAndKind.forEach((key, requestsByEntityId) -> {
+            RecalcTask task = key.v1;
+            EntityKind kind = key.v2;
+            Set<Long> entityIds = requestsByEntityId.keySet();
+            try {
+                run(task, kind, requestsByEntityId.values());
+                recalcQueueDao.deleteCompleted(claimId, task, kind, entityIds, maxId);
+            } catch (Exception e) {
+                LOG.warn("Recalc task: {} failed for {} {} entities", task, entityIds.size(), kind, e);
+                recalcQueueDao.recordFailure(claimId, task, kind, entityIds, e.getMessage());
+            }
+        });
+
+        LOG.info("Processed {} recalc requests ({} distinct tasks) in {}ms",
+                batch.size(),
+                byTaskAndKind.values().stream().mapToInt(Map::size).sum(),
+                System.currentTimeMillis() - start);
+    }
+
+
+    private void run(RecalcTask task, EntityKind kind, Collection<RecalcRequest> requests) {
+        Set<Long> ids = map(requests, r -> r.entityReference().id());
+        switch (task) {
+            case SPEC_DATA_TYPE_PROPAGATION:
+                checkKind(task, kind, EntityKind.PHYSICAL_SPECIFICATION);
+                requests.forEach(this::propagateSpecDataTypes);
+                break;
+            case FLOW_RATINGS:
+                checkKind(task, kind, EntityKind.LOGICAL_DATA_FLOW);
+                flowClassificationRuleService.recalculateFlowRatingsForFlowIds(ids);
+                break;
+            case DATA_TYPE_USAGE:
+                checkKind(task, kind, EntityKind.LOGICAL_DATA_FLOW);
+                Set<EntityReference> endpoints = new HashSet<>();
+                for (LogicalFlow flow : logicalFlowDao.findAllByFlowIds(ids)) {
+                    endpoints.add(flow.source());
+                    endpoints.add(flow.target());
+                }
+                dataTypeUsageService.recalculateForApplications(endpoints);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported recalc task: " + task);
+        }
+    }
+
+
+    /**
+     * Propagation may add data types to (and remove 'unknown' from) the logical flows of the
+     * specification, so the ratings and usages of those flows are queued for recalculation.
+     */
+    private void propagateSpecDataTypes(RecalcRequest request) {
+        long specId = request.entityReference().id();
+        physicalSpecificationService.propagateDataTypesToLogicalFlows(request.requestedBy(), specId);
+
+        Set<RecalcTask> followUps = asSet(RecalcTask.FLOW_RATINGS, RecalcTask.DATA_TYPE_USAGE);
+        physicalFlowDao
+                .findBySpecificationId(specId)
+                .stream()
+                .map(pf -> mkRef(EntityKind.LOGICAL_DATA_FLOW, pf.logicalFlowId()))
+                .distinct()
+                .forEach(flowRef -> enqueue(flowRef, request.requestedBy(), followUps));
+    }
+
+
+    private static void checkKind(RecalcTask task, EntityKind actual, EntityKind expected) {
+        if (actual != expected) {
+            throw new IllegalArgumentException(String.format(
+                    "Recalc task: %s only supports %s, not %s",
+                    task,
+                    expected,
+                    actual));
+        }
+    }
+
+}
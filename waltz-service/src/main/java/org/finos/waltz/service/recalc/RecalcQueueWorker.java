@@ -0,0 +1,64 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.recalc;
+
+import org.finos.waltz.common.ExcludeFromIntegrationTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+
+/**
+ * Periodically processes the recalc queue (see {@link RecalcQueueService}).
+ *
+ * Kept separate from the service so integration tests, which exclude this bean,
+ * can drive {@link RecalcQueueService#processQueue} explicitly.
+ */
+@ExcludeFromIntegrationTesting
+@Service
+public class RecalcQueueWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecalcQueueWorker.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 1_000;
+
+    private final RecalcQueueService recalcQueueService;
+
+
+    @Autowired
+    public RecalcQueueWorker(RecalcQueueService recalcQueueService) {
+        checkNotNull(recalcQueueService, "recalcQueueService cannot be null");
+        this.recalcQueueService = recalcQueueService;
+    }
+
+
+    @Scheduled(fixedDelay = POLL_INTERVAL_MILLIS, initialDelay = POLL_INTERVAL_MILLIS)
+    public void scheduledProcess() {
+        try {
+            recalcQueueService.processQueue(nowUtc().minus(RecalcQueueService.COALESCE_WINDOW));
+        } catch (Exception e) {
+            LOG.error("Failed to process recalc queue", e);
+        }
+    }
+
+}
@@ -6,6 +6,8 @@ import org.finos.waltz.model.either.Either;
 import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
 import org.immutables.value.Value;
 
+import java.util.Set;
+
 @Value.Immutable
 public abstract class CompiledCalculatedColumn {
 
@@ -15,4 +17,15 @@ public abstract class CompiledCalculatedColumn {
     @Nullable
     public abstract Either<String, JexlScript> expression();
 
+
+    /**
+     * Ext ids of the cells this column's script reads via the evaluator namespace
+     * functions, e.g. <code>cell('COST')</code>.  Other string literals are not included.
+     */
+    @Value.Derived
+    @Value.Auxiliary
+    public Set<String> referencedExtIds() {
+        return ReportGridScriptReferences.findReferencedExtIds(column().derivationScript());
+    }
+
 }
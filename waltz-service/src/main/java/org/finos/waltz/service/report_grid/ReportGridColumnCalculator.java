@@ -1,177 +1,194 @@
 package org.finos.waltz.service.report_grid;
 
 import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlContext;
 import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
 import org.apache.commons.jexl3.MapContext;
 import org.finos.waltz.common.DateTimeUtilities;
-import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.model.either.Either;
+import org.finos.waltz.model.report_grid.CellOption;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.ImmutableReportGridCell;
 import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridCellStore;
 import org.finos.waltz.model.report_grid.ReportGridDefinition;
 import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
 import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
 import org.finos.waltz.model.report_grid.ReportGridInstance;
 import org.finos.waltz.model.report_grid.ReportSubject;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 
-import static java.util.Optional.ofNullable;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.MapUtilities.newHashMap;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.map;
-import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.common.StringUtilities.notEmpty;
 import static org.finos.waltz.model.report_grid.CellOption.mkCellOption;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
-import static org.jooq.lambda.tuple.Tuple.tuple;
 
 public class ReportGridColumnCalculator {
 
+    // shared so parsed scripts are cached across grid requests, the namespace is resolved per row via the context
+    private static final JexlEngine JEXL = new JexlBuilder().cache(512).create();
+
 
     public static Set<ReportGridCell> calculate(ReportGridInstance instance,
                                                 ReportGridDefinition definition) {
-        ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder.namespaces(newHashMap(null, ns)).cache(512).create();
 
-        Map<Long, Collection<ReportGridCell>> rowBySubject = groupBy(
-                instance.cellData(),
-                ReportGridCell::subjectId);
+        ReportGridCellStore cellStore = instance.cellStore();
 
         Map<Long, RatingSchemeItem> ratingSchemeItemsById = indexById(instance.ratingSchemeItems());
 
-        Set<CompiledCalculatedColumn> derivedColumns = map(
-                definition.derivedColumnDefinitions(),
-                d -> {
-                    Either<String, JexlScript> expr = compile(
-                            jexl,
-                            d.derivationScript());
-
-                    return ImmutableCompiledCalculatedColumn
-                            .builder()
-                            .column(d)
-                            .expression(expr)
-                            .build();
-                });
+        List<CompiledCalculatedColumn> derivedColumns = definition
+                .derivedColumnDefinitions()
+                .stream()
+                .map(d -> ImmutableCompiledCalculatedColumn
+                        .builder()
+                        .column(d)
+                        .expression(compile(JEXL, d.derivationScript()))
+                        .build())
+                .collect(toList());
+
+        List<List<CompiledCalculatedColumn>> evaluationOrder = determineEvaluationOrder(derivedColumns);
 
         return instance
                 .subjects()
-                .stream()
-                .map(s -> {
-                    long subjectId = s.entityReference().id();
-                    Map<String, Object> ctx = initialiseContext(
+                .parallelStream()
+                .flatMap(subject -> {
+                    // each row gets its own namespace/context so rows can be evaluated concurrently
+                    ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
+                    ns.setContext(initialiseContext(
                             definition.fixedColumnDefinitions(),
                             ratingSchemeItemsById,
-                            s,
-                            lookupRow(rowBySubject, subjectId));
-                    ns.setContext(ctx);
-                    return s;
+                            subject,
+                            cellStore));
+
+                    return calcDerivedCols(
+                            ns,
+                            subject,
+                            evaluationOrder)
+                        .stream();
                 })
-                .flatMap(subject ->
-                        calcDerivedCols(
-                                ns,
-                                subject,
-                                derivedColumns)
-                        .stream())
                 .collect(toSet());
 
     }
 
 
-    private static Collection<ReportGridCell> lookupRow(Map<Long, Collection<ReportGridCell>> rowBySubject,
-                                                        long subjectId) {
-        return rowBySubject.getOrDefault(
-                subjectId,
-                Collections.emptySet());
-    }
+    /**
+     * Orders the derived columns so that any column is evaluated after the columns it references.
+     * The result is a list of strongly connected components, in dependency order.  Components with
+     * more than one member (or a member which references itself) are cycles and cannot be evaluated.
+     *
+     * @param derivedColumns  compiled derived columns
+     * @return  groups of columns in evaluation order, singleton groups are evaluable
+     */
+    static List<List<CompiledCalculatedColumn>> determineEvaluationOrder(List<CompiledCalculatedColumn> derivedColumns) {
+        Map<String, CompiledCalculatedColumn> columnsByExtId = new HashMap<>();
+        derivedColumns.forEach(c -> columnsByExtId.putIfAbsent(colToExtId(c.column()), c));
 
+        Map<CompiledCalculatedColumn, List<CompiledCalculatedColumn>> dependencies = new HashMap<>();
+        derivedColumns.forEach(c -> dependencies.put(c, findReferencedColumns(c, columnsByExtId)));
 
-    private static Set<ReportGridCell> calcDerivedCols(ReportGridEvaluatorNamespace ns,
-                                                       ReportSubject subject,
-                                                       Set<CompiledCalculatedColumn> colsToCalc) {
+        return new DependencyOrderer(derivedColumns, dependencies).order();
+    }
 
-        // we need to evaluate derived cols at least once
-        AtomicBoolean evaluateRowAgain = new AtomicBoolean(true);
-        // collecting the results as we go
-        Map<Long, ReportGridCell> results = new HashMap<>();
 
-        Set<CompiledCalculatedColumn> remaining = SetUtilities.fromCollection(colsToCalc);
+    private static List<CompiledCalculatedColumn> findReferencedColumns(CompiledCalculatedColumn col,
+                                                                        Map<String, CompiledCalculatedColumn> columnsByExtId) {
+        return col
+                .referencedExtIds()
+                .stream()
+                .map(columnsByExtId::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(toList());
+    }
 
-        Map<ReportGridDerivedColumnDefinition, String> lastErrors = new HashMap<>();
 
-        while (evaluateRowAgain.get()) {
-            // assume this time will be the last
-            evaluateRowAgain.set(false);
+    private static Set<ReportGridCell> calcDerivedCols(ReportGridEvaluatorNamespace ns,
+                                                       ReportSubject subject,
+                                                       List<List<CompiledCalculatedColumn>> evaluationOrder) {
 
-            // iterate over remaining columns attempting execution
-            remaining.forEach(ccc -> {
-                try {
-                    // attempt to evaluate the cell
-                    ofNullable(evaluateCalcCol(ccc, subject))
-                            .ifPresent(result -> {
-                                ReportGridCell existingResult = results.get(ccc.column().gridColumnId());
-                                boolean isDifferent = existingResult == null || !existingResult.equals(result);
+        Set<ReportGridCell> results = new HashSet<>();
+        RowContext rowContext = new RowContext(ns, subject);
 
-                                if (isDifferent) {
-                                    // If successful record the result
-                                    results.put(ccc.column().gridColumnId(), result);
+        for (List<CompiledCalculatedColumn> component : evaluationOrder) {
+            if (isCycle(component)) {
+                String cycleDescription = component
+                        .stream()
+                        .map(c -> colToExtId(c.column()))
+                        .collect(joining(", "));
 
-                                    // ...and update the context so dependent expressions can be calculated
-                                    ns.addContext(colToExtId(ccc.column()), result);
+                component.forEach(ccc -> results.add(mkErrorCell(
+                        subject,
+                        ccc.column(),
+                        "Cyclic dependency between derived columns: " + cycleDescription,
+                        mkCellOption("CYCLE_ERROR", "Cycle Error"))));
+                continue;
+            }
 
-                                    // Since something has changed we want to run the loop again in case
-                                    // ...a dependant expression can now be evaluated.
-                                    evaluateRowAgain.set(true);
-                                }
-                        });
+            CompiledCalculatedColumn ccc = component.get(0);
+            try {
+                ReportGridCell result = evaluateCalcCol(ccc, subject, rowContext);
+                if (result != null) {
+                    results.add(result);
+                    // ...update the context so dependent expressions can be calculated
+                    ns.addContext(colToExtId(ccc.column()), result);
+                }
+            } catch (Exception e) {
+                String msg = toMessage(e);
+                if (notEmpty(msg)) {
+                    results.add(mkErrorCell(
+                            subject,
+                            ccc.column(),
+                            msg,
+                            mkCellOption("EXECUTION_ERROR", "Execution Error")));
+                }
+            }
+        }
 
-                    // clear out the error map for this column as the last evaluation succeeded (but may have been null)
-                    lastErrors.remove(ccc.column());
+        return results;
+    }
 
-                } catch (Exception e) {
-                    // if we hit a problem we store it for later as it may resolve itself on a subsequent iteration
-                    String msg = toMessage(e);
-                    lastErrors.put(ccc.column(), msg);
-                }
-            });
 
-            if (remaining.isEmpty()) {
-                // nothing left to do, therefore we can finish on this iteration
-                evaluateRowAgain.set(false);
-            }
+    private static boolean isCycle(List<CompiledCalculatedColumn> component) {
+        if (component.size() > 1) {
+            return true;
         }
+        CompiledCalculatedColumn ccc = component.get(0);
+        return ccc.referencedExtIds().contains(colToExtId(ccc.column()));
+    }
 
-        Set<ReportGridCell> errorResults = remaining
-                .stream()
-                .map(ccc -> tuple(
-                        ccc.column(),
-                        lastErrors.get(ccc.column())))
-                .filter(d -> notEmpty(d.v2))
-                .map(t -> ImmutableReportGridCell
-                        .builder()
-                        .subjectId(subject.entityReference().id())
-                        .errorValue(t.v2)
-                        .options(asSet(mkCellOption("EXECUTION_ERROR", "Execution Error")))
-                        .columnDefinitionId(t.v1.gridColumnId())
-                        .build())
-                .collect(toSet());
 
-        return union(results.values(), errorResults);
+    private static ReportGridCell mkErrorCell(ReportSubject subject,
+                                              ReportGridDerivedColumnDefinition column,
+                                              String message,
+                                              CellOption option) {
+        return ImmutableReportGridCell
+                .builder()
+                .subjectId(subject.entityReference().id())
+                .errorValue(message)
+                .options(asSet(option))
+                .columnDefinitionId(column.gridColumnId())
+                .build();
     }
 
+
     private static String toMessage(Exception e) {
         if (e.getCause() != null) {
             return e.getCause().getMessage();
@@ -194,16 +211,16 @@ public class ReportGridColumnCalculator {
     private static Map<String, Object> initialiseContext(List<ReportGridFixedColumnDefinition> columnDefinitions,
                                                          Map<Long, RatingSchemeItem> ratingSchemeItemsById,
                                                          ReportSubject subject,
-                                                         Collection<ReportGridCell> row) {
+                                                         ReportGridCellStore cellStore) {
 
-        Map<Long, ReportGridCell> cellsInRowByColId = indexBy(row, ReportGridCell::columnDefinitionId);
+        long subjectId = subject.entityReference().id();
 
         Map<String, Object> ctx = indexBy(
                 columnDefinitions,
                 ReportGridColumnCalculator::colToExtId,
                 col -> mkVal(
                         ratingSchemeItemsById,
-                        cellsInRowByColId.get(col.gridColumnId())));
+                        findCell(cellStore, subjectId, col.gridColumnId())));
 
         ctx.put("subjectId", subject.entityReference().id());
         ctx.put("subjectName", subject.entityReference().name().orElse(null));
@@ -216,7 +233,8 @@ public class ReportGridColumnCalculator {
 
 
     private static ReportGridCell evaluateCalcCol(CompiledCalculatedColumn compiledCalculatedColumn,
-                                                  ReportSubject subject) {
+                                                  ReportSubject subject,
+                                                  RowContext rowContext) {
 
         ReportGridDerivedColumnDefinition cd = compiledCalculatedColumn.column();
 
@@ -232,14 +250,7 @@ public class ReportGridColumnCalculator {
                                 .build(),
                         expr -> {
 
-                            MapContext mapContext = new MapContext(newHashMap(
-                                    "subjectId", subject.entityReference().id(),
-                                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
-                                    "subjectName", subject.entityReference().name().orElse(""),
-                                    "subjectLifecyclePhase", subject.lifecyclePhase().name(),
-                                    "today", DateTimeUtilities.today()));
-
-                            Object result = expr.execute(mapContext);
+                            Object result = expr.execute(rowContext);
 
                             if (result == null) {
                                 return null;
@@ -287,6 +298,17 @@ public class ReportGridColumnCalculator {
     }
 
 
+    private static ReportGridCell findCell(ReportGridCellStore cellStore, long subjectId, Long columnId) {
+        if (columnId == null) {
+            return null;
+        }
+        int pos = cellStore.findCell(subjectId, columnId);
+        return pos < 0
+                ? null
+                : cellStore.toCell(pos);
+    }
+
+
     private static CellVariable mkVal(Map<Long, RatingSchemeItem> ratingSchemeItemsById, ReportGridCell cell) {
 
         if (cell == null ) {
@@ -299,4 +321,93 @@ public class ReportGridColumnCalculator {
                 .build();
     }
 
+
+
+    /**
+     * Variables available to a derived column script for a single row.  The
+     * (unprefixed) function namespace resolves to the row's own evaluator namespace.
+     */
+    private static class RowContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final ReportGridEvaluatorNamespace ns;
+
+        RowContext(ReportGridEvaluatorNamespace ns, ReportSubject subject) {
+            super(newHashMap(
+                    "subjectId", subject.entityReference().id(),
+                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
+                    "subjectName", subject.entityReference().name().orElse(""),
+                    "subjectLifecyclePhase", subject.lifecyclePhase().name(),
+                    "today", DateTimeUtilities.today()));
+            this.ns = ns;
+        }
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? ns
+                    : null;
+        }
+    }
+
+
+    /**
+     * Tarjan's strongly connected components algorithm.  Components are emitted
+     * dependencies first, which gives us our evaluation order for free.
+     */
+    private static class DependencyOrderer {
+
+        private final List<CompiledCalculatedColumn> columns;
+        private final Map<CompiledCalculatedColumn, List<CompiledCalculatedColumn>> dependencies;
+
+        private final Map<CompiledCalculatedColumn, Integer> indexes = new HashMap<>();
+        private final Map<CompiledCalculatedColumn, Integer> lowLinks = new HashMap<>();
+        private final Deque<CompiledCalculatedColumn> stack = new ArrayDeque<>();
+        private final Set<CompiledCalculatedColumn> onStack = new HashSet<>();
+        private final List<List<CompiledCalculatedColumn>> components = new ArrayList<>();
+        private int counter = 0;
+
+        DependencyOrderer(List<CompiledCalculatedColumn> columns,
+                          Map<CompiledCalculatedColumn, List<CompiledCalculatedColumn>> dependencies) {
+            this.columns = columns;
+            this.dependencies = dependencies;
+        }
+
+        List<List<CompiledCalculatedColumn>> order() {
+            columns.forEach(c -> {
+                if (! indexes.containsKey(c)) {
+                    visit(c);
+                }
+            });
+            return components;
+        }
+
+        private void visit(CompiledCalculatedColumn c) {
+            indexes.put(c, counter);
+            lowLinks.put(c, counter);
+            counter++;
+            stack.push(c);
+            onStack.add(c);
+
+            for (CompiledCalculatedColumn dep : dependencies.getOrDefault(c, emptyList())) {
+                if (! indexes.containsKey(dep)) {
+                    visit(dep);
+                    lowLinks.put(c, Math.min(lowLinks.get(c), lowLinks.get(dep)));
+                } else if (onStack.contains(dep)) {
+                    lowLinks.put(c, Math.min(lowLinks.get(c), indexes.get(dep)));
+                }
+            }
+
+            if (lowLinks.get(c).equals(indexes.get(c))) {
+                List<CompiledCalculatedColumn> component = new ArrayList<>();
+                CompiledCalculatedColumn member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (member != c);
+                components.add(component);
+            }
+        }
+    }
+
 }
@@ -31,7 +31,7 @@ import org.finos.waltz.model.report_grid.CellOption;
 import org.finos.waltz.model.report_grid.FilterOperator;
 import org.finos.waltz.model.report_grid.GridFilter;
 import org.finos.waltz.model.report_grid.ImmutableReportGridFilterInfo;
-import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridCellStore;
 import org.finos.waltz.model.report_grid.ReportGridDefinition;
 import org.finos.waltz.model.report_grid.ReportGridFilterInfo;
 import org.finos.waltz.model.report_grid.ReportGridInstance;
@@ -46,21 +46,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
-import static java.util.Collections.emptySet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.first;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.CollectionUtilities.notEmpty;
 import static org.finos.waltz.common.ListUtilities.map;
-import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.intersection;
@@ -181,14 +179,14 @@ public class ReportGridFilterViewService {
                     "filter-note-user"))
                 .map(grid -> {
                     ReportGridInstance instance = grid.instance();
-                    Set<ReportGridCell> cellData = instance.cellData();
+                    ReportGridCellStore cellStore = instance.cellStore();
 
                     Set<EntityReference> subjectRefs = SetUtilities.map(
                             instance.subjects(),
                             ReportSubject::entityReference);
 
                     Set<EntityReference> subjectsPassingFilters = applyFilters(
-                            cellData,
+                            cellStore,
                             reportGridFilterInfo.gridFilters(),
                             subjectRefs,
                             instance.ratingSchemeItems());
@@ -202,7 +200,7 @@ public class ReportGridFilterViewService {
     }
 
 
-    private Set<EntityReference> applyFilters(Set<ReportGridCell> cellData,
+    private Set<EntityReference> applyFilters(ReportGridCellStore cellStore,
                                               Set<GridFilter> gridFilters,
                                               Set<EntityReference> subjectRefs,
                                               Set<RatingSchemeItem> ratingSchemeItems) {
@@ -214,17 +212,16 @@ public class ReportGridFilterViewService {
             Map<Long, RatingSchemeItem> ratingSchemeItemById = IdUtilities.indexById(ratingSchemeItems);
             Map<Long, EntityReference> subjectsById = EntityReferenceUtilities.indexById(subjectRefs);
 
-            Map<Long, Collection<ReportGridCell>> dataByCol = groupBy(cellData, ReportGridCell::columnDefinitionId);
 
             Set<Set<Long>> appIdsPassingFilters = gridFilters
                     .stream()
                     .map(filter -> {
-                        Collection<ReportGridCell> cellDataForColumn = dataByCol.getOrDefault(filter.columnDefinitionId(), emptySet());
+                        int[] cellsForColumn = cellStore.cellsForColumn(filter.columnDefinitionId()).toArray();
 
                         if (filter.filterOperator().equals(FilterOperator.CONTAINS_ANY_OPTION)) {
-                            return determineAppsPassingContainsOperatorFilter(subjectsById.keySet(), ratingSchemeItemById, filter, cellDataForColumn);
+                            return determineAppsPassingContainsOperatorFilter(subjectsById.keySet(), ratingSchemeItemById, filter, cellStore, cellsForColumn);
                         } else if (filter.filterOperator().equals(FilterOperator.CONTAINS_ANY_STRING)) {
-                            return determineAppsPassingContainsStringFilter(filter, cellDataForColumn);
+                            return determineAppsPassingContainsStringFilter(filter, cellStore, cellsForColumn);
                         } else {
                             return subjectsById.keySet(); // return all apps if filter operator not supported to support intersection
                         }
@@ -242,11 +239,15 @@ public class ReportGridFilterViewService {
 
 
     private Set<Long> determineAppsPassingContainsStringFilter(GridFilter filter,
-                                                               Collection<ReportGridCell> cellDataForColumn) {
-        return cellDataForColumn
-                .stream()
-                .filter(c -> notEmpty(c.textValue()) && containsAny(filter.filterValues(), c.textValue()))
-                .map(ReportGridCell::subjectId)
+                                                               ReportGridCellStore cellStore,
+                                                               int[] cellsForColumn) {
+        return IntStream
+                .of(cellsForColumn)
+                .filter(pos -> {
+                    String textValue = cellStore.textValue(pos);
+                    return notEmpty(textValue) && containsAny(filter.filterValues(), textValue);
+                })
+                .mapToObj(cellStore::subjectId)
                 .collect(Collectors.toSet());
     }
 
@@ -264,31 +265,35 @@ public class ReportGridFilterViewService {
     private Set<Long> determineAppsPassingContainsOperatorFilter(Set<Long> subjectIds,
                                                                  Map<Long, RatingSchemeItem> ratingSchemeItemByIdMap,
                                                                  GridFilter filter,
-                                                                 Collection<ReportGridCell> cellDataForColumn) {
-        Set<Long> appsPassingFilter = cellDataForColumn
-                .stream()
-                .filter(c -> {
+                                                                 ReportGridCellStore cellStore,
+                                                                 int[] cellsForColumn) {
+        Set<Long> appsPassingFilter = IntStream
+                .of(cellsForColumn)
+                .filter(pos -> {
                     // rating cells may want to look up on rating id / code / external id
-                    if (!isEmpty(c.ratingIdValues())) {
+                    if (cellStore.hasRatings(pos)) {
                         Set<RatingSchemeItem> ratings = SetUtilities.map(
-                                c.ratingIdValues(),
+                                cellStore.ratingIdValues(pos),
                                 ratingSchemeItemByIdMap::get);
                         Set<String> ratingIdentifiers = union(
-                                map(c.options(), CellOption::code),
+                                map(cellStore.options(pos), CellOption::code),
                                 map(ratings, rating -> String.valueOf(rating.rating())),
                                 map(ratings, NameProvider::name),
                                 map(ratings, rating -> rating.externalId().orElse(null)));
                         return notEmpty(intersection(filter.filterValues(), ratingIdentifiers));
                     } else {
-                        Set<String> optionCodes = SetUtilities.map(c.options(), CellOption::code);
+                        Set<String> optionCodes = SetUtilities.map(cellStore.options(pos), CellOption::code);
                         return notEmpty(intersection(filter.filterValues(), optionCodes));
                     }
                 })
-                .map(ReportGridCell::subjectId)
+                .mapToObj(cellStore::subjectId)
                 .collect(Collectors.toSet());
 
         if (filter.filterValues().contains(NOT_PROVIDED_OPTION_CODE)) {
-            Set<Long> subjectIdsWithValues = SetUtilities.map(cellDataForColumn, ReportGridCell::subjectId);
+            Set<Long> subjectIdsWithValues = IntStream
+                    .of(cellsForColumn)
+                    .mapToObj(cellStore::subjectId)
+                    .collect(Collectors.toSet());
             Set<Long> subjectIdsWithoutValue = minus(subjectIds, subjectIdsWithValues);
 
             return union(appsPassingFilter, subjectIdsWithoutValue);
@@ -0,0 +1,151 @@
+package org.finos.waltz.service.report_grid;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the column external ids a derived column script refers to.
+ *
+ * Only string literals passed as cell-id arguments to the evaluator namespace
+ * functions (e.g. <code>cell('COST')</code> or <code>anyCellsProvided('A', 'B')</code>)
+ * are treated as references.  Any other literal, such as a value the script
+ * outputs or compares against, is ignored even if it matches a column ext id.
+ */
+class ReportGridScriptReferences {
+
+    private static final int ALL_ARGS = Integer.MAX_VALUE;
+
+    // function name -> number of leading arguments which are cell ext ids
+    private static final Map<String, Integer> CELL_ARG_COUNTS_BY_FUNCTION = new HashMap<>();
+
+    static {
+        CELL_ARG_COUNTS_BY_FUNCTION.put("cell", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("coalesceCells", ALL_ARGS);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("anyCellsProvided", ALL_ARGS);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("allCellsProvided", ALL_ARGS);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("ratioProvided", ALL_ARGS);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("percentageProvided", ALL_ARGS);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("isAfterToday", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("isBeforeToday", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("after", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("before", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("compareDateCells", 2);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("compareToToday", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("compareToDate", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("dateCompare", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("isBetweenDates", 1);
+        CELL_ARG_COUNTS_BY_FUNCTION.put("betweenDates", 1);
+    }
+
+
+    private ReportGridScriptReferences() {
+    }
+
+
+    /**
+     * @param script  a derived column script, may be null
+     * @return  the cell ext ids referenced by the script, in order of first appearance
+     */
+    static Set<String> findReferencedExtIds(String script) {
+        Set<String> referenced = new LinkedHashSet<>();
+        if (script == null) {
+            return referenced;
+        }
+
+        Deque<Call> calls = new ArrayDeque<>();
+        Integer pendingCellArgs = null;
+        int depth = 0;
+        int pos = 0;
+        int len = script.length();
+
+        while (pos < len) {
+            char c = script.charAt(pos);
+
+            if (c == '\'' || c == '"') {
+                int end = findEndOfLiteral(script, pos);
+                Call call = calls.peek();
+                if (call != null && call.depth == depth && call.argIdx < call.cellArgs) {
+                    referenced.add(unescape(script.substring(pos + 1, Math.min(end, len))));
+                }
+                pendingCellArgs = null;
+                pos = end + 1;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = pos + 1;
+                while (end < len && Character.isJavaIdentifierPart(script.charAt(end))) {
+                    end++;
+                }
+                pendingCellArgs = CELL_ARG_COUNTS_BY_FUNCTION.get(script.substring(pos, end));
+                pos = end;
+            } else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+                if (c == '(' && pendingCellArgs != null) {
+                    calls.push(new Call(depth, pendingCellArgs));
+                }
+                pendingCellArgs = null;
+                pos++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                Call call = calls.peek();
+                if (call != null && call.depth == depth) {
+                    calls.pop();
+                }
+                depth--;
+                pendingCellArgs = null;
+                pos++;
+            } else if (c == ',') {
+                Call call = calls.peek();
+                if (call != null && call.depth == depth) {
+                    call.argIdx++;
+                }
+                pendingCellArgs = null;
+                pos++;
+            } else {
+                if (! Character.isWhitespace(c)) {
+                    pendingCellArgs = null;
+                }
+                pos++;
+            }
+        }
+
+        return referenced;
+    }
+
+
+    private static int findEndOfLiteral(String script, int start) {
+        char quote = script.charAt(start);
+        int pos = start + 1;
+        while (pos < script.length()) {
+            char c = script.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == quote) {
+                return pos;
+            } else {
+                pos++;
+            }
+        }
+        return script.length();
+    }
+
+
+    private static String unescape(String literal) {
+        return literal.indexOf('\\') < 0
+                ? literal
+                : literal.replaceAll("\\\\(.)", "$1");
+    }
+
+
+    private static class Call {
+        private final int depth;
+        private final int cellArgs;
+        private int argIdx = 0;
+
+        Call(int depth, int cellArgs) {
+            this.depth = depth;
+            this.cellArgs = cellArgs;
+        }
+    }
+}
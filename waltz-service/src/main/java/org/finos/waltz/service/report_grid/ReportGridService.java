@@ -18,7 +18,6 @@
 
 package org.finos.waltz.service.report_grid;
 
-import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.common.exception.NotFoundException;
 import org.finos.waltz.data.GenericSelector;
@@ -139,7 +138,7 @@ public class ReportGridService {
                     .definition(definition)
                     .instance(ImmutableReportGridInstance
                             .copyOf(instance)
-                            .withCellData(SetUtilities.union(instance.cellData(), calculatedCells)))
+                            .withCellStore(instance.cellStore().withCells(calculatedCells)))
                     .members(members)
                     .userRole(userRole)
                     .build());
@@ -167,7 +166,7 @@ public class ReportGridService {
         return ImmutableReportGridInstance
                 .builder()
                 .subjects(subjects)
-                .cellData(cellData)
+                .cellStore(ReportGridCellStore.of(cellData))
                 .ratingSchemeItems(ratingSchemeItems)
                 .build();
     }
@@ -0,0 +1,337 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkFalse;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * A set of jobs and the dependencies between them.
+ *
+ * When executed each job is considered once all of its dependencies
+ * have finished (or been skipped).  Jobs whose dependencies have
+ * all finished are started immediately, so independent jobs run
+ * concurrently (bounded by the size of the supplied executor) and
+ * a job does not wait for unrelated jobs to complete.
+ *
+ * If a job fails then any jobs which depend on it (directly or
+ * transitively) are skipped for this execution.
+ */
+public class ScheduledJobGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobGraph.class);
+
+
+    /**
+     * Callbacks used by the graph to decide whether a job should be run
+     * and to report the outcome of each job which is run.
+     */
+    public interface JobLifecycle {
+
+        /**
+         * @return true if the job should run, the lifecycle should mark
+         * the job as running before returning true
+         */
+        boolean tryStart(JobKey jobKey, Set<JobKey> dependencies);
+
+        void onCompleted(JobKey jobKey, long startedAtMillis, long durationMillis);
+
+        void onErrored(JobKey jobKey, long startedAtMillis, long durationMillis, Exception e);
+    }
+
+
+    private final Map<JobKey, Runnable> tasks = new LinkedHashMap<>();
+    private final Map<JobKey, Set<JobKey>> dependencies = new EnumMap<>(JobKey.class);
+
+
+    /**
+     * Adds a job to the graph.  Dependencies must already have been added,
+     * which guarantees the graph is acyclic.
+     */
+    public ScheduledJobGraph add(JobKey jobKey,
+                                 Runnable task,
+                                 JobKey... dependsOn) {
+        checkNotNull(jobKey, "jobKey cannot be null");
+        checkNotNull(task, "task cannot be null");
+        checkFalse(tasks.containsKey(jobKey), format("Job %s has already been added", jobKey));
+
+        Set<JobKey> deps = EnumSet.noneOf(JobKey.class);
+        for (JobKey dep : dependsOn) {
+            checkTrue(
+                    tasks.containsKey(dep),
+                    format("Job %s depends on %s which has not been added", jobKey, dep));
+            deps.add(dep);
+        }
+
+        tasks.put(jobKey, task);
+        dependencies.put(jobKey, deps);
+        return this;
+    }
+
+
+    public Set<JobKey> getDependencies(JobKey jobKey) {
+        return dependencies.getOrDefault(jobKey, EnumSet.noneOf(JobKey.class));
+    }
+
+
+    public Collection<JobKey> getJobKeys() {
+        return tasks.keySet();
+    }
+
+
+    /**
+     * Executes the graph, blocking until all started jobs have finished.
+     *
+     * Failures in the lifecycle callbacks are logged and do not stop the execution.
+     * If the execution is aborted (e.g. interrupted) an outcome is still recorded for
+     * every job which was started, waiting for them to finish unless interrupted, in
+     * which case they are cancelled and recorded as errored.
+     *
+     * @param executor  executor used to run the jobs, its size bounds the number of concurrent jobs
+     * @param lifecycle  determines which jobs run and records their outcomes
+     * @return the set of jobs which ran successfully
+     */
+    public Set<JobKey> execute(ExecutorService executor,
+                               JobLifecycle lifecycle) throws InterruptedException {
+        CompletionService<Outcome> completionService = new ExecutorCompletionService<>(executor);
+
+        Set<JobKey> pending = EnumSet.noneOf(JobKey.class);
+        pending.addAll(tasks.keySet());
+        Set<JobKey> unfinished = EnumSet.copyOf(pending);
+        Set<JobKey> failed = EnumSet.noneOf(JobKey.class);
+        Set<JobKey> completed = EnumSet.noneOf(JobKey.class);
+        Map<Future<Outcome>, InFlightJob> inFlight = new HashMap<>();
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                startReadyJobs(pending, unfinished, failed, inFlight, completionService, lifecycle);
+
+                if (inFlight.isEmpty()) {
+                    return completed;
+                }
+
+                Future<Outcome> future = completionService.take();
+                Outcome outcome = toOutcome(inFlight.remove(future), future);
+                unfinished.remove(outcome.jobKey);
+                recordOutcome(outcome, completed, failed, lifecycle);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            if (! inFlight.isEmpty()) {
+                finishAbandonedJobs(inFlight, interrupted, completed, failed, lifecycle);
+            }
+        }
+    }
+
+
+    // -- helpers ----
+
+    private void startReadyJobs(Set<JobKey> pending,
+                                Set<JobKey> unfinished,
+                                Set<JobKey> failed,
+                                Map<Future<Outcome>, InFlightJob> inFlight,
+                                CompletionService<Outcome> completionService,
+                                JobLifecycle lifecycle) {
+        boolean progressed = true;
+
+        // loop as skipping a job may make its dependents ready
+        while (progressed) {
+            progressed = false;
+            for (JobKey jobKey : tasks.keySet()) {
+                Set<JobKey> deps = dependencies.get(jobKey);
+                if (! pending.contains(jobKey) || deps.stream().anyMatch(unfinished::contains)) {
+                    continue;
+                }
+
+                pending.remove(jobKey);
+                progressed = true;
+
+                if (deps.stream().anyMatch(failed::contains)) {
+                    LOG.warn("Skipping job {} as one of its dependencies failed", jobKey);
+                    failed.add(jobKey);
+                    unfinished.remove(jobKey);
+                    continue;
+                }
+
+                boolean started;
+                try {
+                    started = lifecycle.tryStart(jobKey, deps);
+                } catch (Exception e) {
+                    LOG.error("Could not start job {}, its dependents will be skipped", jobKey, e);
+                    failed.add(jobKey);
+                    unfinished.remove(jobKey);
+                    continue;
+                }
+
+                if (started) {
+                    Runnable task = tasks.get(jobKey);
+                    inFlight.put(
+                            completionService.submit(() -> run(jobKey, task)),
+                            new InFlightJob(jobKey, System.currentTimeMillis()));
+                } else {
+                    unfinished.remove(jobKey);
+                }
+            }
+        }
+    }
+
+
+    private static Outcome run(JobKey jobKey, Runnable task) {
+        long start = System.currentTimeMillis();
+        try {
+            LOG.info("Starting job: {}", jobKey);
+            task.run();
+            long duration = System.currentTimeMillis() - start;
+            LOG.info("Completed job: {} in {}ms", jobKey, duration);
+            return new Outcome(jobKey, start, duration, null);
+        } catch (Exception e) {
+            return new Outcome(jobKey, start, System.currentTimeMillis() - start, e);
+        } catch (Error e) {
+            LOG.error("Job {} failed with an error", jobKey, e);
+            return new Outcome(
+                    jobKey,
+                    start,
+                    System.currentTimeMillis() - start,
+                    new IllegalStateException(format("Job %s failed with an error", jobKey), e));
+        }
+    }
+
+
+    /**
+     * Converts a finished future into an outcome.  As {@link #run(JobKey, Runnable)} catches
+     * all failures only cancellation (or an unexpected executor failure) is reported here.
+     */
+    private static Outcome toOutcome(InFlightJob job, Future<Outcome> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException | CancellationException e) {
+            return new Outcome(
+                    job.jobKey,
+                    job.submittedAtMillis,
+                    System.currentTimeMillis() - job.submittedAtMillis,
+                    new IllegalStateException(format("Job %s did not run to completion", job.jobKey), e));
+        }
+    }
+
+
+    private static void recordOutcome(Outcome outcome,
+                                      Set<JobKey> completed,
+                                      Set<JobKey> failed,
+                                      JobLifecycle lifecycle) {
+        try {
+            if (outcome.error == null) {
+                completed.add(outcome.jobKey);
+                lifecycle.onCompleted(outcome.jobKey, outcome.startedAtMillis, outcome.durationMillis);
+            } else {
+                failed.add(outcome.jobKey);
+                lifecycle.onErrored(outcome.jobKey, outcome.startedAtMillis, outcome.durationMillis, outcome.error);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not record outcome of job {}", outcome.jobKey, e);
+        }
+    }
+
+
+    /**
+     * Records an outcome for each job still running when the execution was aborted.  Unless
+     * the execution was interrupted we wait for them to finish, otherwise they are cancelled.
+     */
+    private static void finishAbandonedJobs(Map<Future<Outcome>, InFlightJob> inFlight,
+                                            boolean interrupted,
+                                            Set<JobKey> completed,
+                                            Set<JobKey> failed,
+                                            JobLifecycle lifecycle) {
+        LOG.warn("Job graph execution aborted with {} job(s) still running", inFlight.size());
+        boolean cancel = interrupted;
+
+        for (Map.Entry<Future<Outcome>, InFlightJob> entry : inFlight.entrySet()) {
+            Future<Outcome> future = entry.getKey();
+            InFlightJob job = entry.getValue();
+            if (cancel) {
+                future.cancel(true);
+            }
+            Outcome outcome;
+            try {
+                outcome = toOutcome(job, future);
+            } catch (InterruptedException e) {
+                cancel = true;
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                outcome = new Outcome(
+                        job.jobKey,
+                        job.submittedAtMillis,
+                        System.currentTimeMillis() - job.submittedAtMillis,
+                        new IllegalStateException(format("Job %s was cancelled", job.jobKey), e));
+            }
+            recordOutcome(outcome, completed, failed, lifecycle);
+        }
+
+        inFlight.clear();
+    }
+
+
+    private static class InFlightJob {
+        private final JobKey jobKey;
+        private final long submittedAtMillis;
+
+        private InFlightJob(JobKey jobKey, long submittedAtMillis) {
+            this.jobKey = jobKey;
+            this.submittedAtMillis = submittedAtMillis;
+        }
+    }
+
+
+    private static class Outcome {
+        private final JobKey jobKey;
+        private final long startedAtMillis;
+        private final long durationMillis;
+        private final Exception error;
+
+        private Outcome(JobKey jobKey, long startedAtMillis, long durationMillis, Exception error) {
+            this.jobKey = jobKey;
+            this.startedAtMillis = startedAtMillis;
+            this.durationMillis = durationMillis;
+            this.error = error;
+        }
+    }
+
+}
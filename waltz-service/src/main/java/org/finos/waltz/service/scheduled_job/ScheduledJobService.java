@@ -41,12 +41,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.sql.Timestamp;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.SetUtilities.asSet;
 
 @ExcludeFromIntegrationTesting
 @Service
@@ -54,6 +54,8 @@ public class ScheduledJobService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
+    private static final int MAX_CONCURRENT_JOBS = 4;
+
     private final DataTypeUsageService dataTypeUsageService;
     private final EntityHierarchyService entityHierarchyService;
     private final FlowClassificationRuleService flowClassificationRuleService;
@@ -68,6 +70,16 @@ public class ScheduledJobService {
     private final SurveyInstanceActionQueueService surveyInstanceActionQueueService;
     private final ComplexityService complexityService;
 
+    private final ScheduledJobGraph jobGraph;
+    private final ScheduledJobGraph.JobLifecycle jobLifecycle = new DatabaseJobLifecycle();
+    private final ExecutorService jobExecutor = Executors.newFixedThreadPool(
+            MAX_CONCURRENT_JOBS,
+            (runnable) -> {
+                Thread t = new Thread(runnable, "Waltz Scheduled Job");
+                t.setDaemon(true);
+                return t;
+            });
+
 
     @Autowired
     public ScheduledJobService(AttestationRunService attestationRunService,
@@ -108,85 +120,131 @@ public class ScheduledJobService {
         this.scheduledJobDao = scheduledJobDao;
         this.surveyInstanceActionQueueService = surveyInstanceActionQueueService;
         this.surveyInstanceService = surveyInstanceService;
+
+        this.jobGraph = mkJobGraph();
     }
 
 
     @Scheduled(fixedRate = 300_000)
     public void run() {
         Thread.currentThread().setName("WaltzScheduledJobService");
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
-
-        runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
-                (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows(),
-                asSet(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION));
-
-        runIfNeeded(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
-                (jk) -> dataTypeUsageService.recalculateForAllApplications(),
-                asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL));
-
-        runIfNeeded(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
-                (jk) -> flowClassificationRuleService.fastRecalculateAllFlowRatings());
+        try {
+            jobGraph.execute(jobExecutor, jobLifecycle);
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted whilst waiting for scheduled jobs to complete");
+            Thread.currentThread().interrupt();
+            return;
+        }
 
-        runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
-                (jk) -> logicalFlowService.cleanupOrphans());
+        surveyInstanceActionQueueService.performActions();
+    }
 
-        runIfNeeded(JobKey.ATTESTATION_ISSUE_INSTANCES,
-                (jk) -> attestationRunService.issueInstancesForPendingRuns());
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
-                (jk) -> surveyInstanceService.reassignRecipients());
+    /**
+     * Declares the scheduled jobs and the jobs whose output they rely upon.
+     * Jobs are only started once their dependencies have finished and
+     * will not start whilst a dependency is running elsewhere.
+     */
+    private ScheduledJobGraph mkJobGraph() {
+        return new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
+                        () -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE))
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        () -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE))
+                .add(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
+                        () -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC))
+                .add(JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                        () -> entityHierarchyService.buildFor(EntityKind.MEASURABLE))
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        () -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT))
+                .add(JobKey.HIERARCHY_REBUILD_PERSON,
+                        () -> entityHierarchyService.buildFor(EntityKind.PERSON))
+                .add(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                        logicalFlowService::cleanupOrphans)
+                .add(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                        physicalSpecDataTypeService::rippleDataTypesToLogicalFlows,
+                        JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS)
+                .add(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                        dataTypeUsageService::recalculateForAllApplications,
+                        JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                        flowClassificationRuleService::fastRecalculateAllFlowRatings,
+                        JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)
+                .add(JobKey.ATTESTATION_ISSUE_INSTANCES,
+                        attestationRunService::issueInstancesForPendingRuns,
+                        JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                        JobKey.HIERARCHY_REBUILD_PERSON)
+                .add(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
+                        surveyInstanceService::reassignRecipients,
+                        JobKey.HIERARCHY_REBUILD_PERSON)
+                .add(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                        surveyInstanceService::reassignOwners,
+                        JobKey.HIERARCHY_REBUILD_PERSON)
+                .add(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
+                        reportGridFilterViewService::generateAppGroupsFromFilter,
+                        JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                        JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.HIERARCHY_REBUILD_PERSON)
+                .add(JobKey.ALLOCATED_COSTS_POPULATOR,
+                        costService::populateAllocatedCosts,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE)
+                .add(JobKey.COMPLEXITY_REBUILD_MEASURABLE,
+                        complexityService::populateMeasurableComplexities,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE);
+    }
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
-                (jk) -> surveyInstanceService.reassignOwners());
 
-        runIfNeeded(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
-                (jk) -> reportGridFilterViewService.generateAppGroupsFromFilter());
+    private class DatabaseJobLifecycle implements ScheduledJobGraph.JobLifecycle {
 
-        runIfNeeded(JobKey.ALLOCATED_COSTS_POPULATOR,
-                (jk) -> costService.populateAllocatedCosts());
+        @Override
+        public boolean tryStart(JobKey jobKey, Set<JobKey> dependencies) {
+            try {
+                return scheduledJobDao.isJobRunnable(jobKey)
+                        && !scheduledJobDao.anyJobsRunning(dependencies)
+                        && scheduledJobDao.markJobAsRunning(jobKey);
+            } catch (Exception e) {
+                LOG.error("Failed to determine if job is runnable: " + jobKey, e);
+                return false;
+            }
+        }
 
-        runIfNeeded(JobKey.COMPLEXITY_REBUILD_MEASURABLE,
-                (jk) -> complexityService.populateMeasurableComplexities());
 
-        surveyInstanceActionQueueService.performActions();
+        @Override
+        public void onCompleted(JobKey jobKey, long startedAtMillis, long durationMillis) {
+            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.COMPLETED);
+            recordJobRun(jobKey, JobLifecycleStatus.COMPLETED, startedAtMillis, durationMillis, null);
+        }
 
-    }
 
+        @Override
+        public void onErrored(JobKey jobKey, long startedAtMillis, long durationMillis, Exception e) {
+            LOG.error("Failed to run job: " + jobKey, e);
+            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
+            recordJobRun(jobKey, JobLifecycleStatus.ERRORED, startedAtMillis, durationMillis, e.getMessage());
+        }
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
-        runIfNeeded(jobKey, jobExecutor, Collections.emptySet());
-    }
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor, Set<JobKey> deadlockJobKeys) {
-        try {
-            if (scheduledJobDao.isJobRunnable(jobKey)
-                    && !scheduledJobDao.anyJobsRunning(deadlockJobKeys)
-                    && scheduledJobDao.markJobAsRunning(jobKey)) {
-                jobExecutor
-                        .andThen((jk) -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.COMPLETED))
-                        .accept(jobKey);
+        private void recordJobRun(JobKey jobKey,
+                                  JobLifecycleStatus status,
+                                  long startedAtMillis,
+                                  long durationMillis,
+                                  String message) {
+            try {
+                scheduledJobDao.recordJobRun(jobKey, status, new Timestamp(startedAtMillis), durationMillis, message);
+            } catch (Exception e) {
+                LOG.warn("Failed to record run of job: {}, {}", jobKey, e.getMessage());
             }
-        } catch (Exception e) {
-            LOG.error("Failed to run job: " + jobKey, e);
-            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
         }
     }
 
-
 }
@@ -20,22 +20,38 @@ package org.finos.waltz.service.settings;
 
 import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.MapUtilities;
+import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.data.settings.SettingsDao;
 import org.finos.waltz.model.settings.Setting;
 import org.finos.waltz.model.settings.UpdateSettingsCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.ensureNotNull;
 
 
 @Service
 public class SettingsService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SettingsService.class);
+
+    private static final long REFRESH_INTERVAL_MILLIS = 60_000;
+
     private final SettingsDao settingsDao;
 
     public static final String DEFAULT_ROLES_KEY = "server.authentication.roles.default";
@@ -43,16 +59,27 @@ public class SettingsService {
 
     private final Map<String, Setting> overridesByName;
 
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // settings table contents (without overrides) indexed by name, loaded on first use
+    private volatile Map<String, Setting> snapshot = null;
+
 
     /**
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
      * collection of overrides may be given, useful when debugging a shared database instance and
-     * you do not wish to change the values in the settings table
+     * you do not wish to change the values in the settings table.
+     *
+     * Settings are served from an in-memory snapshot of the settings table.  The snapshot is
+     * reloaded after every update/create made via this service and periodically to pick up
+     * changes made by other nodes or directly in the database.
+     *
      * @param settingsDao
      * @param overrides
      */
     @Autowired
     public SettingsService(SettingsDao settingsDao, Collection<Setting> overrides) {
+        checkNotNull(settingsDao, "settingsDao cannot be null");
         this.settingsDao = settingsDao;
         this.overridesByName = MapUtilities.indexBy(s -> s.name(), ensureNotNull(overrides));
     }
@@ -60,7 +87,7 @@ public class SettingsService {
 
     public Collection<Setting> findAll() {
         return CollectionUtilities.map(
-                settingsDao.findAll(),
+                getSnapshot().values(),
                 s -> Optional
                         .ofNullable(overridesByName.get(s.name()))
                         .orElse(s));
@@ -70,7 +97,7 @@ public class SettingsService {
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElse(getSnapshot().get(name));
     }
 
     /**
@@ -86,16 +113,156 @@ public class SettingsService {
     }
 
 
+    /**
+     * Returns the values of all unrestricted settings whose name starts with the given prefix
+     * @param prefix  setting name prefix
+     * @return  map of setting name to (trimmed) value
+     */
     public Map<String, String> indexByPrefix(String prefix) {
-        return settingsDao.indexByPrefix(prefix);
+        return indexByPrefix(getSnapshot(), prefix);
+    }
+
+
+    /**
+     * Registers a listener which will be called with the result of `indexByPrefix(prefix)`
+     * whenever a setting starting with the prefix is added, removed or changed.  The
+     * listener is not called on registration, callers should use `indexByPrefix` to
+     * obtain the initial values.
+     *
+     * @param prefix  setting name prefix to watch
+     * @param listener  callback, invoked on the thread which detected the change
+     */
+    public void subscribe(String prefix, Consumer<Map<String, String>> listener) {
+        checkNotNull(prefix, "prefix cannot be null");
+        checkNotNull(listener, "listener cannot be null");
+        subscriptions.add(new Subscription(prefix, listener));
     }
 
 
     public int update(UpdateSettingsCommand cmd) {
-        return settingsDao.update(cmd);
+        int rc = settingsDao.update(cmd);
+        refresh();
+        return rc;
     }
 
+
     public Integer create(Setting setting) {
-        return settingsDao.create(setting);
+        int rc = settingsDao.create(setting);
+        refresh();
+        return rc;
+    }
+
+
+    @Scheduled(fixedDelay = REFRESH_INTERVAL_MILLIS, initialDelay = REFRESH_INTERVAL_MILLIS)
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            LOG.warn("Failed to refresh settings, will continue using previous values: {}", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Reloads the settings snapshot from the database, notifying any
+     * subscribers whose prefixes match settings which have changed.
+     */
+    public void refresh() {
+        Map<String, Setting> previous;
+        Map<String, Setting> latest;
+
+        synchronized (this) {
+            previous = snapshot;
+            latest = loadSnapshot();
+            snapshot = latest;
+        }
+
+        if (previous != null) {
+            notifySubscribers(previous, latest);
+        }
+    }
+
+
+    // -- helpers ----
+
+    private Map<String, Setting> getSnapshot() {
+        Map<String, Setting> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = loadSnapshot();
+            }
+            return snapshot;
+        }
+    }
+
+
+    private Map<String, Setting> loadSnapshot() {
+        return MapUtilities.indexBy(Setting::name, settingsDao.findAll());
+    }
+
+
+    private void notifySubscribers(Map<String, Setting> previous,
+                                   Map<String, Setting> latest) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        Set<String> changedNames = findChangedNames(previous, latest);
+        if (changedNames.isEmpty()) {
+            return;
+        }
+
+        for (Subscription subscription : subscriptions) {
+            boolean affected = changedNames
+                    .stream()
+                    .anyMatch(name -> name.startsWith(subscription.prefix));
+
+            if (affected) {
+                try {
+                    subscription.listener.accept(indexByPrefix(latest, subscription.prefix));
+                } catch (Exception e) {
+                    LOG.warn("Settings listener for prefix '{}' failed: {}", subscription.prefix, e.getMessage());
+                }
+            }
+        }
+    }
+
+
+    private static Set<String> findChangedNames(Map<String, Setting> previous,
+                                                Map<String, Setting> latest) {
+        Set<String> allNames = new HashSet<>(previous.keySet());
+        allNames.addAll(latest.keySet());
+
+        return allNames
+                .stream()
+                .filter(name -> ! Objects.equals(previous.get(name), latest.get(name)))
+                .collect(Collectors.toSet());
+    }
+
+
+    private static Map<String, String> indexByPrefix(Map<String, Setting> settingsByName,
+                                                     String prefix) {
+        return settingsByName
+                .values()
+                .stream()
+                .filter(s -> s.name().startsWith(prefix))
+                .filter(s -> ! s.restricted())
+                .collect(Collectors.toMap(
+                        Setting::name,
+                        s -> StringUtilities.mkSafe(s.value().orElse(null)).trim()));
+    }
+
+
+    private static class Subscription {
+        private final String prefix;
+        private final Consumer<Map<String, String>> listener;
+
+        private Subscription(String prefix, Consumer<Map<String, String>> listener) {
+            this.prefix = prefix;
+            this.listener = listener;
+        }
     }
 }
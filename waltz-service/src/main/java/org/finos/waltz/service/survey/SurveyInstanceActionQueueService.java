@@ -175,6 +175,8 @@ public class SurveyInstanceActionQueueService {
 
                     });
 
+                    // change logs were written in the transaction, names can only be invalidated once committed
+                    changeLogService.invalidateCachedName(mkRef(EntityKind.SURVEY_INSTANCE, action.surveyInstanceId()));
                 });
     }
 
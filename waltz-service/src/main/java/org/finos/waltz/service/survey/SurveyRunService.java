@@ -35,13 +35,19 @@ import org.finos.waltz.model.person.Person;
 import org.finos.waltz.model.survey.*;
 import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
+import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -56,11 +62,20 @@ import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.*;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
 import static org.finos.waltz.common.StringUtilities.capitalise;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Service
 public class SurveyRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SurveyRunService.class);
+
+    /**
+     * Number of instances, owners or recipients written per JDBC batch when issuing a run
+     */
+    private static final int ISSUANCE_BATCH_SIZE = 1000;
+
     private final ChangeLogService changeLogService;
     private final InvolvementDao involvementDao;
     private final PersonDao personDao;
@@ -71,6 +86,7 @@ public class SurveyRunService {
     private final SurveyTemplateDao surveyTemplateDao;
     private final SurveyQuestionResponseDao surveyQuestionResponseDao;
     private final InvolvementGroupService involvementGroupService;
+    private final DSLContext dsl;
 
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
     private final SurveyInstanceIdSelectorFactory surveyInstanceIdSelectorFactory = new SurveyInstanceIdSelectorFactory();
@@ -86,7 +102,8 @@ public class SurveyRunService {
                             SurveyRunDao surveyRunDao,
                             SurveyTemplateDao surveyTemplateDao,
                             SurveyQuestionResponseDao surveyQuestionResponseDao,
-                            InvolvementGroupService involvementGroupService) {
+                            InvolvementGroupService involvementGroupService,
+                            DSLContext dsl) {
 
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
@@ -98,6 +115,7 @@ public class SurveyRunService {
         checkNotNull(surveyTemplateDao, "surveyTemplateDao cannot be null");
         checkNotNull(surveyQuestionResponseDao, "surveyQuestionResponseDao cannot be null");
         checkNotNull(involvementGroupService, "involvementGroupService cannot be null");
+        checkNotNull(dsl, "dsl cannot be null");
 
         this.changeLogService = changeLogService;
         this.involvementDao = involvementDao;
@@ -109,6 +127,7 @@ public class SurveyRunService {
         this.surveyTemplateDao = surveyTemplateDao;
         this.surveyQuestionResponseDao = surveyQuestionResponseDao;
         this.involvementGroupService = involvementGroupService;
+        this.dsl = dsl;
     }
 
 
@@ -219,9 +238,9 @@ public class SurveyRunService {
         // delete question responses
         surveyQuestionResponseDao.deleteForSurveyRun(surveyRunId);
         // delete instance recipients
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
+        surveyInstanceRecipientDao.deleteForSurveyRun(Optional.empty(), surveyRunId);
         // delete instances
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
+        surveyInstanceDao.deleteForSurveyRun(Optional.empty(), surveyRunId);
         // delete run
         boolean deleteSuccessful = surveyRunDao.delete(surveyRunId) == 1;
 
@@ -442,68 +461,113 @@ public class SurveyRunService {
                         toList()
                 ));
 
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(command.surveyRunId());
-
-        // insert new instances and recipients
+        List<Tuple3<SurveyInstance, Set<Long>, Set<Long>>> issuances = new ArrayList<>();
         instancesAndRecipientsToSave.forEach(
                 (k,v) -> {
+                    Set<Long> ownerIds = union(
+                            asSet(surveyRun.ownerId()),
+                            SetUtilities.map(fromCollection(surveyOwnersByInstance.get(k)), o -> o.person().id().get()));
+
                     if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
                         // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                        Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                        fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
+                        issuances.add(tuple(k, ownerIds, SetUtilities.map(v, r -> r.person().id().get())));
                     } else {
                         // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                            Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                            fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
+                        v.forEach(r -> issuances.add(tuple(k, ownerIds, asSet(r.person().id().get()))));
                     }
                 }
         );
 
-        return true;
-    }
-
-
-    private void deleteSurveyInstancesAndRecipients(long surveyRunId) {
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
-    }
-
+        dsl.transaction(ctx -> {
+            DSLContext tx = ctx.dsl();
+
+            // delete existing instances and recipients
+            surveyInstanceRecipientDao.deleteForSurveyRun(Optional.of(tx), command.surveyRunId());
+            surveyInstanceDao.deleteForSurveyRun(Optional.of(tx), command.surveyRunId());
+
+            // insert new instances and recipients
+            issueInBatches(
+                    command.surveyRunId(),
+                    "instances",
+                    map(issuances, t -> mkInstanceCreateCommand(t.v1)),
+                    batch -> surveyInstanceDao.createAll(tx, batch));
+
+            // instances for the same entity are identical until their owners and recipients are attached,
+            // so the generated ids can be allocated to the issuances in any order
+            Map<EntityReference, Iterator<Long>> idIteratorsByEntity = surveyInstanceDao
+                    .findIdsByEntityForSurveyRun(tx, command.surveyRunId())
+                    .entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().iterator()));
+
+            List<SurveyInstanceOwnerCreateCommand> ownerCommands = new ArrayList<>();
+            List<SurveyInstanceRecipientCreateCommand> recipientCommands = new ArrayList<>();
+            issuances.forEach(t -> {
+                long instanceId = idIteratorsByEntity.get(t.v1.surveyEntity()).next();
+                t.v2.forEach(personId -> ownerCommands.add(ImmutableSurveyInstanceOwnerCreateCommand.builder()
+                        .surveyInstanceId(instanceId)
+                        .personId(personId)
+                        .build()));
+                t.v3.forEach(personId -> recipientCommands.add(ImmutableSurveyInstanceRecipientCreateCommand.builder()
+                        .surveyInstanceId(instanceId)
+                        .personId(personId)
+                        .build()));
+            });
+
+            issueInBatches(
+                    command.surveyRunId(),
+                    "instance owners",
+                    ownerCommands,
+                    batch -> surveyInstanceOwnerDao.createAll(tx, batch));
+
+            issueInBatches(
+                    command.surveyRunId(),
+                    "instance recipients",
+                    recipientCommands,
+                    batch -> surveyInstanceRecipientDao.createAll(tx, batch));
+        });
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao
-                .create(ImmutableSurveyInstanceCreateCommand.builder()
-                        .surveyRunId(surveyInstance.surveyRunId())
-                        .entityReference(surveyInstance.surveyEntity())
-                        .status(surveyInstance.status())
-                        .dueDate(surveyInstance.dueDate())
-                        .approvalDueDate(surveyInstance.approvalDueDate())
-                        .owningRole(surveyInstance.owningRole())
-                        .name(surveyInstance.name())
-                        .build());
+        return true;
     }
 
 
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
-    }
-
-    private long createSurveyInstanceOwner(long surveyInstanceId, Long ownerId) {
-        return surveyInstanceOwnerDao.create(ImmutableSurveyInstanceOwnerCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(ownerId)
-                .build());
+    /**
+     * Passes the items to the given writer in batches of {@link #ISSUANCE_BATCH_SIZE},
+     * logging progress as each batch is written so long running issuances can be monitored.
+     */
+    private <T> void issueInBatches(long surveyRunId,
+                                    String description,
+                                    Collection<T> items,
+                                    Consumer<List<T>> writer) {
+        AtomicInteger written = new AtomicInteger(0);
+        items.stream()
+                .collect(batchProcessingCollector(
+                        ISSUANCE_BATCH_SIZE,
+                        batch -> {
+                            if (batch.isEmpty()) {
+                                return;
+                            }
+                            writer.accept(batch);
+                            LOG.info(
+                                    "Survey run {}: created {}/{} {}",
+                                    surveyRunId,
+                                    written.addAndGet(batch.size()),
+                                    items.size(),
+                                    description);
+                        }));
+    }
+
+
+    private static SurveyInstanceCreateCommand mkInstanceCreateCommand(SurveyInstance surveyInstance) {
+        return ImmutableSurveyInstanceCreateCommand.builder()
+                .surveyRunId(surveyInstance.surveyRunId())
+                .entityReference(surveyInstance.surveyEntity())
+                .status(surveyInstance.status())
+                .dueDate(surveyInstance.dueDate())
+                .approvalDueDate(surveyInstance.approvalDueDate())
+                .owningRole(surveyInstance.owningRole())
+                .name(surveyInstance.name())
+                .build();
     }
 
 
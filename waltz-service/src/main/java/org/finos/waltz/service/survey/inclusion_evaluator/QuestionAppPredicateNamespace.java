@@ -18,22 +18,26 @@
 
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.finos.waltz.schema.tables.Application;
-import org.finos.waltz.schema.tables.DataType;
-import org.finos.waltz.schema.tables.DataTypeUsage;
-import org.finos.waltz.schema.tables.EntityHierarchy;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
-import org.jooq.Condition;
+import org.finos.waltz.schema.tables.DataType;
+import org.finos.waltz.schema.tables.DataTypeUsage;
+import org.finos.waltz.schema.tables.EntityHierarchy;
+import org.finos.waltz.schema.tables.records.ApplicationRecord;
 import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
 
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
+import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
 
@@ -53,34 +57,26 @@ public class QuestionAppPredicateNamespace extends QuestionEntityPredicateNamesp
 
 
     public boolean isRetiring() {
-        Condition isPlanned = APPLICATION.PLANNED_RETIREMENT_DATE.isNotNull();
-
-        Condition notRetiredYet = APPLICATION.ACTUAL_RETIREMENT_DATE.isNull()
-                .or(APPLICATION.ACTUAL_RETIREMENT_DATE.greaterOrEqual(DSL.now()));
-
-        return dsl
-                .select(APPLICATION.PLANNED_RETIREMENT_DATE)
-                .from(APPLICATION)
-                .where(APPLICATION.ID.eq(subjectRef.id()))
-                .and(isPlanned)
-                .and(notRetiredYet)
-                .fetch()
-                .isNotEmpty();
+        return app()
+                .map(app -> {
+                    boolean isPlanned = app.getPlannedRetirementDate() != null;
+                    Timestamp actual = app.getActualRetirementDate();
+                    boolean notRetiredYet = actual == null || ! actual.before(nowUtcTimestamp());
+                    return isPlanned && notRetiredYet;
+                })
+                .orElse(false);
     }
 
 
     public boolean belongsToOrgUnit(String name) {
-        Application app = APPLICATION.as("app");
-        return belongsToOrgUnit(name, app, app.ID, app.ORGANISATIONAL_UNIT_ID);
+        return belongsToOrgUnit(name, APPLICATION, APPLICATION.ID, APPLICATION.ORGANISATIONAL_UNIT_ID);
     }
 
 
     public boolean isAppKind(String name) {
-        return dsl.fetchExists(DSL
-                .select()
-                .from(APPLICATION)
-                .where(APPLICATION.ID.eq(subjectRef.id()))
-                .and(APPLICATION.KIND.eq(name)));
+        return app()
+                .map(app -> app.getKind().equals(name))
+                .orElse(false);
     }
 
 
@@ -95,27 +91,45 @@ public class QuestionAppPredicateNamespace extends QuestionEntityPredicateNamesp
 
 
     public Set<String> dataTypeUsages(String name) {
+        return dataTypeUsagesByDataTypeIdentifier().getOrDefault(name, Collections.emptySet());
+    }
+
 
-        DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
-        DataType dt = DATA_TYPE.as("dt");
-        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+    // --- HELPER ---
+
+    private Optional<ApplicationRecord> app() {
+        return subjectRecord(APPLICATION, APPLICATION.ID);
+    }
 
-        Condition dtNameMatches = dt.CODE.eq(name)
-                .or(dt.NAME.eq(name));
 
-        Condition subjectMatches = dtu.ENTITY_ID.eq(subjectRef.id())
-                .and(dtu.ENTITY_KIND.eq(subjectRef.kind().name()));
+    /**
+     * Usage kinds of the subject app, keyed by the code and name of each used data type <em>and</em> its ancestors.
+     */
+    private Map<String, Set<String>> dataTypeUsagesByDataTypeIdentifier() {
+        return memoize("dataTypeUsages", () -> {
+            DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
+            DataType dt = DATA_TYPE.as("dt");
+            EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
 
-        return dsl
-                .select(dtu.USAGE_KIND)
-                .from(dt)
+            Map<String, Set<String>> usagesByIdentifier = new HashMap<>();
+            dsl
+                .select(dt.CODE, dt.NAME, dtu.USAGE_KIND)
+                .from(dtu)
                 .innerJoin(eh)
-                .on(eh.ANCESTOR_ID.eq(dt.ID).and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
-                .innerJoin(dtu)
-                .on(dtu.DATA_TYPE_ID.eq(eh.ID))
-                .where(dtNameMatches)
-                .and(subjectMatches)
-                .fetchSet(dtu.USAGE_KIND);
+                .on(eh.ID.eq(dtu.DATA_TYPE_ID).and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
+                .innerJoin(dt)
+                .on(dt.ID.eq(eh.ANCESTOR_ID))
+                .where(dtu.ENTITY_ID.eq(subjectRef.id()))
+                .and(dtu.ENTITY_KIND.eq(subjectRef.kind().name()))
+                .forEach(r -> {
+                    String usageKind = r.get(dtu.USAGE_KIND);
+                    if (r.get(dt.CODE) != null) {
+                        usagesByIdentifier.computeIfAbsent(r.get(dt.CODE), k -> new HashSet<>()).add(usageKind);
+                    }
+                    usagesByIdentifier.computeIfAbsent(r.get(dt.NAME), k -> new HashSet<>()).add(usageKind);
+                });
+            return usagesByIdentifier;
+        });
     }
 
 }
@@ -1,7 +1,5 @@
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.apache.commons.jexl3.JexlEngine;
-import org.apache.commons.jexl3.MapContext;
 import org.finos.waltz.model.ExternalIdProvider;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
@@ -24,7 +22,6 @@ public class QuestionBasePredicateNamespace {
 
     private final Map<String, SurveyQuestion> questionsByExtId;
     private final Map<Long, SurveyQuestionResponse> responsesByQuestionId;
-    private JexlEngine jexl;
 
 
     public QuestionBasePredicateNamespace(List<SurveyQuestion> questions,
@@ -71,8 +68,7 @@ public class QuestionBasePredicateNamespace {
 
         return referencedQuestion
                 .inclusionPredicate()
-                .map(p -> jexl.createExpression(p).evaluate(new MapContext()))
-                .map(r -> Boolean.valueOf(r.toString()))
+                .map(p -> QuestionPredicateEvaluator.evalPredicate(p, this))
                 .orElse(true);
     }
 
@@ -94,15 +90,6 @@ public class QuestionBasePredicateNamespace {
     }
 
 
-    /**
-     * Need to pass in the evaluator so that 'recursive' functions can be computed (e.g. 'DITTO')
-     * @param jexl
-     */
-    public void usingEvaluator(JexlEngine jexl) {
-        this.jexl = jexl;
-    }
-
-
     private <K, R> Map<K, R> maybeIndexBy(List<R> values,
                                           Function<R, Optional<K>> keyProvider) {
         return values
@@ -18,7 +18,6 @@
 
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.finos.waltz.schema.tables.ChangeInitiative;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
@@ -27,7 +26,6 @@ import org.jooq.DSLContext;
 import java.util.List;
 import java.util.Map;
 
-import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.schema.tables.ChangeInitiative.CHANGE_INITIATIVE;
 
 /**
@@ -46,8 +44,7 @@ public class QuestionChangeInitiativePredicateNamespace extends QuestionEntityPr
 
 
     public boolean belongsToOrgUnit(String name) {
-        ChangeInitiative ci = CHANGE_INITIATIVE.as("ci");
-        return belongsToOrgUnit(name, ci, ci.ID, ci.ORGANISATIONAL_UNIT_ID);
+        return belongsToOrgUnit(name, CHANGE_INITIATIVE, CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.ORGANISATIONAL_UNIT_ID);
     }
 
 
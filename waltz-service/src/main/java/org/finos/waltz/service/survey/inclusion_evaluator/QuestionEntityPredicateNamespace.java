@@ -18,25 +18,32 @@
 
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.finos.waltz.schema.tables.EntityHierarchy;
-import org.finos.waltz.schema.tables.OrganisationalUnit;
+import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
-import org.jooq.Condition;
+import org.finos.waltz.schema.tables.EntityHierarchy;
+import org.finos.waltz.schema.tables.OrganisationalUnit;
 import org.jooq.DSLContext;
 import org.jooq.Field;
-import org.jooq.Record1;
-import org.jooq.SelectConditionStep;
+import org.jooq.Record;
 import org.jooq.Table;
-import org.jooq.impl.DSL;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.schema.Tables.*;
 
 /**
+ * Facts about the subject entity (assessment ratings, involvements, org unit ancestry etc.) are
+ * fetched at most once per namespace instance, regardless of how many predicates refer to them.
+ * A namespace is created per survey instance evaluation, so facts are never stale across evaluations.
  *
  * NOTE: methods in this class may show as unused.  This is to be expected as they are referred to via
  * predicates in survey questions
@@ -46,6 +53,8 @@ public class QuestionEntityPredicateNamespace extends QuestionBasePredicateNames
     protected final DSLContext dsl;
     protected final EntityReference subjectRef;
 
+    private final Map<String, Object> facts = new HashMap<>();
+
 
     public QuestionEntityPredicateNamespace(DSLContext dsl,
                                             EntityReference subjectRef,
@@ -58,17 +67,7 @@ public class QuestionEntityPredicateNamespace extends QuestionBasePredicateNames
 
 
     public String assessmentRating(String name, String defaultVal) {
-        return dsl
-                .select(RATING_SCHEME_ITEM.CODE)
-                .from(ASSESSMENT_DEFINITION)
-                .innerJoin(ASSESSMENT_RATING).on(ASSESSMENT_RATING.ASSESSMENT_DEFINITION_ID.eq(ASSESSMENT_DEFINITION.ID))
-                .innerJoin(RATING_SCHEME).on(RATING_SCHEME.ID.eq(ASSESSMENT_DEFINITION.RATING_SCHEME_ID))
-                .innerJoin(RATING_SCHEME_ITEM).on(RATING_SCHEME_ITEM.ID.eq(ASSESSMENT_RATING.RATING_ID))
-                .where(ASSESSMENT_DEFINITION.EXTERNAL_ID.eq(name).or(ASSESSMENT_DEFINITION.NAME.eq(name)))
-                .and(ASSESSMENT_RATING.ENTITY_KIND.eq(subjectRef.kind().name()))
-                .and(ASSESSMENT_RATING.ENTITY_ID.eq(subjectRef.id()))
-                .fetchOptional(RATING_SCHEME_ITEM.CODE)
-                .orElse(defaultVal);
+        return assessmentRatingCodes().getOrDefault(name, defaultVal);
     }
 
 
@@ -78,61 +77,117 @@ public class QuestionEntityPredicateNamespace extends QuestionBasePredicateNames
 
 
     public boolean hasInvolvement(String name) {
-        return dsl.fetchExists(DSL
-                .select()
-                .from(INVOLVEMENT)
-                .innerJoin(INVOLVEMENT_KIND).on(INVOLVEMENT.KIND_ID.eq(INVOLVEMENT_KIND.ID))
-                .where(INVOLVEMENT_KIND.NAME.equalIgnoreCase(name))
-                .and(INVOLVEMENT.ENTITY_ID.eq(subjectRef.id()))
-                .and(INVOLVEMENT.ENTITY_KIND.eq(subjectRef.kind().name())));
+        return name != null && involvementKindNames().contains(name.toLowerCase());
     }
 
 
     // --- HELPER ---
 
     protected boolean belongsToOrgUnit(String name,
-                                       Table<?> subjectTable,
+                                       Table<? extends Record> subjectTable,
                                        Field<Long> subjectId,
                                        Field<Long> subjectOu) {
-        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
-        OrganisationalUnit ou = OrganisationalUnit.ORGANISATIONAL_UNIT.as("ou");
+        return subjectRecord(subjectTable, subjectId)
+                .map(r -> r.get(subjectOu))
+                .map(ouId -> orgUnitAncestorIdentifiers(ouId).contains(name))
+                .orElse(false);
+    }
 
-        SelectConditionStep<Record1<Long>> targetOrgUnitId = DSL
-                .select(ou.ID)
-                .from(ou)
-                .where(ou.NAME.eq(name))
-                .or(ou.EXTERNAL_ID.eq(name));
 
-        Condition subjectInTargetOuTree = subjectOu.in(DSL
-                .selectDistinct(eh.ID)
-                .from(eh)
-                .where(eh.ANCESTOR_ID.eq(targetOrgUnitId)));
+    protected boolean hasLifecyclePhase(String name,
+                                        Table<? extends Record> subjectTable,
+                                        Field<Long> subjectId,
+                                        Field<String> subjectLifecyclePhase) {
+        return subjectRecord(subjectTable, subjectId)
+                .map(r -> r.get(subjectLifecyclePhase))
+                .map(phase -> phase.equals(name))
+                .orElse(false);
+    }
 
-        Condition subjectEntitiesMatch = subjectId.eq(subjectRef.id());
 
-        SelectConditionStep<Record1<Long>> qry = DSL
-                .select(subjectId)
-                .from(subjectTable)
-                .where(subjectEntitiesMatch)
-                .and(subjectInTargetOuTree);
+    /**
+     * The subject's row from the given table, fetched once and then reused by subsequent predicates.
+     */
+    @SuppressWarnings("unchecked")
+    protected <R extends Record> Optional<R> subjectRecord(Table<R> subjectTable,
+                                                           Field<Long> subjectId) {
+        return memoize(
+                "subject:" + subjectTable.getName(),
+                () -> (Optional<R>) dsl
+                        .selectFrom(subjectTable)
+                        .where(subjectId.eq(subjectRef.id()))
+                        .fetchOptional());
+    }
+
 
-        return dsl
-                .fetchExists(qry);
+    @SuppressWarnings("unchecked")
+    protected <T> T memoize(String key, Supplier<T> loader) {
+        return (T) facts.computeIfAbsent(key, k -> loader.get());
     }
 
 
-    protected boolean hasLifecyclePhase(String name,
-                                        Table<?> subjectTable,
-                                        Field<Long> subjectId,
-                                        Field<String> subjectLifecyclePhase) {
+    /**
+     * @return rating codes for the subject keyed by both the external id and name of the assessment definition
+     */
+    private Map<String, String> assessmentRatingCodes() {
+        return memoize("assessmentRatings", () -> {
+            Map<String, String> codes = new HashMap<>();
+            dsl
+                .select(ASSESSMENT_DEFINITION.EXTERNAL_ID, ASSESSMENT_DEFINITION.NAME, RATING_SCHEME_ITEM.CODE)
+                .from(ASSESSMENT_DEFINITION)
+                .innerJoin(ASSESSMENT_RATING).on(ASSESSMENT_RATING.ASSESSMENT_DEFINITION_ID.eq(ASSESSMENT_DEFINITION.ID))
+                .innerJoin(RATING_SCHEME_ITEM).on(RATING_SCHEME_ITEM.ID.eq(ASSESSMENT_RATING.RATING_ID))
+                .where(ASSESSMENT_RATING.ENTITY_KIND.eq(subjectRef.kind().name()))
+                .and(ASSESSMENT_RATING.ENTITY_ID.eq(subjectRef.id()))
+                .forEach(r -> {
+                    String code = r.get(RATING_SCHEME_ITEM.CODE);
+                    if (r.get(ASSESSMENT_DEFINITION.EXTERNAL_ID) != null) {
+                        codes.putIfAbsent(r.get(ASSESSMENT_DEFINITION.EXTERNAL_ID), code);
+                    }
+                    codes.putIfAbsent(r.get(ASSESSMENT_DEFINITION.NAME), code);
+                });
+            return codes;
+        });
+    }
+
+
+    private Set<String> involvementKindNames() {
+        return memoize("involvementKinds", () -> dsl
+                .selectDistinct(INVOLVEMENT_KIND.NAME)
+                .from(INVOLVEMENT)
+                .innerJoin(INVOLVEMENT_KIND).on(INVOLVEMENT.KIND_ID.eq(INVOLVEMENT_KIND.ID))
+                .where(INVOLVEMENT.ENTITY_ID.eq(subjectRef.id()))
+                .and(INVOLVEMENT.ENTITY_KIND.eq(subjectRef.kind().name()))
+                .fetch(INVOLVEMENT_KIND.NAME)
+                .stream()
+                .map(String::toLowerCase)
+                .collect(toSet()));
+    }
 
 
-        return dsl
-                .fetchExists(DSL
-                        .select()
-                        .from(subjectTable)
-                        .where(subjectLifecyclePhase.eq(name)
-                                .and(subjectId.eq(subjectRef.id()))));
+    /**
+     * @return names and external ids of the given org unit and all of its ancestors
+     */
+    private Set<String> orgUnitAncestorIdentifiers(Long ouId) {
+        return memoize("orgUnitAncestors:" + ouId, () -> {
+            EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+            OrganisationalUnit ou = ORGANISATIONAL_UNIT.as("ou");
+
+            Set<String> identifiers = new HashSet<>();
+            dsl
+                .select(ou.NAME, ou.EXTERNAL_ID)
+                .from(eh)
+                .innerJoin(ou).on(ou.ID.eq(eh.ANCESTOR_ID))
+                .where(eh.ID.eq(ouId))
+                .and(eh.KIND.eq(EntityKind.ORG_UNIT.name()))
+                .forEach(r -> {
+                    identifiers.add(r.get(ou.NAME));
+                    if (r.get(ou.EXTERNAL_ID) != null) {
+                        identifiers.add(r.get(ou.EXTERNAL_ID));
+                    }
+                });
+            return identifiers;
+        });
     }
 
 }
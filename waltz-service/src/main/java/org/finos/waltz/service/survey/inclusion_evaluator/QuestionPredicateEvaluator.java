@@ -28,11 +28,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.finos.waltz.common.MapUtilities.newHashMap;
 import static org.finos.waltz.common.StringUtilities.isEmpty;
 
 public class QuestionPredicateEvaluator {
 
+    /**
+     * Shared engine, parsed expressions are cached (keyed by predicate text) so each distinct
+     * predicate is only compiled once.  The namespace for the subject being evaluated is
+     * supplied via the context rather than registered with the engine.
+     */
+    private static final JexlEngine JEXL = new JexlBuilder().cache(1024).create();
+
+
     public static List<SurveyQuestion> eval(DSLContext dsl,
                                      List<SurveyQuestion> qs,
                                      EntityReference subjectRef,
@@ -40,19 +47,24 @@ public class QuestionPredicateEvaluator {
 
         QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(dsl, qs, subjectRef, responsesByQuestionId);
 
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder
-                .namespaces(newHashMap(null, namespace))
-                .create();
-
-        namespace.usingEvaluator(jexl);
-
-        List<SurveyQuestion> activeQs = determineActiveQs(qs, jexl);
+        List<SurveyQuestion> activeQs = determineActiveQs(qs, namespace);
 
         return activeQs;
     }
 
 
+    /**
+     * Evaluates a single inclusion predicate against the given namespace, empty predicates are always true.
+     */
+    static boolean evalPredicate(String predicate, QuestionBasePredicateNamespace namespace) {
+        if (isEmpty(predicate)) {
+            return true;
+        } else {
+            JexlExpression expr = JEXL.createExpression(predicate);
+            JexlContext jexlCtx = new NamespaceContext(namespace);
+            return Boolean.valueOf(expr.evaluate(jexlCtx).toString());
+        }
+    }
 
 
     private static QuestionBasePredicateNamespace mkPredicateNameSpace(DSLContext dsl, List<SurveyQuestion> qs, EntityReference subjectRef, Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
@@ -75,25 +87,36 @@ public class QuestionPredicateEvaluator {
     }
 
 
-    private static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs, JexlEngine jexl) {
+    private static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs,
+                                                          QuestionBasePredicateNamespace namespace) {
         List<SurveyQuestion> activeQs = qs
                 .stream()
                 .filter(q -> q
                         .inclusionPredicate()
-                        .map(p -> {
-                            if (isEmpty(p)) {
-                                return true;
-                            } else {
-                                JexlExpression expr = jexl.createExpression(p);
-                                JexlContext jexlCtx = new MapContext();
-                                return Boolean.valueOf(expr.evaluate(jexlCtx).toString());
-                            }
-                        })
+                        .map(p -> evalPredicate(p, namespace))
                         .orElse(true))
                 .collect(Collectors.toList());
         return activeQs;
     }
 
 
+    /**
+     * Context which resolves unqualified predicate functions (e.g. <code>isChecked('Q1')</code>) to the namespace
+     */
+    private static class NamespaceContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final QuestionBasePredicateNamespace namespace;
+
+        private NamespaceContext(QuestionBasePredicateNamespace namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? namespace
+                    : null;
+        }
+    }
 
 }
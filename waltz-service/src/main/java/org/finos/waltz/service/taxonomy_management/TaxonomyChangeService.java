@@ -41,6 +41,7 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.*;
@@ -151,12 +152,7 @@ public class TaxonomyChangeService {
         // rebuild measurable hierarchy
         if (command.changeDomain().kind() == EntityKind.MEASURABLE_CATEGORY
                 && isHierarchyChange(command)) {
-            long categoryId = command.changeDomain().id();
-            int insertCount = entityHierarchyService.buildForMeasurableByCategory(categoryId);
-            LOG.info(
-                    "Rebuilt measurable category: {},  inserted {} new records",
-                    categoryId,
-                    insertCount);
+            rebuildMeasurableHierarchy(command);
         }
 
         return updatedCommand;
@@ -218,6 +214,26 @@ public class TaxonomyChangeService {
     }
 
 
+    private void rebuildMeasurableHierarchy(TaxonomyChangeCommand command) {
+        long categoryId = command.changeDomain().id();
+
+        // new peers are added beneath the parent of the primary measurable
+        Optional<Long> subtreeRootId = command.changeType() == TaxonomyChangeType.ADD_PEER
+                ? measurableService.getById(command.primaryReference().id()).parentId()
+                : Optional.of(command.primaryReference().id());
+
+        int changeCount = subtreeRootId
+                .map(rootId -> entityHierarchyService.buildForMeasurableSubtree(categoryId, rootId))
+                .orElseGet(() -> entityHierarchyService.buildForMeasurableByCategory(categoryId));
+
+        LOG.info(
+                "Rebuilt measurable hierarchy for category: {}, subtree: {}, changed {} records",
+                categoryId,
+                subtreeRootId.map(Object::toString).orElse("all"),
+                changeCount);
+    }
+
+
     private boolean isHierarchyChange(TaxonomyChangeCommand command) {
         return command.changeType() == TaxonomyChangeType.ADD_CHILD
                 || command.changeType() == TaxonomyChangeType.ADD_PEER
@@ -37,6 +37,8 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +50,7 @@ import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.*;
 import static org.finos.waltz.common.SetUtilities.fromCollection;
+import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.model.usage_info.UsageInfoUtilities.mkChangeSet;
 
 @Service
@@ -145,8 +148,39 @@ public class DataTypeUsageService {
     }
 
 
+    /**
+     * Recalculates usages for all active applications and all actors.  Entities are processed
+     * in small chunks and only changed rows are written, so the usage table is not locked for
+     * the duration of the recalculation.
+     */
     public boolean recalculateForAllApplications() {
-        return dataTypeUsageDao.recalculateForAllApplications();
+        dataTypeUsageDao.recalculateIncrementallyForIdSelector(
+                EntityKind.APPLICATION,
+                DSL.select(APPLICATION.ID)
+                        .from(APPLICATION)
+                        .where(IS_ACTIVE));
+
+        dataTypeUsageDao.recalculateIncrementallyForIdSelector(
+                EntityKind.ACTOR,
+                DSL.select(ACTOR.ID)
+                        .from(ACTOR));
+
+        return true;
+    }
+
+
+    /**
+     * Recalculates usages for only those applications and actors involved in logical flows which
+     * have been created, updated or removed (or had their data types changed) since the given time.
+     *
+     * @param since  only consider flow changes made at, or after, this time
+     * @return  number of entities recalculated
+     */
+    public int recalculateForChangesSince(LocalDateTime since) {
+        checkNotNull(since, "since cannot be null");
+        Set<EntityReference> refs = dataTypeUsageDao.findEntitiesWithFlowChangesSince(Timestamp.valueOf(since));
+        recalculateForApplications(refs);
+        return refs.size();
     }
 
 
@@ -169,8 +203,9 @@ public class DataTypeUsageService {
         } else {
             Select<Record1<Long>> appIdSelector = convertApplicationIdsToIdSelector(appIds);
             Select<Record1<Long>> actorIdSelector = convertActorIdsToIdSelector(actorIds);
-            return dataTypeUsageDao.recalculateForIdSelector(EntityKind.APPLICATION, appIdSelector) &&
-                    dataTypeUsageDao.recalculateForIdSelector(EntityKind.ACTOR, actorIdSelector);
+            dataTypeUsageDao.recalculateIncrementallyForIdSelector(EntityKind.APPLICATION, appIdSelector);
+            dataTypeUsageDao.recalculateIncrementallyForIdSelector(EntityKind.ACTOR, actorIdSelector);
+            return true;
         }
     }
 
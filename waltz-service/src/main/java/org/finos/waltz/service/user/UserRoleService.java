@@ -18,6 +18,7 @@
 
 package org.finos.waltz.service.user;
 
+import org.finos.waltz.common.ExpiringCache;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.data.person.PersonDao;
@@ -41,8 +42,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 
@@ -72,6 +75,10 @@ public class UserRoleService {
 
     private static final Logger LOG = LoggerFactory.getLogger(UserRoleService.class);
 
+    // role checks happen on most mutating requests, often several times per request
+    private static final Duration ROLE_CACHE_TTL = Duration.ofSeconds(30);
+    private static final int ROLE_CACHE_MAX_ENTRIES = 10_000;
+
     private final UserRoleDao userRoleDao;
     private final RoleDao roleDao;
     private final PersonDao personDao;
@@ -79,6 +86,10 @@ public class UserRoleService {
 
     private final PersonService personService;
 
+    private final ExpiringCache<String, Set<String>> rolesByUserName = ExpiringCache.mkCache(
+            ROLE_CACHE_TTL,
+            ROLE_CACHE_MAX_ENTRIES);
+
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
@@ -110,7 +121,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -121,7 +132,7 @@ public class UserRoleService {
 
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -135,7 +146,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -162,12 +173,57 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, command.roles());
+        try {
+            return userRoleDao.updateRoles(targetUserName, command.roles());
+        } finally {
+            invalidateCachedRoles(targetUserName);
+        }
     }
 
 
+    /**
+     * Roles are cached (briefly) as they are checked on most mutating requests.
+     * Updates made via this service invalidate the cache immediately.
+     *
+     * User names are matched case-insensitively by the dao, so the cache is keyed
+     * on the lower-cased name to ensure invalidation reaches every variant.
+     *
+     * @param userName  user to lookup
+     * @return  unmodifiable set of role keys for the user
+     */
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        return rolesByUserName.get(
+                toCacheKey(userName),
+                u -> Collections.unmodifiableSet(userRoleDao.getUserRoles(u)));
+    }
+
+
+    /**
+     * Removes any cached roles for the given user, should be called if the roles
+     * are changed without going via this service.
+     *
+     * @param userName  user whose roles have changed
+     */
+    public void invalidateCachedRoles(String userName) {
+        rolesByUserName.invalidate(toCacheKey(userName));
+    }
+
+
+    public void invalidateAllCachedRoles() {
+        LOG.info("Clearing user role cache: {}", rolesByUserName);
+        rolesByUserName.invalidateAll();
+    }
+
+
+    public ExpiringCache<String, Set<String>> getRoleCache() {
+        return rolesByUserName;
+    }
+
+
+    private static String toCacheKey(String userName) {
+        return userName == null
+                ? null
+                : userName.toLowerCase(Locale.ROOT);
     }
 
 
@@ -200,15 +256,19 @@ public class UserRoleService {
         
         Set<Tuple2<String, String>> usernamesAndRoles = usersAndRolesToUpdate.stream().map(t -> tuple(t.v1, t.v2)).collect(toSet());
 
-        switch (mode) {
-            case ADD_ONLY:
-                return userRoleDao.addRoles(usernamesAndRoles);
-            case REMOVE_ONLY:
-                return userRoleDao.removeRoles(usernamesAndRoles);
-            case REPLACE:
-                return userRoleDao.replaceRoles(usernamesAndRoles);
-            default:
-                throw new UnsupportedOperationException("Unsupported mode: " + mode);
+        try {
+            switch (mode) {
+                case ADD_ONLY:
+                    return userRoleDao.addRoles(usernamesAndRoles);
+                case REMOVE_ONLY:
+                    return userRoleDao.removeRoles(usernamesAndRoles);
+                case REPLACE:
+                    return userRoleDao.replaceRoles(usernamesAndRoles);
+                default:
+                    throw new UnsupportedOperationException("Unsupported mode: " + mode);
+            }
+        } finally {
+            usernamesAndRoles.forEach(t -> invalidateCachedRoles(t.v1));
         }
     }
 
@@ -47,21 +47,25 @@ public class UserService {
     private final UserDao userDao;
     private final PasswordService passwordService;
     private final UserRoleDao userRoleDao;
+    private final UserRoleService userRoleService;
     private final SettingsService settingsService;
 
 
     @Autowired
     public UserService(UserDao userDao,
                        UserRoleDao userRoleDao,
+                       UserRoleService userRoleService,
                        PasswordService passwordService,
                        SettingsService settingsService) {
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(userRoleDao, "userRoleDao cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
         checkNotNull(passwordService, "passwordService must not be null");
         checkNotNull(settingsService, "settingsService cannot be null");
 
         this.userDao = userDao;
         this.userRoleDao = userRoleDao;
+        this.userRoleService = userRoleService;
         this.passwordService = passwordService;
         this.settingsService = settingsService;
     }
@@ -89,6 +93,7 @@ public class UserService {
     public boolean deleteUser(String userName) {
         LOG.info("Deleting user: " + userName);
         userDao.deleteUser(userName);
+        userRoleService.invalidateCachedRoles(userName);
         LOG.info("Deleted user: " + userName);
         return true;
     }
@@ -140,6 +145,7 @@ public class UserService {
             setting.value()
                     .map(s -> tokenise(s, ","))
                     .ifPresent(roles -> userRoleDao.updateRoles(username, fromCollection(roles)));
+            userRoleService.invalidateCachedRoles(username);
 
         }
     }
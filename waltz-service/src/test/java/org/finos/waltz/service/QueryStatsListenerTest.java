@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryStatsListenerTest {
+
+    private static final Field<Long> ID = DSL.field("id", Long.class);
+
+
+    @Test
+    public void literalsAndListsAreNormalised() {
+        assertEquals(
+                "select id from app where name = ? and x in (?+) and y > ?",
+                SqlFingerprint.of("select  id\n from app -- comment\n where name = 'it''s' and x in (1, 2, 3) and y > -4.5"));
+
+        assertEquals(
+                SqlFingerprint.of("select a from t1 where b in (?, ?)"),
+                SqlFingerprint.of("select a from t1 where b in (?, ?, ?, ?)"));
+
+        assertEquals(
+                "insert into t (a, b) values (?, ?), ...",
+                SqlFingerprint.of("insert into t (a, b) values (?, ?), (?, ?), (?, ?)"));
+    }
+
+
+    @Test
+    public void concurrentExecutionsAreAggregatedByFingerprint() throws Exception {
+        QueryStatsListener listener = new QueryStatsListener(TimeUnit.HOURS.toMillis(1));
+        DSLContext dsl = mkDsl(listener, 3);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = IntStream
+                    .range(0, 200)
+                    .mapToObj(i -> pool.submit(() -> dsl
+                            .select(ID)
+                            .from(DSL.table("app"))
+                            .where(ID.in(DSL.inline(i), DSL.inline(i + 1)))
+                            .fetch()
+                            .size()))
+                    .collect(Collectors.toList());
+            for (Future<Integer> future : futures) {
+                assertEquals(3, future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<QueryStats> top = listener.findTop(10, Comparator.comparingLong(QueryStats::executionCount).reversed());
+        assertEquals(1, top.size(), "all executions share a fingerprint");
+
+        QueryStats stats = top.get(0);
+        assertEquals(200, stats.executionCount());
+        assertEquals(600, stats.rowCount());
+        assertEquals(0, stats.errorCount());
+        assertTrue(stats.maxNanos() > 0);
+        assertTrue(stats.totalNanos() >= stats.maxNanos());
+        assertTrue(stats.fingerprint().contains("in (?+)"));
+
+        listener.reset();
+        assertEquals(0, listener.fingerprintCount());
+    }
+
+
+    // -- helpers
+
+    private static DSLContext mkDsl(QueryStatsListener listener, int rowsPerQuery) {
+        DSLContext mockDsl = DSL.using(SQLDialect.H2);
+        MockConnection connection = new MockConnection(ctx -> {
+            Result<Record1<Long>> result = mockDsl.newResult(ID);
+            for (long i = 0; i < rowsPerQuery; i++) {
+                result.add(mockDsl.newRecord(ID).values(i));
+            }
+            return new MockResult[]{new MockResult(rowsPerQuery, result)};
+        });
+
+        return DSL.using(new DefaultConfiguration()
+                .set(connection)
+                .set(SQLDialect.H2)
+                .set(listener));
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.finos.waltz.service.entity_hierarchy;
+
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityHierarchyCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final FakeEntityHierarchyDao dao = new FakeEntityHierarchyDao();
+    private final EntityHierarchyCache cache = new EntityHierarchyCache(dao, clock::get);
+
+
+    @Test
+    public void hierarchiesAreLoadedOncePerKind() {
+        dao.items = asList(mkItem(1L, 1L), mkItem(2L, 1L), mkItem(2L, 2L));
+
+        EntityHierarchy first = cache.get(EntityKind.DATA_TYPE);
+        EntityHierarchy second = cache.get(EntityKind.DATA_TYPE);
+        cache.get(EntityKind.ORG_UNIT);
+
+        assertSame(first, second);
+        assertEquals(asSet(1L, 2L), first.findChildren(1L));
+        assertEquals(2, dao.loads.get(), "one load each for data types and org units");
+        assertEquals(2, cache.findSnapshots().size());
+        assertTrue(cache.estimatedSizeInBytes() > 0);
+    }
+
+
+    @Test
+    public void rebuildsSwapInNewSnapshot() {
+        dao.items = asList(mkItem(1L, 1L));
+        EntityHierarchy before = cache.get(EntityKind.DATA_TYPE);
+        long versionBefore = cache.findSnapshots().get(0).version();
+
+        dao.items = asList(mkItem(1L, 1L), mkItem(2L, 1L));
+        cache.onHierarchyRebuilt(EntityKind.DATA_TYPE);
+
+        assertEquals(2, dao.loads.get(), "cached kinds are reloaded eagerly");
+        EntityHierarchy after = cache.get(EntityKind.DATA_TYPE);
+        assertEquals(2, dao.loads.get());
+        assertEquals(asSet(1L), before.findChildren(1L), "existing snapshots are not modified");
+        assertEquals(asSet(1L, 2L), after.findChildren(1L));
+        assertEquals(versionBefore + 1, cache.findSnapshots().get(0).version());
+    }
+
+
+    @Test
+    public void rebuildsOfUncachedKindsAreNotLoaded() {
+        cache.onHierarchyRebuilt(EntityKind.MEASURABLE);
+        assertEquals(0, dao.loads.get());
+        assertTrue(cache.findSnapshots().isEmpty());
+    }
+
+
+    @Test
+    public void snapshotsAreReloadedOnceExpired() {
+        cache.get(EntityKind.DATA_TYPE);
+        clock.addAndGet(EntityHierarchyCache.MAX_SNAPSHOT_AGE.toMillis() - 1);
+        cache.get(EntityKind.DATA_TYPE);
+        assertEquals(1, dao.loads.get());
+        assertEquals(EntityHierarchyCache.MAX_SNAPSHOT_AGE.toMillis() - 1, cache.ageOf(cache.findSnapshots().get(0)).toMillis());
+
+        clock.incrementAndGet();
+        cache.get(EntityKind.DATA_TYPE);
+        assertEquals(2, dao.loads.get());
+    }
+
+
+    @Test
+    public void invalidateAllForcesReload() {
+        cache.get(EntityKind.DATA_TYPE);
+        cache.invalidateAll();
+        assertTrue(cache.findSnapshots().isEmpty());
+
+        cache.get(EntityKind.DATA_TYPE);
+        assertEquals(2, dao.loads.get());
+    }
+
+
+    // -- helpers
+
+    private static EntityHierarchyItem mkItem(long id, long parentId) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(parentId)
+                .kind(EntityKind.DATA_TYPE)
+                .ancestorLevel(1)
+                .descendantLevel(1)
+                .build();
+    }
+
+
+    private static class FakeEntityHierarchyDao extends EntityHierarchyDao {
+
+        private List<EntityHierarchyItem> items = new ArrayList<>();
+        private final AtomicInteger loads = new AtomicInteger();
+
+        FakeEntityHierarchyDao() {
+            super(DSL.using(SQLDialect.DEFAULT));
+        }
+
+        @Override
+        public List<EntityHierarchyItem> fetchHierarchyForKind(EntityKind kind) {
+            loads.incrementAndGet();
+            return items;
+        }
+    }
+}
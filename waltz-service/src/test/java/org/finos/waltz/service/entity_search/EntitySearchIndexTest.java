@@ -0,0 +1,179 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchIndexEntry;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchIndexEntry;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.entity_search.EntitySearchOptions.mkForEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntitySearchIndexTest {
+
+    private static final EntitySearchIndex index = EntitySearchIndex.build(asList(
+            mkEntry(EntityKind.APPLICATION, 1, "Trade Booking", asList("TB-001"), emptyList()),
+            mkEntry(EntityKind.APPLICATION, 2, "Booking Engine", asList("BE-002"), emptyList()),
+            mkEntry(EntityKind.APPLICATION, 3, "Risk Engine", asList("RE-003"), asList("Booking Risk")),
+            mkEntry(EntityKind.APPLICATION, 4, "Reporting", asList("TB-004"), emptyList()),
+            mkEntry(EntityKind.PERSON, 5, "Bob Booking", asList("bob@example.com"), emptyList())));
+
+
+    @Test
+    public void namesAreMatchedAndRankedByTermPosition() {
+        assertEquals(
+                asList(2L, 1L, 3L),
+                ids(index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "booking"))),
+                "name matches ranked by term position, alias match last");
+    }
+
+
+    @Test
+    public void allTermsMustMatchTheName() {
+        assertEquals(
+                asList(2L),
+                ids(index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "engine book"))));
+    }
+
+
+    @Test
+    public void identifiersAreMatchedByPrefixAndRankedFirst() {
+        assertEquals(
+                asList(4L, 1L),
+                ids(index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "tb-0"))),
+                "identifier matches are ordered by name");
+
+        assertTrue(
+                index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "001")).isEmpty(),
+                "identifiers are only matched by prefix");
+    }
+
+
+    @Test
+    public void shortTermsCanMatchIdentifierPrefixes() {
+        assertEquals(
+                asList(3L),
+                ids(index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "risk re"))));
+    }
+
+
+    @Test
+    public void searchIsRestrictedToKind() {
+        assertEquals(
+                asList(5L),
+                ids(index.search(EntityKind.PERSON, mkForEntity(EntityKind.PERSON, "booking"))));
+        assertTrue(index.search(EntityKind.MEASURABLE, mkForEntity(EntityKind.MEASURABLE, "booking")).isEmpty());
+    }
+
+
+    @Test
+    public void resultsAreFilteredByLifecycleAndLimited() {
+        EntitySearchIndex withRemoved = index.withReplacements(
+                asSet(mkRef(EntityKind.APPLICATION, 2)),
+                asList(ImmutableEntitySearchIndexEntry
+                        .builder()
+                        .entityReference(ImmutableEntityReference
+                                .copyOf(mkRef(EntityKind.APPLICATION, 2, "Booking Engine"))
+                                .withEntityLifecycleStatus(EntityLifecycleStatus.REMOVED))
+                        .build()));
+
+        assertEquals(
+                asList(1L, 3L),
+                ids(withRemoved.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "booking"))));
+
+        EntitySearchOptions includingRemoved = ImmutableEntitySearchOptions
+                .builder()
+                .entityKinds(newArrayList(EntityKind.APPLICATION))
+                .searchQuery("booking")
+                .entityLifecycleStatuses(asList(EntityLifecycleStatus.values()))
+                .build();
+
+        List<EntityReference> found = withRemoved.search(EntityKind.APPLICATION, includingRemoved);
+        assertEquals(
+                EntityLifecycleStatus.REMOVED,
+                found.stream().filter(r -> r.id() == 2L).findFirst().get().entityLifecycleStatus(),
+                "results keep the lifecycle status of the entity");
+
+        EntitySearchOptions limited = ImmutableEntitySearchOptions
+                .builder()
+                .entityKinds(newArrayList(EntityKind.APPLICATION))
+                .searchQuery("booking")
+                .limit(1)
+                .build();
+
+        assertEquals(asList(2L), ids(index.search(EntityKind.APPLICATION, limited)));
+    }
+
+
+    @Test
+    public void replacementsProduceANewIndex() {
+        EntitySearchIndex updated = index.withReplacements(
+                asSet(mkRef(EntityKind.APPLICATION, 1), mkRef(EntityKind.APPLICATION, 3)),
+                asList(mkEntry(EntityKind.APPLICATION, 1, "Trade Capture", asList("TB-001"), emptyList())));
+
+        assertEquals(
+                asList(2L),
+                ids(updated.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "booking"))),
+                "app 1 renamed and app 3 removed");
+        assertEquals(4, updated.size());
+        assertEquals(5, index.size(), "original index is unchanged");
+        assertEquals(
+                asList(2L, 1L, 3L),
+                ids(index.search(EntityKind.APPLICATION, mkForEntity(EntityKind.APPLICATION, "booking"))));
+    }
+
+
+    // -- helpers
+
+    private static List<Long> ids(List<EntityReference> refs) {
+        return refs
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+    }
+
+
+    private static EntitySearchIndexEntry mkEntry(EntityKind kind,
+                                                  long id,
+                                                  String name,
+                                                  List<String> identifiers,
+                                                  List<String> aliases) {
+        return ImmutableEntitySearchIndexEntry
+                .builder()
+                .entityReference(mkRef(kind, id, name))
+                .identifiers(identifiers)
+                .aliases(aliases)
+                .build();
+    }
+}
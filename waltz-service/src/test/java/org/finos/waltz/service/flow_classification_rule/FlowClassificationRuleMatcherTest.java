@@ -0,0 +1,244 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.FlowDirection;
+import org.finos.waltz.model.datatype.FlowDataType;
+import org.finos.waltz.model.datatype.ImmutableFlowDataType;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchy;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleUtilities.MatchOutcome;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FlowClassificationRuleMatcherTest {
+
+    // ou: 1 -> 2 -> 3,   dt: 10 -> 20 -> 30
+    private final EntityHierarchy ouHierarchy = mkHierarchy(EntityKind.ORG_UNIT, 1L, 2L, 3L);
+    private final EntityHierarchy dtHierarchy = mkHierarchy(EntityKind.DATA_TYPE, 10L, 20L, 30L);
+
+    private final EntityReference sourceApp = mkRef(EntityKind.APPLICATION, 100L);
+    private final EntityReference otherSourceApp = mkRef(EntityKind.APPLICATION, 101L);
+    private final EntityReference targetApp = mkRef(EntityKind.APPLICATION, 200L);
+
+
+    @Test
+    public void noApplicableRulesGivesNoMatch() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, mkRef(EntityKind.ORG_UNIT, 3L), 20L, sourceApp));
+
+        // target ou (2) is above the vantage point (3)
+        FlowDataType decorator = mkDecorator(1L, sourceApp, targetApp, 2L, 30L);
+
+        assertNull(apply(FlowDirection.OUTBOUND, rules, decorator).get(1L));
+    }
+
+
+    @Test
+    public void ruleOnAncestorsGivesPositiveMatch() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, mkRef(EntityKind.ORG_UNIT, 1L), 10L, sourceApp));
+
+        FlowDataType decorator = mkDecorator(1L, sourceApp, targetApp, 3L, 30L);
+
+        Tuple2<Long, MatchOutcome> result = apply(FlowDirection.OUTBOUND, rules, decorator).get(1L);
+        assertEquals(1L, result.v1);
+        assertEquals(MatchOutcome.POSITIVE_MATCH, result.v2);
+    }
+
+
+    @Test
+    public void positiveMatchOverridesMoreSpecificNegativeMatch() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, mkRef(EntityKind.ORG_UNIT, 3L), 30L, otherSourceApp),
+                mkRule(2L, mkRef(EntityKind.ORG_UNIT, 1L), 10L, sourceApp));
+
+        FlowDataType decorator = mkDecorator(1L, sourceApp, targetApp, 3L, 30L);
+
+        Tuple2<Long, MatchOutcome> result = apply(FlowDirection.OUTBOUND, rules, decorator).get(1L);
+        assertEquals(2L, result.v1);
+        assertEquals(MatchOutcome.POSITIVE_MATCH, result.v2);
+    }
+
+
+    @Test
+    public void mostSpecificNegativeMatchIsReported() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, mkRef(EntityKind.ORG_UNIT, 3L), 30L, otherSourceApp),
+                mkRule(2L, mkRef(EntityKind.ORG_UNIT, 1L), 10L, otherSourceApp));
+
+        FlowDataType decorator = mkDecorator(1L, sourceApp, targetApp, 3L, 30L);
+
+        Tuple2<Long, MatchOutcome> result = apply(FlowDirection.OUTBOUND, rules, decorator).get(1L);
+        assertEquals(1L, result.v1);
+        assertEquals(MatchOutcome.NEGATIVE_MATCH, result.v2);
+    }
+
+
+    @Test
+    public void pointToPointRulesMatchOnScopeEntity() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, targetApp, 20L, sourceApp));
+
+        FlowDataType matching = mkDecorator(1L, sourceApp, targetApp, null, 30L);
+        FlowDataType otherTarget = mkDecorator(2L, sourceApp, mkRef(EntityKind.APPLICATION, 201L), null, 30L);
+
+        Map<Long, Tuple2<Long, MatchOutcome>> result = FlowClassificationRuleMatcher
+                .mkMatcher(FlowDirection.OUTBOUND, rules, ouHierarchy, dtHierarchy)
+                .apply(asSet(matching, otherTarget));
+
+        assertEquals(MatchOutcome.POSITIVE_MATCH, result.get(1L).v2);
+        assertNull(result.get(2L));
+    }
+
+
+    @Test
+    public void inboundRulesUseTargetAsSubject() {
+        List<FlowClassificationRuleVantagePoint> rules = newArrayList(
+                mkRule(1L, mkRef(EntityKind.ORG_UNIT, 2L), 20L, targetApp));
+
+        FlowDataType decorator = mkDecorator(1L, sourceApp, targetApp, 3L, 30L);
+
+        assertNull(apply(FlowDirection.INBOUND, rules, decorator).get(1L), "source ou is not set, so no scope match");
+
+        FlowDataType decoratorWithSourceOu = ImmutableFlowDataType.copyOf(decorator).withSourceOuId(3L);
+        assertEquals(MatchOutcome.POSITIVE_MATCH, apply(FlowDirection.INBOUND, rules, decoratorWithSourceOu).get(1L).v2);
+    }
+
+
+    @Test
+    public void outcomesAgreeWithOriginalAlgorithm() {
+        Random rnd = new Random(42);
+        List<EntityReference> apps = new ArrayList<>();
+        for (long i = 0; i < 8; i++) {
+            apps.add(mkRef(EntityKind.APPLICATION, 100L + i));
+        }
+
+        List<FlowClassificationRuleVantagePoint> rules = new ArrayList<>();
+        for (long i = 0; i < 40; i++) {
+            EntityReference vantagePoint = rnd.nextInt(4) == 0
+                    ? apps.get(rnd.nextInt(apps.size()))
+                    : mkRef(EntityKind.ORG_UNIT, 1 + rnd.nextInt(3));
+            rules.add(mkRule(i, vantagePoint, 10L * (1 + rnd.nextInt(3)), apps.get(rnd.nextInt(apps.size()))));
+        }
+
+        Set<FlowDataType> population = new HashSet<>();
+        for (long i = 0; i < 500; i++) {
+            population.add(mkDecorator(
+                    i,
+                    apps.get(rnd.nextInt(apps.size())),
+                    apps.get(rnd.nextInt(apps.size())),
+                    rnd.nextInt(4) == 0 ? null : (long) (1 + rnd.nextInt(3)),
+                    10L * (1 + rnd.nextInt(3))));
+        }
+
+        for (FlowDirection direction : newArrayList(FlowDirection.INBOUND, FlowDirection.OUTBOUND)) {
+            Map<Long, Tuple2<Long, MatchOutcome>> original = FlowClassificationRuleUtilities.applyVantagePoints(direction, rules, population, ouHierarchy, dtHierarchy);
+            Map<Long, Tuple2<Long, MatchOutcome>> indexed = FlowClassificationRuleMatcher.mkMatcher(direction, rules, ouHierarchy, dtHierarchy).apply(population);
+
+            assertEquals(original.keySet(), indexed.keySet());
+            original.forEach((lfdId, ruleAndOutcome) -> assertEquals(ruleAndOutcome.v2, indexed.get(lfdId).v2));
+        }
+    }
+
+
+    // -- helpers ---
+
+    private Map<Long, Tuple2<Long, MatchOutcome>> apply(FlowDirection direction,
+                                                        List<FlowClassificationRuleVantagePoint> rules,
+                                                        FlowDataType decorator) {
+        return FlowClassificationRuleMatcher
+                .mkMatcher(direction, rules, ouHierarchy, dtHierarchy)
+                .apply(asSet(decorator));
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkRule(long ruleId,
+                                                             EntityReference vantagePoint,
+                                                             long dataTypeId,
+                                                             EntityReference subject) {
+        return ImmutableFlowClassificationRuleVantagePoint.builder()
+                .vantagePoint(vantagePoint)
+                .vantagePointRank(1)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeRank(1)
+                .subjectReference(subject)
+                .classificationCode("PRIMARY")
+                .ruleId(ruleId)
+                .build();
+    }
+
+
+    private static FlowDataType mkDecorator(long lfdId,
+                                            EntityReference source,
+                                            EntityReference target,
+                                            Long targetOuId,
+                                            long dataTypeId) {
+        return ImmutableFlowDataType.builder()
+                .lfdId(lfdId)
+                .lfId(lfdId)
+                .source(source)
+                .target(target)
+                .targetOuId(targetOuId)
+                .dtId(dataTypeId)
+                .sourceOutboundRating(AuthoritativenessRatingValue.NO_OPINION)
+                .targetInboundRating(AuthoritativenessRatingValue.NO_OPINION)
+                .build();
+    }
+
+
+    /**
+     * Builds a closure table for a simple chain, each id being the child of the previous one.
+     */
+    private static EntityHierarchy mkHierarchy(EntityKind kind, Long... chain) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
+        for (int i = 0; i < chain.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                items.add(ImmutableEntityHierarchyItem.builder()
+                        .kind(kind)
+                        .id(chain[i])
+                        .parentId(chain[j])
+                        .ancestorLevel(j + 1)
+                        .descendantLevel(i + 1)
+                        .build());
+            }
+        }
+        return ImmutableEntityHierarchy.builder().hierarchyItems(items).build();
+    }
+}
@@ -0,0 +1,192 @@
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
+import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.FlowDirection;
+import org.finos.waltz.model.datatype.FlowDataType;
+import org.finos.waltz.model.datatype.ImmutableFlowDataType;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyCache;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleUtilities.MatchOutcome;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class FlowClassificationRuleSnapshotCacheTest {
+
+    private final EntityReference sourceApp = mkRef(EntityKind.APPLICATION, 100L);
+    private final EntityReference targetApp = mkRef(EntityKind.APPLICATION, 200L);
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final FakeEntityHierarchyDao hierarchyDao = new FakeEntityHierarchyDao();
+    private final EntityHierarchyCache hierarchyCache = new EntityHierarchyCache(hierarchyDao);
+    private final FakeFlowClassificationRuleDao ruleDao = new FakeFlowClassificationRuleDao();
+    private final FlowClassificationRuleSnapshotCache cache = new FlowClassificationRuleSnapshotCache(ruleDao, hierarchyCache, clock::get);
+
+
+    @Test
+    public void snapshotIsReusedUntilRulesChange() {
+        ruleDao.outboundRules = asList(mkRule(1L, 10L, "PRIMARY"));
+
+        FlowClassificationRuleSnapshot first = cache.get();
+        FlowClassificationRuleSnapshot second = cache.get();
+
+        assertSame(first, second);
+        assertEquals(2, ruleDao.loads.get(), "one load each for inbound and outbound rules");
+        assertEquals("PRIMARY", first.ratingCodeByRuleId(FlowDirection.OUTBOUND).get(1L));
+
+        Tuple2<Long, MatchOutcome> outcome = first.matcher(FlowDirection.OUTBOUND).match(mkDecorator(10L));
+        assertEquals(1L, outcome.v1);
+        assertEquals(MatchOutcome.POSITIVE_MATCH, outcome.v2);
+        assertNull(first.matcher(FlowDirection.INBOUND).match(mkDecorator(10L)));
+
+        ruleDao.outboundRules = asList(mkRule(2L, 10L, "SECONDARY"));
+        cache.invalidate();
+
+        FlowClassificationRuleSnapshot afterChange = cache.get();
+        assertEquals(4, ruleDao.loads.get());
+        assertEquals("SECONDARY", afterChange.ratingCodeByRuleId(FlowDirection.OUTBOUND).get(2L));
+        assertEquals(2L, afterChange.matcher(FlowDirection.OUTBOUND).match(mkDecorator(10L)).v1);
+        assertEquals(1L, first.matcher(FlowDirection.OUTBOUND).match(mkDecorator(10L)).v1, "existing snapshots are not modified");
+    }
+
+
+    @Test
+    public void hierarchyRebuildsForceNewSnapshot() {
+        ruleDao.outboundRules = asList(mkRule(1L, 10L, "PRIMARY"));
+        hierarchyDao.items = asList(mkItem(10L, 10L, 1), mkItem(20L, 20L, 1));
+
+        FlowClassificationRuleSnapshot before = cache.get();
+        assertNull(before.matcher(FlowDirection.OUTBOUND).match(mkDecorator(20L)), "20 is not yet a child of 10");
+
+        hierarchyDao.items = asList(mkItem(10L, 10L, 1), mkItem(20L, 20L, 2), mkItem(20L, 10L, 1));
+        hierarchyCache.onHierarchyRebuilt(EntityKind.DATA_TYPE);
+
+        FlowClassificationRuleSnapshot after = cache.get();
+        assertNotSame(before, after);
+        assertEquals(4, ruleDao.loads.get());
+        assertEquals(1L, after.matcher(FlowDirection.OUTBOUND).match(mkDecorator(20L)).v1);
+    }
+
+
+    @Test
+    public void snapshotIsRebuiltOnceExpired() {
+        cache.get();
+        clock.addAndGet(FlowClassificationRuleSnapshotCache.MAX_SNAPSHOT_AGE.toMillis() - 1);
+        cache.get();
+        assertEquals(2, ruleDao.loads.get());
+
+        clock.incrementAndGet();
+        cache.get();
+        assertEquals(4, ruleDao.loads.get());
+    }
+
+
+    @Test
+    public void snapshotsBuiltWhilstRulesChangeAreNotRetained() {
+        ruleDao.onLoad = cache::invalidate;
+        cache.get();
+
+        ruleDao.onLoad = () -> {};
+        cache.get();
+        assertEquals(4, ruleDao.loads.get(), "first snapshot may be stale so should have been discarded");
+
+        cache.get();
+        assertEquals(4, ruleDao.loads.get());
+    }
+
+
+    // -- helpers
+
+    private FlowClassificationRuleVantagePoint mkRule(long ruleId, long dataTypeId, String code) {
+        return ImmutableFlowClassificationRuleVantagePoint.builder()
+                .vantagePoint(targetApp)
+                .vantagePointRank(1)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeRank(1)
+                .subjectReference(sourceApp)
+                .classificationCode(code)
+                .ruleId(ruleId)
+                .build();
+    }
+
+
+    private FlowDataType mkDecorator(long dataTypeId) {
+        return ImmutableFlowDataType.builder()
+                .lfdId(1L)
+                .lfId(1L)
+                .source(sourceApp)
+                .target(targetApp)
+                .dtId(dataTypeId)
+                .sourceOutboundRating(AuthoritativenessRatingValue.NO_OPINION)
+                .targetInboundRating(AuthoritativenessRatingValue.NO_OPINION)
+                .build();
+    }
+
+
+    private static EntityHierarchyItem mkItem(long id, long parentId, int descendantLevel) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(parentId)
+                .kind(EntityKind.DATA_TYPE)
+                .ancestorLevel(1)
+                .descendantLevel(descendantLevel)
+                .build();
+    }
+
+
+    private static class FakeFlowClassificationRuleDao extends FlowClassificationRuleDao {
+
+        private List<FlowClassificationRuleVantagePoint> outboundRules = new ArrayList<>();
+        private Runnable onLoad = () -> {};
+        private final AtomicInteger loads = new AtomicInteger();
+
+        FakeFlowClassificationRuleDao() {
+            super(DSL.using(SQLDialect.DEFAULT));
+        }
+
+        @Override
+        public List<FlowClassificationRuleVantagePoint> findFlowClassificationRuleVantagePoints(FlowDirection direction) {
+            loads.incrementAndGet();
+            onLoad.run();
+            return direction == FlowDirection.OUTBOUND
+                    ? outboundRules
+                    : new ArrayList<>();
+        }
+    }
+
+
+    private static class FakeEntityHierarchyDao extends EntityHierarchyDao {
+
+        private List<EntityHierarchyItem> items = asList(mkItem(10L, 10L, 1), mkItem(20L, 20L, 1));
+
+        FakeEntityHierarchyDao() {
+            super(DSL.using(SQLDialect.DEFAULT));
+        }
+
+        @Override
+        public List<EntityHierarchyItem> fetchHierarchyForKind(EntityKind kind) {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.finos.waltz.service.person_hierarchy;
+
+import org.finos.waltz.schema.tables.records.PersonHierarchyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersonHierarchyDeltaTest {
+
+    /**
+     * ceo
+     *  - a
+     *    - a1
+     *      - a1x
+     *  - b
+     */
+    private static Map<String, String> mkOrg() {
+        Map<String, String> managerByEmployee = new HashMap<>();
+        managerByEmployee.put("ceo", null);
+        managerByEmployee.put("a", "ceo");
+        managerByEmployee.put("a1", "a");
+        managerByEmployee.put("a1x", "a1");
+        managerByEmployee.put("b", "ceo");
+        return managerByEmployee;
+    }
+
+
+    private static final Set<String> ORG_ROWS = asSet(
+            "ceo>a@1",
+            "ceo>a1@1", "a>a1@2",
+            "ceo>a1x@1", "a>a1x@2", "a1>a1x@3",
+            "ceo>b@1");
+
+
+    @Test
+    public void everyRowIsInsertedWhenTableIsEmpty() {
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(mkOrg());
+
+        assertEquals(ORG_ROWS, toStrings(delta.streamInsertions().collect(Collectors.toList())));
+        assertTrue(delta.getDeletions().isEmpty());
+        assertTrue(delta.getUpdates().isEmpty());
+    }
+
+
+    @Test
+    public void nothingChangesWhenTableIsUpToDate() {
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(mkOrg());
+        ORG_ROWS.forEach(r -> compare(delta, r));
+
+        assertEquals(0, delta.streamInsertions().count());
+        assertTrue(delta.getDeletions().isEmpty());
+        assertTrue(delta.getUpdates().isEmpty());
+    }
+
+
+    @Test
+    public void movingAPersonOnlyChangesTheirSubtree() {
+        Map<String, String> org = mkOrg();
+        org.put("a1", "b");
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(org);
+        ORG_ROWS.forEach(r -> compare(delta, r));
+
+        assertEquals(asSet("a>a1@2", "a>a1x@2"), toStrings(delta.getDeletions()));
+        assertEquals(asSet("b>a1@2", "b>a1x@2"), toStrings(delta.streamInsertions().collect(Collectors.toList())));
+        assertTrue(delta.getUpdates().isEmpty());
+    }
+
+
+    @Test
+    public void staleDuplicateAndMislevelledRowsAreCorrected() {
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(mkOrg());
+        ORG_ROWS.stream()
+                .filter(r -> ! r.equals("a1>a1x@3"))
+                .forEach(r -> compare(delta, r));
+        compare(delta, "a1>a1x@7");
+        compare(delta, "ceo>b@1");
+        compare(delta, "ceo>leaver@1");
+
+        assertEquals(asSet("a1>a1x@3"), toStrings(delta.getUpdates()));
+        assertEquals(asSet("ceo>b@1", "ceo>leaver@1"), toStrings(delta.getDeletions()));
+        assertEquals(asSet("ceo>b@1"), toStrings(delta.streamInsertions().collect(Collectors.toList())));
+    }
+
+
+    @Test
+    public void rowsWithManyCopiesAreDeletedOnceAndReinserted() {
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(mkOrg());
+        ORG_ROWS.forEach(r -> compare(delta, r));
+        compare(delta, "ceo>b@1");
+        compare(delta, "ceo>b@1");
+        compare(delta, "a>a1@2");
+
+        assertEquals(2, delta.getDeletions().size());
+        assertEquals(asSet("ceo>b@1", "a>a1@2"), toStrings(delta.getDeletions()));
+        assertEquals(asSet("ceo>b@1", "a>a1@2"), toStrings(delta.streamInsertions().collect(Collectors.toList())));
+        assertTrue(delta.getUpdates().isEmpty());
+    }
+
+
+    @Test
+    public void cyclesAreExcluded() {
+        Map<String, String> org = mkOrg();
+        org.put("x", "y");
+        org.put("y", "x");
+        org.put("z", "y");
+        org.put("self", "self");
+
+        PersonHierarchyDelta delta = new PersonHierarchyDelta(org);
+
+        assertEquals(3, delta.getCyclicCount());
+        assertEquals(ORG_ROWS, toStrings(delta.streamInsertions().collect(Collectors.toList())));
+    }
+
+
+    // -- helpers
+
+    private static void compare(PersonHierarchyDelta delta, String row) {
+        String[] managerAndRest = row.split(">");
+        String[] employeeAndLevel = managerAndRest[1].split("@");
+        delta.compareExisting(managerAndRest[0], employeeAndLevel[0], Integer.parseInt(employeeAndLevel[1]));
+    }
+
+
+    private static Set<String> toStrings(Collection<PersonHierarchyRecord> records) {
+        return records
+                .stream()
+                .map(r -> r.getManagerId() + ">" + r.getEmployeeId() + "@" + r.getLevel())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCell;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportSubject;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridCellStore;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportSubject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportGridColumnCalculatorTest {
+
+    private static final long FIXED_COL_ID = 1L;
+
+
+    @Test
+    public void derivedColumnsAreEvaluatedAfterTheColumnsTheyReference() {
+        // declared in reverse order of evaluation
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(12L, "THIRD", "cell('SECOND') == null ? 'missing' : 'chained'"),
+                mkDerivedCol(11L, "SECOND", "cell('FIRST') == null ? null : 'second'"),
+                mkDerivedCol(10L, "FIRST", "cell('COST') == null ? null : 'first'"));
+
+        Map<Long, ReportGridCell> cellsByColId = calculateForSingleSubject(definition);
+
+        assertEquals("first", cellsByColId.get(10L).textValue());
+        assertEquals("second", cellsByColId.get(11L).textValue());
+        assertEquals("chained", cellsByColId.get(12L).textValue());
+    }
+
+
+    @Test
+    public void cyclicColumnsGiveErrorCellsWithoutBlockingOtherColumns() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(10L, "PING", "cell('PONG') == null ? 'ping' : 'pong'"),
+                mkDerivedCol(11L, "PONG", "cell('PING') == null ? 'pong' : 'ping'"),
+                mkDerivedCol(12L, "SELFISH", "cell('SELFISH')"),
+                mkDerivedCol(13L, "INDEPENDENT", "'ok'"));
+
+        Map<Long, ReportGridCell> cellsByColId = calculateForSingleSubject(definition);
+
+        assertCycleError(cellsByColId.get(10L));
+        assertCycleError(cellsByColId.get(11L));
+        assertCycleError(cellsByColId.get(12L));
+        assertEquals("ok", cellsByColId.get(13L).textValue());
+        assertTrue(cellsByColId.get(10L).errorValue().contains("PONG"));
+    }
+
+
+    @Test
+    public void literalsMatchingExtIdsAreNotTreatedAsReferences() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(10L, "HIGH", "cell('COST') == null ? 'LOW' : 'HIGH'"),
+                mkDerivedCol(11L, "LOW", "'LOW'"),
+                mkDerivedCol(12L, "LABEL", "cell('HIGH').textValue() == 'LOW' ? 'cheap' : 'dear'"));
+
+        Map<Long, ReportGridCell> cellsByColId = calculateForSingleSubject(definition);
+
+        assertEquals("HIGH", cellsByColId.get(10L).textValue());
+        assertEquals("LOW", cellsByColId.get(11L).textValue());
+        assertEquals("dear", cellsByColId.get(12L).textValue());
+    }
+
+
+    @Test
+    public void onlyCellIdArgumentsAreReferences() {
+        assertEquals(
+                asSet("A", "B", "C", "D"),
+                ReportGridScriptReferences.findReferencedExtIds(
+                        "anyCellsProvided('A', \"B\") ? cell('C') : after('D', '2020-01-01', 'E', 'F')"));
+        assertTrue(ReportGridScriptReferences.findReferencedExtIds("'A' == \"B\"").isEmpty());
+        assertTrue(ReportGridScriptReferences.findReferencedExtIds(null).isEmpty());
+    }
+
+
+    @Test
+    public void nullResultsDoNotProduceCells() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(10L, "NOTHING", "null"),
+                mkDerivedCol(11L, "DEPENDENT", "cell('NOTHING') == null ? 'empty' : 'full'"));
+
+        Map<Long, ReportGridCell> cellsByColId = calculateForSingleSubject(definition);
+
+        assertNull(cellsByColId.get(10L));
+        assertEquals("empty", cellsByColId.get(11L).textValue());
+    }
+
+
+    @Test
+    public void rowsAreEvaluatedIndependently() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(10L, "NAME", "subjectName"),
+                mkDerivedCol(11L, "HAS_COST", "cell('COST') == null ? 'no' : 'yes'"));
+
+        Set<ReportSubject> subjects = asSet(mkSubject(1L), mkSubject(2L), mkSubject(3L));
+
+        ReportGridInstance instance = ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .cellStore(ReportGridCellStore.of(asSet(mkFixedCell(2L))))
+                .build();
+
+        Set<ReportGridCell> result = ReportGridColumnCalculator.calculate(instance, definition);
+
+        assertEquals(6, result.size());
+        result.stream()
+                .filter(c -> c.columnDefinitionId() == 10L)
+                .forEach(c -> assertEquals("app" + c.subjectId(), c.textValue()));
+        result.stream()
+                .filter(c -> c.columnDefinitionId() == 11L)
+                .forEach(c -> assertEquals(c.subjectId() == 2L ? "yes" : "no", c.textValue()));
+    }
+
+
+    // -- helpers ---
+
+    private static void assertCycleError(ReportGridCell cell) {
+        assertNotNull(cell);
+        assertNotNull(cell.errorValue());
+        assertFalse(cell.options().isEmpty());
+        assertEquals("CYCLE_ERROR", cell.options().iterator().next().code());
+    }
+
+
+    private static Map<Long, ReportGridCell> calculateForSingleSubject(ReportGridDefinition definition) {
+        ReportGridInstance instance = ImmutableReportGridInstance
+                .builder()
+                .addSubjects(mkSubject(1L))
+                .cellStore(ReportGridCellStore.of(asSet(mkFixedCell(1L))))
+                .build();
+
+        return ReportGridColumnCalculator
+                .calculate(instance, definition)
+                .stream()
+                .collect(Collectors.toMap(ReportGridCell::columnDefinitionId, c -> c));
+    }
+
+
+    private static ReportGridDefinition mkDefinition(ReportGridDerivedColumnDefinition... derivedColumns) {
+        return ImmutableReportGridDefinition
+                .builder()
+                .name("test")
+                .description("test")
+                .lastUpdatedBy("test")
+                .provenance("test")
+                .subjectKind(EntityKind.APPLICATION)
+                .addFixedColumnDefinitions(ImmutableReportGridFixedColumnDefinition
+                        .builder()
+                        .gridColumnId(FIXED_COL_ID)
+                        .columnEntityKind(EntityKind.COST_KIND)
+                        .columnName("Cost")
+                        .position(0)
+                        .build())
+                .derivedColumnDefinitions(newArrayList(derivedColumns))
+                .build();
+    }
+
+
+    private static ReportGridDerivedColumnDefinition mkDerivedCol(long id, String extId, String script) {
+        return ImmutableReportGridDerivedColumnDefinition
+                .builder()
+                .gridColumnId(id)
+                .displayName(extId)
+                .externalId(extId)
+                .position((int) id)
+                .derivationScript(script)
+                .build();
+    }
+
+
+    private static ReportSubject mkSubject(long id) {
+        return ImmutableReportSubject
+                .builder()
+                .entityReference(mkRef(EntityKind.APPLICATION, id, "app" + id))
+                .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                .build();
+    }
+
+
+    private static ReportGridCell mkFixedCell(long subjectId) {
+        return ImmutableReportGridCell
+                .builder()
+                .subjectId(subjectId)
+                .columnDefinitionId(FIXED_COL_ID)
+                .numberValue(BigDecimal.TEN)
+                .build();
+    }
+}
@@ -0,0 +1,237 @@
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduledJobGraphTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    public void dependenciesMustBeAddedFirst() {
+        ScheduledJobGraph graph = new ScheduledJobGraph();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> graph.add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, () -> {}, JobKey.HIERARCHY_REBUILD_DATA_TYPE));
+    }
+
+
+    @Test
+    public void jobsRunAfterTheirDependencies() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, mkTask("dt"))
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, mkTask("ou"))
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, mkTask("ratings"), JobKey.HIERARCHY_REBUILD_DATA_TYPE, JobKey.HIERARCHY_REBUILD_ORG_UNIT);
+
+        Set<JobKey> completed = graph.execute(executor, new RecordingLifecycle(asSet()));
+
+        assertEquals(3, completed.size());
+        assertEquals("ratings", events.get(2));
+    }
+
+
+    @Test
+    public void independentJobsRunConcurrently() throws InterruptedException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable awaitOther = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "other job did not start concurrently");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, awaitOther)
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, awaitOther);
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet());
+        Set<JobKey> completed = graph.execute(executor, lifecycle);
+
+        assertEquals(2, completed.size());
+        assertTrue(lifecycle.errored.isEmpty());
+    }
+
+
+    @Test
+    public void dependentsOfFailedJobsAreSkipped() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, () -> { throw new IllegalStateException("boom"); })
+                .add(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, mkTask("ripple"), JobKey.HIERARCHY_REBUILD_DATA_TYPE)
+                .add(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION, mkTask("usage"), JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, mkTask("ou"));
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet());
+        Set<JobKey> completed = graph.execute(executor, lifecycle);
+
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT), completed);
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE), lifecycle.errored);
+        assertEquals(newArrayList("ou"), events);
+    }
+
+
+    @Test
+    public void jobsWhichAreNotRunnableAreSkippedButDoNotBlockDependents() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, mkTask("dt"))
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, mkTask("ratings"), JobKey.HIERARCHY_REBUILD_DATA_TYPE);
+
+        Set<JobKey> completed = graph.execute(
+                executor,
+                new RecordingLifecycle(asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE)));
+
+        assertEquals(asSet(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS), completed);
+        assertEquals(newArrayList("ratings"), events);
+    }
+
+
+    @Test
+    public void lifecycleFailuresDoNotAbandonRunningJobs() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, mkTask("dt"))
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, mkTask("ou"))
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, mkTask("ratings"), JobKey.HIERARCHY_REBUILD_DATA_TYPE);
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet()) {
+            @Override
+            public void onCompleted(JobKey jobKey, long startedAtMillis, long durationMillis) {
+                super.onCompleted(jobKey, startedAtMillis, durationMillis);
+                throw new IllegalStateException("db unavailable");
+            }
+        };
+
+        Set<JobKey> completed = graph.execute(executor, lifecycle);
+
+        assertEquals(3, completed.size());
+        assertEquals(completed, lifecycle.completed);
+    }
+
+
+    @Test
+    public void errorsInJobsAreRecordedAsFailures() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, () -> { throw new AssertionError("bang"); })
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, mkTask("ratings"), JobKey.HIERARCHY_REBUILD_DATA_TYPE)
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, mkTask("ou"));
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet());
+        Set<JobKey> completed = graph.execute(executor, lifecycle);
+
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT), completed);
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE), lifecycle.errored);
+    }
+
+
+    @Test
+    public void failureToStartAJobSkipsItsDependents() throws InterruptedException {
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, mkTask("dt"))
+                .add(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS, mkTask("ratings"), JobKey.HIERARCHY_REBUILD_DATA_TYPE)
+                .add(JobKey.HIERARCHY_REBUILD_ORG_UNIT, mkTask("ou"));
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet()) {
+            @Override
+            public boolean tryStart(JobKey jobKey, Set<JobKey> dependencies) {
+                if (jobKey == JobKey.HIERARCHY_REBUILD_DATA_TYPE) {
+                    throw new IllegalStateException("db unavailable");
+                }
+                return super.tryStart(jobKey, dependencies);
+            }
+        };
+
+        Set<JobKey> completed = graph.execute(executor, lifecycle);
+
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT), completed);
+        assertEquals(newArrayList("ou"), events);
+    }
+
+
+    @Test
+    public void runningJobsAreCancelledAndRecordedWhenInterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        ScheduledJobGraph graph = new ScheduledJobGraph()
+                .add(JobKey.HIERARCHY_REBUILD_DATA_TYPE, () -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        RecordingLifecycle lifecycle = new RecordingLifecycle(asSet());
+        Thread runner = new Thread(() -> {
+            try {
+                graph.execute(executor, lifecycle);
+            } catch (InterruptedException e) {
+                events.add("interrupted");
+            }
+        });
+        runner.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        runner.interrupt();
+        runner.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(newArrayList("interrupted"), events);
+        assertEquals(asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE), lifecycle.errored);
+    }
+
+
+    // -- helpers
+
+    private Runnable mkTask(String name) {
+        return () -> events.add(name);
+    }
+
+
+    private static class RecordingLifecycle implements ScheduledJobGraph.JobLifecycle {
+
+        private final Set<JobKey> notRunnable;
+        private final Set<JobKey> completed = Collections.synchronizedSet(asSet());
+        private final Set<JobKey> errored = Collections.synchronizedSet(asSet());
+
+        private RecordingLifecycle(Set<JobKey> notRunnable) {
+            this.notRunnable = notRunnable;
+        }
+
+        @Override
+        public boolean tryStart(JobKey jobKey, Set<JobKey> dependencies) {
+            return ! notRunnable.contains(jobKey);
+        }
+
+        @Override
+        public void onCompleted(JobKey jobKey, long startedAtMillis, long durationMillis) {
+            completed.add(jobKey);
+        }
+
+        @Override
+        public void onErrored(JobKey jobKey, long startedAtMillis, long durationMillis, Exception e) {
+            errored.add(jobKey);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.finos.waltz.service.settings;
+
+import org.finos.waltz.data.settings.SettingsDao;
+import org.finos.waltz.model.settings.ImmutableSetting;
+import org.finos.waltz.model.settings.ImmutableUpdateSettingsCommand;
+import org.finos.waltz.model.settings.Setting;
+import org.finos.waltz.model.settings.UpdateSettingsCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.MapUtilities.newHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SettingsServiceTest {
+
+    @Test
+    public void settingsAreServedFromSnapshot() {
+        FakeSettingsDao dao = new FakeSettingsDao(mkSetting("a.x", "1"), mkSetting("b.y", "2"));
+        SettingsService svc = new SettingsService(dao, emptyList());
+
+        assertEquals("1", svc.getValue("a.x").orElse(null));
+        assertEquals("2", svc.getValue("b.y").orElse(null));
+        assertFalse(svc.getValue("c.z").isPresent());
+        assertEquals(2, svc.findAll().size());
+
+        assertEquals(1, dao.findAllCount.get(), "snapshot should only be loaded once");
+    }
+
+
+    @Test
+    public void overridesTakePrecedence() {
+        FakeSettingsDao dao = new FakeSettingsDao(mkSetting("a.x", "1"));
+        SettingsService svc = new SettingsService(dao, newArrayList(mkSetting("a.x", "override"), mkSetting("z", "dev-only")));
+
+        assertEquals("override", svc.getValue("a.x").orElse(null));
+        assertEquals("dev-only", svc.getValue("z").orElse(null));
+        assertEquals(1, svc.findAll().size(), "overrides only replace settings which exist in the table");
+        assertEquals("override", svc.findAll().iterator().next().value().orElse(null));
+    }
+
+
+    @Test
+    public void indexByPrefixExcludesRestrictedSettings() {
+        FakeSettingsDao dao = new FakeSettingsDao(
+                mkSetting("a.x", " 1 "),
+                ImmutableSetting.builder().name("a.secret").value("s").restricted(true).build(),
+                ImmutableSetting.builder().name("a.empty").build(),
+                mkSetting("b.y", "2"));
+
+        SettingsService svc = new SettingsService(dao, emptyList());
+
+        assertEquals(newHashMap("a.x", "1", "a.empty", ""), svc.indexByPrefix("a."));
+    }
+
+
+    @Test
+    public void updatesRefreshSnapshotAndNotifySubscribers() {
+        FakeSettingsDao dao = new FakeSettingsDao(mkSetting("a.x", "1"), mkSetting("b.y", "2"));
+        SettingsService svc = new SettingsService(dao, emptyList());
+
+        List<Map<String, String>> aNotifications = new ArrayList<>();
+        List<Map<String, String>> bNotifications = new ArrayList<>();
+        svc.subscribe("a.", aNotifications::add);
+        svc.subscribe("b.", bNotifications::add);
+
+        assertEquals("1", svc.getValue("a.x").orElse(null));
+
+        svc.update(ImmutableUpdateSettingsCommand.builder().name("a.x").value("3").build());
+
+        assertEquals("3", svc.getValue("a.x").orElse(null));
+        assertEquals(newArrayList(newHashMap("a.x", "3")), aNotifications);
+        assertTrue(bNotifications.isEmpty());
+
+        svc.create(mkSetting("b.z", "4"));
+        assertEquals(1, bNotifications.size());
+        assertEquals(newHashMap("b.y", "2", "b.z", "4"), bNotifications.get(0));
+    }
+
+
+    @Test
+    public void externalChangesArePickedUpOnRefresh() {
+        FakeSettingsDao dao = new FakeSettingsDao(mkSetting("a.x", "1"));
+        SettingsService svc = new SettingsService(dao, emptyList());
+        assertEquals("1", svc.getValue("a.x").orElse(null));
+
+        dao.settings.put("a.x", mkSetting("a.x", "2"));
+        assertEquals("1", svc.getValue("a.x").orElse(null));
+
+        svc.scheduledRefresh();
+        assertEquals("2", svc.getValue("a.x").orElse(null));
+
+        dao.settings.remove("a.x");
+        svc.scheduledRefresh();
+        assertNull(svc.getByName("a.x"));
+    }
+
+
+    // -- helpers
+
+    private static Setting mkSetting(String name, String value) {
+        return ImmutableSetting.builder()
+                .name(name)
+                .value(value)
+                .build();
+    }
+
+
+    private static class FakeSettingsDao extends SettingsDao {
+
+        private final Map<String, Setting> settings = new LinkedHashMap<>();
+        private final AtomicInteger findAllCount = new AtomicInteger();
+
+        FakeSettingsDao(Setting... settings) {
+            super(null);
+            for (Setting s : settings) {
+                this.settings.put(s.name(), s);
+            }
+        }
+
+        @Override
+        public Collection<Setting> findAll() {
+            findAllCount.incrementAndGet();
+            return new ArrayList<>(settings.values());
+        }
+
+        @Override
+        public int update(UpdateSettingsCommand cmd) {
+            Setting existing = settings.get(cmd.name());
+            settings.put(cmd.name(), ImmutableSetting.copyOf(existing).withValue(cmd.value()));
+            return 1;
+        }
+
+        @Override
+        public int create(Setting setting) {
+            settings.put(setting.name(), setting);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.survey.ImmutableSurveyQuestion;
+import org.finos.waltz.model.survey.ImmutableSurveyQuestionResponse;
+import org.finos.waltz.model.survey.SurveyQuestion;
+import org.finos.waltz.model.survey.SurveyQuestionFieldType;
+import org.finos.waltz.model.survey.SurveyQuestionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.MapUtilities.newHashMap;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QuestionPredicateEvaluatorTest {
+
+    // measurables have no specific namespace, so only the base (response based) functions are available
+    private static final EntityReference subject = mkRef(EntityKind.MEASURABLE, 1L);
+
+    private static final List<SurveyQuestion> questions = asList(
+            mkQuestion(1L, "Q1", null),
+            mkQuestion(2L, "Q2", "isChecked('Q1')"),
+            mkQuestion(3L, "Q3", "ditto('Q2')"),
+            mkQuestion(4L, "Q4", "numberValue('Q5') > 10"),
+            mkQuestion(5L, "Q5", ""));
+
+
+    @Test
+    public void questionsAreIncludedBasedOnResponses() {
+        assertEquals(
+                asSet("Q1", "Q5"),
+                activeQuestionExtIds(newHashMap()));
+
+        assertEquals(
+                asSet("Q1", "Q2", "Q3", "Q5"),
+                activeQuestionExtIds(newHashMap(1L, mkResponse(1L, true, null))));
+
+        assertEquals(
+                asSet("Q1", "Q4", "Q5"),
+                activeQuestionExtIds(newHashMap(
+                        1L, mkResponse(1L, false, null),
+                        5L, mkResponse(5L, null, 20.0))));
+    }
+
+
+    @Test
+    public void predicatesDoNotRetainStateBetweenEvaluations() {
+        Set<String> checked = activeQuestionExtIds(newHashMap(1L, mkResponse(1L, true, null)));
+        Set<String> unchecked = activeQuestionExtIds(newHashMap(1L, mkResponse(1L, false, null)));
+        Set<String> checkedAgain = activeQuestionExtIds(newHashMap(1L, mkResponse(1L, true, null)));
+
+        assertEquals(asSet("Q1", "Q2", "Q3", "Q5"), checked);
+        assertEquals(asSet("Q1", "Q5"), unchecked);
+        assertEquals(checked, checkedAgain);
+    }
+
+
+    // -- helpers
+
+    private static Set<String> activeQuestionExtIds(Map<Long, SurveyQuestionResponse> responses) {
+        return QuestionPredicateEvaluator
+                .eval(null, questions, subject, responses)
+                .stream()
+                .map(q -> q.externalId().orElse(null))
+                .collect(Collectors.toSet());
+    }
+
+
+    private static SurveyQuestion mkQuestion(long id, String extId, String predicate) {
+        return ImmutableSurveyQuestion.builder()
+                .id(id)
+                .externalId(extId)
+                .surveyTemplateId(1L)
+                .questionText(extId)
+                .fieldType(SurveyQuestionFieldType.BOOLEAN)
+                .inclusionPredicate(Optional.ofNullable(predicate))
+                .build();
+    }
+
+
+    private static SurveyQuestionResponse mkResponse(long questionId, Boolean bool, Double number) {
+        return ImmutableSurveyQuestionResponse.builder()
+                .questionId(questionId)
+                .booleanResponse(Optional.ofNullable(bool))
+                .numberResponse(Optional.ofNullable(number))
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.StringUtilities.isEmpty;
+
+/**
+ * Helpers for computing entity tags (ETags) and evaluating <code>If-None-Match</code>
+ * request headers, used to support conditional GET requests.
+ */
+public class ETagUtilities {
+
+    public static final String ETAG_HEADER = "ETag";
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    private static final String WEAK_PREFIX = "W/";
+
+
+    /**
+     * Creates a strong ETag from a hash of the (serialised) response body.
+     */
+    public static String mkStrongETag(String body) {
+        checkNotNull(body, "body cannot be null");
+        return mkStrongETag(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Creates a strong ETag from a hash of the response bytes.
+     */
+    public static String mkStrongETag(byte[] body) {
+        checkNotNull(body, "body cannot be null");
+        return quote(hash(body));
+    }
+
+
+    /**
+     * Creates a weak ETag from a version marker (e.g. a client cache key guid or last updated
+     * timestamp).  The tag is weak as the version identifies the data, not the exact bytes sent.
+     */
+    public static String mkVersionETag(String version) {
+        checkNotNull(version, "version cannot be null");
+        return WEAK_PREFIX + quote("v-" + hash(version.getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    /**
+     * Evaluates an <code>If-None-Match</code> header against the current ETag using weak
+     * comparison, as required for GET requests.
+     *
+     * @param ifNoneMatch  header value, may be null or a comma separated list of tags or '*'
+     * @param etag  current tag for the resource
+     * @return true if the client's copy is current and a 304 may be returned
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (isEmpty(ifNoneMatch) || etag == null) {
+            return false;
+        }
+
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeakPrefix(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // -- helpers
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith(WEAK_PREFIX)
+                ? tag.substring(WEAK_PREFIX.length())
+                : tag;
+    }
+
+
+    private static String quote(String str) {
+        return "\"" + str + "\"";
+    }
+
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(bytes);
+            return Base64
+                    .getUrlEncoder()
+                    .withoutPadding()
+                    .encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -3,4 +3,7 @@ package org.finos.waltz.web;
 public interface HttpHeader {
 
     String CACHE_CONTROL = "Cache-Control";
+    String ACCEPT_ENCODING = "Accept-Encoding";
+    String CONTENT_ENCODING = "Content-Encoding";
+    String VARY = "Vary";
 }
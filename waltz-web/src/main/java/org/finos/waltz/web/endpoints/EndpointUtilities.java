@@ -19,10 +19,16 @@
 package org.finos.waltz.web.endpoints;
 
 import org.finos.waltz.web.DatumRoute;
+import org.finos.waltz.web.ETagUtilities;
 import org.finos.waltz.web.ListRoute;
 import org.finos.waltz.web.WebUtilities;
+import org.finos.waltz.web.metrics.RouteMetrics;
+import org.finos.waltz.web.metrics.RouteStats;
 import spark.*;
 
+import java.util.Optional;
+import java.util.function.Function;
+
 import static org.finos.waltz.web.WebUtilities.TYPE_JSON;
 
 
@@ -39,7 +45,7 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForList(String path, ListRoute<T> handler) {
-        Spark.get(path, wrapListHandler(handler), transformer);
+        Spark.get(path, instrument("GET", path, wrapListHandler(handler)));
     }
 
 
@@ -52,31 +58,77 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForDatum(String path, DatumRoute<T> handler) {
-        Spark.get(path, wrapDatumHandler(handler), transformer);
+        Spark.get(path, instrument("GET", path, wrapDatumHandler(handler)));
     }
 
+    /**
+     * Variant of {@link #getForList(String, ListRoute)} which supports conditional requests.
+     * A strong ETag is computed over the serialised body and, if it matches the request's
+     * <code>If-None-Match</code> header, a <code>304 Not Modified</code> is returned without a body.
+     * The handler is always invoked, only the transfer of unchanged data is avoided.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForListWithETag(String path, ListRoute<T> handler) {
+        Spark.get(path, wrapConditionalHandler(path, wrapListHandler(handler), req -> Optional.empty()));
+    }
+
+
+    /**
+     * Variant of {@link #getForDatum(String, DatumRoute)} which supports conditional requests,
+     * see {@link #getForListWithETag(String, ListRoute)}.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForDatumWithETag(String path, DatumRoute<T> handler) {
+        Spark.get(path, wrapConditionalHandler(path, wrapDatumHandler(handler), req -> Optional.empty()));
+    }
+
+
+    /**
+     * Variant of {@link #getForList(String, ListRoute)} where the ETag is derived from a cheap version
+     * marker (e.g. a {@link org.finos.waltz.model.client_cache_key.ClientCacheKey} guid or a last
+     * updated timestamp) rather than the body.  If the client already holds the current version the
+     * handler is not invoked at all.  If no version is available the ETag is computed over the body,
+     * as per {@link #getForListWithETag(String, ListRoute)}.
+     *
+     * The version must change whenever the data returned by the handler changes.
+     * @param path
+     * @param versionProvider  returns the current version of the data returned by the handler
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForListWithVersion(String path,
+                                                 Function<Request, Optional<String>> versionProvider,
+                                                 ListRoute<T> handler) {
+        Spark.get(path, wrapConditionalHandler(path, wrapListHandler(handler), versionProvider));
+    }
+
+
     public static <T> void postForDatum(String path, DatumRoute<T> handler) {
-        Spark.post(path, wrapDatumHandler(handler), transformer);
+        Spark.post(path, instrument("POST", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void postForList(String path, ListRoute<T> handler) {
-        Spark.post(path, wrapListHandler(handler), transformer);
+        Spark.post(path, instrument("POST", path, wrapListHandler(handler)));
     }
 
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
-        Spark.delete(path, wrapListHandler(handler), transformer);
+        Spark.delete(path, instrument("DELETE", path, wrapListHandler(handler)));
     }
 
     public static <T> void deleteForDatum(String path, DatumRoute<T> handler) {
-        Spark.delete(path, wrapDatumHandler(handler), transformer);
+        Spark.delete(path, instrument("DELETE", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void putForDatum(String path, DatumRoute<T> handler) {
-        Spark.put(path, wrapDatumHandler(handler), transformer);
+        Spark.put(path, instrument("PUT", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void putForList(String path, ListRoute<T> handler) {
-        Spark.put(path, wrapListHandler(handler), transformer);
+        Spark.put(path, instrument("PUT", path, wrapListHandler(handler)));
     }
 
     public static <T extends Exception> void addExceptionHandler(Class<T> exceptionClass, ExceptionHandler<T> handler) {
@@ -108,4 +160,57 @@ public class EndpointUtilities {
         };
     }
 
+
+    /**
+     * Wraps the route so the response is rendered here (rather than by a route transformer)
+     * allowing handler time, serialisation time and payload size to be recorded separately
+     * in the route's {@link RouteStats}.
+     */
+    private static Route instrument(String method, String path, Route route) {
+        RouteStats stats = RouteMetrics.forRoute(method, path);
+        return stats.timed((request, response) -> stats.render(
+                transformer,
+                stats.handle(route, request, response)));
+    }
+
+
+    /**
+     * Instrumented (see {@link #instrument(String, String, Route)}) route which also sets the
+     * ETag and returns a 304 if the client's copy is current.
+     */
+    private static Route wrapConditionalHandler(String path,
+                                                Route route,
+                                                Function<Request, Optional<String>> versionProvider) {
+        RouteStats stats = RouteMetrics.forRoute("GET", path);
+        return stats.timed((request, response) -> {
+            String ifNoneMatch = request.headers(ETagUtilities.IF_NONE_MATCH_HEADER);
+            response.header("Cache-Control", "no-cache");
+
+            Optional<String> versionTag = versionProvider
+                    .apply(request)
+                    .map(ETagUtilities::mkVersionETag);
+
+            if (versionTag.isPresent()) {
+                response.header(ETagUtilities.ETAG_HEADER, versionTag.get());
+                return ETagUtilities.matches(ifNoneMatch, versionTag.get())
+                        ? notModified(response)
+                        : stats.render(transformer, stats.handle(route, request, response));
+            }
+
+            String body = stats.render(transformer, stats.handle(route, request, response));
+            String etag = ETagUtilities.mkStrongETag(body);
+            response.header(ETagUtilities.ETAG_HEADER, etag);
+
+            return ETagUtilities.matches(ifNoneMatch, etag)
+                    ? notModified(response)
+                    : body;
+        });
+    }
+
+
+    private static String notModified(Response response) {
+        response.status(304);
+        return "";
+    }
+
 }
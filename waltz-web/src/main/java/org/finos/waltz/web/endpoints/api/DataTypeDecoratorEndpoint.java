@@ -28,9 +28,11 @@ import org.finos.waltz.model.datatype.DataTypeDecoratorRatingCharacteristics;
 import org.finos.waltz.model.datatype.DataTypeDecoratorRatingCharacteristicsRequest;
 import org.finos.waltz.model.datatype.DataTypeUsageCharacteristics;
 import org.finos.waltz.model.logical_flow.DataTypeDecoratorView;
+import org.finos.waltz.model.recalc.RecalcStatus;
 import org.finos.waltz.service.data_type.DataTypeDecoratorService;
 import org.finos.waltz.service.data_type.DataTypeService;
 import org.finos.waltz.service.permission.permission_checker.FlowPermissionChecker;
+import org.finos.waltz.service.recalc.RecalcQueueService;
 import org.finos.waltz.web.DatumRoute;
 import org.finos.waltz.web.ListRoute;
 import org.finos.waltz.web.WebUtilities;
@@ -57,19 +59,23 @@ public class DataTypeDecoratorEndpoint implements Endpoint {
     private final DataTypeDecoratorService dataTypeDecoratorService;
     private final FlowPermissionChecker flowPermissionChecker;
     private final DataTypeService dataTypeService;
+    private final RecalcQueueService recalcQueueService;
 
 
     @Autowired
     public DataTypeDecoratorEndpoint(DataTypeDecoratorService dataTypeDecoratorService,
                                      DataTypeService dataTypeService,
-                                     FlowPermissionChecker flowPermissionChecker) {
+                                     FlowPermissionChecker flowPermissionChecker,
+                                     RecalcQueueService recalcQueueService) {
         checkNotNull(dataTypeDecoratorService, "DataTypeDecoratorService cannot be null");
         checkNotNull(flowPermissionChecker, "userRoleService cannot be null");
         checkNotNull(dataTypeService, "dataTypeService cannot be null");
+        checkNotNull(recalcQueueService, "recalcQueueService cannot be null");
 
         this.dataTypeDecoratorService = dataTypeDecoratorService;
         this.flowPermissionChecker = flowPermissionChecker;
         this.dataTypeService = dataTypeService;
+        this.recalcQueueService = recalcQueueService;
     }
 
 
@@ -85,6 +91,7 @@ public class DataTypeDecoratorEndpoint implements Endpoint {
         String findPermissionsPath = mkPath(BASE_URL, "entity", ":kind", ":id", "permissions");
         String findDecoratorViewPath = mkPath(BASE_URL, "entity", ":kind", ":id", "view");
         String findDatatypeRatingCharacteristicsForSourceAndTargetPath = mkPath(BASE_URL, "rating-characteristics");
+        String getRecalcStatusPath = mkPath(BASE_URL, "entity", ":kind", ":id", "recalc-status");
 
         ListRoute<DataTypeDecorator> findByEntityReferenceRoute = (req, res) ->
                 dataTypeDecoratorService.findByEntityId(getEntityReference(req));
@@ -113,6 +120,9 @@ public class DataTypeDecoratorEndpoint implements Endpoint {
         DatumRoute<DataTypeDecoratorView> findDecoratorViewRoute = (req, res) ->
                 dataTypeDecoratorService.getDecoratorView(getEntityReference(req));
 
+        DatumRoute<RecalcStatus> getRecalcStatusRoute = (req, res) ->
+                recalcQueueService.getStatus(getEntityReference(req));
+
         ListRoute<DataTypeDecoratorRatingCharacteristics> findDatatypeRatingCharacteristicsForSourceAndTargetRoute = (req, res) -> {
             DataTypeDecoratorRatingCharacteristicsRequest request = readBody(req, DataTypeDecoratorRatingCharacteristicsRequest.class);
             return dataTypeDecoratorService.findDatatypeRatingCharacteristicsForSourceAndTarget(request.source(), request.target());
@@ -127,20 +137,27 @@ public class DataTypeDecoratorEndpoint implements Endpoint {
         postForDatum(updateDataTypesPath, this::updateDataTypesRoute);
         postForList(findDatatypeRatingCharacteristicsForSourceAndTargetPath, findDatatypeRatingCharacteristicsForSourceAndTargetRoute);
         getForDatum(findDecoratorViewPath, findDecoratorViewRoute);
+        getForDatum(getRecalcStatusPath, getRecalcStatusRoute);
     }
 
 
-    private boolean updateDataTypesRoute(Request request, Response response) throws IOException, InsufficientPrivelegeException {
+    /**
+     * Derived data (ratings, usages etc.) is recalculated asynchronously, the returned
+     * status can be polled via the <code>recalc-status</code> route until no longer pending.
+     */
+    private RecalcStatus updateDataTypesRoute(Request request, Response response) throws IOException, InsufficientPrivelegeException {
 
         String userName = WebUtilities.getUsername(request);
         UpdateDataTypeDecoratorAction action = readBody(request, UpdateDataTypeDecoratorAction.class);
 
         checkHasPermissionToUpdateDataTypes(action.entityReference(), userName);
 
-        return dataTypeDecoratorService.updateDecorators(userName,
+        dataTypeDecoratorService.updateDecorators(userName,
                 action.entityReference(),
                 action.addedDataTypeIds(),
                 action.removedDataTypeIds());
+
+        return recalcQueueService.getStatus(action.entityReference());
     }
 
 
@@ -43,6 +43,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 
 @Service
@@ -72,6 +73,7 @@ public class DataTypeUsageEndpoint implements Endpoint {
         String findUsageStatsForDataTypeSelectorPath = WebUtilities.mkPath(BASE_URL, "type", "stats");
         String findForUsageKindByDataTypeSelectorPath = WebUtilities.mkPath(BASE_URL, "usage-kind", ":usage-kind");
         String calculateForAllApplicationsPath = WebUtilities.mkPath(BASE_URL, "calculate-all", "application");
+        String calculateForRecentChangesPath = WebUtilities.mkPath(BASE_URL, "calculate-recent", ":minutes");
         String findForSelectorPath = WebUtilities.mkPath(BASE_URL, "selector");
         String savePath = WebUtilities.mkPath(BASE_URL, "entity", ":kind", ":id", ":typeId");
 
@@ -93,6 +95,7 @@ public class DataTypeUsageEndpoint implements Endpoint {
         EndpointUtilities.postForList(findForSelectorPath, findForSelectorRoute);
         EndpointUtilities.postForList(savePath, this::saveRoute);
         EndpointUtilities.getForDatum(calculateForAllApplicationsPath, this::calculateForAllApplicationsRoute);
+        EndpointUtilities.getForDatum(calculateForRecentChangesPath, this::calculateForRecentChangesRoute);
         EndpointUtilities.postForDatum(findForUsageKindByDataTypeSelectorPath, this::findForUsageKindByDataTypeSelectorRoute);
     }
 
@@ -116,6 +119,14 @@ public class DataTypeUsageEndpoint implements Endpoint {
     }
 
 
+    private Integer calculateForRecentChangesRoute(Request request,
+                                                   Response response) {
+        WebUtilities.requireRole(userRoleService, request, SystemRole.ADMIN);
+        int minutes = WebUtilities.getInt(request, "minutes");
+        return dataTypeUsageService.recalculateForChangesSince(nowUtc().minusMinutes(minutes));
+    }
+
+
     private List<DataTypeUsage> saveRoute(Request request,
                                           Response response) throws IOException {
         WebUtilities.requireRole(userRoleService, request, SystemRole.LOGICAL_DATA_FLOW_EDITOR);
@@ -80,7 +80,7 @@ public class MeasurableCategoryEndpoint implements Endpoint {
 
         };
 
-        getForList(findAllPath, findAllRoute);
+        getForListWithETag(findAllPath, findAllRoute);
         getForList(getCategoriesByDirectOrgUnitPath, findCategoriesByDirectOrgUnitRoute);
         getForList(findPopulatedCategoriesForRefPath, findPopulatedCategoriesForRefRoute);
         getForDatum(getByIdPath, getByIdRoute);
@@ -18,6 +18,8 @@
 
 package org.finos.waltz.web.endpoints.api;
 
+import org.finos.waltz.model.client_cache_key.ClientCacheKey;
+import org.finos.waltz.service.client_cache_key.ClientCacheKeyService;
 import org.finos.waltz.service.measurable.MeasurableService;
 import org.finos.waltz.web.DatumRoute;
 import org.finos.waltz.web.ListRoute;
@@ -26,6 +28,9 @@ import org.finos.waltz.model.measurable.Measurable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.web.WebUtilities.*;
 import static org.finos.waltz.web.endpoints.EndpointUtilities.*;
 
@@ -35,12 +40,19 @@ public class MeasurableEndpoint implements Endpoint {
 
     private static final String BASE_URL = mkPath("api", "measurable");
 
+    private static final String TAXONOMY_CACHE_KEY = "TAXONOMY";
+
     private final MeasurableService measurableService;
+    private final ClientCacheKeyService clientCacheKeyService;
 
 
     @Autowired
-    public MeasurableEndpoint(MeasurableService measurableService) {
+    public MeasurableEndpoint(MeasurableService measurableService,
+                              ClientCacheKeyService clientCacheKeyService) {
+        checkNotNull(measurableService, "measurableService cannot be null");
+        checkNotNull(clientCacheKeyService, "clientCacheKeyService cannot be null");
         this.measurableService = measurableService;
+        this.clientCacheKeyService = clientCacheKeyService;
     }
 
 
@@ -77,7 +89,7 @@ public class MeasurableEndpoint implements Endpoint {
                 -> measurableService.findByParentId(getId(request));
 
 
-        getForList(findAllPath, findAllRoute);
+        getForListWithVersion(findAllPath, request -> Optional.of(calcFindAllVersion()), findAllRoute);
         getForList(findByExternalIdPath, findByExternalIdRoute);
         postForList(findByMeasurableIdSelectorPath, findByMeasurableIdSelectorRoute);
         getForDatum(getByIdPath, getByIdRoute);
@@ -86,4 +98,17 @@ public class MeasurableEndpoint implements Endpoint {
         getForList(findByParentIdPath, findByParentIdRoute);
     }
 
+
+    /**
+     * Combines the taxonomy cache key (bumped when taxonomy changes are applied) with a marker
+     * derived from the measurable table (covering other updates, e.g. bulk loads).
+     */
+    private String calcFindAllVersion() {
+        String taxonomyGuid = Optional
+                .ofNullable(clientCacheKeyService.getByKey(TAXONOMY_CACHE_KEY))
+                .map(ClientCacheKey::guid)
+                .orElse("");
+        return taxonomyGuid + ":" + measurableService.calcVersion();
+    }
+
 }
@@ -78,14 +78,14 @@ public class RatingSchemeEndpoint implements Endpoint {
             return ratingSchemeService.findRatingSchemeItemsForEntityAndCategory(ref, categoryId);
         };
 
-        getForList(findAllPath, (req, resp) -> ratingSchemeService.findAll());
+        getForListWithETag(findAllPath, (req, resp) -> ratingSchemeService.findAll());
         getForList(findRatingSchemeItemsForEntityAndCategoryPath, findRatingSchemeItemsForEntityAndCategoryRoute);
         getForList(findRatingSchemeItemsPath, (req, resp) -> ratingSchemeService.findRatingSchemeItemsByAssessmentDefinition(getId(req)));
         getForDatum(getByIdPath, (req, resp) -> ratingSchemeService.getById(getId(req)));
         putForDatum(saveSchemePath, this::saveScheme);
         putForDatum(saveRatingItemPath, this::saveRatingItem);
         getForList(calcRatingUsageStatsPath, (req, resp) -> ratingSchemeService.calcRatingUsageStats());
-        getForList(findAllRatingSchemeItemsPath, (req, resp) -> ratingSchemeService.findAllRatingSchemeItems());
+        getForListWithETag(findAllRatingSchemeItemsPath, (req, resp) -> ratingSchemeService.findAllRatingSchemeItems());
         deleteForDatum(removeRatingItemPath, this::removeRatingItem);
         deleteForDatum(removeRatingSchemePath, this::removeRatingScheme);
     }
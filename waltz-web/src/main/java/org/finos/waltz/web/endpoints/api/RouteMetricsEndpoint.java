@@ -0,0 +1,49 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.web.MimeTypes;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.finos.waltz.web.metrics.RouteMetrics;
+import org.springframework.stereotype.Service;
+import spark.Spark;
+
+import static org.finos.waltz.web.WebUtilities.mkPath;
+
+/**
+ * Exposes the route metrics (see {@link RouteMetrics}) as plain text for scraping by
+ * monitoring tools.  Deliberately not instrumented itself.
+ */
+@Service
+public class RouteMetricsEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "metrics");
+
+
+    @Override
+    public void register() {
+        String routesPath = mkPath(BASE_URL, "routes");
+
+        Spark.get(routesPath, (request, response) -> {
+            response.type(MimeTypes.TEXT_PLAIN + "; version=0.0.4");
+            return RouteMetrics.toPlainText();
+        });
+    }
+
+}
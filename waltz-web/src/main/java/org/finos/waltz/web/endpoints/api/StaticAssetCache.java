@@ -0,0 +1,228 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.web.ETagUtilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.StringUtilities.lower;
+import static org.finos.waltz.common.StringUtilities.notEmpty;
+
+/**
+ * In-memory cache of static assets, used by {@link StaticResourcesEndpoint}.
+ *
+ * Assets are loaded lazily on first request and retained for the life of the server (the bundled
+ * assets cannot change without a redeploy).  Each asset is held with a strong ETag and, for
+ * compressible content, a precomputed gzip variant.  <code>index.html</code> is rewritten for
+ * the deployed context path (see {@link #rewriteBaseTag(String, String)}) once per context path.
+ */
+class StaticAssetCache {
+
+    private static final String INDEX_HTML = "index.html";
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private final Function<String, InputStream> resourceOpener;
+
+    // keyed by resource path and context path, empty if the resource does not exist
+    private final ConcurrentMap<String, Optional<StaticAsset>> assets = new ConcurrentHashMap<>();
+
+
+    /**
+     * An immutable, fully loaded static asset.
+     */
+    static class StaticAsset {
+
+        private final String mimeType;
+        private final byte[] body;
+        private final String etag;
+        private final byte[] gzipBody;
+        private final String gzipETag;
+
+
+        private StaticAsset(String mimeType, byte[] body, byte[] gzipBody) {
+            this.mimeType = mimeType;
+            this.body = body;
+            this.etag = ETagUtilities.mkStrongETag(body);
+            this.gzipBody = gzipBody;
+            // strong tags must differ between encodings of the same resource
+            this.gzipETag = gzipBody == null
+                    ? null
+                    : etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+
+
+        String mimeType() {
+            return mimeType;
+        }
+
+
+        boolean hasGzipVariant() {
+            return gzipBody != null;
+        }
+
+
+        byte[] body(boolean gzip) {
+            return gzip && hasGzipVariant()
+                    ? gzipBody
+                    : body;
+        }
+
+
+        String etag(boolean gzip) {
+            return gzip && hasGzipVariant()
+                    ? gzipETag
+                    : etag;
+        }
+    }
+
+
+    StaticAssetCache(Function<String, InputStream> resourceOpener) {
+        checkNotNull(resourceOpener, "resourceOpener cannot be null");
+        this.resourceOpener = resourceOpener;
+    }
+
+
+    /**
+     * @param resourcePath  path of the resource on the classpath, e.g. static/index.html
+     * @param mimeType  mime type of the resource, used to decide if it is compressible
+     * @param contextPath  context path the application is deployed under, only used for index.html
+     * @return the asset, or empty if no such resource exists
+     */
+    Optional<StaticAsset> find(String resourcePath,
+                               Supplier<String> mimeType,
+                               String contextPath) {
+        boolean isIndex = resourcePath.endsWith(INDEX_HTML) && notEmpty(contextPath);
+        String key = isIndex
+                ? resourcePath + "|" + contextPath
+                : resourcePath;
+
+        return assets.computeIfAbsent(key, k -> load(
+                resourcePath,
+                mimeType.get(),
+                isIndex ? contextPath : null));
+    }
+
+
+    int size() {
+        return assets.size();
+    }
+
+
+    /**
+     * index.html need to have a <base href="/[site_context]/" /> tag in the head section to ensure
+     * html5 mode works correctly in AngularJS.  This method will ensure the existing <base href="/" /> tag
+     * is replace with one that includes the correct site context as deployed.
+     *
+     * @param html  content of index.html
+     * @param contextPath  the context path the site is deployed under
+     * @return the html with the amended <base> tag
+     */
+    static String rewriteBaseTag(String html, String contextPath) {
+        String[] lines = html.split("\\r?\\n", -1);
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lower(lines[i]);
+
+            if (line.contains("<base href=")) {
+                lines[i] = line.replaceFirst(
+                        "<base href=(['\"])/(['\"])\\s*/>",
+                        format(
+                            "\t<base href=\"%s/\" />",
+                            contextPath));
+
+                // done, exit loop
+                break;
+            }
+
+            if (line.contains("</head>")) {
+                // don't need to continue if have reached here and no base tag found
+                break;
+            }
+        }
+
+        return String.join(System.lineSeparator(), lines);
+    }
+
+
+    // -- helpers
+
+    private Optional<StaticAsset> load(String resourcePath,
+                                       String mimeType,
+                                       String indexContextPath) {
+        try (InputStream stream = resourceOpener.apply(resourcePath)) {
+            if (stream == null) {
+                return Optional.empty();
+            }
+
+            byte[] body = stream.readAllBytes();
+
+            if (indexContextPath != null) {
+                body = rewriteBaseTag(new String(body, StandardCharsets.UTF_8), indexContextPath)
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+
+            return Optional.of(new StaticAsset(
+                    mimeType,
+                    body,
+                    isCompressible(mimeType, body) ? gzipIfSmaller(body) : null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load static resource: " + resourcePath, e);
+        }
+    }
+
+
+    private static boolean isCompressible(String mimeType, byte[] body) {
+        if (body.length < MIN_GZIP_SIZE || mimeType == null) {
+            return false;
+        }
+        String type = lower(mimeType);
+        return type.startsWith("text/")
+                || type.contains("javascript")
+                || type.contains("json")
+                || type.contains("xml")
+                || type.contains("svg")
+                || type.contains("x-font-ttf");
+    }
+
+
+    private static byte[] gzipIfSmaller(byte[] body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(body);
+        }
+        byte[] compressed = buffer.toByteArray();
+        return compressed.length < body.length
+                ? compressed
+                : null;
+    }
+
+}
@@ -18,6 +18,8 @@
 
 package org.finos.waltz.web.endpoints.api;
 
+import org.finos.waltz.common.ExpiringCache;
+import org.finos.waltz.web.ETagUtilities;
 import org.finos.waltz.web.HttpHeader;
 import org.finos.waltz.web.endpoints.Endpoint;
 import org.slf4j.Logger;
@@ -26,27 +28,36 @@ import spark.Request;
 import spark.Response;
 import spark.Spark;
 
-import java.io.*;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
 import java.net.URL;
-import java.util.List;
+import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
-import static org.finos.waltz.web.WebUtilities.getMimeType;
-import static java.lang.String.format;
-import static org.finos.waltz.common.IOUtilities.copyStream;
-import static org.finos.waltz.common.IOUtilities.readLines;
 import static org.finos.waltz.common.StringUtilities.lower;
-import static org.finos.waltz.common.StringUtilities.notEmpty;
+import static org.finos.waltz.web.WebUtilities.getMimeType;
 
 public class StaticResourcesEndpoint implements Endpoint {
 
     private static final Logger LOG = LoggerFactory.getLogger(StaticResourcesEndpoint.class);
     private static final String CACHE_MAX_AGE_VALUE = "max-age=" + TimeUnit.DAYS.toSeconds(30);
+    private static final String NO_CACHE_VALUE = "no-cache";
+    private static final String INDEX_PATH = "static/index.html";
+
+    // client side (html5 mode) routes all resolve to index.html, so bound the number of paths remembered
+    private static final int MAX_RESOLVED_PATHS = 10_000;
 
 
     private final ClassLoader classLoader = StaticResourcesEndpoint.class
             .getClassLoader();
 
+    private final StaticAssetCache assetCache = new StaticAssetCache(classLoader::getResourceAsStream);
+
+    private final ExpiringCache<String, String> resolvedPaths = ExpiringCache.mkCache(
+            Duration.ofDays(1),
+            MAX_RESOLVED_PATHS);
+
 
     @Override
     public void register() {
@@ -54,36 +65,23 @@ public class StaticResourcesEndpoint implements Endpoint {
 
         Spark.get("/*", (request, response) -> {
 
-            String resolvedPath = resolvePath(request);
+            String resolvedPath = resolvedPaths.get(request.pathInfo(), p -> resolvePath(request));
 
             if (resolvedPath == null) {
                 return null;
             }
 
-            try (
-                InputStream resourceAsStream = classLoader.getResourceAsStream(resolvedPath)
-            ) {
-                if (resourceAsStream == null) {
+            try {
+                Optional<StaticAssetCache.StaticAsset> asset = assetCache.find(
+                        resolvedPath,
+                        () -> getMimeType(resolvedPath),
+                        request.contextPath());
+
+                if (! asset.isPresent()) {
                     return null;
                 } else {
-                    String message = format(
-                            "Serving %s in response to request for %s",
-                            resolvedPath,
-                            request.pathInfo());
-                    LOG.info(message);
-
-                    response.type(getMimeType(resolvedPath));
-
-                    addCacheHeadersIfNeeded(response, resolvedPath);
-                    InputStream modifiedStream = modifyIndexBaseTagIfNeeded(request, resolvedPath, resourceAsStream);
-
-                    OutputStream out = response
-                            .raw()
-                            .getOutputStream();
-
-                    copyStream(modifiedStream, out);
-                    out.flush();
-
+                    LOG.debug("Serving {} in response to request for {}", resolvedPath, request.pathInfo());
+                    serve(request, response, resolvedPath, asset.get());
                     return new Object(); // indicate we have handled the request
                 }
             } catch (Exception e) {
@@ -94,89 +92,84 @@ public class StaticResourcesEndpoint implements Endpoint {
     }
 
 
+    /**
+     * Writes the asset (gzipped if the client accepts it and a gzip variant exists) directly to
+     * the response, or a <code>304 Not Modified</code> if the client's copy is current.
+     */
+    private void serve(Request request,
+                       Response response,
+                       String resolvedPath,
+                       StaticAssetCache.StaticAsset asset) throws Exception {
+        boolean gzip = asset.hasGzipVariant() && acceptsGzip(request);
+        String etag = asset.etag(gzip);
+
+        response.type(asset.mimeType());
+        response.header(ETagUtilities.ETAG_HEADER, etag);
+        addCacheHeaders(response, resolvedPath);
+
+        if (asset.hasGzipVariant()) {
+            response.header(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+        }
+
+        HttpServletResponse raw = response.raw();
+
+        if (ETagUtilities.matches(request.headers(ETagUtilities.IF_NONE_MATCH_HEADER), etag)) {
+            response.status(304);
+            raw.flushBuffer();
+            return;
+        }
+
+        if (gzip) {
+            response.header(HttpHeader.CONTENT_ENCODING, "gzip");
+        }
+
+        byte[] body = asset.body(gzip);
+        raw.setContentLength(body.length);
+
+        OutputStream out = raw.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+
     /**
      * We want to add a cache-control: max-age value to all resources except html.
      * This is because the html resources have references to 'cache-busted' js files
      * and other resources.  If the html was also cached then it would be difficult
-     * to detect client code updates.
+     * to detect client code updates.  Html is instead revalidated using its ETag.
      *
      * @param response - the http response we are servicing
      * @param resolvedPath - the resolved path to the resource we are serving
      */
-    private void addCacheHeadersIfNeeded(Response response, String resolvedPath) {
-        if (! resolvedPath.endsWith(".html")) {
-            response.header(HttpHeader.CACHE_CONTROL, CACHE_MAX_AGE_VALUE);
-        }
+    private void addCacheHeaders(Response response, String resolvedPath) {
+        response.header(
+                HttpHeader.CACHE_CONTROL,
+                resolvedPath.endsWith(".html")
+                        ? NO_CACHE_VALUE
+                        : CACHE_MAX_AGE_VALUE);
     }
 
 
-    /**
-     * index.html need to have a <base href="/[site_context]/" /> tag in the head section to ensure
-     * html5 mode works correctly in AngularJS.  This method will ensure the existing <base href="/" /> tag
-     * is replace with one that includes the correct site context as deployed.
-     * @param request
-     * @param resolvedPath
-     * @param resourceStream
-     * @return the modified input stream with the amended <base> tag or the original unmodified resourceStream
-     * @throws IOException
-     */
-    private InputStream modifyIndexBaseTagIfNeeded(Request request,
-                                                   String resolvedPath,
-                                                   InputStream resourceStream) throws IOException {
-        if(resolvedPath.endsWith("index.html") && notEmpty(request.contextPath())) {
-            List<String> lines = readLines(resourceStream);
-
-            for(int i = 0; i < lines.size(); i++) {
-                String line = lower(lines.get(i));
-
-                if (line.contains("<base href=")) {
-                    LOG.info("Found <base> tag: " + line + ", adding context path: " + request.contextPath());
-                    line = line.replaceFirst(
-                            "<base href=(['\"])/(['\"])\\s*/>",
-                            format(
-                                "\t<base href=\"%s/\" />",
-                                request.contextPath()));
-                    LOG.info("Updated <base> tag: " + line);
-                    lines.set(i, line);
-
-                    // done, exit loop
-                    break;
-                }
-
-                if (line.contains("</head>") ) {
-                    // don't need to continue if have reached here and no base tag found
-                    break;
-                }
-            }
-
-            // copy amended file into a stream
-            try(ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                 OutputStreamWriter writer = new OutputStreamWriter(outputStream)) {
-
-                for(String line : lines) {
-                    writer.write(line);
-                    writer.write(System.lineSeparator());
-                }
-
-                writer.flush();
-                return new ByteArrayInputStream(outputStream.toByteArray());
-            }
-        }
-        return resourceStream;
+    private static boolean acceptsGzip(Request request) {
+        String acceptEncoding = request.headers(HttpHeader.ACCEPT_ENCODING);
+        return acceptEncoding != null && lower(acceptEncoding).contains("gzip");
     }
 
 
     private String resolvePath(Request request) {
-        final String indexPath = "static/index.html";
         String path = request.pathInfo().replaceFirst("/", "");
-        String resourcePath = path.length() > 0 ? ("static/" + path) : indexPath;
+        String resourcePath = path.length() > 0 ? ("static/" + path) : INDEX_PATH;
 
         URL resource = classLoader.getResource(resourcePath);
 
         if (resource == null) {
             // 404: return index.html
-            resource = classLoader.getResource(indexPath);
-            resourcePath = indexPath;
+            resource = classLoader.getResource(INDEX_PATH);
+            resourcePath = INDEX_PATH;
+        }
+
+        if (resource == null) {
+            return null;
         }
 
         boolean isDirectory = resource
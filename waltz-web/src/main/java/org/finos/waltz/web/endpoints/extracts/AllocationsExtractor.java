@@ -46,8 +46,8 @@ import static org.finos.waltz.schema.Tables.MEASURABLE_RATING;
 import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
 import static org.finos.waltz.schema.Tables.RATING_SCHEME_ITEM;
 import static org.finos.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 
@@ -36,7 +36,7 @@ import org.springframework.stereotype.Service;
 
 import static org.finos.waltz.schema.Tables.APPLICATION;
 import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 // TODO: remove in 1.61 if not needed
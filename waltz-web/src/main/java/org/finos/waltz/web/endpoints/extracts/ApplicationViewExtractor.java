@@ -51,7 +51,7 @@ import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.model.utils.IdUtilities.indexByOptionalId;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
@@ -36,7 +36,7 @@ import java.sql.Timestamp;
 import static org.finos.waltz.schema.Tables.ASSESSMENT_DEFINITION;
 import static org.finos.waltz.schema.Tables.ASSESSMENT_RATING;
 import static org.finos.waltz.schema.Tables.RATING_SCHEME_ITEM;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
@@ -60,8 +60,8 @@ import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.convertE
 import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.sanitizeSheetName;
 import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
@@ -40,8 +40,8 @@ import java.sql.Timestamp;
 import static java.lang.String.format;
 import static org.finos.waltz.schema.Tables.CHANGE_LOG;
 import static org.finos.waltz.schema.Tables.PERSON;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
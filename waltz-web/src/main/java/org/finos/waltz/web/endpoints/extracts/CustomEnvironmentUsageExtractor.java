@@ -34,7 +34,7 @@ import org.springframework.stereotype.Service;
 import static java.lang.String.format;
 import static org.finos.waltz.schema.Tables.*;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
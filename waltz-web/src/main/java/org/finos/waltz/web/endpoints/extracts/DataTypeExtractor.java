@@ -27,7 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import static org.finos.waltz.schema.Tables.DATA_TYPE;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
@@ -26,10 +26,7 @@ import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.finos.waltz.web.MimeTypes;
 import org.jooq.DSLContext;
-import org.jooq.JSONFormat;
-import org.jooq.Result;
 import org.jooq.Select;
-import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import spark.Request;
 import spark.Response;
@@ -77,26 +74,25 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
             case CSV:
                 return writeAsCSV(suggestedFilenameStem, qry, response);
             case JSON:
-                return writeAsJson(qry, response);
+                return writeAsJson(suggestedFilenameStem, qry, response);
             default:
                 throw new IllegalArgumentException("Cannot write extract using unknown format: " + extractFormat);
         }
     }
 
-    private String writeAsJson(Select<?> qry,
-                               Response response) {
-        response.type(MimeTypes.APPLICATION_JSON_UTF_8);
-        return query(dsl, qry)
-                .formatJSON(new JSONFormat()
-                        .header(false)
-                        .recordFormat(JSONFormat.RecordFormat.OBJECT));
-    }
+    private Object writeAsJson(String suggestedFilenameStem,
+                               Select<?> qry,
+                               Response response) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        httpResponse.setHeader("Content-Type", MimeTypes.APPLICATION_JSON_UTF_8);
 
+        StreamingExtractWriter.writeJSON(
+                suggestedFilenameStem,
+                dsl,
+                qry,
+                httpResponse.getOutputStream());
 
-    private Result<?> query(DSLContext dslContext, Select<?> qry){
-        return dslContext == null
-                ? qry.fetch()
-                : dslContext.fetch(dslContext.renderInlined(qry));
+        return closeResponse(httpResponse);
     }
 
 
@@ -104,13 +100,14 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     public static Object writeAsMultiSheetExcel(DSLContext dsl,
                                                 String suggestedFilenameStem,
                                                 Response response,
-                                                Tuple2<String, Select<?>>... sheetDefinitions) {
+                                                Tuple2<String, Select<?>>... sheetDefinitions) throws IOException {
         SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
+        long rowCount = 0;
 
         for (Tuple2<String, Select<?>> sheetDef : sheetDefinitions) {
             SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(sheetDef.v1));
             writeExcelHeader(sheetDef.v2, sheet);
-            writeExcelBody(sheetDef.v2, sheet, dsl);
+            rowCount += StreamingExtractWriter.writeExcelBody(dsl, sheetDef.v2, sheet);
 
             int endFilterColumnIndex = sheetDef.v2.fields().length == 0
                     ? 0
@@ -120,10 +117,11 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
             sheet.createFreezePane(0, 1);
         }
 
-        return Unchecked.supplier(() -> writeExcelToResponse(
+        return writeExcelToResponse(
                 suggestedFilenameStem,
                 response,
-                workbook));
+                workbook,
+                rowCount);
     }
 
 
@@ -134,7 +132,7 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(suggestedFilenameStem));
 
         writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet, null);
+        long rowCount = StreamingExtractWriter.writeExcelBody(null, qry, sheet);
 
         int endFilterColumnIndex = qry.fields().length == 0
                 ? 0
@@ -143,61 +141,53 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
         sheet.createFreezePane(0, 1);
 
-        return writeExcelToResponse(suggestedFilenameStem, response, workbook);
+        return writeExcelToResponse(suggestedFilenameStem, response, workbook, rowCount);
     }
 
 
     private static HttpServletResponse writeExcelToResponse(String suggestedFilenameStem,
                                                             Response response,
-                                                            SXSSFWorkbook workbook) throws IOException {
-        byte[] bytes = ExtractorUtilities.convertExcelToByteArray(workbook);
-
+                                                            SXSSFWorkbook workbook,
+                                                            long rowCount) throws IOException {
         HttpServletResponse httpResponse = response.raw();
 
         httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
         httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        // no content length, the workbook is streamed using chunked transfer encoding
+        StreamingExtractWriter.writeExcel(
+                suggestedFilenameStem,
+                workbook,
+                rowCount,
+                httpResponse.getOutputStream());
 
-        return httpResponse;
+        return closeResponse(httpResponse);
     }
 
 
     private Object writeAsCSV(String suggestedFilenameStem,
                               Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
+                              Response response) throws IOException {
         response.type(MimeTypes.TEXT_PLAIN);
         response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
+
+        HttpServletResponse httpResponse = response.raw();
+
+        StreamingExtractWriter.writeCSV(
+                suggestedFilenameStem,
+                null,
+                qry,
+                httpResponse.getOutputStream());
+
+        return closeResponse(httpResponse);
     }
 
 
-    private static void writeExcelBody(Select<?> qry,
-                                       SXSSFSheet sheet,
-                                       DSLContext dsl) {
-        AtomicInteger rowCounter = new AtomicInteger(1);
-
-        Result<?> records = dsl == null
-                ? qry.fetch()
-                : dsl.fetch(dsl.renderInlined(qry));
-
-        int colCount = qry.fields().length;
-        records.forEach(r -> {
-            int rowNum = rowCounter.getAndIncrement();
-            Row row = sheet.createRow(rowNum);
-            for (int col = 0; col < colCount; col++) {
-                Cell cell = row.createCell(col);
-                Object val = r.get(col);
-                if (val != null) {
-                    cell.setCellValue(val.toString());
-                }
-            }
-        });
+    private static HttpServletResponse closeResponse(HttpServletResponse httpResponse) throws IOException {
+        httpResponse.getOutputStream().flush();
+        httpResponse.getOutputStream().close();
+        return httpResponse;
     }
 
 
@@ -43,8 +43,8 @@ import static java.lang.String.format;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.schema.Tables.COST;
 import static org.finos.waltz.schema.Tables.COST_KIND;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
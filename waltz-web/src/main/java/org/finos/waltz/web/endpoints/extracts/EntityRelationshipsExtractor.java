@@ -46,7 +46,7 @@ import static org.finos.waltz.schema.tables.ChangeInitiative.CHANGE_INITIATIVE;
 import static org.finos.waltz.schema.tables.EntityRelationship.ENTITY_RELATIONSHIP;
 import static org.finos.waltz.schema.tables.Measurable.MEASURABLE;
 import static org.finos.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 @Service
 public class EntityRelationshipsExtractor extends DirectQueryBasedDataExtractor{
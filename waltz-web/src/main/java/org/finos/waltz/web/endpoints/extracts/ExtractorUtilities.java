@@ -2,7 +2,10 @@ package org.finos.waltz.web.endpoints.extracts;
 
 
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.finos.waltz.web.metrics.RouteMetrics;
 import spark.Request;
+import spark.Route;
+import spark.Spark;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -14,6 +17,29 @@ import static org.finos.waltz.common.StringUtilities.mkSafe;
 public class ExtractorUtilities {
 
 
+    /**
+     * Registers a GET extract route, recording its latency and errors in the route metrics.
+     * Extracts write directly to the response so payload sizes are not captured.
+     *
+     * @param path  route template
+     * @param route  extract route
+     */
+    public static void get(String path, Route route) {
+        Spark.get(path, RouteMetrics.forRoute("GET", path).timed(route));
+    }
+
+
+    /**
+     * POST variant of {@link #get(String, Route)}.
+     *
+     * @param path  route template
+     * @param route  extract route
+     */
+    public static void post(String path, Route route) {
+        Spark.post(path, RouteMetrics.forRoute("POST", path).timed(route));
+    }
+
+
     public static byte[] convertExcelToByteArray(SXSSFWorkbook workbook) throws IOException {
         ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
         workbook.write(outByteStream);
@@ -38,7 +38,7 @@ import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.schema.Tables.LEGAL_ENTITY;
 import static org.finos.waltz.schema.Tables.LEGAL_ENTITY_RELATIONSHIP;
 import static org.finos.waltz.schema.Tables.LEGAL_ENTITY_RELATIONSHIP_KIND;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
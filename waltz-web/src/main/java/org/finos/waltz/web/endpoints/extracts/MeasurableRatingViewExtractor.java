@@ -69,7 +69,7 @@ import static org.finos.waltz.common.StringUtilities.join;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
 import static org.finos.waltz.web.WebUtilities.mkPath;
 import static org.finos.waltz.web.WebUtilities.readBody;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
@@ -19,7 +19,7 @@ import static org.finos.waltz.common.StringUtilities.isNumericLong;
 import static org.finos.waltz.common.StringUtilities.toOptional;
 import static org.finos.waltz.model.EntityLinkUtilities.mkExternalIdLink;
 import static org.finos.waltz.model.EntityLinkUtilities.mkIdLink;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
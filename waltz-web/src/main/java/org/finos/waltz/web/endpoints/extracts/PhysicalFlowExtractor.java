@@ -56,7 +56,7 @@ import static org.finos.waltz.schema.Tables.TAG;
 import static org.finos.waltz.schema.Tables.TAG_USAGE;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.finos.waltz.schema.tables.PhysicalSpecification.PHYSICAL_SPECIFICATION;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.post;
 
 
 @Service
@@ -23,7 +23,7 @@ import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.IdSelectionOptions;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.ReportGrid;
-import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridCellStore;
 import org.finos.waltz.model.report_grid.ReportGridDefinition;
 import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
 import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
@@ -51,7 +51,6 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -61,17 +60,14 @@ import java.util.function.LongFunction;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
-import static java.util.Collections.emptySet;
 import static java.util.Comparator.comparingLong;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.ListUtilities.map;
-import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.common.StringUtilities.firstNonNull;
 import static org.finos.waltz.common.StringUtilities.mkSafe;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
-import static org.finos.waltz.service.report_grid.ReportGridColumnCalculator.calculate;
 import static org.finos.waltz.web.WebUtilities.mkPath;
 import static org.finos.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
 import static org.finos.waltz.web.endpoints.EndpointUtilities.getForDatum;
@@ -291,16 +287,11 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
 
         Set<Tuple3<Long, Integer, EntityKind>> allColumnDefinitions = union(derivedCols, fixedCols);
 
-        Set<ReportGridCell> tableData = (definition.derivedColumnDefinitions().isEmpty())
-                ? reportGridInstance.cellData()
-                : union(reportGridInstance.cellData(), calculate(reportGridInstance, definition));
+        // derived column values have already been calculated and added to the instance by the service
+        ReportGridCellStore cellStore = reportGridInstance.cellStore();
 
         Map<Long, RatingSchemeItem> ratingsById = indexById(reportGridInstance.ratingSchemeItems());
 
-        Map<Long, Collection<ReportGridCell>> tableDataBySubjectId = groupBy(
-                tableData,
-                ReportGridCell::subjectId);
-
         boolean allowCostsExport = settingsService
                 .getValue(SettingsService.ALLOW_COST_EXPORTS_KEY)
                 .map(r -> StringUtilities.isEmpty(r) || Boolean.parseBoolean(r))
@@ -310,16 +301,10 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
                 .subjects()
                 .stream()
                 .map(subject -> {
-                    Collection<ReportGridCell> cellsForSubject = tableDataBySubjectId.getOrDefault(
-                            subject.entityReference().id(),
-                            emptySet());
+                    long subjectId = subject.entityReference().id();
 
                     ArrayList<Object> reportRow = new ArrayList<>();
 
-                    Map<Long, ReportGridCell> cellValuesByColumnRefForSubject = indexBy(
-                            cellsForSubject,
-                            ReportGridCell::columnDefinitionId);
-
                     allColumnDefinitions
                             .stream()
                             .sorted(Comparator.comparingInt(Tuple3::v2))
@@ -329,11 +314,9 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
 
                                 if (t.v3.equals(EntityKind.REPORT_GRID_DERIVED_COLUMN_DEFINITION)) {
 
-                                    ReportGridCell cell = cellValuesByColumnRefForSubject.getOrDefault(
-                                            columnId,
-                                            null);
+                                    int cell = cellStore.findCell(subjectId, columnId);
 
-                                    reportRow.add(getDerivedCellValue(cell));
+                                    reportRow.add(getDerivedCellValue(cellStore, cell));
 
                                 } else {
 
@@ -346,14 +329,12 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
                                         reportRow.add("REDACTED");
                                     } else {
 
-                                        ReportGridCell cell = cellValuesByColumnRefForSubject.getOrDefault(
-                                                colDef.gridColumnId(),
-                                                null);
+                                        int cell = cellStore.findCell(subjectId, colDef.gridColumnId());
 
-                                        reportRow.add(getValueFromFixedReportCell(colDef, ratingsById, cell));
+                                        reportRow.add(getValueFromFixedReportCell(colDef, ratingsById, cellStore, cell));
 
                                         if (ColumnCommentary.HAS_COMMENTARY.equals(fixedCol.v2)) {
-                                            reportRow.add(getCommentFromCell(cell));
+                                            reportRow.add(getCommentFromCell(cellStore, cell));
                                         }
                                     }
                                 }
@@ -365,34 +346,35 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
                 .collect(toList());
     }
 
-    private Object getDerivedCellValue(ReportGridCell cell) {
-        if (cell == null) {
+    private Object getDerivedCellValue(ReportGridCellStore cellStore, int cell) {
+        if (cell < 0) {
             return null;
         } else {
             return Optional
-                    .ofNullable(cell.textValue())
-                    .orElse(cell.errorValue());
+                    .ofNullable(cellStore.textValue(cell))
+                    .orElse(cellStore.errorValue(cell));
         }
     }
 
-    private Object getCommentFromCell(ReportGridCell reportGridCell) {
-        if (reportGridCell == null) {
+    private Object getCommentFromCell(ReportGridCellStore cellStore, int cell) {
+        if (cell < 0) {
             return null;
         }
-        return reportGridCell.comment();
+        return cellStore.comment(cell);
     }
 
 
     private Object getValueFromFixedReportCell(ReportGridFixedColumnDefinition colDef,
                                                Map<Long, RatingSchemeItem> ratingsById,
-                                               ReportGridCell reportGridCell) {
-        if (reportGridCell == null) {
+                                               ReportGridCellStore cellStore,
+                                               int cell) {
+        if (cell < 0) {
             return null;
         }
         switch (colDef.columnEntityKind()) {
             case COST_KIND:
             case COMPLEXITY_KIND:
-                return reportGridCell.numberValue();
+                return cellStore.numberValue(cell);
             case INVOLVEMENT_KIND:
             case SURVEY_TEMPLATE:
             case APPLICATION:
@@ -406,16 +388,16 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
             case MEASURABLE_CATEGORY:
             case ENTITY_STATISTIC:
                 return Optional
-                        .ofNullable(reportGridCell.textValue())
+                        .ofNullable(cellStore.textValue(cell))
                         .orElse("-");
             case ATTESTATION:
                 return Optional
-                        .ofNullable(reportGridCell.dateTimeValue())
+                        .ofNullable(cellStore.dateTimeValue(cell))
                         .map(LocalDateTime::toString)
                         .orElse("-");
             case MEASURABLE:
             case ASSESSMENT_DEFINITION:
-                return reportGridCell.textValue();
+                return cellStore.textValue(cell);
             default:
                 throw new IllegalArgumentException("This report does not support export with column of type: " + colDef.columnEntityKind().name());
         }
@@ -0,0 +1,264 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.extracts;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.finos.waltz.web.metrics.RouteStats;
+import org.jooq.CSVFormat;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.JSONFormat;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes query results directly to an output stream (typically the servlet response)
+ * without materialising the full result set or the formatted output.
+ *
+ * Rows are read from a lazy cursor in fixed size chunks, each chunk is formatted and
+ * flushed before the next is fetched.  As writes to the response block when the client
+ * is slow to consume data, memory use is bounded by the chunk size and output buffer
+ * regardless of the size of the extract.
+ *
+ * The rows and bytes written are logged and recorded against the current route's
+ * {@link RouteStats}, see the <code>waltz_route_extract_rows</code> and
+ * <code>waltz_route_response_bytes</code> metrics.
+ */
+public class StreamingExtractWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingExtractWriter.class);
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final JSONFormat JSON_FORMAT = new JSONFormat()
+            .header(false)
+            .recordFormat(JSONFormat.RecordFormat.OBJECT);
+
+
+    /**
+     * Summary of a completed extract, used for logging and route metrics.
+     */
+    public static class ExtractStats {
+
+        private final long rows;
+        private final long bytes;
+        private final long durationMillis;
+
+        private ExtractStats(long rows, long bytes, long durationMillis) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.durationMillis = durationMillis;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        public long durationMillis() {
+            return durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rows=%d, bytes=%d, duration=%dms", rows, bytes, durationMillis);
+        }
+    }
+
+
+    /**
+     * Opens a lazy cursor over the query.  If a dsl is supplied the query is
+     * rendered with inlined bind values and executed against it.
+     */
+    public static Cursor<? extends Record> openCursor(DSLContext dsl, Select<?> qry) {
+        ResultQuery<? extends Record> resultQuery = dsl == null
+                ? qry
+                : dsl.resultQuery(dsl.renderInlined(qry));
+
+        return resultQuery
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy();
+    }
+
+
+    public static ExtractStats writeCSV(String name,
+                                        DSLContext dsl,
+                                        Select<?> qry,
+                                        OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        long rows = 0;
+
+        try (Cursor<? extends Record> cursor = openCursor(dsl, qry)) {
+            Writer writer = mkWriter(counter);
+            boolean first = true;
+            do {
+                Result<? extends Record> chunk = cursor.fetchNext(CHUNK_SIZE);
+                // header is written with the first chunk, even if it is empty
+                chunk.formatCSV(writer, new CSVFormat().header(first));
+                writer.flush();
+                rows += chunk.size();
+                first = false;
+            } while (cursor.hasNext());
+        }
+
+        return recordStats(name, "CSV", rows, counter, start);
+    }
+
+
+    public static ExtractStats writeJSON(String name,
+                                         DSLContext dsl,
+                                         Select<?> qry,
+                                         OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        long rows = 0;
+
+        try (Cursor<? extends Record> cursor = openCursor(dsl, qry)) {
+            Writer writer = mkWriter(counter);
+            writer.write('[');
+            while (cursor.hasNext()) {
+                for (Record record : cursor.fetchNext(CHUNK_SIZE)) {
+                    if (rows > 0) {
+                        writer.write(',');
+                    }
+                    record.formatJSON(writer, JSON_FORMAT);
+                    rows++;
+                }
+                writer.flush();
+            }
+            writer.write(']');
+            writer.flush();
+        }
+
+        return recordStats(name, "JSON", rows, counter, start);
+    }
+
+
+    /**
+     * Writes the query results as rows (starting at row 1, below the header) of the given sheet.
+     * The workbook should be a streaming (SXSSF) workbook so flushed rows are not retained in memory.
+     *
+     * @return number of rows written
+     */
+    public static long writeExcelBody(DSLContext dsl,
+                                      Select<?> qry,
+                                      SXSSFSheet sheet) {
+        int colCount = qry.fields().length;
+        int rowNum = 1;
+
+        try (Cursor<? extends Record> cursor = openCursor(dsl, qry)) {
+            while (cursor.hasNext()) {
+                for (Record r : cursor.fetchNext(CHUNK_SIZE)) {
+                    Row row = sheet.createRow(rowNum++);
+                    for (int col = 0; col < colCount; col++) {
+                        Cell cell = row.createCell(col);
+                        Object val = r.get(col);
+                        if (val != null) {
+                            cell.setCellValue(val.toString());
+                        }
+                    }
+                }
+            }
+        }
+
+        return rowNum - 1L;
+    }
+
+
+    public static ExtractStats writeExcel(String name,
+                                          SXSSFWorkbook workbook,
+                                          long rows,
+                                          OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        try {
+            BufferedOutputStream buffered = new BufferedOutputStream(counter, BUFFER_SIZE);
+            workbook.write(buffered);
+            buffered.flush();
+        } finally {
+            // removes the temporary files backing the streamed sheets
+            workbook.dispose();
+            workbook.close();
+        }
+        return recordStats(name, "XLSX", rows, counter, start);
+    }
+
+
+    private static Writer mkWriter(OutputStream out) {
+        return new OutputStreamWriter(
+                new BufferedOutputStream(out, BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+    }
+
+
+    private static ExtractStats recordStats(String name,
+                                         String format,
+                                         long rows,
+                                         CountingOutputStream counter,
+                                         long start) {
+        ExtractStats stats = new ExtractStats(rows, counter.count, System.currentTimeMillis() - start);
+        LOG.info("Streamed {} extract '{}': {}", format, name, stats);
+        RouteStats.current().ifPresent(s -> s.recordExtract(stats.rows(), stats.bytes()));
+        return stats;
+    }
+
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+}
@@ -41,7 +41,7 @@ import static org.finos.waltz.schema.tables.TaxonomyChange.TAXONOMY_CHANGE;
 import static org.finos.waltz.web.WebUtilities.getKind;
 import static org.finos.waltz.web.WebUtilities.getLong;
 import static org.finos.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
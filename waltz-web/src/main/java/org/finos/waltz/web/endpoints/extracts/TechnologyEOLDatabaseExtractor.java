@@ -40,7 +40,7 @@ import static org.finos.waltz.schema.Tables.DATABASE_INFORMATION;
 import static org.finos.waltz.schema.Tables.DATABASE_USAGE;
 import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.get;
 
 
 @Service
@@ -0,0 +1,177 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.metrics;
+
+import org.finos.waltz.common.ExponentialHistogram;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Registry of {@link RouteStats}, one per route template.  Routes are instrumented as they are
+ * registered (see <code>EndpointUtilities</code> and <code>ExtractorUtilities</code>), so the
+ * stats are held statically rather than in the Spring context.
+ */
+public class RouteMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final ConcurrentMap<String, RouteStats> STATS_BY_ROUTE = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param method  http method, e.g. GET
+     * @param path  route template, e.g. api/app/id/:id
+     * @return the (shared) stats for the route
+     */
+    public static RouteStats forRoute(String method, String path) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        String normalisedMethod = method.toUpperCase(Locale.ROOT);
+        return STATS_BY_ROUTE.computeIfAbsent(
+                normalisedMethod + " " + path,
+                k -> new RouteStats(normalisedMethod, path));
+    }
+
+
+    /**
+     * @return stats for all registered routes, ordered by route
+     */
+    public static List<RouteStats> findAll() {
+        return STATS_BY_ROUTE
+                .values()
+                .stream()
+                .sorted(Comparator.comparing(RouteStats::path).thenComparing(RouteStats::method))
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * @param limit  maximum number of routes to return
+     * @return routes with requests, slowest (by p99 latency) first
+     */
+    public static List<RouteStats> findSlowest(int limit) {
+        return STATS_BY_ROUTE
+                .values()
+                .stream()
+                .filter(s -> s.requestCount() > 0)
+                .sorted(Comparator.comparingLong((RouteStats s) -> s.latency().percentile(0.99)).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+
+    public static void reset() {
+        STATS_BY_ROUTE.values().forEach(RouteStats::reset);
+    }
+
+
+    /**
+     * Renders all route metrics in the plain text exposition format understood by
+     * Prometheus (and compatible scrapers).  Routes which have not been called are omitted.
+     */
+    public static String toPlainText() {
+        List<RouteStats> active = findAll()
+                .stream()
+                .filter(s -> s.requestCount() > 0)
+                .collect(Collectors.toList());
+
+        StringBuilder sb = new StringBuilder();
+
+        writeHeader(sb, "waltz_route_requests_total", "counter", "Number of requests handled by the route");
+        active.forEach(s -> writeSample(sb, "waltz_route_requests_total", s, null, s.requestCount()));
+
+        writeHeader(sb, "waltz_route_errors_total", "counter", "Number of requests where the route threw an exception");
+        active.forEach(s -> writeSample(sb, "waltz_route_errors_total", s, null, s.errorCount()));
+
+        writeHeader(sb, "waltz_route_latency_seconds", "summary", "Overall request latency");
+        active.forEach(s -> writeSummary(sb, "waltz_route_latency_seconds", s, s.latency(), NANOS_PER_SECOND));
+
+        writeHeader(sb, "waltz_route_handler_seconds_total", "counter", "Time spent in route handlers");
+        active.forEach(s -> writeSample(sb, "waltz_route_handler_seconds_total", s, null, s.handlerNanos() / NANOS_PER_SECOND));
+
+        writeHeader(sb, "waltz_route_serialisation_seconds_total", "counter", "Time spent serialising route results");
+        active.forEach(s -> writeSample(sb, "waltz_route_serialisation_seconds_total", s, null, s.serialisationNanos() / NANOS_PER_SECOND));
+
+        writeHeader(sb, "waltz_route_response_bytes", "summary", "Size of rendered responses");
+        active.stream()
+                .filter(s -> s.payloadSize().count() > 0)
+                .forEach(s -> writeSummary(sb, "waltz_route_response_bytes", s, s.payloadSize(), 1));
+
+        writeHeader(sb, "waltz_route_extract_rows", "summary", "Rows written by streamed extracts");
+        active.stream()
+                .filter(s -> s.extractRows().count() > 0)
+                .forEach(s -> writeSummary(sb, "waltz_route_extract_rows", s, s.extractRows(), 1));
+
+        return sb.toString();
+    }
+
+
+    // -- helpers
+
+    private static void writeHeader(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+
+    private static void writeSummary(StringBuilder sb,
+                                     String name,
+                                     RouteStats stats,
+                                     ExponentialHistogram histogram,
+                                     double divisor) {
+        for (double quantile : QUANTILES) {
+            writeSample(sb, name, stats, quantile, histogram.percentile(quantile) / divisor);
+        }
+        writeSample(sb, name + "_sum", stats, null, histogram.sum() / divisor);
+        writeSample(sb, name + "_count", stats, null, histogram.count());
+    }
+
+
+    private static void writeSample(StringBuilder sb,
+                                    String name,
+                                    RouteStats stats,
+                                    Double quantile,
+                                    Number value) {
+        sb.append(name)
+                .append("{method=\"").append(stats.method())
+                .append("\",route=\"").append(escapeLabel(stats.path()))
+                .append('"');
+        if (quantile != null) {
+            sb.append(",quantile=\"").append(quantile).append('"');
+        }
+        sb.append("} ").append(value).append('\n');
+    }
+
+
+    private static String escapeLabel(String str) {
+        return str
+                .replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+}
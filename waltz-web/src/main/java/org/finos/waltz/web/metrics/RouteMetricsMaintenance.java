@@ -0,0 +1,95 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import static org.finos.waltz.common.StringUtilities.mkSafe;
+
+@Component
+@ManagedResource(description = "Latency, throughput and error metrics for the Waltz web routes")
+public class RouteMetricsMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouteMetricsMaintenance.class);
+
+    private static final int SLOWEST_ROUTE_LIMIT = 20;
+
+
+    @ManagedOperation(description = "Reset all route metrics")
+    public void reset() {
+        LOG.warn("Resetting route metrics (via jmx)");
+        RouteMetrics.reset();
+    }
+
+
+    @ManagedOperation(description = "Describe the metrics for routes whose template contains the given text")
+    @ManagedOperationParameter(name = "pathFragment", description = "Part of a route template, e.g. api/measurable")
+    public String[] describeRoutes(String pathFragment) {
+        String fragment = mkSafe(pathFragment);
+        return RouteMetrics
+                .findAll()
+                .stream()
+                .filter(s -> s.path().contains(fragment))
+                .map(RouteStats::toString)
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute(description = "Routes with the highest p99 latency")
+    public String[] getSlowestRoutes() {
+        return RouteMetrics
+                .findSlowest(SLOWEST_ROUTE_LIMIT)
+                .stream()
+                .map(RouteStats::toString)
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute(description = "Number of instrumented routes")
+    public int getRouteCount() {
+        return RouteMetrics.findAll().size();
+    }
+
+
+    @ManagedAttribute(description = "Number of requests handled across all routes")
+    public long getRequestCount() {
+        return RouteMetrics
+                .findAll()
+                .stream()
+                .mapToLong(RouteStats::requestCount)
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of requests where the route threw an exception")
+    public long getErrorCount() {
+        return RouteMetrics
+                .findAll()
+                .stream()
+                .mapToLong(RouteStats::errorCount)
+                .sum();
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.metrics;
+
+import org.finos.waltz.common.ExponentialHistogram;
+import spark.Request;
+import spark.Response;
+import spark.ResponseTransformer;
+import spark.Route;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Latency, throughput, payload size and error metrics for a single route template
+ * (e.g. <code>GET api/measurable/id/:id</code>).  Instances are obtained via
+ * {@link RouteMetrics#forRoute(String, String)} when the route is registered.
+ *
+ * Overall latency and errors are recorded by {@link #timed(Route)}.  Routes which return a
+ * model (rather than writing to the response directly) can additionally use
+ * {@link #handle(Route, Request, Response)} and {@link #render(ResponseTransformer, Object)}
+ * to split the time spent in the handler from the time spent serialising the result.
+ * Routes which stream extracts to the response record the rows and bytes written via
+ * {@link #recordExtract(long, long)} on the {@link #current()} stats.
+ */
+public class RouteStats {
+
+    private static final long LOWEST_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long HIGHEST_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final long LOWEST_PAYLOAD_BYTES = 16;
+    private static final long HIGHEST_PAYLOAD_BYTES = 1L << 32;
+    private static final long LOWEST_EXTRACT_ROWS = 1;
+    private static final long HIGHEST_EXTRACT_ROWS = 1L << 26;
+
+    // stats of the timed route being handled by this thread, if any
+    private static final ThreadLocal<RouteStats> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+    private final String path;
+
+    private final ExponentialHistogram latency = new ExponentialHistogram(LOWEST_LATENCY_NANOS, HIGHEST_LATENCY_NANOS);
+    private final ExponentialHistogram payloadSize = new ExponentialHistogram(LOWEST_PAYLOAD_BYTES, HIGHEST_PAYLOAD_BYTES);
+    private final ExponentialHistogram extractRows = new ExponentialHistogram(LOWEST_EXTRACT_ROWS, HIGHEST_EXTRACT_ROWS);
+    private final LongAdder handlerNanos = new LongAdder();
+    private final LongAdder serialisationNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+
+    RouteStats(String method, String path) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        this.method = method;
+        this.path = path;
+    }
+
+
+    /**
+     * Wraps the route so the overall latency of each request is recorded.  If the route
+     * throws an exception the request is counted as an error (and the exception rethrown).
+     */
+    public Route timed(Route route) {
+        checkNotNull(route, "route cannot be null");
+        return (request, response) -> {
+            long start = System.nanoTime();
+            boolean failed = true;
+            RouteStats previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                Object result = route.handle(request, response);
+                failed = false;
+                return result;
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+                recordRequest(System.nanoTime() - start, failed);
+            }
+        };
+    }
+
+
+    /**
+     * Invokes the route, recording the time spent in the handler.
+     */
+    public Object handle(Route route, Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return route.handle(request, response);
+        } finally {
+            handlerNanos.add(System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Renders the model with the transformer, recording the serialisation time and payload size.
+     */
+    public String render(ResponseTransformer transformer, Object model) throws Exception {
+        long start = System.nanoTime();
+        String body = transformer.render(model);
+        serialisationNanos.add(System.nanoTime() - start);
+        payloadSize.record(utf8Length(body));
+        return body;
+    }
+
+
+    /**
+     * @return stats for the {@link #timed(Route) timed} route currently being handled by this thread
+     */
+    public static Optional<RouteStats> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+
+    /**
+     * Records an extract written directly to the response.  The bytes written are
+     * counted as the payload size of the request.
+     */
+    public void recordExtract(long rows, long bytes) {
+        extractRows.record(rows);
+        payloadSize.record(bytes);
+    }
+
+
+    void recordRequest(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+
+    public String method() {
+        return method;
+    }
+
+
+    public String path() {
+        return path;
+    }
+
+
+    public String key() {
+        return method + " " + path;
+    }
+
+
+    public long requestCount() {
+        return latency.count();
+    }
+
+
+    public long errorCount() {
+        return errors.sum();
+    }
+
+
+    /**
+     * @return histogram of overall request latency, in nanoseconds
+     */
+    public ExponentialHistogram latency() {
+        return latency;
+    }
+
+
+    /**
+     * @return histogram of rendered response sizes, in bytes.  Only populated for routes
+     * which render via {@link #render(ResponseTransformer, Object)} or record extracts
+     */
+    public ExponentialHistogram payloadSize() {
+        return payloadSize;
+    }
+
+
+    /**
+     * @return histogram of rows written per extract.  Only populated for extract routes
+     */
+    public ExponentialHistogram extractRows() {
+        return extractRows;
+    }
+
+
+    public long handlerNanos() {
+        return handlerNanos.sum();
+    }
+
+
+    public long serialisationNanos() {
+        return serialisationNanos.sum();
+    }
+
+
+    public void reset() {
+        latency.reset();
+        payloadSize.reset();
+        extractRows.reset();
+        handlerNanos.reset();
+        serialisationNanos.reset();
+        errors.reset();
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: requests=%d, errors=%d, p50=%.1fms, p95=%.1fms, p99=%.1fms, handler total=%.1fms, serialisation total=%.1fms, p95 payload=%d bytes, p95 extract=%d rows",
+                key(),
+                requestCount(),
+                errorCount(),
+                toMillis(latency.percentile(0.5)),
+                toMillis(latency.percentile(0.95)),
+                toMillis(latency.percentile(0.99)),
+                toMillis(handlerNanos()),
+                toMillis(serialisationNanos()),
+                payloadSize.percentile(0.95),
+                extractRows.percentile(0.95));
+    }
+
+
+    // -- helpers
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+
+    private static long utf8Length(String str) {
+        long len = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                len += 1;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                len += 4;
+                i++;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.finos.waltz.web.ETagUtilities.matches;
+import static org.finos.waltz.web.ETagUtilities.mkStrongETag;
+import static org.finos.waltz.web.ETagUtilities.mkVersionETag;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ETagUtilitiesTest {
+
+    @Test
+    public void strongTagsAreStableAndQuoted() {
+        String tag = mkStrongETag("[1,2,3]");
+        assertEquals(tag, mkStrongETag("[1,2,3]"));
+        assertNotEquals(tag, mkStrongETag("[1,2,4]"));
+        assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+    }
+
+
+    @Test
+    public void versionTagsAreWeak() {
+        String tag = mkVersionETag("abc");
+        assertTrue(tag.startsWith("W/\""));
+        assertEquals(tag, mkVersionETag("abc"));
+        assertNotEquals(tag, mkVersionETag("abd"));
+    }
+
+
+    @Test
+    public void ifNoneMatchUsesWeakComparison() {
+        String strong = mkStrongETag("body");
+        String weak = mkVersionETag("v1");
+
+        assertTrue(matches(strong, strong));
+        assertTrue(matches("W/" + strong, strong));
+        assertTrue(matches(weak, weak));
+        assertTrue(matches(weak.substring(2), weak));
+        assertTrue(matches("\"other\", " + weak, weak));
+        assertTrue(matches("*", weak));
+
+        assertFalse(matches(null, strong));
+        assertFalse(matches("", strong));
+        assertFalse(matches("\"other\"", strong));
+    }
+
+}
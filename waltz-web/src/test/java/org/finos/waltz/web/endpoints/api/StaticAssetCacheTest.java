@@ -0,0 +1,127 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StaticAssetCacheTest {
+
+    private static final String INDEX_HTML = "<html>\n<head>\n<base href=\"/\" />\n</head>\n<body></body>\n</html>";
+    private static final String SCRIPT = repeat("console.log('hello world');\n", 100);
+
+    private final AtomicInteger opens = new AtomicInteger();
+    private final Map<String, String> resources = new HashMap<>();
+    private final StaticAssetCache cache = new StaticAssetCache(this::open);
+
+
+    @Test
+    public void assetsAreLoadedOnceWithGzipVariant() throws IOException {
+        resources.put("static/app.js", SCRIPT);
+
+        StaticAssetCache.StaticAsset asset = cache.find("static/app.js", () -> "application/javascript", "").get();
+        assertSame(asset, cache.find("static/app.js", () -> "application/javascript", "").get());
+        assertEquals(1, opens.get());
+
+        assertTrue(asset.hasGzipVariant());
+        assertArrayEquals(SCRIPT.getBytes(StandardCharsets.UTF_8), asset.body(false));
+        assertTrue(asset.body(true).length < asset.body(false).length);
+        assertArrayEquals(asset.body(false), gunzip(asset.body(true)));
+        assertNotEquals(asset.etag(false), asset.etag(true), "strong etags must differ by encoding");
+    }
+
+
+    @Test
+    public void smallOrBinaryAssetsAreNotCompressed() {
+        resources.put("static/small.css", "body {}");
+        resources.put("static/logo.png", SCRIPT);
+
+        assertFalse(cache.find("static/small.css", () -> "text/css", "").get().hasGzipVariant());
+        assertFalse(cache.find("static/logo.png", () -> "image/png", "").get().hasGzipVariant());
+    }
+
+
+    @Test
+    public void missingAssetsAreEmpty() {
+        assertEquals(Optional.empty(), cache.find("static/missing.js", () -> "application/javascript", ""));
+    }
+
+
+    @Test
+    public void indexIsRewrittenAndCachedPerContextPath() {
+        resources.put("static/index.html", INDEX_HTML);
+
+        String plain = body(cache.find("static/index.html", () -> "text/html", ""));
+        String waltz = body(cache.find("static/index.html", () -> "text/html", "/waltz"));
+        cache.find("static/index.html", () -> "text/html", "/waltz");
+
+        assertEquals(INDEX_HTML, plain);
+        assertTrue(waltz.contains("<base href=\"/waltz/\" />"));
+        assertEquals(2, opens.get(), "should only load once per context path");
+    }
+
+
+    // -- helpers
+
+    private InputStream open(String path) {
+        opens.incrementAndGet();
+        String content = resources.get(path);
+        return content == null
+                ? null
+                : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static String body(Optional<StaticAssetCache.StaticAsset> asset) {
+        return new String(asset.get().body(false), StandardCharsets.UTF_8);
+    }
+
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+
+    private static String repeat(String str, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(str);
+        }
+        return sb.toString();
+    }
+
+}
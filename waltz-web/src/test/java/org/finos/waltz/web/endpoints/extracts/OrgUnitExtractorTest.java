@@ -20,7 +20,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import spark.Request;
 import spark.Response;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 
 import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
@@ -37,6 +43,10 @@ class OrgUnitExtractorTest {
     private Request request;
     @Mock
     private Response response;
+    @Mock
+    private HttpServletResponse httpResponse;
+
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
 
     @BeforeEach
     public void setUp(){
@@ -49,10 +59,14 @@ class OrgUnitExtractorTest {
     void recordsFoundAreTransformRecordsToJsonModel() throws IOException {
         when(request.queryParams("format"))
                 .thenReturn("JSON");
+        when(response.raw())
+                .thenReturn(httpResponse);
+        when(httpResponse.getOutputStream())
+                .thenReturn(mkServletOutputStream(responseBody));
         Object obj =
                 orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
-        assertTrue(obj instanceof String);
-        String responseJSON = (String)obj;
+        assertSame(httpResponse, obj);
+        String responseJSON = responseBody.toString(StandardCharsets.UTF_8.name());
         assertTrue(responseJSON.length()>0);
         JsonNode node = JacksonUtilities.getJsonMapper().readTree(responseJSON);
         JsonNode arrElement = node.get(0);
@@ -63,6 +77,43 @@ class OrgUnitExtractorTest {
 
     }
 
+    @Test
+    void csvIsStreamedWithHeaderRow() throws IOException {
+        when(request.queryParams("format"))
+                .thenReturn("CSV");
+        when(response.raw())
+                .thenReturn(httpResponse);
+        when(httpResponse.getOutputStream())
+                .thenReturn(mkServletOutputStream(responseBody));
+
+        orgUnitExtractor.writeExtract("name", createDummyQuery(), request, response);
+
+        String[] lines = responseBody.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,parentId,name,description,externalId,provenance", lines[0]);
+        assertTrue(lines[1].startsWith("1,"));
+    }
+
+
+    private static ServletOutputStream mkServletOutputStream(OutputStream out) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        };
+    }
+
+
     private DSLContext createTestDslContext(){
         MockDataProvider provider = context -> {
             DSLContext create = DSL.using(SQLDialect.POSTGRES);
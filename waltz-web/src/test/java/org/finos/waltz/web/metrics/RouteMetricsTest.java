@@ -0,0 +1,77 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteMetricsTest {
+
+    @Test
+    public void routesRecordRequestsRenderingAndErrors() throws Exception {
+        RouteStats stats = RouteMetrics.forRoute("get", "api/test/route-metrics/:id");
+        stats.reset();
+
+        Object rendered = stats
+                .timed((req, resp) -> stats.render(model -> "[" + model + "]", stats.handle((rq, rs) -> "abc", req, resp)))
+                .handle(null, null);
+
+        assertEquals("[abc]", rendered);
+        assertThrows(
+                IllegalStateException.class,
+                () -> stats.timed((req, resp) -> { throw new IllegalStateException("boom"); }).handle(null, null));
+
+        assertEquals("GET api/test/route-metrics/:id", stats.key());
+        assertEquals(2, stats.requestCount());
+        assertEquals(1, stats.errorCount());
+        assertEquals(1, stats.payloadSize().count());
+        assertEquals(5, stats.payloadSize().max());
+
+        String text = RouteMetrics.toPlainText();
+        assertTrue(text.contains("waltz_route_requests_total{method=\"GET\",route=\"api/test/route-metrics/:id\"} 2"));
+        assertTrue(text.contains("waltz_route_errors_total{method=\"GET\",route=\"api/test/route-metrics/:id\"} 1"));
+        assertTrue(text.contains("waltz_route_latency_seconds{method=\"GET\",route=\"api/test/route-metrics/:id\",quantile=\"0.99\"}"));
+    }
+
+
+    @Test
+    public void extractsAreRecordedAgainstTheCurrentRoute() throws Exception {
+        RouteStats stats = RouteMetrics.forRoute("GET", "data-extract/test/route-metrics");
+        stats.reset();
+
+        assertFalse(RouteStats.current().isPresent());
+
+        stats.timed((req, resp) -> {
+                    RouteStats.current().ifPresent(s -> s.recordExtract(250, 4096));
+                    return null;
+                })
+                .handle(null, null);
+
+        assertFalse(RouteStats.current().isPresent());
+        assertEquals(1, stats.extractRows().count());
+        assertEquals(250, stats.extractRows().max());
+        assertEquals(4096, stats.payloadSize().max());
+        assertTrue(RouteMetrics.toPlainText().contains("waltz_route_extract_rows_count{method=\"GET\",route=\"data-extract/test/route-metrics\"} 1"));
+    }
+
+}